@@ -33,6 +33,29 @@ public enum SerializationStrategy
      * by hashCode on both sides while serialization and deserialization, which in case needs time.<br>
      * To be clear, deserialized instances of same objects are identity-equal!
      */
-    SizeOptimized
+    SizeOptimized,
+
+    /**
+     * This strategy behaves like {@link #SizeOptimized} but additionally encodes lengths, enum ordinals, reference ids
+     * and integral values (short, char, int, long) as variable length integers (zigzag encoded for signed values). This
+     * trades some CPU time for a noticeable smaller stream and is meant for bandwidth bound links. Classes are written
+     * as dense indexes into the {@link org.apache.directmemory.lightning.metadata.ClassDefinitionContainer}, which
+     * carry no checksum, so all nodes have to use the same container (see
+     * {@link Serializer#setClassDefinitionContainer}) or they silently read other types.<br>
+     * To be clear, the stream format is not compatible to the other strategies!
+     */
+    Compact,
+
+    /**
+     * This strategy decides per root class and call if same instances are tracked like in {@link #SizeOptimized} or
+     * only values are written like in {@link #SpeedOptimized}. Calls are measured for shared references and root
+     * classes without any sharing switch to value-only marshalling, while a sampled fraction of their calls is still
+     * tracked to detect sharing again. A flag after the root class definition tells the reader which encoding was
+     * used. Value-only calls still follow the path of nested values to detect cycles, such a call is redone with
+     * tracking and switches its root class back.<br>
+     * To be clear, sharing that never shows up in a tracked call is not detected, so graphs of rarely shared root
+     * classes should use {@link #SizeOptimized} or declare the shared types explicitly!
+     */
+    Adaptive
 
 }
@@ -43,6 +43,26 @@ public interface Serializer
 
     <V> void serialize( V value, ByteBuffer buffer );
 
+    /**
+     * Serializes the value directly into the given array starting at offset.
+     * 
+     * @param value the value to serialize
+     * @param target the target array
+     * @param offset the offset of the first byte to write
+     * @return the number of bytes written
+     * @throws org.apache.directmemory.lightning.exceptions.SerializerExecutionException if the target array is too
+     *             small
+     */
+    <V> int serialize( V value, byte[] target, int offset );
+
+    /**
+     * Serializes the value using an internally pooled growable buffer and returns a copy of exactly the written bytes.
+     * 
+     * @param value the value to serialize
+     * @return the serialized bytes
+     */
+    <V> byte[] serialize( V value );
+
     <V> V deserialize( DataInput dataInput );
 
     <V> V deserialize( InputStream inputStream );
@@ -51,4 +71,14 @@ public interface Serializer
 
     <V> V deserialize( ByteBuffer buffer );
 
+    /**
+     * Deserializes a value from the given slice of the source array.
+     * 
+     * @param source the source array
+     * @param offset the offset of the first byte to read
+     * @param length the number of bytes available to read
+     * @return the deserialized value
+     */
+    <V> V deserialize( byte[] source, int offset, int length );
+
 }
@@ -38,6 +38,10 @@ public interface DefinitionVisitor
 
     void visitPropertyDescriptor( PropertyDescriptor propertyDescriptor, Marshaller marshaller );
 
+    void visitReferenceTrackedType( Class<?> type );
+
+    void visitReferenceTrackedAttribute( PropertyDescriptor propertyDescriptor );
+
     void visitFinalizeSerializerDefinition( SerializerDefinition serializerDefinition );
 
 }
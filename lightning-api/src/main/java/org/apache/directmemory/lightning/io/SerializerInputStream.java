@@ -19,6 +19,7 @@
 package org.apache.directmemory.lightning.io;
 
 import java.io.DataInput;
+import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -44,6 +45,10 @@ public class SerializerInputStream
 
     private char lineBuffer[];
 
+    private byte[] utfByteBuffer = new byte[0];
+
+    private char[] utfCharBuffer = new char[0];
+
     public SerializerInputStream( InputStream in, Serializer serializer )
     {
         super( in );
@@ -60,14 +65,23 @@ public class SerializerInputStream
     public void readFully( byte[] b )
         throws IOException
     {
-        in.read( b );
+        readFully( b, 0, b.length );
     }
 
     @Override
     public void readFully( byte[] b, int off, int len )
         throws IOException
     {
-        in.read( b, off, len );
+        int count = 0;
+        while ( count < len )
+        {
+            int read = in.read( b, off + count, len - count );
+            if ( read < 0 )
+            {
+                throw new EOFException();
+            }
+            count += read;
+        }
     }
 
     @Override
@@ -227,10 +241,14 @@ public class SerializerInputStream
         throws IOException
     {
         final int utflen = readShort();
-        byte[] bytearr = null;
-        char[] chararr = null;
-        bytearr = new byte[utflen];
-        chararr = new char[utflen];
+        // Scratch buffers are reused for all chunks and strings of this stream
+        if ( utfByteBuffer.length < utflen )
+        {
+            utfByteBuffer = new byte[utflen];
+            utfCharBuffer = new char[utflen];
+        }
+        byte[] bytearr = utfByteBuffer;
+        char[] chararr = utfCharBuffer;
         int c, char2, char3;
         int count = 0;
         int chararr_count = 0;
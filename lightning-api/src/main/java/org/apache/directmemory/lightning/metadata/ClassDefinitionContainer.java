@@ -33,4 +33,13 @@ public interface ClassDefinitionContainer
 
     ClassDefinition getClassDefinitionByType( Class<?> type );
 
+    /**
+     * Returns the dense index of the ClassDefinition of the given type or -1 if the type is unknown. Indexes only
+     * depend on the order of the registered types, they are identical on all nodes sharing the same
+     * ClassDefinitionContainer but are not verified when read.
+     */
+    int getIndexByType( Class<?> type );
+
+    ClassDefinition getClassDefinitionByIndex( int index );
+
 }
@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.apt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.apache.directmemory.lightning.internal.generator.PrecompiledMarshallerIndex;
+import org.apache.directmemory.lightning.internal.util.BeanUtil;
+import org.apache.directmemory.lightning.internal.util.InternalUtil;
+import org.apache.directmemory.lightning.metadata.Attribute;
+
+/**
+ * Generates the sourcecode of marshallers for all classes with {@link Attribute} annotated properties while they are
+ * compiled, together with the {@link PrecompiledMarshallerIndex} used by serializers to find them at runtime.
+ * Properties are collected the same way as by {@link BeanUtil#findPropertiesByClass(Class, Class)} so the checksum
+ * written to the index matches the class definition built at runtime.
+ */
+@SupportedAnnotationTypes( "org.apache.directmemory.lightning.metadata.Attribute" )
+public class LightningAnnotationProcessor
+    extends AbstractProcessor
+{
+
+    private static final String MARSHALLER_CLASS_SUFFIX = "LightningGeneratedMarshaller";
+
+    private static final Comparator<VariableElement> PROPERTY_NAME_COMPARATOR = new Comparator<VariableElement>()
+    {
+
+        @Override
+        public int compare( VariableElement o1, VariableElement o2 )
+        {
+            return o1.getSimpleName().toString().compareTo( o2.getSimpleName().toString() );
+        }
+    };
+
+    private final PrecompiledMarshallerIndex marshallerIndex = new PrecompiledMarshallerIndex();
+
+    private final Set<String> processedTypes = new HashSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment )
+    {
+        if ( roundEnvironment.processingOver() )
+        {
+            writeMarshallerIndex();
+            return false;
+        }
+
+        for ( Element element : roundEnvironment.getElementsAnnotatedWith( Attribute.class ) )
+        {
+            Element enclosingElement = element.getEnclosingElement();
+            if ( enclosingElement.getKind() == ElementKind.CLASS )
+            {
+                TypeElement type = (TypeElement) enclosingElement;
+                String typeName = processingEnv.getElementUtils().getBinaryName( type ).toString();
+                if ( processedTypes.add( typeName ) )
+                {
+                    generateMarshaller( type, typeName );
+                }
+            }
+        }
+
+        // Attribute is not claimed, other processors may be interested as well
+        return false;
+    }
+
+    private void generateMarshaller( TypeElement type, String typeName )
+    {
+        // Abstract types can never be instantiated by the marshaller
+        if ( type.getModifiers().contains( Modifier.ABSTRACT ) )
+        {
+            return;
+        }
+
+        List<VariableElement> properties = findProperties( type );
+        if ( properties == null )
+        {
+            return;
+        }
+
+        for ( VariableElement property : properties )
+        {
+            if ( property.asType().getKind() == TypeKind.ARRAY )
+            {
+                String message = "Array properties are not supported, marshaller of " + typeName
+                    + " is generated at runtime";
+                processingEnv.getMessager().printMessage( Kind.NOTE, message, property );
+                return;
+            }
+
+            if ( isInlinedNestedProperty( property ) )
+            {
+                String message = "Properties of final annotated types are inlined at runtime, marshaller of "
+                    + typeName + " is generated at runtime";
+                processingEnv.getMessager().printMessage( Kind.NOTE, message, property );
+                return;
+            }
+        }
+
+        // Same order as the property descriptors passed to the marshaller at runtime
+        Collections.sort( properties, PROPERTY_NAME_COMPARATOR );
+
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf( type );
+        String packageName = packageElement.isUnnamed() ? "lightning" : packageElement.getQualifiedName().toString();
+        String className = typeName.replace( packageName + ".", "" ) + MARSHALLER_CLASS_SUFFIX;
+
+        try
+        {
+            JavaFileObject sourceFile =
+                processingEnv.getFiler().createSourceFile( packageName + "." + className, type );
+            Writer writer = sourceFile.openWriter();
+            try
+            {
+                new MarshallerSourceWriter( writer ).writeMarshaller( packageName, className, properties );
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            processingEnv.getMessager().printMessage( Kind.ERROR, "Could not generate marshaller of " + typeName + ": "
+                                                          + e.getMessage(), type );
+            return;
+        }
+
+        marshallerIndex.put( typeName, packageName + "." + className, buildChecksum( properties ) );
+    }
+
+    private boolean isInlinedNestedProperty( VariableElement property )
+    {
+        // The runtime generator writes the properties of final types with a generated marshaller into the
+        // marshaller of the enclosing type, the generated source would not write the same bytes
+        if ( property.asType().getKind() != TypeKind.DECLARED )
+        {
+            return false;
+        }
+
+        TypeElement propertyType = (TypeElement) ( (DeclaredType) property.asType() ).asElement();
+        if ( propertyType.getKind() != ElementKind.CLASS || !propertyType.getModifiers().contains( Modifier.FINAL ) )
+        {
+            return false;
+        }
+
+        List<VariableElement> nestedProperties = findProperties( propertyType );
+        return nestedProperties == null || !nestedProperties.isEmpty();
+    }
+
+    private List<VariableElement> findProperties( TypeElement type )
+    {
+        Set<VariableElement> properties = new LinkedHashSet<VariableElement>();
+
+        TypeElement searchType = type;
+        while ( searchType != null && !Object.class.getName().equals( searchType.getQualifiedName().toString() ) )
+        {
+            for ( Element element : searchType.getEnclosedElements() )
+            {
+                if ( element.getAnnotation( Attribute.class ) == null )
+                {
+                    continue;
+                }
+
+                if ( element.getKind() == ElementKind.FIELD )
+                {
+                    properties.add( (VariableElement) element );
+                }
+                else if ( element.getKind() == ElementKind.METHOD
+                    && !addMethodProperty( searchType, (ExecutableElement) element, properties ) )
+                {
+                    return null;
+                }
+            }
+
+            // Annotated methods of directly implemented interfaces
+            for ( TypeMirror interfaceType : searchType.getInterfaces() )
+            {
+                Element interfaceElement = ( (DeclaredType) interfaceType ).asElement();
+                for ( ExecutableElement method : ElementFilter.methodsIn( interfaceElement.getEnclosedElements() ) )
+                {
+                    if ( method.getAnnotation( Attribute.class ) != null
+                        && !addMethodProperty( searchType, method, properties ) )
+                    {
+                        return null;
+                    }
+                }
+            }
+
+            searchType = getSuperclass( searchType );
+        }
+
+        return new ArrayList<VariableElement>( properties );
+    }
+
+    private boolean addMethodProperty( TypeElement type, ExecutableElement method, Set<VariableElement> properties )
+    {
+        String propertyName = BeanUtil.buildPropertyName( method.getSimpleName().toString() );
+        VariableElement property = findField( type, propertyName );
+        if ( property == null )
+        {
+            property = findField( type, method.getAnnotation( Attribute.class ).property() );
+        }
+
+        if ( property == null )
+        {
+            processingEnv.getMessager().printMessage( Kind.ERROR, "No property for method " + method + " was found",
+                                                      method );
+            return false;
+        }
+
+        properties.add( property );
+        return true;
+    }
+
+    private VariableElement findField( TypeElement type, String name )
+    {
+        TypeElement searchType = type;
+        while ( searchType != null && !Object.class.getName().equals( searchType.getQualifiedName().toString() ) )
+        {
+            for ( VariableElement field : ElementFilter.fieldsIn( searchType.getEnclosedElements() ) )
+            {
+                if ( field.getSimpleName().contentEquals( name ) )
+                {
+                    return field;
+                }
+            }
+            searchType = getSuperclass( searchType );
+        }
+        return null;
+    }
+
+    private TypeElement getSuperclass( TypeElement type )
+    {
+        TypeMirror superclass = type.getSuperclass();
+        if ( superclass.getKind() != TypeKind.DECLARED )
+        {
+            return null;
+        }
+        return (TypeElement) ( (DeclaredType) superclass ).asElement();
+    }
+
+    private byte[] buildChecksum( List<VariableElement> properties )
+    {
+        // Same signature as built by BeanUtil#buildInternalSignature and hashed by InternalUtil#getChecksum
+        StringBuilder signature = new StringBuilder();
+        for ( VariableElement property : properties )
+        {
+            TypeMirror propertyType = processingEnv.getTypeUtils().erasure( property.asType() );
+            signature.append( '{' ).append( property.getSimpleName() ).append( '}' );
+            signature.append( toDescriptor( propertyType ) );
+        }
+        return InternalUtil.getChecksum( signature.toString().getBytes( InternalUtil.CHARSET ), null );
+    }
+
+    private String toDescriptor( TypeMirror type )
+    {
+        switch ( type.getKind() )
+        {
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case CHAR:
+                return "C";
+            case SHORT:
+                return "S";
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case FLOAT:
+                return "F";
+            case DOUBLE:
+                return "D";
+            default:
+                TypeElement typeElement = (TypeElement) ( (DeclaredType) type ).asElement();
+                String binaryName = processingEnv.getElementUtils().getBinaryName( typeElement ).toString();
+                return "L" + binaryName.replace( '.', '/' ) + ";";
+        }
+    }
+
+    private void writeMarshallerIndex()
+    {
+        if ( marshallerIndex.isEmpty() )
+        {
+            return;
+        }
+
+        try
+        {
+            FileObject indexFile =
+                processingEnv.getFiler().createResource( StandardLocation.CLASS_OUTPUT, "",
+                                                         PrecompiledMarshallerIndex.INDEX_RESOURCE );
+            Writer writer = indexFile.openWriter();
+            try
+            {
+                marshallerIndex.store( writer );
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            processingEnv.getMessager().printMessage( Kind.ERROR, "Could not write marshaller index: "
+                                                          + e.getMessage() );
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.apt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+
+/**
+ * Writes the source of a marshaller for the given properties using the byte layout of the bytecode generator: the
+ * null state of all reference properties is written as a leading null bitmap, primitive properties are read and
+ * written directly as long as they use the build-in marshaller of their type and all other non-null properties are
+ * passed to their marshaller.
+ */
+class MarshallerSourceWriter
+{
+
+    private static final int NULL_BITMAP_CHUNK_SIZE = 64;
+
+    private final Writer writer;
+
+    private int indent = 0;
+
+    MarshallerSourceWriter( Writer writer )
+    {
+        this.writer = writer;
+    }
+
+    void writeMarshaller( String packageName, String className, List<VariableElement> properties )
+        throws IOException
+    {
+        line( "package " + packageName + ";" );
+        line( "" );
+        line( "import java.io.DataInput;" );
+        line( "import java.io.DataOutput;" );
+        line( "import java.io.IOException;" );
+        line( "import java.util.List;" );
+        line( "import java.util.Map;" );
+        line( "" );
+        line( "import org.apache.directmemory.lightning.Marshaller;" );
+        line( "import org.apache.directmemory.lightning.SerializationContext;" );
+        line( "import org.apache.directmemory.lightning.SerializationStrategy;" );
+        line( "import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;" );
+        line( "import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;" );
+        line( "import org.apache.directmemory.lightning.internal.generator.AbstractGeneratedMarshaller;" );
+        line( "import org.apache.directmemory.lightning.internal.util.VarIntUtil;" );
+        line( "import org.apache.directmemory.lightning.metadata.PropertyDescriptor;" );
+        line( "import org.apache.directmemory.lightning.metadata.ValuePropertyAccessor;" );
+        line( "" );
+        line( "/**" );
+        line( " * Generated by the Lightning annotation processor, do not edit." );
+        line( " */" );
+        line( "public final class " + className );
+        line( "    extends AbstractGeneratedMarshaller" );
+        open();
+
+        for ( VariableElement property : properties )
+        {
+            String name = property.getSimpleName().toString();
+            line( "" );
+            line( "private final PropertyDescriptor " + name + "Descriptor;" );
+            line( "" );
+            line( "private final Marshaller " + name + "Marshaller;" );
+            line( "" );
+            line( "private final ValuePropertyAccessor " + name + "Accessor;" );
+            if ( isPrimitive( property ) )
+            {
+                line( "" );
+                line( "private final boolean " + name + "BuildIn;" );
+            }
+        }
+
+        writeConstructor( className, properties );
+        writeMarshallMethod( properties );
+        writeUnmarshallMethod( properties );
+
+        close();
+        writer.flush();
+    }
+
+    private void writeConstructor( String className, List<VariableElement> properties )
+        throws IOException
+    {
+        line( "" );
+        line( "public " + className + "( Class<?> marshalledType, Map<Class<?>, Marshaller> marshallers," );
+        line( "    ClassDescriptorAwareSerializer serializer, ObjectInstantiatorFactory objectInstantiatorFactory," );
+        line( "    List<PropertyDescriptor> propertyDescriptors )" );
+        open();
+        line( "super( marshalledType, marshallers, serializer, objectInstantiatorFactory );" );
+
+        for ( int i = 0; i < properties.size(); i++ )
+        {
+            VariableElement property = properties.get( i );
+            String name = property.getSimpleName().toString();
+            line( "" );
+            line( "PropertyDescriptor " + name + "Property = propertyDescriptors.get( " + i + " );" );
+            line( name + "Descriptor = toMarshalledPropertyDescriptor( " + name + "Property );" );
+            line( name + "Marshaller = findMarshaller( " + name + "Property );" );
+            line( name + "Accessor = (ValuePropertyAccessor) " + name + "Property.getPropertyAccessor();" );
+            if ( isPrimitive( property ) )
+            {
+                line( name + "BuildIn = isBuildInPrimitiveMarshalled( " + name + "Property );" );
+            }
+        }
+        close();
+    }
+
+    private void writeMarshallMethod( List<VariableElement> properties )
+        throws IOException
+    {
+        line( "" );
+        line( "@Override" );
+        line( "public void marshall( Object value, PropertyDescriptor propertyDescriptor, DataOutput dataOutput," );
+        line( "    SerializationContext serializationContext )" );
+        line( "    throws IOException" );
+        open();
+        line( "if ( isAlreadyMarshalled( value, propertyDescriptor, dataOutput, serializationContext ) )" );
+        open();
+        line( "return;" );
+        close();
+        if ( hasVarIntProperty( properties ) )
+        {
+            line( "" );
+            writeCompactFlag();
+        }
+
+        List<VariableElement> nullableProperties = findNullableProperties( properties );
+        if ( !nullableProperties.isEmpty() )
+        {
+            line( "" );
+            line( "// Null state of all reference properties is written as a leading null bitmap" );
+            for ( VariableElement property : nullableProperties )
+            {
+                String name = property.getSimpleName().toString();
+                line( "Object " + name + "Value = " + name + "Accessor.readObject( value );" );
+            }
+            for ( int chunk = 0; chunk < getNullBitmapChunks( nullableProperties ); chunk++ )
+            {
+                line( "long nullBitmap" + chunk + " = 0L;" );
+            }
+            for ( int i = 0; i < nullableProperties.size(); i++ )
+            {
+                line( "if ( " + nullableProperties.get( i ).getSimpleName() + "Value == null )" );
+                open();
+                line( toNullBitmapName( i ) + " |= " + toNullBitmapBit( i ) + ";" );
+                close();
+            }
+            for ( int chunk = 0; chunk < getNullBitmapChunks( nullableProperties ); chunk++ )
+            {
+                line( "writeNullBitmap( nullBitmap" + chunk + ", dataOutput );" );
+            }
+        }
+
+        for ( VariableElement property : properties )
+        {
+            String name = property.getSimpleName().toString();
+            String marshallerCall = name + "Marshaller.marshall( ";
+            String marshallerArguments = ", " + name + "Descriptor, dataOutput, serializationContext );";
+
+            line( "" );
+            if ( !isPrimitive( property ) )
+            {
+                line( "if ( " + name + "Value != null )" );
+                open();
+                line( marshallerCall + name + "Value" + marshallerArguments );
+                close();
+                continue;
+            }
+
+            TypeKind kind = property.asType().getKind();
+            String read = name + "Accessor.read" + toAccessorSuffix( kind ) + "( value )";
+            line( "if ( " + name + "BuildIn )" );
+            open();
+            if ( isVarIntKind( kind ) )
+            {
+                line( "if ( compact )" );
+                open();
+                line( "VarIntUtil.writeVar" + toAccessorSuffix( kind ) + "( dataOutput, " + read + " );" );
+                close();
+                line( "else" );
+                open();
+                line( "dataOutput.write" + toAccessorSuffix( kind ) + "( " + read + " );" );
+                close();
+            }
+            else
+            {
+                line( "dataOutput.write" + toAccessorSuffix( kind ) + "( " + read + " );" );
+            }
+            close();
+            line( "else" );
+            open();
+            line( marshallerCall + toWrapperType( kind ) + ".valueOf( " + read + " )" + marshallerArguments );
+            close();
+        }
+
+        line( "" );
+        line( "afterMarshalled( value, propertyDescriptor, serializationContext );" );
+        close();
+    }
+
+    private void writeUnmarshallMethod( List<VariableElement> properties )
+        throws IOException
+    {
+        line( "" );
+        line( "@Override" );
+        line( "protected <V> V unmarshall( V instance, PropertyDescriptor propertyDescriptor, DataInput dataInput," );
+        line( "    SerializationContext serializationContext )" );
+        line( "    throws IOException" );
+        open();
+        boolean separate = hasVarIntProperty( properties );
+        if ( separate )
+        {
+            writeCompactFlag();
+        }
+
+        List<VariableElement> nullableProperties = findNullableProperties( properties );
+        for ( int chunk = 0; chunk < getNullBitmapChunks( nullableProperties ); chunk++ )
+        {
+            line( "long nullBitmap" + chunk + " = readNullBitmap( dataInput );" );
+            separate = true;
+        }
+
+        for ( VariableElement property : properties )
+        {
+            String name = property.getSimpleName().toString();
+            String unmarshall =
+                name + "Marshaller.unmarshall( " + name + "Descriptor, dataInput, serializationContext )";
+
+            if ( separate )
+            {
+                line( "" );
+            }
+            separate = true;
+
+            if ( !isPrimitive( property ) )
+            {
+                int index = nullableProperties.indexOf( property );
+                line( "Object " + name + "Value = null;" );
+                line( "if ( ( " + toNullBitmapName( index ) + " & " + toNullBitmapBit( index ) + " ) == 0L )" );
+                open();
+                line( name + "Value = " + unmarshall + ";" );
+                close();
+                line( name + "Accessor.writeObject( instance, " + name + "Value );" );
+                continue;
+            }
+
+            TypeKind kind = property.asType().getKind();
+            String suffix = toAccessorSuffix( kind );
+            String write = name + "Accessor.write" + suffix + "( instance, ";
+            line( "if ( " + name + "BuildIn )" );
+            open();
+            if ( isVarIntKind( kind ) )
+            {
+                line( write + "compact ? VarIntUtil.readVar" + suffix + "( dataInput ) : dataInput.read" + suffix
+                    + "() );" );
+            }
+            else
+            {
+                line( write + "dataInput.read" + suffix + "() );" );
+            }
+            close();
+            line( "else" );
+            open();
+            line( toWrapperType( kind ) + " " + name + "Value = " + unmarshall + ";" );
+            line( write + name + "Value." + kind.name().toLowerCase() + "Value() );" );
+            close();
+        }
+
+        line( "" );
+        line( "return instance;" );
+        close();
+    }
+
+    private void writeCompactFlag()
+        throws IOException
+    {
+        line( "boolean compact = serializationContext.getSerializationStrategy() == SerializationStrategy.Compact;" );
+    }
+
+    private boolean hasVarIntProperty( List<VariableElement> properties )
+    {
+        for ( VariableElement property : properties )
+        {
+            if ( isVarIntKind( property.asType().getKind() ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<VariableElement> findNullableProperties( List<VariableElement> properties )
+    {
+        List<VariableElement> nullableProperties = new ArrayList<VariableElement>();
+        for ( VariableElement property : properties )
+        {
+            if ( !isPrimitive( property ) )
+            {
+                nullableProperties.add( property );
+            }
+        }
+        return nullableProperties;
+    }
+
+    private int getNullBitmapChunks( List<VariableElement> nullableProperties )
+    {
+        return ( nullableProperties.size() + NULL_BITMAP_CHUNK_SIZE - 1 ) / NULL_BITMAP_CHUNK_SIZE;
+    }
+
+    private String toNullBitmapName( int index )
+    {
+        return "nullBitmap" + ( index / NULL_BITMAP_CHUNK_SIZE );
+    }
+
+    private String toNullBitmapBit( int index )
+    {
+        return "0x" + Long.toHexString( 1L << ( index % NULL_BITMAP_CHUNK_SIZE ) ) + "L";
+    }
+
+    private boolean isPrimitive( VariableElement property )
+    {
+        return property.asType().getKind().isPrimitive();
+    }
+
+    private boolean isVarIntKind( TypeKind kind )
+    {
+        return kind == TypeKind.CHAR || kind == TypeKind.SHORT || kind == TypeKind.INT || kind == TypeKind.LONG;
+    }
+
+    private String toAccessorSuffix( TypeKind kind )
+    {
+        String name = kind.name().toLowerCase();
+        return Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 );
+    }
+
+    private String toWrapperType( TypeKind kind )
+    {
+        if ( kind == TypeKind.CHAR )
+        {
+            return "Character";
+        }
+        else if ( kind == TypeKind.INT )
+        {
+            return "Integer";
+        }
+        return toAccessorSuffix( kind );
+    }
+
+    private void open()
+        throws IOException
+    {
+        line( "{" );
+        indent++;
+    }
+
+    private void close()
+        throws IOException
+    {
+        indent--;
+        line( "}" );
+    }
+
+    private void line( String line )
+        throws IOException
+    {
+        if ( line.length() > 0 )
+        {
+            for ( int i = 0; i < indent; i++ )
+            {
+                writer.write( "    " );
+            }
+            writer.write( line );
+        }
+        writer.write( "\n" );
+    }
+}
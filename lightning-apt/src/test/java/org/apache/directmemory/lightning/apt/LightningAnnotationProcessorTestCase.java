@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.apt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.apache.directmemory.lightning.Lightning;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.Serializer;
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.generator.PrecompiledMarshallerIndex;
+import org.junit.Test;
+
+public class LightningAnnotationProcessorTestCase
+{
+
+    private static final String SAMPLE_SOURCE = "package lightning.apt;\n"
+        + "import org.apache.directmemory.lightning.metadata.Attribute;\n"
+        + "public class Sample {\n"
+        + "  @Attribute public boolean booleanValue;\n"
+        + "  @Attribute public byte byteValue;\n"
+        + "  @Attribute public char charValue;\n"
+        + "  @Attribute public short shortValue;\n"
+        + "  @Attribute public int intValue;\n"
+        + "  @Attribute public long longValue;\n"
+        + "  @Attribute public float floatValue;\n"
+        + "  @Attribute public double doubleValue;\n"
+        + "  @Attribute private String stringValue;\n"
+        + "  @Attribute public String getStringValue() { return stringValue; }\n"
+        + "  public void setStringValue( String stringValue ) { this.stringValue = stringValue; }\n"
+        + "}\n";
+
+    private static final String PRIMITIVE_SAMPLE_SOURCE = "package lightning.apt;\n"
+        + "import org.apache.directmemory.lightning.metadata.Attribute;\n"
+        + "public class PrimitiveSample {\n"
+        + "  @Attribute public boolean booleanValue;\n"
+        + "  @Attribute public byte byteValue;\n"
+        + "  @Attribute public char charValue;\n"
+        + "  @Attribute public short shortValue;\n"
+        + "  @Attribute public int intValue;\n"
+        + "  @Attribute public long longValue;\n"
+        + "  @Attribute public float floatValue;\n"
+        + "  @Attribute public double doubleValue;\n"
+        + "}\n";
+
+    private static final String OUTER_SAMPLE_SOURCE = "package lightning.apt;\n"
+        + "import org.apache.directmemory.lightning.metadata.Attribute;\n"
+        + "public class OuterSample {\n"
+        + "  @Attribute public InnerSample inner;\n"
+        + "}\n";
+
+    private static final String INNER_SAMPLE_SOURCE = "package lightning.apt;\n"
+        + "import org.apache.directmemory.lightning.metadata.Attribute;\n"
+        + "public final class InnerSample {\n"
+        + "  @Attribute public int value;\n"
+        + "}\n";
+
+    @Test
+    public void testGeneratedMarshallerUsed()
+        throws Exception
+    {
+        File directory = compile( true );
+        assertTrue( new File( directory, "lightning/apt/SampleLightningGeneratedMarshaller.class" ).exists() );
+        assertTrue( new File( directory, PrecompiledMarshallerIndex.INDEX_RESOURCE ).exists() );
+
+        Class<?> type = loadClass( directory, "lightning.apt.Sample" );
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            // Without runtime generation building fails if the checksum written by the processor does not match
+            Serializer serializer = buildSerializer( type, serializationStrategy, false );
+            ClassDescriptorAwareSerializer awareSerializer = (ClassDescriptorAwareSerializer) serializer;
+            assertEquals( "lightning.apt.SampleLightningGeneratedMarshaller",
+                          awareSerializer.findClassDescriptor( type ).getMarshaller().getClass().getName() );
+
+            Object value = buildSample( type, "Lightning" );
+            byte[] bytes = serializer.serialize( value );
+            Object result = serializer.deserialize( bytes, 0, bytes.length );
+
+            for ( Field field : type.getDeclaredFields() )
+            {
+                field.setAccessible( true );
+                assertEquals( field.get( value ), field.get( result ) );
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitivesWrittenLikeRuntimeGeneratedMarshaller()
+        throws Exception
+    {
+        Class<?> precompiledType = loadClass( compile( true ), "lightning.apt.PrimitiveSample" );
+        Class<?> runtimeType = loadClass( compile( false ), "lightning.apt.PrimitiveSample" );
+
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer precompiledSerializer = buildSerializer( precompiledType, serializationStrategy, false );
+            Serializer runtimeSerializer = buildSerializer( runtimeType, serializationStrategy, true );
+
+            assertArrayEquals( runtimeSerializer.serialize( buildPrimitiveSample( runtimeType ) ),
+                               precompiledSerializer.serialize( buildPrimitiveSample( precompiledType ) ) );
+        }
+    }
+
+    @Test
+    public void testReferencesWrittenLikeRuntimeGeneratedMarshaller()
+        throws Exception
+    {
+        Class<?> precompiledType = loadClass( compile( true ), "lightning.apt.Sample" );
+        Class<?> runtimeType = loadClass( compile( false ), "lightning.apt.Sample" );
+
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer precompiledSerializer = buildSerializer( precompiledType, serializationStrategy, false );
+            Serializer runtimeSerializer = buildSerializer( runtimeType, serializationStrategy, true );
+
+            for ( String stringValue : new String[] { "Lightning", null } )
+            {
+                Object precompiledValue = buildSample( precompiledType, stringValue );
+                Object runtimeValue = buildSample( runtimeType, stringValue );
+
+                byte[] precompiledBytes = precompiledSerializer.serialize( precompiledValue );
+                byte[] runtimeBytes = runtimeSerializer.serialize( runtimeValue );
+                assertArrayEquals( runtimeBytes, precompiledBytes );
+
+                // Both marshallers read what the other one has written
+                Object precompiledResult =
+                    precompiledSerializer.deserialize( runtimeBytes, 0, runtimeBytes.length );
+                Object runtimeResult = runtimeSerializer.deserialize( precompiledBytes, 0, precompiledBytes.length );
+                assertEquals( stringValue, precompiledType.getMethod( "getStringValue" ).invoke( precompiledResult ) );
+                assertEquals( stringValue, runtimeType.getMethod( "getStringValue" ).invoke( runtimeResult ) );
+            }
+        }
+    }
+
+    @Test
+    public void testInlinedNestedPropertyLeftToRuntimeGeneration()
+        throws Exception
+    {
+        File directory = compile( true );
+        assertTrue( new File( directory, "lightning/apt/InnerSampleLightningGeneratedMarshaller.class" ).exists() );
+        assertFalse( new File( directory, "lightning/apt/OuterSampleLightningGeneratedMarshaller.class" ).exists() );
+    }
+
+    private File compile( boolean process )
+        throws Exception
+    {
+        File directory = File.createTempFile( "lightning", "apt" );
+        directory.delete();
+        directory.mkdirs();
+        directory.deleteOnExit();
+
+        List<JavaFileObject> sources =
+            Arrays.asList( new SourceFileObject( "Sample", SAMPLE_SOURCE ),
+                           new SourceFileObject( "PrimitiveSample", PRIMITIVE_SAMPLE_SOURCE ),
+                           new SourceFileObject( "OuterSample", OUTER_SAMPLE_SOURCE ),
+                           new SourceFileObject( "InnerSample", INNER_SAMPLE_SOURCE ) );
+
+        List<String> options = new ArrayList<String>();
+        options.addAll( Arrays.asList( "-d", directory.getAbsolutePath() ) );
+        options.addAll( Arrays.asList( "-classpath", System.getProperty( "java.class.path" ) ) );
+        if ( process )
+        {
+            options.addAll( Arrays.asList( "-processor", LightningAnnotationProcessor.class.getName() ) );
+        }
+        else
+        {
+            options.add( "-proc:none" );
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertTrue( compiler.getTask( null, null, null, options, null, sources ).call() );
+        return directory;
+    }
+
+    private Class<?> loadClass( File directory, String className )
+        throws Exception
+    {
+        URL[] urls = { directory.toURI().toURL() };
+        return new URLClassLoader( urls, getClass().getClassLoader() ).loadClass( className );
+    }
+
+    private Object buildSample( Class<?> type, String stringValue )
+        throws Exception
+    {
+        Object value = buildPrimitiveSample( type );
+        type.getMethod( "setStringValue", String.class ).invoke( value, stringValue );
+        return value;
+    }
+
+    private Object buildPrimitiveSample( Class<?> type )
+        throws Exception
+    {
+        Object value = type.newInstance();
+        type.getField( "booleanValue" ).setBoolean( value, true );
+        type.getField( "byteValue" ).setByte( value, (byte) 12 );
+        type.getField( "charValue" ).setChar( value, 'L' );
+        type.getField( "shortValue" ).setShort( value, (short) -1234 );
+        type.getField( "intValue" ).setInt( value, 4711 );
+        type.getField( "longValue" ).setLong( value, Long.MAX_VALUE );
+        type.getField( "floatValue" ).setFloat( value, 1.5f );
+        type.getField( "doubleValue" ).setDouble( value, -2.25d );
+        return value;
+    }
+
+    private Serializer buildSerializer( final Class<?> type, SerializationStrategy serializationStrategy,
+                                        boolean runtimeMarshallerGeneration )
+    {
+        return Lightning.newBuilder().serializationStrategy( serializationStrategy ).runtimeMarshallerGeneration( runtimeMarshallerGeneration ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( type ).attributes();
+            }
+        } ).build();
+    }
+
+    private static class SourceFileObject
+        extends SimpleJavaFileObject
+    {
+
+        private final String source;
+
+        private SourceFileObject( String className, String source )
+        {
+            super( URI.create( "string:///lightning/apt/" + className + ".java" ), Kind.SOURCE );
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent( boolean ignoreEncodingErrors )
+        {
+            return source;
+        }
+    }
+}
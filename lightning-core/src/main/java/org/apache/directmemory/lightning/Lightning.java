@@ -20,6 +20,7 @@ package org.apache.directmemory.lightning;
 
 import java.io.File;
 import java.lang.annotation.Annotation;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -30,6 +31,9 @@ import org.apache.directmemory.lightning.Serializer;
 import org.apache.directmemory.lightning.base.DefaultValueNullableEvaluator;
 import org.apache.directmemory.lightning.configuration.SerializerDefinition;
 import org.apache.directmemory.lightning.internal.InternalSerializerCreator;
+import org.apache.directmemory.lightning.internal.ReferenceTrackingPolicy;
+import org.apache.directmemory.lightning.internal.generator.MarshallerGenerator;
+import org.apache.directmemory.lightning.internal.util.ParallelUtil;
 import org.apache.directmemory.lightning.logging.Logger;
 import org.apache.directmemory.lightning.logging.LoggerAdapter;
 import org.apache.directmemory.lightning.metadata.ValueNullableEvaluator;
@@ -71,6 +75,24 @@ public final class Lightning
 
         private File debugCacheDirectory = null;
 
+        private File marshallerCacheDirectory = null;
+
+        private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+
+        private boolean deduplicateStrings = false;
+
+        private double adaptiveSamplingRate = ReferenceTrackingPolicy.DEFAULT_ADAPTIVE_SAMPLING_RATE;
+
+        private int maxInlineDepth = MarshallerGenerator.DEFAULT_MAX_INLINE_DEPTH;
+
+        private int buildParallelism = ParallelUtil.DEFAULT_PARALLELISM;
+
+        private boolean lazyMarshallerGeneration = false;
+
+        private boolean backgroundMarshallerGeneration = false;
+
+        private boolean runtimeMarshallerGeneration = true;
+
         private Logger logger = new LoggerAdapter();
 
         private Builder()
@@ -89,6 +111,118 @@ public final class Lightning
             return this;
         }
 
+        /**
+         * Sets a directory to persist the bytecode of generated marshallers in. On later builds, also of other JVMs
+         * sharing the directory, the cached bytecode is used instead of generating the marshaller again as long as
+         * the class file, the configured properties and the Lightning build did not change, stale entries are
+         * regenerated and replaced. Unlike {@link #debugCacheDirectory(File)} this is meant to be used in production to
+         * speed up startup. Entries are checksummed against corruption but not signed, the cached bytecode runs with
+         * the access rights of the marshalled classes. So the directory must only be writable by trusted users.
+         */
+        public Builder marshallerCacheDirectory( File marshallerCacheDirectory )
+        {
+            this.marshallerCacheDirectory = marshallerCacheDirectory;
+            return this;
+        }
+
+        /**
+         * Sets the byte order of multi-byte primitives written and read by all serialization methods. Defaults to
+         * {@link ByteOrder#BIG_ENDIAN}, the format of {@link java.io.DataOutputStream}. In clusters of the same
+         * architecture {@link ByteOrder#nativeOrder()} removes byte swapping for byte array and
+         * {@link java.nio.ByteBuffer} based methods. Stream, {@link java.io.DataOutput} and
+         * {@link java.io.DataInput} based methods reverse the bytes on top of the big endian stream, so all methods
+         * of one serializer share a single format. All nodes have to use the same byte order.
+         */
+        public Builder byteOrder( ByteOrder byteOrder )
+        {
+            this.byteOrder = byteOrder;
+            return this;
+        }
+
+        /**
+         * Enables String deduplication, every equal String is only written once per serialization call and later
+         * occurrences are written as a small back-reference. This is independent of the {@link SerializationStrategy}
+         * so it does not require identity tracking of all objects. Serializer and deserializer have to use the same
+         * setting.
+         */
+        public Builder deduplicateStrings( boolean deduplicateStrings )
+        {
+            this.deduplicateStrings = deduplicateStrings;
+            return this;
+        }
+
+        /**
+         * Sets the fraction of calls (0, 1] of a value-only root class that are still reference tracked to detect
+         * sharing when using {@link SerializationStrategy#Adaptive}. Defaults to 0.01 (every 100th call).
+         */
+        public Builder adaptiveSamplingRate( double adaptiveSamplingRate )
+        {
+            this.adaptiveSamplingRate = adaptiveSamplingRate;
+            return this;
+        }
+
+        /**
+         * Sets how many levels of nested final value types are written and read directly by the generated marshaller
+         * of their owner instead of calling the nested marshaller. Only types not being reference tracked are inlined,
+         * the serialized format does not change. Defaults to 2, 0 disables inlining. Ignored if
+         * {@link #runtimeMarshallerGeneration(boolean) runtime marshaller generation} is disabled.
+         */
+        public Builder maxInlineDepth( int maxInlineDepth )
+        {
+            this.maxInlineDepth = maxInlineDepth;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads used by {@link #build()} to read and checksum class files and to generate
+         * marshallers. Results are merged in a fixed order so class ids and the serialized format do not depend on
+         * it. Defaults to the number of available processors, 1 builds everything in the calling thread.
+         */
+        public Builder buildParallelism( int buildParallelism )
+        {
+            this.buildParallelism = buildParallelism;
+            return this;
+        }
+
+        /**
+         * Enables lazy generation of marshallers. Instead of generating all marshallers in {@link #build()} a
+         * lightweight trampoline is registered per class which generates the marshaller on first use of the class, so
+         * classes never used by this process do not cost any code generation.
+         */
+        public Builder lazyMarshallerGeneration( boolean lazyMarshallerGeneration )
+        {
+            this.lazyMarshallerGeneration = lazyMarshallerGeneration;
+            return this;
+        }
+
+        /**
+         * If marshallers are generated lazily, starts a low priority background thread after {@link #build()}
+         * generating all marshallers not yet used, classes referenced by most properties of other classes first.
+         */
+        public Builder backgroundMarshallerGeneration( boolean backgroundMarshallerGeneration )
+        {
+            this.backgroundMarshallerGeneration = backgroundMarshallerGeneration;
+            return this;
+        }
+
+        /**
+         * Marshallers generated at build time by the Lightning maven plugin are always used if their checksum matches
+         * the class. Disabling runtime generation makes building (or, if lazy, first use of) a serializer fail for
+         * all other classes instead of generating bytecode at runtime.
+         * <p>
+         * Without runtime generation Lightning itself defines no classes at runtime: nested values are not inlined
+         * and properties are accessed through sun.misc.Unsafe or reflection only, never through ReflectASM or
+         * VarHandle accessors. A build-time marshaller still cannot be used, and building therefore fails, for
+         * classes with an object array property or a reference property not nullable for the configured
+         * {@link ValueNullableEvaluator}. Custom marshallers and object instantiators are not affected by this
+         * setting.
+         */
+        public Builder runtimeMarshallerGeneration( boolean runtimeMarshallerGeneration )
+        {
+            this.runtimeMarshallerGeneration = runtimeMarshallerGeneration;
+            return this;
+        }
+
         public Builder serializationStrategy( SerializationStrategy serializationStrategy )
         {
             this.serializationStrategy = serializationStrategy;
@@ -129,7 +263,7 @@ public final class Lightning
 
         public Serializer build()
         {
-            return new InternalSerializerCreator().setLogger( logger ).setSerializationStrategy( serializationStrategy ).setClassComparisonStrategy( classComparisonStrategy ).setAttributeAnnotation( attributeAnnotation ).setDebugCacheDirectory( debugCacheDirectory ).setValueNullableEvaluator( valueNullableEvaluator ).addSerializerDefinitions( serializerDefinitions ).build();
+            return new InternalSerializerCreator().setLogger( logger ).setSerializationStrategy( serializationStrategy ).setClassComparisonStrategy( classComparisonStrategy ).setAttributeAnnotation( attributeAnnotation ).setDebugCacheDirectory( debugCacheDirectory ).setMarshallerCacheDirectory( marshallerCacheDirectory ).setByteOrder( byteOrder ).setDeduplicateStrings( deduplicateStrings ).setAdaptiveSamplingRate( adaptiveSamplingRate ).setMaxInlineDepth( maxInlineDepth ).setBuildParallelism( buildParallelism ).setLazyMarshallerGeneration( lazyMarshallerGeneration ).setBackgroundMarshallerGeneration( backgroundMarshallerGeneration ).setRuntimeMarshallerGeneration( runtimeMarshallerGeneration ).setValueNullableEvaluator( valueNullableEvaluator ).addSerializerDefinitions( serializerDefinitions ).build();
         }
     }
 
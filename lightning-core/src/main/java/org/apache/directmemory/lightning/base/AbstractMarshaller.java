@@ -24,6 +24,12 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.Marshaller;
 import org.apache.directmemory.lightning.SerializationContext;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
+import org.apache.directmemory.lightning.internal.NonNullPropertyDescriptor;
+import org.apache.directmemory.lightning.internal.util.ClassUtil;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
+import org.apache.directmemory.lightning.metadata.ClassDefinition;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public abstract class AbstractMarshaller
@@ -51,4 +57,71 @@ public abstract class AbstractMarshaller
         byte isNull = dataInput.readByte();
         return isNull == 1 ? true : false;
     }
+
+    protected boolean writePossibleNull( Object value, PropertyDescriptor propertyDescriptor, DataOutput dataOutput )
+        throws IOException
+    {
+        if ( propertyDescriptor instanceof NonNullPropertyDescriptor )
+        {
+            // Null state is already handled by the calling generated marshaller
+            if ( value == null )
+            {
+                throw new SerializerExecutionException( "Property " + propertyDescriptor.getPropertyName()
+                    + " is not nullable but value is null" );
+            }
+            return true;
+        }
+        return writePossibleNull( value, dataOutput );
+    }
+
+    protected boolean isNull( PropertyDescriptor propertyDescriptor, DataInput dataInput )
+        throws IOException
+    {
+        if ( propertyDescriptor instanceof NonNullPropertyDescriptor )
+        {
+            return false;
+        }
+        return isNull( dataInput );
+    }
+
+    protected boolean isCompact( SerializationContext serializationContext )
+    {
+        return serializationContext.getSerializationStrategy() == SerializationStrategy.Compact;
+    }
+
+    protected void writeLength( int length, DataOutput dataOutput, SerializationContext serializationContext )
+        throws IOException
+    {
+        if ( isCompact( serializationContext ) )
+        {
+            VarIntUtil.writeUnsignedVarInt( dataOutput, length );
+        }
+        else
+        {
+            dataOutput.writeInt( length );
+        }
+    }
+
+    protected int readLength( DataInput dataInput, SerializationContext serializationContext )
+        throws IOException
+    {
+        if ( isCompact( serializationContext ) )
+        {
+            return VarIntUtil.readUnsignedVarInt( dataInput );
+        }
+        return dataInput.readInt();
+    }
+
+    protected void writeClassDefinition( ClassDefinition classDefinition, DataOutput dataOutput,
+                                         SerializationContext serializationContext )
+        throws IOException
+    {
+        ClassUtil.writeClassDefinition( classDefinition, dataOutput, serializationContext );
+    }
+
+    protected ClassDefinition readClassDefinition( DataInput dataInput, SerializationContext serializationContext )
+        throws IOException
+    {
+        return ClassUtil.readClassDefinition( dataInput, serializationContext );
+    }
 }
@@ -41,6 +41,7 @@ import org.apache.directmemory.lightning.configuration.TypeIntrospector;
 import org.apache.directmemory.lightning.exceptions.SerializerDefinitionException;
 import org.apache.directmemory.lightning.generator.DefinitionBuildingContext;
 import org.apache.directmemory.lightning.generator.DefinitionVisitor;
+import org.apache.directmemory.lightning.generator.PropertyDescriptorFactory;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
 import org.apache.directmemory.lightning.internal.InternalMarshallerContext;
 import org.apache.directmemory.lightning.internal.beans.introspection.AnnotatedTypeIntrospector;
@@ -64,6 +65,10 @@ public abstract class AbstractSerializerDefinition
     private final Map<AnnotatedBinder, AnnotationBinderDefinition<?>> annotationBinders =
         new HashMap<AnnotatedBinder, AnnotationBinderDefinition<?>>();
 
+    private final Set<Class<?>> referenceTrackedTypes = new HashSet<Class<?>>();
+
+    private final Set<PropertyDescriptor> referenceTrackedAttributes = new HashSet<PropertyDescriptor>();
+
     private DefinitionBuildingContext definitionBuildingContext;
 
     private ObjectInstantiatorFactory objectInstantiatorFactory = null;
@@ -129,6 +134,16 @@ public abstract class AbstractSerializerDefinition
             visitor.visitClassDefine( type, entry.getValue() );
         }
 
+        // Visit all types and attributes declared to track references
+        for ( Class<?> type : referenceTrackedTypes )
+        {
+            visitor.visitReferenceTrackedType( type );
+        }
+        for ( PropertyDescriptor propertyDescriptor : referenceTrackedAttributes )
+        {
+            visitor.visitReferenceTrackedAttribute( propertyDescriptor );
+        }
+
         // Visit all children
         for ( SerializerDefinition child : children )
         {
@@ -262,6 +277,13 @@ public abstract class AbstractSerializerDefinition
 
             }
 
+            @Override
+            public ClassBinder<T> trackReferences()
+            {
+                referenceTrackedTypes.add( clazz );
+                return this;
+            }
+
             @Override
             public void attributes( AttributeBinder<?>... attributes )
             {
@@ -348,6 +370,14 @@ public abstract class AbstractSerializerDefinition
 
         public void acceptVisitor( DefinitionVisitor visitor )
         {
+            acceptVisitor( visitor, new HashSet<Class<?>>() );
+        }
+
+        private void acceptVisitor( DefinitionVisitor visitor, Set<Class<?>> visitedTypes )
+        {
+            // Remember visited types to not recurse endlessly into self referencing types
+            visitedTypes.add( classBinder.getType() );
+
             MarshallerContext marshallers = combineMarshallers( AbstractSerializerDefinition.this );
             List<PropertyDescriptor> propertyDescriptors =
                 typeIntrospector.introspect( classBinder.getType(), definitionBuildingContext.getMarshallerStrategy(),
@@ -368,16 +398,22 @@ public abstract class AbstractSerializerDefinition
                 if ( marshaller == null )
                 {
                     visitFieldTypeAnnotatedProperties( !fieldType.isArray() ? fieldType : fieldType.getComponentType(),
-                                                       visitor );
+                                                       visitor, visitedTypes );
                 }
             }
         }
 
         @SuppressWarnings( "unchecked" )
-        private <F> void visitFieldTypeAnnotatedProperties( Class<?> type, DefinitionVisitor visitor )
+        private <F> void visitFieldTypeAnnotatedProperties( Class<?> type, DefinitionVisitor visitor,
+                                                            Set<Class<?>> visitedTypes )
         {
+            if ( visitedTypes.contains( type ) )
+            {
+                return;
+            }
+
             ClassBinder<F> classBinder = (ClassBinder<F>) buildClassBinder( type );
-            new AnnotationBinderDefinition<F>( classBinder ).acceptVisitor( visitor );
+            new AnnotationBinderDefinition<F>( classBinder ).acceptVisitor( visitor, visitedTypes );
         }
 
         private MarshallerContext combineMarshallers( AbstractSerializerDefinition abstractSerializerDefinition )
@@ -396,6 +432,8 @@ public abstract class AbstractSerializerDefinition
 
         protected Class<?> declaringClass;
 
+        protected boolean trackReferences;
+
         protected void setDeclaringClass( Class<?> declaringClass )
         {
             this.declaringClass = declaringClass;
@@ -428,6 +466,13 @@ public abstract class AbstractSerializerDefinition
             return this;
         }
 
+        @Override
+        public AttributeBinder<V> trackReferences()
+        {
+            trackReferences = true;
+            return this;
+        }
+
         private void build()
         {
             if ( marshaller == null )
@@ -436,10 +481,16 @@ public abstract class AbstractSerializerDefinition
                     definitionBuildingContext.getMarshallerStrategy().getMarshaller( property.getType(),
                                                                                      marshallerContext, true );
             }
-            propertyMarshallers.put( definitionBuildingContext.getPropertyDescriptorFactory().byField( property,
-                                                                                                       marshaller,
-                                                                                                       declaringClass ),
-                                     marshaller );
+            PropertyDescriptorFactory propertyDescriptorFactory =
+                definitionBuildingContext.getPropertyDescriptorFactory();
+            PropertyDescriptor propertyDescriptor =
+                propertyDescriptorFactory.byField( property, marshaller, declaringClass );
+            propertyMarshallers.put( propertyDescriptor, marshaller );
+
+            if ( trackReferences )
+            {
+                referenceTrackedAttributes.add( propertyDescriptor );
+            }
         }
     }
 }
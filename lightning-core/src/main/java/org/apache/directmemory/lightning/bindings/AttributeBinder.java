@@ -27,4 +27,10 @@ public interface AttributeBinder<V>
 
     AttributeBinder<V> using( Marshaller marshaller );
 
+    /**
+     * Declares values stored in this attribute to be shared in object graphs, see
+     * {@link ClassBinder#trackReferences()}.
+     */
+    AttributeBinder<V> trackReferences();
+
 }
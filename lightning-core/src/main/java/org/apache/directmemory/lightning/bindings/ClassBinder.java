@@ -38,6 +38,13 @@ public interface ClassBinder<T>
 
     void using( TypeIntrospector typeIntrospector );
 
+    /**
+     * Declares instances of this type (and its subtypes) to be shared in object graphs. As soon as any type or
+     * attribute is declared that way only declared values are identity tracked, all other values are written without
+     * reference checks.
+     */
+    ClassBinder<T> trackReferences();
+
     Class<T> getType();
 
 }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per root class statistics of the {@link org.apache.directmemory.lightning.SerializationStrategy#Adaptive} strategy.
+ * Every reference tracked call is measured for shared references. Once enough consecutive measured calls did not see
+ * any shared reference the root class switches to value-only marshalling and only a sampled fraction of calls is still
+ * tracked (and measured) to detect sharing again. Since a sample cannot distinguish cycles from shared leafs any
+ * shared reference switches back to reference tracking. Value-only calls detect cycles on their ancestor path, they
+ * are redone with tracking and switch back as well. Updates are not atomic as a whole, races only delay switching.
+ */
+class AdaptiveReferenceTracking
+{
+
+    static final int QUIET_SAMPLES_TO_DISABLE = 16;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final int samplingInterval;
+
+    private volatile boolean tracking = true;
+
+    private volatile int quietSamples = 0;
+
+    AdaptiveReferenceTracking( int samplingInterval )
+    {
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * Returns true if the next call has to track references, either because sharing was seen or the call is sampled.
+     */
+    boolean beginCall()
+    {
+        long call = calls.getAndIncrement();
+        return tracking || call % samplingInterval == 0;
+    }
+
+    /**
+     * Records the outcome of a reference tracked call.
+     */
+    void endCall( int sharedReferences )
+    {
+        if ( sharedReferences > 0 )
+        {
+            quietSamples = 0;
+            tracking = true;
+        }
+        else if ( ++quietSamples >= QUIET_SAMPLES_TO_DISABLE )
+        {
+            tracking = false;
+        }
+    }
+
+    /**
+     * Records a value-only call that ran into a cycle and had to be redone with tracking.
+     */
+    void cycleDetected()
+    {
+        quietSamples = 0;
+        tracking = true;
+    }
+
+    boolean isTracking()
+    {
+        return tracking;
+    }
+}
@@ -27,4 +27,6 @@ public interface ClassDescriptorAwareSerializer
 
     ClassDescriptor findClassDescriptor( Class<?> type );
 
+    ReferenceTrackingPolicy getReferenceTrackingPolicy();
+
 }
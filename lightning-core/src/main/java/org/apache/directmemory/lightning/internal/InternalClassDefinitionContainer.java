@@ -26,9 +26,12 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.directmemory.lightning.internal.util.ClassUtil;
 import org.apache.directmemory.lightning.metadata.ClassDefinition;
@@ -43,10 +46,33 @@ class InternalClassDefinitionContainer
 
     private static final long serialVersionUID = -8496850178968208567L;
 
+    private static final Comparator<ClassDefinition> CLASS_DEFINITION_COMPARATOR = new Comparator<ClassDefinition>()
+    {
+
+        @Override
+        public int compare( ClassDefinition o1, ClassDefinition o2 )
+        {
+            boolean buildIn1 = ClassUtil.isBuildInClassDefinition( o1 );
+            boolean buildIn2 = ClassUtil.isBuildInClassDefinition( o2 );
+            if ( buildIn1 != buildIn2 )
+            {
+                return buildIn1 ? -1 : 1;
+            }
+
+            long id1 = o1.getId();
+            long id2 = o2.getId();
+            return id1 < id2 ? -1 : ( id1 == id2 ? 0 : 1 );
+        }
+    };
+
     private final ClassDefinition[] classDefinitions;
 
     private final LongObjectMap<ClassDefinition> classDefinitionsMappings;
 
+    // Lazily filled cache of (runtime) types to dense indexes into classDefinitions, only holding types that do not
+    // keep another classloader alive
+    private final ConcurrentMap<Class<?>, Integer> typeIndexes = new ConcurrentHashMap<Class<?>, Integer>();
+
     // Serialization
     private InternalClassDefinitionContainer( ClassDefinition[] classDefinitions )
     {
@@ -58,6 +84,10 @@ class InternalClassDefinitionContainer
     {
         this.classDefinitions = classDefinitions.toArray( new ClassDefinition[classDefinitions.size()] );
         this.classDefinitionsMappings = new LongObjectOpenHashMap<ClassDefinition>( classDefinitions.size() );
+
+        // Order is the dense index of a ClassDefinition, build-in types first, all others ordered by their id. The
+        // serialization proxy keeps that order so remote nodes end up with the same indexes.
+        Arrays.sort( this.classDefinitions, CLASS_DEFINITION_COMPARATOR );
         initMappings( this.classDefinitions );
     }
 
@@ -96,6 +126,35 @@ class InternalClassDefinitionContainer
 
     @Override
     public ClassDefinition getClassDefinitionByType( Class<?> type )
+    {
+        int index = getIndexByType( type );
+        return index != -1 ? classDefinitions[index] : null;
+    }
+
+    @Override
+    public ClassDefinition getClassDefinitionByIndex( int index )
+    {
+        return index >= 0 && index < classDefinitions.length ? classDefinitions[index] : null;
+    }
+
+    @Override
+    public int getIndexByType( Class<?> type )
+    {
+        Integer index = typeIndexes.get( type );
+        if ( index != null )
+        {
+            return index.intValue();
+        }
+
+        int result = findIndexByType( type );
+        if ( result != -1 && type.getClassLoader() == classDefinitions[result].getType().getClassLoader() )
+        {
+            typeIndexes.putIfAbsent( type, Integer.valueOf( result ) );
+        }
+        return result;
+    }
+
+    private int findIndexByType( Class<?> type )
     {
         if ( List.class.isAssignableFrom( type ) )
         {
@@ -110,14 +169,14 @@ class InternalClassDefinitionContainer
             type = Map.class;
         }
 
-        for ( ClassDefinition classDefinition : classDefinitions )
+        for ( int i = 0; i < classDefinitions.length; i++ )
         {
-            if ( classDefinition.getType() == type )
+            if ( classDefinitions[i].getType() == type )
             {
-                return classDefinition;
+                return i;
             }
         }
-        return null;
+        return -1;
     }
 
     private void initMappings( ClassDefinition[] classDefinitions )
@@ -164,7 +223,8 @@ class InternalClassDefinitionContainer
             List<ClassDefinition> selectedClassDefinitions = new ArrayList<ClassDefinition>();
             for ( ClassDefinition classDefinition : classDefinitionContainer.classDefinitions )
             {
-                if ( classDefinition.getId() < 1000 )
+                // CRC64 ids may be negative so build-in types are identified by type instead of id range
+                if ( ClassUtil.isBuildInClassDefinition( classDefinition ) )
                 {
                     continue;
                 }
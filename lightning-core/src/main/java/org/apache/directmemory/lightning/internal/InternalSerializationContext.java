@@ -19,18 +19,21 @@
 package org.apache.directmemory.lightning.internal;
 
 import java.lang.reflect.Type;
-import java.util.IdentityHashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import org.apache.directmemory.lightning.Marshaller;
-import org.apache.directmemory.lightning.MarshallerContext;
-import org.apache.directmemory.lightning.MarshallerStrategy;
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.SerializationStrategy;
-import org.apache.directmemory.lightning.TypeBindableMarshaller;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
-import org.apache.directmemory.lightning.internal.util.TypeUtil;
+import org.apache.directmemory.lightning.internal.io.ByteArrayDataInput;
+import org.apache.directmemory.lightning.internal.io.ByteArrayDataOutput;
+import org.apache.directmemory.lightning.internal.io.ByteBufferDataInput;
+import org.apache.directmemory.lightning.internal.io.ByteBufferDataOutput;
+import org.apache.directmemory.lightning.internal.io.StringCodec;
+import org.apache.directmemory.lightning.internal.io.StringTable;
+import org.apache.directmemory.lightning.internal.util.IdentityIntMap;
 import org.apache.directmemory.lightning.metadata.ClassDefinitionContainer;
 import org.apache.directmemory.lightning.metadata.ValueNullableEvaluator;
 
@@ -41,53 +44,240 @@ public class InternalSerializationContext
     implements SerializationContext
 {
 
-    private final Map<Object, Long> referencesMarshall;
+    private static final byte[] EMPTY_BUFFER = new byte[0];
 
-    private final LongObjectMap<Object> referencesUnmarshall;
+    private static final int INITIAL_BUFFER_SIZE = 256;
 
-    private final MarshallerContext marshallerContext = new InternalMarshallerContext();
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
 
-    private final ClassDefinitionContainer classDefinitionContainer;
+    // Reference tables are created on first use, only identity tracked values need them
+    private IdentityIntMap referencesMarshall;
+
+    private LongObjectOpenHashMap<Object> referencesUnmarshall;
+
+    private ClassDefinitionContainer classDefinitionContainer;
 
     private final SerializationStrategy serializationStrategy;
 
-    private final MarshallerStrategy marshallerStrategy;
+    private final MarshallerResolutionCache marshallerResolutionCache;
 
     private final ObjectInstantiatorFactory objectInstantiatorFactory;
 
     private final ValueNullableEvaluator valueNullableEvaluator;
 
-    private long nextReferenceIdMarshall = 10000;
+    private final ByteOrder byteOrder;
+
+    private int nextReferenceIdMarshall = 0;
+
+    private int sharedReferenceCount = 0;
+
+    private boolean referenceTrackingEnabled = true;
+
+    // Values of tracked types currently being marshalled by a value-only call of the Adaptive strategy
+    private Object[] ancestors;
+
+    private int ancestorCount = 0;
+
+    private ByteArrayDataOutput byteArrayDataOutput;
+
+    private ByteArrayDataOutput targetDataOutput;
+
+    private ByteArrayDataInput byteArrayDataInput;
+
+    private ByteBufferDataOutput byteBufferDataOutput;
+
+    private ByteBufferDataInput byteBufferDataInput;
+
+    private StringCodec stringCodec;
+
+    private final StringTable stringTable;
 
     public InternalSerializationContext( ClassDefinitionContainer classDefinitionContainer,
                                          SerializationStrategy serializationStrategy,
-                                         MarshallerStrategy marshallerStrategy,
+                                         MarshallerResolutionCache marshallerResolutionCache,
                                          ObjectInstantiatorFactory objectInstantiatorFactory,
                                          ValueNullableEvaluator valueNullableEvaluator,
-                                         Map<Class<?>, Marshaller> definedMarshallers )
+                                         ByteOrder byteOrder, boolean deduplicateStrings )
     {
 
         this.classDefinitionContainer = classDefinitionContainer;
         this.serializationStrategy = serializationStrategy;
-        this.marshallerStrategy = marshallerStrategy;
+        this.marshallerResolutionCache = marshallerResolutionCache;
         this.objectInstantiatorFactory = objectInstantiatorFactory;
         this.valueNullableEvaluator = valueNullableEvaluator;
+        this.byteOrder = byteOrder;
+        this.stringTable = deduplicateStrings ? new StringTable() : null;
+    }
 
-        for ( Entry<Class<?>, Marshaller> entry : definedMarshallers.entrySet() )
+    /**
+     * Resets all per call state (reference tables and reference id counter) so that this context can be reused for
+     * another serialization or deserialization call.
+     * 
+     * @param classDefinitionContainer the {@link ClassDefinitionContainer} to be used by the next call
+     */
+    void reset( ClassDefinitionContainer classDefinitionContainer )
+    {
+        this.classDefinitionContainer = classDefinitionContainer;
+        this.referenceTrackingEnabled = true;
+
+        resetCallState();
+
+        // Do not retain oversized scratch buffers and never keep a reference to an user's array
+        if ( byteArrayDataOutput != null && byteArrayDataOutput.getBuffer().length > MAX_RETAINED_BUFFER_SIZE )
+        {
+            byteArrayDataOutput = null;
+        }
+        if ( stringCodec != null && stringCodec.getBufferSize() > MAX_RETAINED_BUFFER_SIZE )
+        {
+            stringCodec = null;
+        }
+        if ( targetDataOutput != null )
+        {
+            targetDataOutput.reset( EMPTY_BUFFER, 0 );
+        }
+        if ( byteArrayDataInput != null )
         {
-            this.marshallerContext.bindMarshaller( entry.getKey(), entry.getValue() );
+            byteArrayDataInput.reset( EMPTY_BUFFER, 0, 0 );
         }
+    }
 
-        if ( serializationStrategy == SerializationStrategy.SizeOptimized )
+    /**
+     * Resets the reference tables, the String table and the ancestor path, so that a call can be redone using the same
+     * context.
+     */
+    void resetCallState()
+    {
+        this.nextReferenceIdMarshall = 0;
+        this.sharedReferenceCount = 0;
+
+        if ( referencesMarshall != null && !referencesMarshall.isEmpty() )
         {
-            this.referencesMarshall = new IdentityHashMap<Object, Long>();
-            this.referencesUnmarshall = new LongObjectOpenHashMap<Object>();
+            referencesMarshall.clear();
+        }
+        if ( referencesUnmarshall != null && referencesUnmarshall.size() > 0 )
+        {
+            referencesUnmarshall.clear();
+        }
+        if ( stringTable != null )
+        {
+            stringTable.clear();
+        }
+        while ( ancestorCount > 0 )
+        {
+            ancestors[--ancestorCount] = null;
+        }
+    }
+
+    /**
+     * Returns the growable scratch {@link ByteArrayDataOutput} of this context, rewound to position 0.
+     */
+    ByteArrayDataOutput getByteArrayDataOutput()
+    {
+        if ( byteArrayDataOutput == null )
+        {
+            byteArrayDataOutput = new ByteArrayDataOutput( INITIAL_BUFFER_SIZE, byteOrder );
+        }
+        byteArrayDataOutput.reset();
+        return byteArrayDataOutput;
+    }
+
+    /**
+     * Returns the non growable {@link ByteArrayDataOutput} of this context, positioned to the offset of the given
+     * target array.
+     */
+    ByteArrayDataOutput getByteArrayDataOutput( byte[] target, int offset )
+    {
+        if ( targetDataOutput == null )
+        {
+            targetDataOutput = new ByteArrayDataOutput( target, offset, false, byteOrder );
+        }
+        else
+        {
+            targetDataOutput.reset( target, offset );
+        }
+        return targetDataOutput;
+    }
+
+    /**
+     * Returns the {@link ByteArrayDataInput} of this context, positioned to the given slice of the source array.
+     */
+    ByteArrayDataInput getByteArrayDataInput( byte[] source, int offset, int length )
+    {
+        if ( byteArrayDataInput == null )
+        {
+            byteArrayDataInput = new ByteArrayDataInput( source, offset, length, byteOrder );
         }
         else
         {
-            this.referencesMarshall = null;
-            this.referencesUnmarshall = null;
+            byteArrayDataInput.reset( source, offset, length );
+        }
+        return byteArrayDataInput;
+    }
+
+    /**
+     * Returns the {@link StringCodec} of this context, its scratch buffers are reused by all Strings of a call.
+     */
+    public StringCodec getStringCodec()
+    {
+        if ( stringCodec == null )
+        {
+            stringCodec = new StringCodec();
         }
+        return stringCodec;
+    }
+
+    /**
+     * Returns the {@link StringTable} of this context or null if String deduplication is not enabled.
+     */
+    public StringTable getStringTable()
+    {
+        return stringTable;
+    }
+
+    /**
+     * Returns the number of references tracked by the last call, this is used to decide if this context is still
+     * cheap enough to be kept for reuse.
+     */
+    int getReferenceCount()
+    {
+        int referenceCount = 0;
+        if ( referencesMarshall != null )
+        {
+            referenceCount += referencesMarshall.size();
+        }
+        if ( referencesUnmarshall != null )
+        {
+            referenceCount += referencesUnmarshall.size();
+        }
+        if ( stringTable != null )
+        {
+            referenceCount += stringTable.size();
+        }
+        return referenceCount;
+    }
+
+    /**
+     * Returns the {@link ByteBufferDataOutput} of this context bound to the given buffer.
+     */
+    ByteBufferDataOutput getByteBufferDataOutput( ByteBuffer buffer )
+    {
+        if ( byteBufferDataOutput == null )
+        {
+            byteBufferDataOutput = new ByteBufferDataOutput( byteOrder );
+        }
+        return byteBufferDataOutput.reset( buffer );
+    }
+
+    /**
+     * Returns the {@link ByteBufferDataInput} of this context bound to the given buffer.
+     */
+    ByteBufferDataInput getByteBufferDataInput( ByteBuffer buffer )
+    {
+        if ( byteBufferDataInput == null )
+        {
+            byteBufferDataInput = new ByteBufferDataInput( byteOrder );
+        }
+        return byteBufferDataInput.reset( buffer );
     }
 
     @Override
@@ -111,18 +301,27 @@ public class InternalSerializationContext
     @Override
     public long findReferenceIdByObject( Object instance )
     {
-        Long referenceId = referencesMarshall.get( instance );
-        if ( referenceId == null )
+        if ( referencesMarshall == null )
         {
             return -1;
         }
+
+        int referenceId = referencesMarshall.get( instance );
+        if ( referenceId != -1 )
+        {
+            sharedReferenceCount++;
+        }
         return referenceId;
     }
 
     @Override
     public long putMarshalledInstance( Object instance )
     {
-        long newId = getNextReferenceIdMarshall();
+        if ( referencesMarshall == null )
+        {
+            referencesMarshall = new IdentityIntMap();
+        }
+        int newId = nextReferenceIdMarshall++;
         referencesMarshall.put( instance, newId );
         return newId;
     }
@@ -130,18 +329,26 @@ public class InternalSerializationContext
     @Override
     public Object findObjectByReferenceId( long referenceId )
     {
+        if ( referencesUnmarshall == null )
+        {
+            return null;
+        }
         return referencesUnmarshall.get( referenceId );
     }
 
     @Override
     public boolean containsReferenceId( long referenceId )
     {
-        return referencesUnmarshall.containsKey( referenceId );
+        return referencesUnmarshall != null && referencesUnmarshall.containsKey( referenceId );
     }
 
     @Override
     public long putUnmarshalledInstance( long refrenceId, Object instance )
     {
+        if ( referencesUnmarshall == null )
+        {
+            referencesUnmarshall = new LongObjectOpenHashMap<Object>();
+        }
         referencesUnmarshall.put( refrenceId, instance );
         return refrenceId;
     }
@@ -149,32 +356,80 @@ public class InternalSerializationContext
     @Override
     public Marshaller findMarshaller( Type type )
     {
-        Class<?> rawType = TypeUtil.getBaseType( type );
-        Marshaller marshaller = marshallerStrategy.getMarshaller( rawType, marshallerContext, false );
+        return marshallerResolutionCache.findMarshaller( type );
+    }
+
+    public IdentityIntMap getReferencesMarshall()
+    {
+        return referencesMarshall;
+    }
+
+    public LongObjectMap<Object> getReferencesUnmarshall()
+    {
+        return referencesUnmarshall;
+    }
+
+    /**
+     * Returns if reference tracked types are tracked in the current call, this is only disabled by the
+     * {@link SerializationStrategy#Adaptive} strategy for value-only calls.
+     */
+    public boolean isReferenceTrackingEnabled()
+    {
+        return referenceTrackingEnabled;
+    }
+
+    void setReferenceTrackingEnabled( boolean referenceTrackingEnabled )
+    {
+        this.referenceTrackingEnabled = referenceTrackingEnabled;
+    }
+
+    /**
+     * Adds a value of a tracked type to the ancestor path of a value-only call.
+     * 
+     * @throws ReferenceCycleException if the value is already on the path, the value-only call would never terminate
+     */
+    public void pushAncestor( Object instance )
+    {
+        if ( ancestors == null )
+        {
+            ancestors = new Object[16];
+        }
 
-        if ( marshaller instanceof TypeBindableMarshaller )
+        // The path only holds the nesting of tracked types and is usually short, a linear scan is cheapest
+        for ( int i = ancestorCount - 1; i >= 0; i-- )
         {
-            Type[] typeArguments = TypeUtil.getTypeArgument( type );
-            marshaller = ( (TypeBindableMarshaller) marshaller ).bindType( typeArguments );
+            if ( ancestors[i] == instance )
+            {
+                throw new ReferenceCycleException();
+            }
         }
 
-        return marshaller;
+        if ( ancestorCount == ancestors.length )
+        {
+            ancestors = Arrays.copyOf( ancestors, ancestorCount * 2 );
+        }
+        ancestors[ancestorCount++] = instance;
     }
 
-    public Map<Object, Long> getReferencesMarshall()
+    /**
+     * Removes the most recently added value from the ancestor path of a value-only call.
+     */
+    public void popAncestor()
     {
-        return referencesMarshall;
+        ancestors[--ancestorCount] = null;
     }
 
-    public LongObjectMap<Object> getReferencesUnmarshall()
+    /**
+     * Returns the number of already marshalled instances found again in the current call.
+     */
+    int getSharedReferenceCount()
     {
-        return referencesUnmarshall;
+        return sharedReferenceCount;
     }
 
     public long getNextReferenceIdMarshall()
     {
-        long newId = nextReferenceIdMarshall++;
-        return newId;
+        return nextReferenceIdMarshall++;
     }
 
     @Override
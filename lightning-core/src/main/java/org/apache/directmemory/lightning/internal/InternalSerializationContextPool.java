@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.directmemory.lightning.MarshallerContext;
+import org.apache.directmemory.lightning.MarshallerStrategy;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
+import org.apache.directmemory.lightning.metadata.ClassDefinitionContainer;
+import org.apache.directmemory.lightning.metadata.ValueNullableEvaluator;
+
+/**
+ * Lock-free pool of {@link InternalSerializationContext} instances. Every serialize or deserialize call borrows a
+ * context for the duration of the call and gives it back afterwards. If all pooled contexts are in use (e.g. by
+ * reentrant calls from inside a marshaller or more concurrent threads than slots) a new context is created, which is
+ * only kept if a free slot is available on release.
+ */
+class InternalSerializationContextPool
+{
+
+    private static final int MAX_POOLED_REFERENCE_COUNT = 4096;
+
+    private final AtomicReferenceArray<InternalSerializationContext> slots;
+
+    private final int mask;
+
+    private final SerializationStrategy serializationStrategy;
+
+    private final MarshallerResolutionCache marshallerResolutionCache;
+
+    private final ObjectInstantiatorFactory objectInstantiatorFactory;
+
+    private final ValueNullableEvaluator valueNullableEvaluator;
+
+    private final ByteOrder byteOrder;
+
+    private final boolean deduplicateStrings;
+
+    InternalSerializationContextPool( SerializationStrategy serializationStrategy,
+                                      MarshallerStrategy marshallerStrategy,
+                                      ObjectInstantiatorFactory objectInstantiatorFactory,
+                                      ValueNullableEvaluator valueNullableEvaluator,
+                                      MarshallerContext marshallerContext, ByteOrder byteOrder,
+                                      boolean deduplicateStrings )
+    {
+
+        this.serializationStrategy = serializationStrategy;
+        this.marshallerResolutionCache = new MarshallerResolutionCache( marshallerStrategy, marshallerContext );
+        this.objectInstantiatorFactory = objectInstantiatorFactory;
+        this.valueNullableEvaluator = valueNullableEvaluator;
+        this.byteOrder = byteOrder;
+        this.deduplicateStrings = deduplicateStrings;
+
+        int size = Integer.highestOneBit( Runtime.getRuntime().availableProcessors() * 2 - 1 ) << 1;
+        this.slots = new AtomicReferenceArray<InternalSerializationContext>( size );
+        this.mask = size - 1;
+    }
+
+    InternalSerializationContext acquire( ClassDefinitionContainer classDefinitionContainer )
+    {
+        int start = (int) Thread.currentThread().getId();
+        for ( int i = 0; i < slots.length(); i++ )
+        {
+            int index = ( start + i ) & mask;
+            InternalSerializationContext serializationContext = slots.get( index );
+            if ( serializationContext != null && slots.compareAndSet( index, serializationContext, null ) )
+            {
+                serializationContext.reset( classDefinitionContainer );
+                return serializationContext;
+            }
+        }
+
+        return new InternalSerializationContext( classDefinitionContainer, serializationStrategy,
+                                                 marshallerResolutionCache, objectInstantiatorFactory,
+                                                 valueNullableEvaluator, byteOrder, deduplicateStrings );
+    }
+
+    void release( InternalSerializationContext serializationContext )
+    {
+        // Do not keep contexts holding huge reference tables alive
+        if ( serializationContext.getReferenceCount() > MAX_POOLED_REFERENCE_COUNT )
+        {
+            return;
+        }
+
+        // Drop references to the last object graph before pooling
+        serializationContext.reset( null );
+
+        int start = (int) Thread.currentThread().getId();
+        for ( int i = 0; i < slots.length(); i++ )
+        {
+            int index = ( start + i ) & mask;
+            if ( slots.get( index ) == null && slots.compareAndSet( index, null, serializationContext ) )
+            {
+                return;
+            }
+        }
+    }
+}
@@ -29,25 +29,38 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.directmemory.lightning.ClassComparisonStrategy;
 import org.apache.directmemory.lightning.Marshaller;
 import org.apache.directmemory.lightning.MarshallerStrategy;
-import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.SerializationStrategy;
 import org.apache.directmemory.lightning.exceptions.ClassDefinitionInconsistentException;
 import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
 import org.apache.directmemory.lightning.internal.generator.BytecodeMarshallerGenerator;
+import org.apache.directmemory.lightning.internal.generator.LazyGeneratedMarshaller;
 import org.apache.directmemory.lightning.internal.generator.MarshallerGenerator;
-import org.apache.directmemory.lightning.internal.io.BufferInputStream;
-import org.apache.directmemory.lightning.internal.io.BufferOutputStream;
+import org.apache.directmemory.lightning.internal.generator.PrecompiledMarshallerGenerator;
+import org.apache.directmemory.lightning.internal.io.ByteArrayDataOutput;
+import org.apache.directmemory.lightning.internal.io.ByteBufferDataInput;
+import org.apache.directmemory.lightning.internal.io.ByteBufferDataOutput;
+import org.apache.directmemory.lightning.internal.io.LittleEndianDataInput;
+import org.apache.directmemory.lightning.internal.io.LittleEndianDataOutput;
 import org.apache.directmemory.lightning.internal.io.ReaderInputStream;
 import org.apache.directmemory.lightning.internal.io.WriterOutputStream;
+import org.apache.directmemory.lightning.internal.util.ClassUtil;
+import org.apache.directmemory.lightning.internal.util.ParallelUtil;
 import org.apache.directmemory.lightning.logging.Logger;
 import org.apache.directmemory.lightning.metadata.ClassDefinition;
 import org.apache.directmemory.lightning.metadata.ClassDefinitionContainer;
@@ -62,54 +75,152 @@ class InternalSerializer
     private final AtomicReference<ClassDefinitionContainer> classDefinitionContainer =
         new AtomicReference<ClassDefinitionContainer>();
 
-    private final MarshallerGenerator marshallerGenerator = new BytecodeMarshallerGenerator();
-
-    private final ObjectInstantiatorFactory objectInstantiatorFactory;
+    private final MarshallerGenerator marshallerGenerator;
 
     private final ClassComparisonStrategy classComparisonStrategy;
 
     private final Map<Class<?>, ClassDescriptor> classDescriptors;
 
-    private final SerializationStrategy serializationStrategy;
+    private final Map<Class<?>, PropertyDescriptor> rootPropertyDescriptors;
+
+    private final InternalSerializationContextPool serializationContextPool;
 
-    private final Map<Class<?>, Marshaller> definedMarshallers;
+    private final ReferenceTrackingPolicy referenceTrackingPolicy;
 
-    private final MarshallerStrategy marshallerStrategy;
+    private final Map<Class<?>, AdaptiveReferenceTracking> adaptiveReferenceTrackings;
 
-    private final ValueNullableEvaluator valueNullableEvaluator;
+    private final boolean littleEndian;
 
-    InternalSerializer( ClassDefinitionContainer classDefinitionContainer, SerializationStrategy serializationStrategy,
+    InternalSerializer( ClassDefinitionContainer classDefinitionContainer,
+                        final SerializationStrategy serializationStrategy,
                         ClassComparisonStrategy classComparisonStrategy,
-                        Map<Class<?>, ClassDescriptor> classDescriptors, Map<Class<?>, Marshaller> marshallers,
-                        ObjectInstantiatorFactory objectInstantiatorFactory, Logger logger,
-                        MarshallerStrategy marshallerStrategy, File debugCacheDirectory,
-                        ValueNullableEvaluator valueNullableEvaluator )
+                        Map<Class<?>, ClassDescriptor> classDescriptors, final Map<Class<?>, Marshaller> marshallers,
+                        final ObjectInstantiatorFactory objectInstantiatorFactory, Logger logger,
+                        MarshallerStrategy marshallerStrategy, final File debugCacheDirectory,
+                        final ValueNullableEvaluator valueNullableEvaluator, ByteOrder byteOrder,
+                        boolean deduplicateStrings, ReferenceTrackingPolicy referenceTrackingPolicy,
+                        final int maxInlineDepth, final File marshallerCacheDirectory, int buildParallelism,
+                        boolean lazyMarshallerGeneration, boolean backgroundMarshallerGeneration,
+                        boolean runtimeMarshallerGeneration )
     {
 
         this.classDefinitionContainer.set( classDefinitionContainer );
         this.classComparisonStrategy = classComparisonStrategy;
         this.classDescriptors = Collections.unmodifiableMap( classDescriptors );
-        this.serializationStrategy = serializationStrategy;
-        this.valueNullableEvaluator = valueNullableEvaluator;
-
+        this.referenceTrackingPolicy = referenceTrackingPolicy;
+        this.littleEndian = byteOrder == ByteOrder.LITTLE_ENDIAN;
+
+        // Build-time generated marshallers are preferred, bytecode is only generated for the remaining classes
+        MarshallerGenerator runtimeMarshallerGenerator =
+            runtimeMarshallerGeneration ? new BytecodeMarshallerGenerator() : null;
+        this.marshallerGenerator = new PrecompiledMarshallerGenerator( runtimeMarshallerGenerator, logger );
+
+        // Marshallers are generated concurrently and registered afterwards in a fixed order. Generation only reads
+        // the marshallers, so the result does not depend on the number of threads
+        List<InternalClassDescriptor> generatedClassDescriptors = new ArrayList<InternalClassDescriptor>();
+        List<Callable<Marshaller>> generationTasks = new ArrayList<Callable<Marshaller>>();
         for ( ClassDescriptor classDescriptor : classDescriptors.values() )
         {
             if ( classDescriptor instanceof InternalClassDescriptor && classDescriptor.getMarshaller() == null )
             {
-                Marshaller marshaller =
-                    marshallerGenerator.generateMarshaller( classDescriptor.getType(),
-                                                            classDescriptor.getPropertyDescriptors(), marshallers,
-                                                            this, serializationStrategy, objectInstantiatorFactory,
-                                                            debugCacheDirectory );
-
-                ( (InternalClassDescriptor) classDescriptor ).setMarshaller( marshaller );
-                marshallers.put( classDescriptor.getType(), marshaller );
+                final ClassDescriptor generatedClassDescriptor = classDescriptor;
+                generatedClassDescriptors.add( (InternalClassDescriptor) classDescriptor );
+                generationTasks.add( new Callable<Marshaller>()
+                {
+
+                    @Override
+                    public Marshaller call()
+                    {
+                        Class<?> type = generatedClassDescriptor.getType();
+                        List<PropertyDescriptor> propertyDescriptors =
+                            generatedClassDescriptor.getPropertyDescriptors();
+
+                        return marshallerGenerator.generateMarshaller( type, propertyDescriptors, marshallers,
+                                                                       InternalSerializer.this, serializationStrategy,
+                                                                       objectInstantiatorFactory,
+                                                                       valueNullableEvaluator, maxInlineDepth,
+                                                                       debugCacheDirectory, marshallerCacheDirectory );
+                    }
+                } );
+            }
+        }
+
+        List<Marshaller> generatedMarshallers = null;
+        if ( lazyMarshallerGeneration )
+        {
+            // Trampolines generate their marshaller on first use, nothing is generated upfront
+            generatedMarshallers = new ArrayList<Marshaller>( generationTasks.size() );
+            for ( int i = 0; i < generationTasks.size(); i++ )
+            {
+                Class<?> type = generatedClassDescriptors.get( i ).getType();
+                generatedMarshallers.add( new LazyGeneratedMarshaller( type, generationTasks.get( i ) ) );
             }
         }
+        else
+        {
+            generatedMarshallers = ParallelUtil.invokeAll( generationTasks, buildParallelism );
+        }
+
+        for ( int i = 0; i < generatedMarshallers.size(); i++ )
+        {
+            InternalClassDescriptor classDescriptor = generatedClassDescriptors.get( i );
+            Marshaller marshaller = generatedMarshallers.get( i );
+
+            classDescriptor.setMarshaller( marshaller );
+            marshallers.put( classDescriptor.getType(), marshaller );
+        }
+
+        // Root PropertyDescriptors are immutable and built once to not allocate them per call
+        Map<Class<?>, PropertyDescriptor> rootPropertyDescriptors =
+            new HashMap<Class<?>, PropertyDescriptor>( classDescriptors.size() );
+        for ( ClassDescriptor classDescriptor : classDescriptors.values() )
+        {
+            rootPropertyDescriptors.put( classDescriptor.getType(),
+                                         new CheatPropertyDescriptor( "serialize", classDescriptor.getType(),
+                                                                      classDescriptor.getMarshaller() ) );
+        }
+        this.rootPropertyDescriptors = rootPropertyDescriptors;
 
-        this.definedMarshallers = marshallers;
-        this.marshallerStrategy = marshallerStrategy;
-        this.objectInstantiatorFactory = objectInstantiatorFactory;
+        // Adaptive statistics are kept per root class and created upfront to not need any concurrent map
+        if ( referenceTrackingPolicy.isAdaptive() )
+        {
+            int samplingInterval = referenceTrackingPolicy.getAdaptiveSamplingInterval();
+            Map<Class<?>, AdaptiveReferenceTracking> adaptiveReferenceTrackings =
+                new HashMap<Class<?>, AdaptiveReferenceTracking>( classDescriptors.size() );
+            for ( ClassDescriptor classDescriptor : classDescriptors.values() )
+            {
+                adaptiveReferenceTrackings.put( classDescriptor.getType(),
+                                                new AdaptiveReferenceTracking( samplingInterval ) );
+            }
+            this.adaptiveReferenceTrackings = adaptiveReferenceTrackings;
+        }
+        else
+        {
+            this.adaptiveReferenceTrackings = null;
+        }
+
+        // Build the marshaller bindings once, they are shared (read-only) by all serialization contexts
+        InternalMarshallerContext marshallerContext = new InternalMarshallerContext();
+        for ( Entry<Class<?>, Marshaller> entry : marshallers.entrySet() )
+        {
+            marshallerContext.bindMarshaller( entry.getKey(), entry.getValue() );
+        }
+
+        this.serializationContextPool =
+            new InternalSerializationContextPool( serializationStrategy, marshallerStrategy, objectInstantiatorFactory,
+                                                  valueNullableEvaluator, marshallerContext, byteOrder,
+                                                  deduplicateStrings );
+
+        if ( lazyMarshallerGeneration && backgroundMarshallerGeneration )
+        {
+            startBackgroundMarshallerGeneration( generatedMarshallers );
+        }
+    }
+
+    @Override
+    public ReferenceTrackingPolicy getReferenceTrackingPolicy()
+    {
+        return referenceTrackingPolicy;
     }
 
     @Override
@@ -132,24 +243,54 @@ class InternalSerializer
     @Override
     public <V> void serialize( V value, DataOutput dataOutput )
     {
+        InternalSerializationContext serializationContext =
+            serializationContextPool.acquire( classDefinitionContainer.get() );
+
         try
         {
-            SerializationContext serializationContext =
-                new InternalSerializationContext( classDefinitionContainer.get(), serializationStrategy,
-                                                  marshallerStrategy, objectInstantiatorFactory,
-                                                  valueNullableEvaluator, definedMarshallers );
+            // Streams are big endian by contract, the configured byte order is applied on top of them
+            serialize( value, littleEndian ? new LittleEndianDataOutput( dataOutput ) : dataOutput,
+                       serializationContext );
+        }
+        finally
+        {
+            serializationContextPool.release( serializationContext );
+        }
+    }
 
-            Class<?> type = value.getClass();
-            ClassDescriptor classDescriptor = findClassDescriptor( type );
-            Marshaller marshaller = classDescriptor.getMarshaller();
-            PropertyDescriptor pd = new CheatPropertyDescriptor( "serialize", classDescriptor.getType(), marshaller );
+    @Override
+    public <V> int serialize( V value, byte[] target, int offset )
+    {
+        InternalSerializationContext serializationContext =
+            serializationContextPool.acquire( classDefinitionContainer.get() );
 
-            dataOutput.writeLong( classDescriptor.getClassDefinition().getId() );
-            marshaller.marshall( value, pd, dataOutput, serializationContext );
+        try
+        {
+            ByteArrayDataOutput dataOutput = serializationContext.getByteArrayDataOutput( target, offset );
+            serialize( value, dataOutput, serializationContext );
+            return dataOutput.getPosition() - offset;
         }
-        catch ( IOException e )
+        finally
         {
-            throw new SerializerExecutionException( "Error while serializing value", e );
+            serializationContextPool.release( serializationContext );
+        }
+    }
+
+    @Override
+    public <V> byte[] serialize( V value )
+    {
+        InternalSerializationContext serializationContext =
+            serializationContextPool.acquire( classDefinitionContainer.get() );
+
+        try
+        {
+            ByteArrayDataOutput dataOutput = serializationContext.getByteArrayDataOutput();
+            serialize( value, dataOutput, serializationContext );
+            return dataOutput.toByteArray();
+        }
+        finally
+        {
+            serializationContextPool.release( serializationContext );
         }
     }
 
@@ -171,31 +312,52 @@ class InternalSerializer
     @Override
     public <V> void serialize( V value, ByteBuffer buffer )
     {
-        serialize( value, (DataOutput) new DataOutputStream( new BufferOutputStream( buffer ) ) );
+        InternalSerializationContext serializationContext =
+            serializationContextPool.acquire( classDefinitionContainer.get() );
+
+        ByteBufferDataOutput dataOutput = serializationContext.getByteBufferDataOutput( buffer );
+        try
+        {
+            serialize( value, dataOutput, serializationContext );
+        }
+        finally
+        {
+            dataOutput.release();
+            serializationContextPool.release( serializationContext );
+        }
     }
 
     @Override
-    @SuppressWarnings( "unchecked" )
     public <V> V deserialize( DataInput dataInput )
     {
+        InternalSerializationContext serializationContext =
+            serializationContextPool.acquire( classDefinitionContainer.get() );
+
         try
         {
-            SerializationContext serializationContext =
-                new InternalSerializationContext( classDefinitionContainer.get(), serializationStrategy,
-                                                  marshallerStrategy, objectInstantiatorFactory,
-                                                  valueNullableEvaluator, definedMarshallers );
+            return deserialize( littleEndian ? new LittleEndianDataInput( dataInput ) : dataInput,
+                                serializationContext );
+        }
+        finally
+        {
+            serializationContextPool.release( serializationContext );
+        }
+    }
 
-            long typeId = dataInput.readLong();
-            Class<?> clazz = classDefinitionContainer.get().getTypeById( typeId );
-            ClassDescriptor classDescriptor = findClassDescriptor( clazz );
-            Marshaller marshaller = classDescriptor.getMarshaller();
-            PropertyDescriptor pd = new CheatPropertyDescriptor( "serialize", classDescriptor.getType(), marshaller );
+    @Override
+    public <V> V deserialize( byte[] source, int offset, int length )
+    {
+        InternalSerializationContext serializationContext =
+            serializationContextPool.acquire( classDefinitionContainer.get() );
 
-            return (V) marshaller.unmarshall( pd, dataInput, serializationContext );
+        try
+        {
+            return deserialize( serializationContext.getByteArrayDataInput( source, offset, length ),
+                                serializationContext );
         }
-        catch ( IOException e )
+        finally
         {
-            throw new SerializerExecutionException( "Error while deserializing value", e );
+            serializationContextPool.release( serializationContext );
         }
     }
 
@@ -219,7 +381,19 @@ class InternalSerializer
     @Override
     public <V> V deserialize( ByteBuffer buffer )
     {
-        return deserialize( (DataInput) new DataInputStream( new BufferInputStream( buffer ) ) );
+        InternalSerializationContext serializationContext =
+            serializationContextPool.acquire( classDefinitionContainer.get() );
+
+        ByteBufferDataInput dataInput = serializationContext.getByteBufferDataInput( buffer );
+        try
+        {
+            return deserialize( dataInput, serializationContext );
+        }
+        finally
+        {
+            dataInput.release();
+            serializationContextPool.release( serializationContext );
+        }
     }
 
     @Override
@@ -228,6 +402,200 @@ class InternalSerializer
         return classDescriptors.get( type );
     }
 
+    private <V> void serialize( V value, DataOutput dataOutput, InternalSerializationContext serializationContext )
+    {
+        try
+        {
+            Class<?> type = value.getClass();
+            ClassDescriptor classDescriptor = findClassDescriptor( type );
+            PropertyDescriptor pd = rootPropertyDescriptors.get( type );
+
+            if ( adaptiveReferenceTrackings == null )
+            {
+                ClassUtil.writeClassDefinition( classDescriptor.getClassDefinition(), dataOutput,
+                                                serializationContext );
+                pd.getMarshaller().marshall( value, pd, dataOutput, serializationContext );
+                return;
+            }
+
+            // Decide per call if references are tracked and tell the reader
+            AdaptiveReferenceTracking adaptiveReferenceTracking = adaptiveReferenceTrackings.get( type );
+            if ( !adaptiveReferenceTracking.beginCall()
+                && serializeValueOnly( value, classDescriptor, pd, dataOutput, serializationContext ) )
+            {
+                return;
+            }
+
+            ClassUtil.writeClassDefinition( classDescriptor.getClassDefinition(), dataOutput, serializationContext );
+            serializationContext.setReferenceTrackingEnabled( true );
+            dataOutput.writeBoolean( true );
+
+            pd.getMarshaller().marshall( value, pd, dataOutput, serializationContext );
+
+            adaptiveReferenceTracking.endCall( serializationContext.getSharedReferenceCount() );
+        }
+        catch ( IOException e )
+        {
+            throw new SerializerExecutionException( "Error while serializing value", e );
+        }
+    }
+
+    /**
+     * Writes a value-only call of the {@link SerializationStrategy#Adaptive} strategy. Returns false if the graph
+     * turned out to be cyclic, nothing was written then and the root class switched back to reference tracking.
+     */
+    private <V> boolean serializeValueOnly( V value, ClassDescriptor classDescriptor, PropertyDescriptor pd,
+                                            DataOutput dataOutput, InternalSerializationContext serializationContext )
+        throws IOException
+    {
+        // Array and buffer outputs are rewound on a cycle, everything else is buffered until the call succeeded, the
+        // buffer is copied as it is and therefore uses the configured byte order the stream is written in
+        DataOutput target = dataOutput;
+        if ( !( dataOutput instanceof ByteArrayDataOutput ) && !( dataOutput instanceof ByteBufferDataOutput ) )
+        {
+            target = serializationContext.getByteArrayDataOutput();
+        }
+
+        int position = getPosition( target );
+        try
+        {
+            ClassUtil.writeClassDefinition( classDescriptor.getClassDefinition(), target, serializationContext );
+            serializationContext.setReferenceTrackingEnabled( false );
+            target.writeBoolean( false );
+
+            pd.getMarshaller().marshall( value, pd, target, serializationContext );
+        }
+        catch ( ReferenceCycleException e )
+        {
+            setPosition( target, position );
+            serializationContext.resetCallState();
+            adaptiveReferenceTrackings.get( classDescriptor.getType() ).cycleDetected();
+            return false;
+        }
+
+        if ( target != dataOutput )
+        {
+            ByteArrayDataOutput buffer = (ByteArrayDataOutput) target;
+            dataOutput.write( buffer.getBuffer(), 0, buffer.getPosition() );
+        }
+        return true;
+    }
+
+    private int getPosition( DataOutput dataOutput )
+    {
+        if ( dataOutput instanceof ByteArrayDataOutput )
+        {
+            return ( (ByteArrayDataOutput) dataOutput ).getPosition();
+        }
+        return ( (ByteBufferDataOutput) dataOutput ).getPosition();
+    }
+
+    private void setPosition( DataOutput dataOutput, int position )
+    {
+        if ( dataOutput instanceof ByteArrayDataOutput )
+        {
+            ByteArrayDataOutput byteArrayDataOutput = (ByteArrayDataOutput) dataOutput;
+            byteArrayDataOutput.reset( byteArrayDataOutput.getBuffer(), position );
+        }
+        else
+        {
+            ( (ByteBufferDataOutput) dataOutput ).setPosition( position );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private <V> V deserialize( DataInput dataInput, InternalSerializationContext serializationContext )
+    {
+        try
+        {
+            ClassDefinition classDefinition = ClassUtil.readClassDefinition( dataInput, serializationContext );
+            PropertyDescriptor pd = rootPropertyDescriptors.get( classDefinition.getType() );
+
+            if ( adaptiveReferenceTrackings != null )
+            {
+                serializationContext.setReferenceTrackingEnabled( dataInput.readBoolean() );
+            }
+
+            return (V) pd.getMarshaller().unmarshall( pd, dataInput, serializationContext );
+        }
+        catch ( IOException e )
+        {
+            throw new SerializerExecutionException( "Error while deserializing value", e );
+        }
+    }
+
+    private void startBackgroundMarshallerGeneration( List<Marshaller> lazyMarshallers )
+    {
+        final List<LazyGeneratedMarshaller> pendingMarshallers = new ArrayList<LazyGeneratedMarshaller>();
+        final Map<Class<?>, Integer> referenceCounts = new HashMap<Class<?>, Integer>();
+        for ( Marshaller marshaller : lazyMarshallers )
+        {
+            LazyGeneratedMarshaller lazyMarshaller = (LazyGeneratedMarshaller) marshaller;
+            pendingMarshallers.add( lazyMarshaller );
+            referenceCounts.put( lazyMarshaller.getType(), 0 );
+        }
+
+        // Types referenced by most properties of other types are most likely to be used first
+        for ( ClassDescriptor classDescriptor : classDescriptors.values() )
+        {
+            for ( PropertyDescriptor propertyDescriptor : classDescriptor.getPropertyDescriptors() )
+            {
+                Class<?> type = propertyDescriptor.getType();
+                while ( type.isArray() )
+                {
+                    type = type.getComponentType();
+                }
+
+                Integer referenceCount = referenceCounts.get( type );
+                if ( referenceCount != null )
+                {
+                    referenceCounts.put( type, referenceCount + 1 );
+                }
+            }
+        }
+
+        Collections.sort( pendingMarshallers, new Comparator<LazyGeneratedMarshaller>()
+        {
+
+            @Override
+            public int compare( LazyGeneratedMarshaller o1, LazyGeneratedMarshaller o2 )
+            {
+                int referenceCount1 = referenceCounts.get( o1.getType() );
+                int referenceCount2 = referenceCounts.get( o2.getType() );
+                if ( referenceCount1 != referenceCount2 )
+                {
+                    return referenceCount1 > referenceCount2 ? -1 : 1;
+                }
+                return o1.getType().getName().compareTo( o2.getType().getName() );
+            }
+        } );
+
+        Thread thread = new Thread( new Runnable()
+        {
+
+            @Override
+            public void run()
+            {
+                for ( LazyGeneratedMarshaller marshaller : pendingMarshallers )
+                {
+                    try
+                    {
+                        marshaller.getMarshaller();
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        // Failures are thrown again on first use of the type
+                    }
+                }
+            }
+        }, "lightning-marshaller-generation" );
+
+        // Must neither keep the JVM alive nor compete with request threads
+        thread.setDaemon( true );
+        thread.setPriority( Thread.MIN_PRIORITY );
+        thread.start();
+    }
+
     private void consistencyCheckClassChecksums( ClassDefinitionContainer oldClassDefinitionContainer,
                                                  ClassDefinitionContainer classDefinitionContainer )
     {
@@ -20,6 +20,7 @@ package org.apache.directmemory.lightning.internal;
 
 import java.io.File;
 import java.lang.annotation.Annotation;
+import java.nio.ByteOrder;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,6 +31,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
 
 import org.apache.directmemory.lightning.ClassComparisonStrategy;
 import org.apache.directmemory.lightning.Marshaller;
@@ -42,8 +44,10 @@ import org.apache.directmemory.lightning.generator.DefinitionVisitor;
 import org.apache.directmemory.lightning.generator.PropertyDescriptorFactory;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
 import org.apache.directmemory.lightning.internal.beans.InternalPropertyDescriptorFactory;
+import org.apache.directmemory.lightning.internal.generator.MarshallerGenerator;
 import org.apache.directmemory.lightning.internal.instantiator.ObjenesisSerializer;
 import org.apache.directmemory.lightning.internal.util.ClassUtil;
+import org.apache.directmemory.lightning.internal.util.ParallelUtil;
 import org.apache.directmemory.lightning.internal.util.TypeUtil;
 import org.apache.directmemory.lightning.logging.Logger;
 import org.apache.directmemory.lightning.logging.LoggerAdapter;
@@ -65,6 +69,10 @@ public final class InternalSerializerCreator
 
     private final ObjectInstantiatorFactory objectInstantiatorFactory = new ObjenesisSerializer( true );
 
+    private final Set<Class<?>> referenceTrackedTypes = new HashSet<Class<?>>();
+
+    private final Set<PropertyDescriptor> referenceTrackedAttributes = new HashSet<PropertyDescriptor>();
+
     private ValueNullableEvaluator valueNullableEvaluator;
 
     private SerializationStrategy serializationStrategy = SerializationStrategy.SpeedOptimized;
@@ -75,6 +83,24 @@ public final class InternalSerializerCreator
 
     private File debugCacheDirectory = null;
 
+    private File marshallerCacheDirectory = null;
+
+    private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+
+    private boolean deduplicateStrings = false;
+
+    private double adaptiveSamplingRate = ReferenceTrackingPolicy.DEFAULT_ADAPTIVE_SAMPLING_RATE;
+
+    private int maxInlineDepth = MarshallerGenerator.DEFAULT_MAX_INLINE_DEPTH;
+
+    private int buildParallelism = ParallelUtil.DEFAULT_PARALLELISM;
+
+    private boolean lazyMarshallerGeneration = false;
+
+    private boolean backgroundMarshallerGeneration = false;
+
+    private boolean runtimeMarshallerGeneration = true;
+
     private Logger logger = new LoggerAdapter();
 
     public InternalSerializerCreator()
@@ -97,6 +123,70 @@ public final class InternalSerializerCreator
         return this;
     }
 
+    public InternalSerializerCreator setMarshallerCacheDirectory( File marshallerCacheDirectory )
+    {
+        this.marshallerCacheDirectory = marshallerCacheDirectory;
+        return this;
+    }
+
+    public InternalSerializerCreator setByteOrder( ByteOrder byteOrder )
+    {
+        this.byteOrder = byteOrder;
+        return this;
+    }
+
+    public InternalSerializerCreator setDeduplicateStrings( boolean deduplicateStrings )
+    {
+        this.deduplicateStrings = deduplicateStrings;
+        return this;
+    }
+
+    public InternalSerializerCreator setAdaptiveSamplingRate( double adaptiveSamplingRate )
+    {
+        this.adaptiveSamplingRate = adaptiveSamplingRate;
+        return this;
+    }
+
+    public InternalSerializerCreator setMaxInlineDepth( int maxInlineDepth )
+    {
+        if ( maxInlineDepth < 0 )
+        {
+            throw new IllegalArgumentException( "maxInlineDepth must not be negative" );
+        }
+
+        this.maxInlineDepth = maxInlineDepth;
+        return this;
+    }
+
+    public InternalSerializerCreator setBuildParallelism( int buildParallelism )
+    {
+        if ( buildParallelism < 1 )
+        {
+            throw new IllegalArgumentException( "buildParallelism must be at least 1" );
+        }
+
+        this.buildParallelism = buildParallelism;
+        return this;
+    }
+
+    public InternalSerializerCreator setLazyMarshallerGeneration( boolean lazyMarshallerGeneration )
+    {
+        this.lazyMarshallerGeneration = lazyMarshallerGeneration;
+        return this;
+    }
+
+    public InternalSerializerCreator setBackgroundMarshallerGeneration( boolean backgroundMarshallerGeneration )
+    {
+        this.backgroundMarshallerGeneration = backgroundMarshallerGeneration;
+        return this;
+    }
+
+    public InternalSerializerCreator setRuntimeMarshallerGeneration( boolean runtimeMarshallerGeneration )
+    {
+        this.runtimeMarshallerGeneration = runtimeMarshallerGeneration;
+        return this;
+    }
+
     public InternalSerializerCreator setLogger( Logger logger )
     {
         this.logger = logger;
@@ -129,7 +219,8 @@ public final class InternalSerializerCreator
 
     public Serializer build()
     {
-        PropertyDescriptorFactory propertyDescriptorFactory = new InternalPropertyDescriptorFactory( logger );
+        PropertyDescriptorFactory propertyDescriptorFactory =
+            new InternalPropertyDescriptorFactory( logger, runtimeMarshallerGeneration );
         MarshallerStrategy marshallerStrategy = new InternalMarshallerStrategy();
         DefinitionBuildingContext definitionBuildingContext =
             new InternalDefinitionBuildingContext( marshallerStrategy, propertyDescriptorFactory );
@@ -143,10 +234,22 @@ public final class InternalSerializerCreator
 
         Set<ClassDefinition> classDefinitions =
             new HashSet<ClassDefinition>( Arrays.asList( ClassUtil.CLASS_DESCRIPTORS ) );
-        for ( InternalClassDescriptor classDescriptor : classDescriptors.values() )
+
+        // Class files are read and checksummed concurrently, every task only touches its own descriptor
+        List<Callable<ClassDefinition>> classDefinitionTasks = new ArrayList<Callable<ClassDefinition>>();
+        for ( final InternalClassDescriptor classDescriptor : classDescriptors.values() )
         {
-            classDefinitions.add( classDescriptor.build( ClassUtil.CLASS_DESCRIPTORS ).getClassDefinition() );
+            classDefinitionTasks.add( new Callable<ClassDefinition>()
+            {
+
+                @Override
+                public ClassDefinition call()
+                {
+                    return classDescriptor.build( ClassUtil.CLASS_DESCRIPTORS ).getClassDefinition();
+                }
+            } );
         }
+        classDefinitions.addAll( ParallelUtil.invokeAll( classDefinitionTasks, buildParallelism ) );
 
         Map<Class<?>, ClassDescriptor> cleanedClassDescriptors =
             new HashMap<Class<?>, ClassDescriptor>( classDescriptors.size() );
@@ -155,10 +258,20 @@ public final class InternalSerializerCreator
             cleanedClassDescriptors.put( entry.getKey(), entry.getValue() );
         }
 
+        ReferenceTrackingPolicy referenceTrackingPolicy =
+            new ReferenceTrackingPolicy( serializationStrategy, referenceTrackedTypes, referenceTrackedAttributes,
+                                         adaptiveSamplingRate );
+
+        // Only the runtime generator inlines nested values, build-time marshallers always call the nested marshaller
+        int effectiveMaxInlineDepth = runtimeMarshallerGeneration ? maxInlineDepth : 0;
+
         return new InternalSerializer( new InternalClassDefinitionContainer( classDefinitions ), serializationStrategy,
                                        classComparisonStrategy, cleanedClassDescriptors, marshallers,
                                        objectInstantiatorFactory, logger, marshallerStrategy, debugCacheDirectory,
-                                       valueNullableEvaluator );
+                                       valueNullableEvaluator, byteOrder, deduplicateStrings,
+                                       referenceTrackingPolicy, effectiveMaxInlineDepth, marshallerCacheDirectory,
+                                       buildParallelism, lazyMarshallerGeneration, backgroundMarshallerGeneration,
+                                       runtimeMarshallerGeneration );
     }
 
     private InternalClassDescriptor findClassDescriptor( Class<?> type )
@@ -250,6 +363,18 @@ public final class InternalSerializerCreator
             classDescriptor.push( propertyDescriptor );
         }
 
+        @Override
+        public void visitReferenceTrackedType( Class<?> type )
+        {
+            referenceTrackedTypes.add( type );
+        }
+
+        @Override
+        public void visitReferenceTrackedAttribute( PropertyDescriptor propertyDescriptor )
+        {
+            referenceTrackedAttributes.add( propertyDescriptor );
+        }
+
         @Override
         public void visitFinalizeSerializerDefinition( SerializerDefinition serializerDefinition )
         {
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.MarshallerContext;
+import org.apache.directmemory.lightning.MarshallerStrategy;
+import org.apache.directmemory.lightning.TypeBindableMarshaller;
+import org.apache.directmemory.lightning.internal.util.TypeUtil;
+
+/**
+ * Per serializer cache of resolved marshallers keyed by raw classes or parameterized types. Type bound marshallers are
+ * created once per parameterized type instead of on every lookup.
+ */
+class MarshallerResolutionCache
+{
+
+    private final ConcurrentMap<Type, Marshaller> marshallers = new ConcurrentHashMap<Type, Marshaller>();
+
+    private final MarshallerStrategy marshallerStrategy;
+
+    private final MarshallerContext marshallerContext;
+
+    MarshallerResolutionCache( MarshallerStrategy marshallerStrategy, MarshallerContext marshallerContext )
+    {
+        this.marshallerStrategy = marshallerStrategy;
+        this.marshallerContext = marshallerContext;
+    }
+
+    Marshaller findMarshaller( Type type )
+    {
+        Marshaller marshaller = marshallers.get( type );
+        if ( marshaller != null )
+        {
+            return marshaller;
+        }
+
+        marshaller = resolveMarshaller( type );
+        if ( marshaller == null )
+        {
+            // Unresolvable types are not cached since ConcurrentHashMap does not support null values
+            return null;
+        }
+
+        Marshaller existing = marshallers.putIfAbsent( type, marshaller );
+        return existing != null ? existing : marshaller;
+    }
+
+    private Marshaller resolveMarshaller( Type type )
+    {
+        Class<?> rawType = TypeUtil.getBaseType( type );
+        Marshaller marshaller = marshallerStrategy.getMarshaller( rawType, marshallerContext, false );
+
+        if ( marshaller instanceof TypeBindableMarshaller )
+        {
+            Type[] typeArguments = TypeUtil.getTypeArgument( type );
+            marshaller = ( (TypeBindableMarshaller) marshaller ).bindType( typeArguments );
+        }
+
+        return marshaller;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal;
+
+import java.lang.annotation.Annotation;
+
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.metadata.PropertyAccessor;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+
+/**
+ * PropertyDescriptor used by generated marshallers for properties which null state is already handled by the
+ * generated code (either by the leading null bitmap or because the property is not nullable at all). Build-in
+ * marshallers do not write or read a null marker for those properties.
+ */
+public class NonNullPropertyDescriptor
+    implements PropertyDescriptor
+{
+
+    private final PropertyDescriptor delegate;
+
+    public NonNullPropertyDescriptor( PropertyDescriptor delegate )
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int compareTo( PropertyDescriptor o )
+    {
+        return delegate.compareTo( o );
+    }
+
+    @Override
+    public Annotation[] getAnnotations()
+    {
+        return delegate.getAnnotations();
+    }
+
+    @Override
+    public Class<?> getDefinedClass()
+    {
+        return delegate.getDefinedClass();
+    }
+
+    @Override
+    public Class<?> getDeclaringClass()
+    {
+        return delegate.getDeclaringClass();
+    }
+
+    @Override
+    public PropertyAccessor getPropertyAccessor()
+    {
+        return delegate.getPropertyAccessor();
+    }
+
+    @Override
+    public String getName()
+    {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getPropertyName()
+    {
+        return delegate.getPropertyName();
+    }
+
+    @Override
+    public Class<?> getType()
+    {
+        return delegate.getType();
+    }
+
+    @Override
+    public String getInternalSignature()
+    {
+        return delegate.getInternalSignature();
+    }
+
+    @Override
+    public Marshaller getMarshaller()
+    {
+        return delegate.getMarshaller();
+    }
+
+    @Override
+    public String toString()
+    {
+        return delegate.toString();
+    }
+}
@@ -16,34 +16,21 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-package org.apache.directmemory.lightning.internal.io;
+package org.apache.directmemory.lightning.internal;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
-
-public class BufferOutputStream
-    extends OutputStream
+/**
+ * Thrown when a value of a tracked type is found again on its own ancestor path while marshalling a value-only call of
+ * the {@link org.apache.directmemory.lightning.SerializationStrategy#Adaptive} strategy. The call is then redone with
+ * reference tracking enabled, so this exception never leaves the serializer and does not fill in a stack trace.
+ */
+class ReferenceCycleException
+    extends RuntimeException
 {
 
-    private final ByteBuffer byteBuffer;
-
-    public BufferOutputStream( ByteBuffer byteBuffer )
-    {
-        this.byteBuffer = byteBuffer;
-    }
-
-    @Override
-    public synchronized void write( int b )
-        throws IOException
-    {
-        byteBuffer.put( (byte) b );
-    }
+    private static final long serialVersionUID = -2519532957151234764L;
 
-    @Override
-    public synchronized void write( byte[] bytes, int off, int len )
-        throws IOException
+    ReferenceCycleException()
     {
-        byteBuffer.put( bytes, off, len );
+        super( null, null, false, false );
     }
 }
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.internal.util.ClassUtil;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+
+/**
+ * Decides which values are identity tracked while (un-)marshalling. Without any type or attribute declared to track
+ * references all reference capable values are tracked as long as the {@link SerializationStrategy} is not
+ * {@link SerializationStrategy#SpeedOptimized}. As soon as types or attributes are declared only those are tracked
+ * (independent of the strategy) and all other values take the untracked fast path.
+ */
+public class ReferenceTrackingPolicy
+{
+
+    public static final double DEFAULT_ADAPTIVE_SAMPLING_RATE = 0.01d;
+
+    private final SerializationStrategy serializationStrategy;
+
+    private final Set<Class<?>> trackedTypes;
+
+    private final Set<PropertyDescriptor> trackedProperties;
+
+    private final int adaptiveSamplingInterval;
+
+    public ReferenceTrackingPolicy( SerializationStrategy serializationStrategy )
+    {
+        this( serializationStrategy, Collections.<Class<?>> emptySet(), Collections.<PropertyDescriptor> emptySet(),
+              DEFAULT_ADAPTIVE_SAMPLING_RATE );
+    }
+
+    public ReferenceTrackingPolicy( SerializationStrategy serializationStrategy, Set<Class<?>> trackedTypes,
+                                    Set<PropertyDescriptor> trackedProperties, double adaptiveSamplingRate )
+    {
+        if ( adaptiveSamplingRate <= 0d || adaptiveSamplingRate > 1d )
+        {
+            throw new IllegalArgumentException( "adaptiveSamplingRate must be in range (0, 1]" );
+        }
+
+        this.serializationStrategy = serializationStrategy;
+        this.adaptiveSamplingInterval = (int) Math.round( 1d / adaptiveSamplingRate );
+        this.trackedTypes = Collections.unmodifiableSet( new HashSet<Class<?>>( trackedTypes ) );
+        this.trackedProperties = Collections.unmodifiableSet( new HashSet<PropertyDescriptor>( trackedProperties ) );
+    }
+
+    /**
+     * Returns true if only declared types and attributes are tracked.
+     */
+    public boolean isSelective()
+    {
+        return !trackedTypes.isEmpty() || !trackedProperties.isEmpty();
+    }
+
+    /**
+     * Returns true if tracking of tracked types is decided per root class and call, see
+     * {@link SerializationStrategy#Adaptive}.
+     */
+    public boolean isAdaptive()
+    {
+        return serializationStrategy == SerializationStrategy.Adaptive && !isSelective();
+    }
+
+    /**
+     * Returns every how many calls a root class in value-only mode is still tracked to detect sharing.
+     */
+    public int getAdaptiveSamplingInterval()
+    {
+        return adaptiveSamplingInterval;
+    }
+
+    /**
+     * Returns true if all values of the given type are tracked, no matter which property they are stored in.
+     */
+    public boolean isTypeTracked( Class<?> type )
+    {
+        if ( !ClassUtil.isReferenceCapable( type ) )
+        {
+            return false;
+        }
+
+        if ( !isSelective() )
+        {
+            return serializationStrategy != SerializationStrategy.SpeedOptimized;
+        }
+
+        for ( Class<?> trackedType : trackedTypes )
+        {
+            if ( trackedType.isAssignableFrom( type ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if values stored in the given property are tracked because the attribute itself was declared.
+     */
+    public boolean isPropertyTracked( PropertyDescriptor propertyDescriptor )
+    {
+        return ClassUtil.isReferenceCapable( propertyDescriptor.getType() )
+            && trackedProperties.contains( propertyDescriptor );
+    }
+
+    /**
+     * Returns true if values of the given type can be tracked at all, either by type or by any declared attribute.
+     */
+    public boolean isTrackingCapable( Class<?> type )
+    {
+        if ( isTypeTracked( type ) )
+        {
+            return true;
+        }
+
+        for ( PropertyDescriptor propertyDescriptor : trackedProperties )
+        {
+            if ( propertyDescriptor.getType().isAssignableFrom( type ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
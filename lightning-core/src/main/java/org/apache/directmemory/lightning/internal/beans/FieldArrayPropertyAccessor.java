@@ -64,7 +64,7 @@ public abstract class FieldArrayPropertyAccessor
     }
 
     @Override
-    protected Field getField()
+    public Field getField()
     {
         return field;
     }
@@ -60,7 +60,7 @@ public abstract class FieldValuePropertyAccessor
         return field.getType();
     }
 
-    protected Field getField()
+    public Field getField()
     {
         return field;
     }
@@ -36,7 +36,15 @@ public class InternalPropertyDescriptorFactory
 
     public InternalPropertyDescriptorFactory( Logger logger )
     {
-        propertyAccessorStrategy = new PropertyAccessorStrategy( logger );
+        this( logger, true );
+    }
+
+    /**
+     * @param classGeneration if false, only property accessors not defining classes at runtime are used
+     */
+    public InternalPropertyDescriptorFactory( Logger logger, boolean classGeneration )
+    {
+        propertyAccessorStrategy = new PropertyAccessorStrategy( logger, classGeneration );
     }
 
     @Override
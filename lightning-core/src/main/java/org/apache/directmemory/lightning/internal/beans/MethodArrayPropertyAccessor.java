@@ -71,12 +71,12 @@ public abstract class MethodArrayPropertyAccessor
         return getter.getReturnType();
     }
 
-    protected Method getGetterMethod()
+    public Method getGetterMethod()
     {
         return getter;
     }
 
-    protected Method getSetterMethod()
+    public Method getSetterMethod()
     {
         return setter;
     }
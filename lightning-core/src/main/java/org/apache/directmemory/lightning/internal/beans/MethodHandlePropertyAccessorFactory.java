@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.beans;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directmemory.lightning.internal.generator.CreateClassLoader;
+import org.apache.directmemory.lightning.internal.generator.GeneratorClassLoader;
+import org.apache.directmemory.lightning.internal.util.BeanUtil;
+import org.apache.directmemory.lightning.logging.Logger;
+import org.apache.directmemory.lightning.metadata.PropertyAccessor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * {@link PropertyAccessorFactory} based on VarHandles for fields and array elements and MethodHandles for getters and
+ * setters. Sources have to stay Java 6 compatible so java.lang.invoke is only used reflectively and by generated
+ * accessor classes which keep their handles in static final fields to make them constant for the JIT. Available on
+ * Java 9 and later, members not accessible through a private lookup (e.g. of not opened modules) and final fields
+ * are left to the other factories. Used as fallback of the Unsafe and ReflectASM factories only, every accessor is a
+ * generated class.
+ */
+public final class MethodHandlePropertyAccessorFactory
+    implements PropertyAccessorFactory, Opcodes
+{
+
+    private static final String VARHANDLE_CLASS_INTERNAL_TYPE = "java/lang/invoke/VarHandle";
+
+    private static final String VARHANDLE_CLASS_DESCRIPTOR = "L" + VARHANDLE_CLASS_INTERNAL_TYPE + ";";
+
+    private static final String METHODHANDLE_CLASS_INTERNAL_TYPE = "java/lang/invoke/MethodHandle";
+
+    private static final String METHODHANDLE_CLASS_DESCRIPTOR = "L" + METHODHANDLE_CLASS_INTERNAL_TYPE + ";";
+
+    private static final String TAKE_HANDLES_SIGNATURE = "(I)[Ljava/lang/Object;";
+
+    private static final Class<?>[] VALUE_TYPES = { boolean.class, byte.class, char.class, short.class, int.class,
+        long.class, float.class, double.class, Object.class };
+
+    private static final AtomicInteger GENERATED_CLASS_ID = new AtomicInteger( 0 );
+
+    private static final ConcurrentMap<Integer, Object[]> PENDING_HANDLES =
+        new ConcurrentHashMap<Integer, Object[]>();
+
+    private final GeneratorClassLoader classloader = CreateClassLoader.createClassLoader( getClass().getClassLoader() );
+
+    private final Object lookup;
+
+    private final Method privateLookupIn;
+
+    private final Method unreflectVarHandle;
+
+    private final Method unreflect;
+
+    private final Method arrayElementVarHandle;
+
+    private final Logger logger;
+
+    MethodHandlePropertyAccessorFactory( Logger logger )
+        throws Exception
+    {
+        this.logger = logger.getChildLogger( getClass() );
+
+        Class<?> methodHandlesType = Class.forName( "java.lang.invoke.MethodHandles" );
+        Class<?> lookupType = Class.forName( "java.lang.invoke.MethodHandles$Lookup" );
+
+        lookup = methodHandlesType.getMethod( "lookup" ).invoke( null );
+        privateLookupIn = methodHandlesType.getMethod( "privateLookupIn", Class.class, lookupType );
+        unreflectVarHandle = lookupType.getMethod( "unreflectVarHandle", Field.class );
+        unreflect = lookupType.getMethod( "unreflect", Method.class );
+        arrayElementVarHandle = methodHandlesType.getMethod( "arrayElementVarHandle", Class.class );
+    }
+
+    /**
+     * Hands the handles over to the static initializer of a generated accessor class, not meant to be called by user
+     * code.
+     */
+    public static Object[] takeHandles( int generatedClassId )
+    {
+        return PENDING_HANDLES.remove( generatedClassId );
+    }
+
+    @Override
+    public PropertyAccessor fieldAccess( Field field, Class<?> definedClass )
+    {
+        // VarHandles can not write final fields
+        int modifiers = field.getModifiers();
+        if ( Modifier.isFinal( modifiers ) || Modifier.isStatic( modifiers ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            Object privateLookup = privateLookupIn.invoke( null, field.getDeclaringClass(), lookup );
+            Object fieldHandle = unreflectVarHandle.invoke( privateLookup, field );
+
+            Class<?> fieldType = field.getType();
+            if ( fieldType.isArray() )
+            {
+                Object elementHandle = arrayElementVarHandle.invoke( null, fieldType );
+                return buildAccessor( FieldArrayPropertyAccessor.class, fieldType, true,
+                                      new Object[] { fieldHandle, elementHandle }, field, field, definedClass );
+            }
+
+            return buildAccessor( FieldValuePropertyAccessor.class, fieldType, true, new Object[] { fieldHandle },
+                                  field, field, definedClass );
+        }
+        catch ( InvocationTargetException e )
+        {
+            // Field is not accessible by a private lookup
+            logger.trace( "No VarHandle for field " + field + ", falling back to other accessors", e.getCause() );
+            return null;
+        }
+        catch ( IllegalAccessException e )
+        {
+            logger.trace( "No VarHandle for field " + field + ", falling back to other accessors", e );
+            return null;
+        }
+    }
+
+    @Override
+    public PropertyAccessor methodAccess( Method method, Class<?> definedClass )
+    {
+        if ( method.getReturnType().isArray() )
+        {
+            return null;
+        }
+
+        Method getter = BeanUtil.findGetterMethod( method );
+        Method setter = BeanUtil.findSetterMethod( method );
+        if ( getter == null || setter == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            Object getterHandle =
+                unreflect.invoke( privateLookupIn.invoke( null, getter.getDeclaringClass(), lookup ), getter );
+            Object setterHandle =
+                unreflect.invoke( privateLookupIn.invoke( null, setter.getDeclaringClass(), lookup ), setter );
+
+            return buildAccessor( MethodValuePropertyAccessor.class, getter.getReturnType(), false,
+                                  new Object[] { getterHandle, setterHandle }, getter, setter, getter, definedClass );
+        }
+        catch ( InvocationTargetException e )
+        {
+            // Method is not accessible by a private lookup
+            logger.trace( "No MethodHandle for method " + method + ", falling back to other accessors", e.getCause() );
+            return null;
+        }
+        catch ( IllegalAccessException e )
+        {
+            logger.trace( "No MethodHandle for method " + method + ", falling back to other accessors", e );
+            return null;
+        }
+    }
+
+    private PropertyAccessor buildAccessor( Class<?> superType, Class<?> valueType, boolean fieldAccess,
+                                            Object[] handles, Member member, Object... constructorArguments )
+    {
+        int generatedClassId = GENERATED_CLASS_ID.getAndIncrement();
+        String className = "MethodHandleAccessor" + generatedClassId + "Lightning";
+        String superClassName = Type.getInternalName( superType );
+        boolean arrayAccess = FieldArrayPropertyAccessor.class == superType;
+
+        // Generated methods have no branches so the Java 7 class version needs no stackmap frames
+        ClassWriter cw = new ClassWriter( 0 );
+        cw.visit( V1_7, ACC_PUBLIC + ACC_SUPER + ACC_FINAL, className, null, superClassName, null );
+
+        String handleType = fieldAccess ? VARHANDLE_CLASS_INTERNAL_TYPE : METHODHANDLE_CLASS_INTERNAL_TYPE;
+        String handleDescriptor = fieldAccess ? VARHANDLE_CLASS_DESCRIPTOR : METHODHANDLE_CLASS_DESCRIPTOR;
+        for ( int i = 0; i < handles.length; i++ )
+        {
+            cw.visitField( ACC_PRIVATE + ACC_STATIC + ACC_FINAL, "HANDLE" + i, handleDescriptor, null, null ).visitEnd();
+        }
+
+        createStaticInitializer( cw, className, handleDescriptor, handles.length, generatedClassId );
+        createConstructor( cw, superClassName, constructorArguments );
+
+        // Read and write the property itself, typed methods not matching the property type are inherited
+        createReadMethod( cw, className, handleType, handleDescriptor, fieldAccess, valueType, false );
+        createWriteMethod( cw, className, handleType, handleDescriptor, fieldAccess, valueType, false );
+        if ( valueType.isPrimitive() )
+        {
+            createReadMethod( cw, className, handleType, handleDescriptor, fieldAccess, Object.class, false );
+            createWriteMethod( cw, className, handleType, handleDescriptor, fieldAccess, Object.class, false );
+        }
+
+        // Elements of array properties are accessed by an array element VarHandle
+        if ( arrayAccess )
+        {
+            for ( Class<?> type : VALUE_TYPES )
+            {
+                createReadMethod( cw, className, handleType, handleDescriptor, fieldAccess, type, true );
+                createWriteMethod( cw, className, handleType, handleDescriptor, fieldAccess, type, true );
+            }
+        }
+
+        cw.visitEnd();
+
+        PENDING_HANDLES.put( generatedClassId, handles );
+        try
+        {
+            Class<?> generatedClass = classloader.loadClass( cw.toByteArray() );
+            Constructor<?> constructor = generatedClass.getConstructors()[0];
+            return (PropertyAccessor) constructor.newInstance( constructorArguments );
+        }
+        catch ( Exception e )
+        {
+            logger.trace( "Generating the accessor of " + member + " failed, falling back to other accessors", e );
+            return null;
+        }
+        catch ( LinkageError e )
+        {
+            logger.trace( "Generating the accessor of " + member + " failed, falling back to other accessors", e );
+            return null;
+        }
+        finally
+        {
+            PENDING_HANDLES.remove( generatedClassId );
+        }
+    }
+
+    private void createStaticInitializer( ClassWriter cw, String className, String handleDescriptor,
+                                          int handleCount, int generatedClassId )
+    {
+        MethodVisitor mv = cw.visitMethod( ACC_STATIC, "<clinit>", "()V", null, null );
+        mv.visitCode();
+
+        // Take handles from the factory and store them to the static final fields
+        mv.visitLdcInsn( Integer.valueOf( generatedClassId ) );
+        mv.visitMethodInsn( INVOKESTATIC, Type.getInternalName( MethodHandlePropertyAccessorFactory.class ),
+                            "takeHandles", TAKE_HANDLES_SIGNATURE );
+        for ( int i = 0; i < handleCount; i++ )
+        {
+            mv.visitInsn( DUP );
+            mv.visitLdcInsn( Integer.valueOf( i ) );
+            mv.visitInsn( AALOAD );
+            mv.visitTypeInsn( CHECKCAST, handleDescriptor.substring( 1, handleDescriptor.length() - 1 ) );
+            mv.visitFieldInsn( PUTSTATIC, className, "HANDLE" + i, handleDescriptor );
+        }
+        mv.visitInsn( POP );
+
+        mv.visitInsn( RETURN );
+        mv.visitMaxs( 3, 0 );
+        mv.visitEnd();
+    }
+
+    private void createConstructor( ClassWriter cw, String superClassName, Object[] constructorArguments )
+    {
+        // Pass Field or Method instances and the defined class to the super constructor
+        Type[] parameterTypes = new Type[constructorArguments.length];
+        for ( int i = 0; i < constructorArguments.length; i++ )
+        {
+            Object argument = constructorArguments[i];
+            parameterTypes[i] = Type.getType( argument instanceof Class ? Class.class : argument.getClass() );
+        }
+        String constructorSignature = Type.getMethodDescriptor( Type.VOID_TYPE, parameterTypes );
+
+        MethodVisitor mv = cw.visitMethod( ACC_PUBLIC, "<init>", constructorSignature, null, null );
+        mv.visitCode();
+        mv.visitVarInsn( ALOAD, 0 );
+        for ( int i = 0; i < parameterTypes.length; i++ )
+        {
+            mv.visitVarInsn( ALOAD, i + 1 );
+        }
+        mv.visitMethodInsn( INVOKESPECIAL, superClassName, "<init>", constructorSignature );
+        mv.visitInsn( RETURN );
+        mv.visitMaxs( parameterTypes.length + 1, parameterTypes.length + 1 );
+        mv.visitEnd();
+    }
+
+    private void createReadMethod( ClassWriter cw, String className, String handleType, String handleDescriptor,
+                                   boolean fieldAccess, Class<?> valueType, boolean elementAccess )
+    {
+        Type type = toValueType( valueType );
+        String signature = elementAccess ? "(Ljava/lang/Object;I)" + type : "(Ljava/lang/Object;)" + type;
+
+        MethodVisitor mv = cw.visitMethod( ACC_PUBLIC, "read" + toMethodSuffix( valueType ), signature, null, null );
+        mv.visitCode();
+
+        // Load handle, instance (or array) and index if element is read
+        mv.visitFieldInsn( GETSTATIC, className, elementAccess ? "HANDLE1" : "HANDLE0", handleDescriptor );
+        mv.visitVarInsn( ALOAD, 1 );
+        if ( elementAccess )
+        {
+            mv.visitVarInsn( ILOAD, 2 );
+        }
+
+        // Signature polymorphic call, the handle adapts to the given signature
+        mv.visitMethodInsn( INVOKEVIRTUAL, handleType, fieldAccess ? "get" : "invoke", signature );
+        mv.visitInsn( type.getOpcode( IRETURN ) );
+        mv.visitMaxs( 3, 3 );
+        mv.visitEnd();
+    }
+
+    private void createWriteMethod( ClassWriter cw, String className, String handleType, String handleDescriptor,
+                                    boolean fieldAccess, Class<?> valueType, boolean elementAccess )
+    {
+        Type type = toValueType( valueType );
+        String signature = elementAccess ? "(Ljava/lang/Object;I" + type + ")V" : "(Ljava/lang/Object;" + type + ")V";
+
+        MethodVisitor mv = cw.visitMethod( ACC_PUBLIC, "write" + toMethodSuffix( valueType ), signature, null, null );
+        mv.visitCode();
+
+        // Load handle, instance (or array), index if element is written and the value
+        mv.visitFieldInsn( GETSTATIC, className, elementAccess ? "HANDLE1" : fieldAccess ? "HANDLE0" : "HANDLE1",
+                           handleDescriptor );
+        mv.visitVarInsn( ALOAD, 1 );
+        if ( elementAccess )
+        {
+            mv.visitVarInsn( ILOAD, 2 );
+        }
+        mv.visitVarInsn( type.getOpcode( ILOAD ), elementAccess ? 3 : 2 );
+
+        // Signature polymorphic call, the handle adapts to the given signature
+        mv.visitMethodInsn( INVOKEVIRTUAL, handleType, fieldAccess ? "set" : "invoke", signature );
+        mv.visitInsn( RETURN );
+        mv.visitMaxs( 5, 5 );
+        mv.visitEnd();
+    }
+
+    private Type toValueType( Class<?> valueType )
+    {
+        return Type.getType( valueType.isPrimitive() ? valueType : Object.class );
+    }
+
+    private String toMethodSuffix( Class<?> valueType )
+    {
+        if ( !valueType.isPrimitive() )
+        {
+            return "Object";
+        }
+
+        String name = valueType.getName();
+        return Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 );
+    }
+}
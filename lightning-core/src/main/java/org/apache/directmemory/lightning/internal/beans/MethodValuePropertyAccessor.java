@@ -63,12 +63,12 @@ public abstract class MethodValuePropertyAccessor
         return getter.getReturnType();
     }
 
-    protected Method getGetterMethod()
+    public Method getGetterMethod()
     {
         return getter;
     }
 
-    protected Method getSetterMethod()
+    public Method getSetterMethod()
     {
         return setter;
     }
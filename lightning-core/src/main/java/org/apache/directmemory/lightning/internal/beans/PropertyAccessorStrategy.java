@@ -30,13 +30,20 @@ public class PropertyAccessorStrategy
 
     private final PropertyAccessorFactory reflectionPropertyAccessorFactory = new ReflectionPropertyAccessorFactory();
 
-    private final PropertyAccessorFactory reflectASMPropertyAccessorFactory = new ReflectASMPropertyAccessorFactory();
+    private final PropertyAccessorFactory reflectASMPropertyAccessorFactory;
 
     private final PropertyAccessorFactory sunUnsafePropertyAccessorFactory;
 
+    private final PropertyAccessorFactory methodHandlePropertyAccessorFactory;
+
     private final Logger logger;
 
     PropertyAccessorStrategy( Logger logger )
+    {
+        this( logger, true );
+    }
+
+    PropertyAccessorStrategy( Logger logger, boolean classGeneration )
     {
         this.logger = logger.getChildLogger( getClass() );
 
@@ -47,6 +54,27 @@ public class PropertyAccessorStrategy
             this.logger.trace( "Found sun.misc.Unsafe" );
         }
         sunUnsafePropertyAccessorFactory = factory;
+
+        // ReflectASM and VarHandle accessors define classes at runtime, without class generation only Unsafe and
+        // reflection are used
+        reflectASMPropertyAccessorFactory = classGeneration ? new ReflectASMPropertyAccessorFactory() : null;
+        if ( !classGeneration )
+        {
+            this.logger.trace( "Class generation disabled, using Unsafe and reflection accessors only" );
+        }
+
+        // VarHandles are only used where Unsafe or ReflectASM are not available or reject a member, as long as their
+        // performance is not benchmarked. They generate one class per property as well
+        factory = null;
+        if ( classGeneration && InternalUtil.isVarHandleAvailable() )
+        {
+            factory = InternalUtil.buildMethodHandlePropertyAccessor( this.logger );
+            if ( factory != null )
+            {
+                this.logger.trace( "Found java.lang.invoke.VarHandle" );
+            }
+        }
+        methodHandlePropertyAccessorFactory = factory;
     }
 
     PropertyAccessor byField( Field field, Class<?> definedClass )
@@ -57,7 +85,12 @@ public class PropertyAccessorStrategy
             propertyAccessor = sunUnsafePropertyAccessorFactory.fieldAccess( field, definedClass );
         }
 
-        if ( propertyAccessor == null )
+        if ( propertyAccessor == null && methodHandlePropertyAccessorFactory != null )
+        {
+            propertyAccessor = methodHandlePropertyAccessorFactory.fieldAccess( field, definedClass );
+        }
+
+        if ( propertyAccessor == null && reflectASMPropertyAccessorFactory != null )
         {
             propertyAccessor = reflectASMPropertyAccessorFactory.fieldAccess( field, definedClass );
         }
@@ -72,7 +105,17 @@ public class PropertyAccessorStrategy
 
     PropertyAccessor byMethod( Method method, Class<?> definedClass )
     {
-        PropertyAccessor propertyAccessor = reflectASMPropertyAccessorFactory.methodAccess( method, definedClass );
+        PropertyAccessor propertyAccessor = null;
+        if ( reflectASMPropertyAccessorFactory != null )
+        {
+            propertyAccessor = reflectASMPropertyAccessorFactory.methodAccess( method, definedClass );
+        }
+
+        if ( propertyAccessor == null && methodHandlePropertyAccessorFactory != null )
+        {
+            propertyAccessor = methodHandlePropertyAccessorFactory.methodAccess( method, definedClass );
+        }
+
         if ( propertyAccessor != null )
         {
             return propertyAccessor;
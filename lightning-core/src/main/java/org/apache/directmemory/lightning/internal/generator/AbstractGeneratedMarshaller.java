@@ -27,12 +27,17 @@ import java.util.Map;
 
 import org.apache.directmemory.lightning.Marshaller;
 import org.apache.directmemory.lightning.SerializationContext;
-import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
 import org.apache.directmemory.lightning.exceptions.SerializerDefinitionException;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiator;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
 import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.InternalSerializationContext;
+import org.apache.directmemory.lightning.internal.NonNullPropertyDescriptor;
+import org.apache.directmemory.lightning.internal.ReferenceTrackedPropertyDescriptor;
+import org.apache.directmemory.lightning.internal.ReferenceTrackingPolicy;
 import org.apache.directmemory.lightning.internal.util.ClassUtil;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.ClassDescriptor;
 import org.apache.directmemory.lightning.metadata.PropertyAccessor;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
@@ -51,6 +56,12 @@ public abstract class AbstractGeneratedMarshaller
 
     private final ObjectInstantiator objectInstantiator;
 
+    private final boolean referenceTracked;
+
+    private final boolean adaptive;
+
+    private final ReferenceTrackingPolicy referenceTrackingPolicy;
+
     public AbstractGeneratedMarshaller( Class<?> clazz, Map<Class<?>, Marshaller> marshallers,
                                         ClassDescriptorAwareSerializer serializer,
                                         ObjectInstantiatorFactory objectInstantiatorFactory )
@@ -61,6 +72,9 @@ public abstract class AbstractGeneratedMarshaller
         this.classDescriptor = serializer.findClassDescriptor( clazz );
         this.propertyDescriptors = Collections.unmodifiableList( classDescriptor.getPropertyDescriptors() );
         this.objectInstantiator = objectInstantiatorFactory.getInstantiatorOf( clazz );
+        this.referenceTrackingPolicy = serializer.getReferenceTrackingPolicy();
+        this.referenceTracked = referenceTrackingPolicy.isTypeTracked( clazz );
+        this.adaptive = referenceTrackingPolicy.isAdaptive();
     }
 
     @Override
@@ -75,25 +89,24 @@ public abstract class AbstractGeneratedMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( serializationContext.getSerializationStrategy() == SerializationStrategy.SizeOptimized )
+        if ( isReferenceTracked( propertyDescriptor, serializationContext ) )
         {
-            if ( ClassUtil.isReferenceCapable( propertyDescriptor.getType() ) )
+            long referenceId = readReferenceId( dataInput );
+            V instance;
+            if ( containsReferenceId( referenceId, serializationContext ) )
+            {
+                instance = (V) findObjectByReferenceId( referenceId, serializationContext );
+            }
+            else
             {
-                long referenceId = dataInput.readLong();
-                V instance;
-                if ( containsReferenceId( referenceId, serializationContext ) )
-                {
-                    instance = (V) findObjectByReferenceId( referenceId, serializationContext );
-                }
-                else
-                {
-                    // Instance not yet received, for first time deserialize it
-                    instance = unmarshall( (V) newInstance(), propertyDescriptor, dataInput, serializationContext );
-                    cacheObjectForUnmarshall( referenceId, instance, serializationContext );
-                }
-
-                return instance;
+                // Instance not yet received, register it before reading its properties so back references to
+                // it inside of cyclic graphs are resolved to the instance under construction
+                instance = (V) newInstance();
+                cacheObjectForUnmarshall( referenceId, instance, serializationContext );
+                instance = unmarshall( instance, propertyDescriptor, dataInput, serializationContext );
             }
+
+            return instance;
         }
 
         V value = null;
@@ -109,17 +122,16 @@ public abstract class AbstractGeneratedMarshaller
                                          SerializationContext serializationContext )
         throws IOException;
 
-    protected boolean isAlreadyMarshalled( Object value, Class<?> type, DataOutput dataOutput,
-                                           SerializationContext serializationContext )
+    protected boolean isAlreadyMarshalled( Object value, PropertyDescriptor propertyDescriptor,
+                                           DataOutput dataOutput, SerializationContext serializationContext )
         throws IOException
     {
-        if ( serializationContext.getSerializationStrategy() != SerializationStrategy.SizeOptimized )
-        {
-            return false;
-        }
-
-        if ( !ClassUtil.isReferenceCapable( type ) )
+        if ( !isReferenceTracked( propertyDescriptor, serializationContext ) )
         {
+            if ( isAncestorTracked( propertyDescriptor, serializationContext ) )
+            {
+                ( (InternalSerializationContext) serializationContext ).pushAncestor( value );
+            }
             return false;
         }
 
@@ -127,14 +139,107 @@ public abstract class AbstractGeneratedMarshaller
         if ( referenceId == -1 )
         {
             referenceId = cacheObjectForMarshall( value, serializationContext );
-            dataOutput.writeLong( referenceId );
+            writeReferenceId( referenceId, dataOutput );
             return false;
         }
 
-        dataOutput.writeLong( referenceId );
+        writeReferenceId( referenceId, dataOutput );
         return true;
     }
 
+    /**
+     * Called after all properties of a not yet marshalled value were written.
+     */
+    protected void afterMarshalled( Object value, PropertyDescriptor propertyDescriptor,
+                                    SerializationContext serializationContext )
+    {
+        if ( isAncestorTracked( propertyDescriptor, serializationContext ) )
+        {
+            ( (InternalSerializationContext) serializationContext ).popAncestor();
+        }
+    }
+
+    /**
+     * Returns true if the value is of a tracked type but marshalled in a value-only call of the
+     * {@link org.apache.directmemory.lightning.SerializationStrategy#Adaptive} strategy. Those values are kept on the
+     * ancestor path of the current call to detect cycles.
+     */
+    private boolean isAncestorTracked( PropertyDescriptor propertyDescriptor,
+                                       SerializationContext serializationContext )
+    {
+        return referenceTracked && adaptive && serializationContext instanceof InternalSerializationContext
+            && !( (InternalSerializationContext) serializationContext ).isReferenceTrackingEnabled()
+            && ClassUtil.isReferenceCapable( propertyDescriptor.getType() )
+            && !( propertyDescriptor instanceof ReferenceTrackedPropertyDescriptor );
+    }
+
+    /**
+     * Returns true if values written to or read from the given property are identity tracked, either because the
+     * marshalled type is tracked (and tracking is enabled for the current call) or because the property was declared
+     * to track references.
+     */
+    protected boolean isReferenceTracked( PropertyDescriptor propertyDescriptor,
+                                          SerializationContext serializationContext )
+    {
+        if ( !ClassUtil.isReferenceCapable( propertyDescriptor.getType() ) )
+        {
+            return false;
+        }
+        if ( propertyDescriptor instanceof ReferenceTrackedPropertyDescriptor )
+        {
+            return true;
+        }
+        if ( !referenceTracked )
+        {
+            return false;
+        }
+        return !adaptive || !( serializationContext instanceof InternalSerializationContext )
+            || ( (InternalSerializationContext) serializationContext ).isReferenceTrackingEnabled();
+    }
+
+    /**
+     * Writes one chunk of the null bitmap, bit n is set if the n-th nullable property (sorted by name) is null. In
+     * common case of no null values this is just one byte.
+     */
+    protected void writeNullBitmap( long nullBitmap, DataOutput dataOutput )
+        throws IOException
+    {
+        VarIntUtil.writeUnsignedVarLong( dataOutput, nullBitmap );
+    }
+
+    protected long readNullBitmap( DataInput dataInput )
+        throws IOException
+    {
+        return VarIntUtil.readUnsignedVarLong( dataInput );
+    }
+
+    /**
+     * Returns the value of a not nullable property, which is not covered by the null bitmap. A null value fails like
+     * in {@link org.apache.directmemory.lightning.base.AbstractMarshaller} instead of being unboxed or dereferenced.
+     */
+    protected static Object checkNotNull( Object value, String propertyName )
+    {
+        if ( value == null )
+        {
+            throw new SerializerExecutionException( "Property " + propertyName
+                + " is not nullable but value is null" );
+        }
+        return value;
+    }
+
+    private void writeReferenceId( long referenceId, DataOutput dataOutput )
+        throws IOException
+    {
+        // Reference ids are handed out sequentially per call so they are always small
+        VarIntUtil.writeUnsignedVarLong( dataOutput, referenceId );
+    }
+
+    private long readReferenceId( DataInput dataInput )
+        throws IOException
+    {
+        return VarIntUtil.readUnsignedVarLong( dataInput );
+    }
+
     protected ClassDescriptor getClassDescriptor()
     {
         return classDescriptor;
@@ -159,6 +264,32 @@ public abstract class AbstractGeneratedMarshaller
         return null;
     }
 
+    /**
+     * Returns true if the property is handled by the build-in marshaller of its primitive type, the value can then be
+     * read and written directly instead of calling the marshaller.
+     */
+    protected boolean isBuildInPrimitiveMarshalled( PropertyDescriptor propertyDescriptor )
+    {
+        return BytecodeMarshallerGenerator.isInlinePrimitiveProperty( propertyDescriptor, marshallers );
+    }
+
+    /**
+     * Returns the PropertyDescriptor to pass to the marshaller of the given property. The null state of reference
+     * properties is written to the leading null bitmap, so their marshallers must not write a null marker.
+     */
+    protected PropertyDescriptor toMarshalledPropertyDescriptor( PropertyDescriptor propertyDescriptor )
+    {
+        if ( propertyDescriptor.getType().isPrimitive() )
+        {
+            return propertyDescriptor;
+        }
+        if ( referenceTrackingPolicy.isPropertyTracked( propertyDescriptor ) )
+        {
+            return new ReferenceTrackedPropertyDescriptor( propertyDescriptor );
+        }
+        return new NonNullPropertyDescriptor( propertyDescriptor );
+    }
+
     protected PropertyAccessor getPropertyAccessor( String propertyName )
     {
         return getPropertyDescriptor( propertyName ).getPropertyAccessor();
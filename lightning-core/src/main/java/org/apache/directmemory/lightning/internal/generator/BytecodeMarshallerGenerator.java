@@ -21,11 +21,18 @@ package org.apache.directmemory.lightning.internal.generator;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.directmemory.lightning.Marshaller;
 import org.apache.directmemory.lightning.MarshallerStrategy;
@@ -33,9 +40,26 @@ import org.apache.directmemory.lightning.SerializationStrategy;
 import org.apache.directmemory.lightning.exceptions.SerializerMarshallerGeneratorException;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
 import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.InternalClassDescriptor;
 import org.apache.directmemory.lightning.internal.InternalMarshallerStrategy;
-import org.apache.directmemory.lightning.internal.util.ClassUtil;
+import org.apache.directmemory.lightning.internal.NonNullPropertyDescriptor;
+import org.apache.directmemory.lightning.internal.ReferenceTrackedPropertyDescriptor;
+import org.apache.directmemory.lightning.internal.ReferenceTrackingPolicy;
+import org.apache.directmemory.lightning.internal.beans.FieldValuePropertyAccessor;
+import org.apache.directmemory.lightning.internal.beans.MethodArrayPropertyAccessor;
+import org.apache.directmemory.lightning.internal.beans.MethodValuePropertyAccessor;
+import org.apache.directmemory.lightning.internal.marshaller.BooleanMarshaller;
+import org.apache.directmemory.lightning.internal.marshaller.ByteMarshaller;
+import org.apache.directmemory.lightning.internal.marshaller.CharacterMarshaller;
+import org.apache.directmemory.lightning.internal.marshaller.DoubleMarshaller;
+import org.apache.directmemory.lightning.internal.marshaller.FloatMarshaller;
+import org.apache.directmemory.lightning.internal.marshaller.IntegerMarshaller;
+import org.apache.directmemory.lightning.internal.marshaller.LongMarshaller;
+import org.apache.directmemory.lightning.internal.marshaller.ShortMarshaller;
+import org.apache.directmemory.lightning.metadata.ClassDescriptor;
+import org.apache.directmemory.lightning.metadata.PropertyAccessor;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+import org.apache.directmemory.lightning.metadata.ValueNullableEvaluator;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Label;
@@ -47,6 +71,13 @@ public class BytecodeMarshallerGenerator
     implements Opcodes, GeneratorConstants, MarshallerGenerator
 {
 
+    // JVM-wide cache of generated marshaller classes by type and class signature, neither the types nor the generated
+    // classes are strongly referenced so both can still be unloaded
+    private static final Map<Class<?>, Map<String, WeakReference<Class<? extends Marshaller>>>> GENERATED_CLASS_CACHE =
+        new WeakHashMap<Class<?>, Map<String, WeakReference<Class<? extends Marshaller>>>>();
+
+    // Every serializer has its own generator so marshallers not defined as hidden classes are unloaded together with
+    // this classloader as soon as no serializer uses one of its classes anymore
     private final GeneratorClassLoader classloader = CreateClassLoader.createClassLoader( getClass().getClassLoader() );
 
     @Override
@@ -54,69 +85,336 @@ public class BytecodeMarshallerGenerator
                                           Map<Class<?>, Marshaller> marshallers,
                                           ClassDescriptorAwareSerializer serializer,
                                           SerializationStrategy serializationStrategy,
-                                          ObjectInstantiatorFactory objectInstantiatorFactory, File debugCacheDirectory )
+                                          ObjectInstantiatorFactory objectInstantiatorFactory,
+                                          ValueNullableEvaluator valueNullableEvaluator, int maxInlineDepth,
+                                          File debugCacheDirectory, File marshallerCacheDirectory )
     {
 
         try
         {
-            ClassWriter cw = new ClassWriter( 0 );
+            ReferenceTrackingPolicy referenceTrackingPolicy = serializer.getReferenceTrackingPolicy();
+
+            // Collect all properties including the ones of inlined nested types. The field descriptors name the
+            // generated fields, the generated descriptors (same order) are handed to the property marshallers
+            List<PropertyDescriptor> fieldPropertyDescriptors = new ArrayList<PropertyDescriptor>();
+            List<PropertyDescriptor> generatedPropertyDescriptors = new ArrayList<PropertyDescriptor>();
+            List<PropertyDescriptor> inlinedPropertyDescriptors = new ArrayList<PropertyDescriptor>();
+            PropertyGroup propertyGroup =
+                buildPropertyGroup( propertyDescriptors, null, maxInlineDepth, marshallers, serializer,
+                                    valueNullableEvaluator, fieldPropertyDescriptors, generatedPropertyDescriptors,
+                                    inlinedPropertyDescriptors );
+
+            // Hidden nestmate of the type if possible, otherwise defined by the serializer's own classloader
+            GeneratedClassHost host = GeneratedClassHost.of( type, classloader );
+            boolean trackingCapable = referenceTrackingPolicy.isTrackingCapable( type );
+
+            // Reuse a class already generated by another serializer if it would result in the same bytecode
+            String classSignature =
+                buildClassSignature( host, serializationStrategy, trackingCapable, propertyGroup, marshallers );
+            Class<? extends Marshaller> generatedClass = findGeneratedClass( type, classSignature );
+            if ( generatedClass == null )
+            {
+                // Bytecode of earlier runs is validated against the current class definition before being used
+                MarshallerBytecodeCache bytecodeCache = null;
+                ClassDescriptor classDescriptor = serializer.findClassDescriptor( type );
+                if ( marshallerCacheDirectory != null && classDescriptor != null
+                    && classDescriptor.getClassDefinition() != null )
+                {
+                    bytecodeCache =
+                        new MarshallerBytecodeCache( marshallerCacheDirectory, classDescriptor.getClassDefinition(),
+                                                     classSignature );
+                }
+
+                generatedClass =
+                    defineMarshallerClass( type, host, serializationStrategy, propertyGroup, marshallers,
+                                           trackingCapable, fieldPropertyDescriptors, inlinedPropertyDescriptors,
+                                           debugCacheDirectory, bytecodeCache );
+                generatedClass = putGeneratedClass( type, classSignature, generatedClass );
+            }
+
+            Constructor<? extends Marshaller> constructor =
+                generatedClass.getConstructor( Class.class, Map.class, ClassDescriptorAwareSerializer.class,
+                                               ObjectInstantiatorFactory.class, List.class, MarshallerStrategy.class );
+
+            constructor.setAccessible( true );
+            return constructor.newInstance( type, marshallers, serializer, objectInstantiatorFactory,
+                                            generatedPropertyDescriptors, new InternalMarshallerStrategy() );
+        }
+        catch ( Exception e )
+        {
+            throw new SerializerMarshallerGeneratorException(
+                                                              "Marshaller for type " + type + " could not be generated",
+                                                              e );
+        }
+    }
+
+    private Class<? extends Marshaller> defineMarshallerClass( Class<?> type, GeneratedClassHost host,
+                                                               SerializationStrategy serializationStrategy,
+                                                               PropertyGroup propertyGroup,
+                                                               Map<Class<?>, Marshaller> marshallers,
+                                                               boolean trackingCapable,
+                                                               List<PropertyDescriptor> fieldPropertyDescriptors,
+                                                               List<PropertyDescriptor> inlinedPropertyDescriptors,
+                                                               File debugCacheDirectory,
+                                                               MarshallerBytecodeCache bytecodeCache )
+        throws Exception
+    {
+        if ( bytecodeCache != null )
+        {
+            byte[] bytecode = bytecodeCache.readBytecode();
+            if ( bytecode != null )
+            {
+                return host.defineClass( bytecode );
+            }
+        }
+
+        ClassWriter cw = new ClassWriter( 0 );
+
+        // Cached classes are named by their signature so names never clash with classes generated later on
+        String classId = null;
+        if ( bytecodeCache != null )
+        {
+            classId = bytecodeCache.getSignatureId();
+        }
+        else
+        {
+            classId = String.valueOf( GENEREATED_CLASS_ID.getAndIncrement() );
+        }
+
+        // Build className e.g. "SomeTypeMarshaller$$X$$Lightning"
+        String simpleClassName =
+            new StringBuilder( !type.isArray() ? type.getSimpleName() : type.getComponentType().getSimpleName()
+                + "Array" ).append( "Marshaller" ).append( classId ).append( "Lightning" ).toString();
+        String className = host.toInternalClassName( simpleClassName );
 
-            // Copy properties and sort them by name
-            List<PropertyDescriptor> propertyDescriptorsCopy = new ArrayList<PropertyDescriptor>( propertyDescriptors );
-            Collections.sort( propertyDescriptorsCopy );
+        // Build class
+        cw.visit( V1_6, ACC_PUBLIC + ACC_SUPER, className, null, SUPER_CLASS_INTERNAL_TYPE, null );
 
-            // Build className e.g. "SomeTypeMarshaller$$X$$Lightning"
-            String className =
-                new StringBuilder( !type.isArray() ? type.getSimpleName() : type.getComponentType().getSimpleName()
-                    + "Array" ).append( "Marshaller" ).append( GENEREATED_CLASS_ID.getAndIncrement() ).append( "Lightning" ).toString();
+        // Build marshaller fields
+        createMarshallerFields( cw, fieldPropertyDescriptors, inlinedPropertyDescriptors );
 
-            // Build class
-            cw.visit( V1_6, ACC_PUBLIC & ACC_SUPER, className, null, SUPER_CLASS_INTERNAL_TYPE, null );
+        // Build constructor
+        createConstructor( cw, className, fieldPropertyDescriptors, inlinedPropertyDescriptors );
 
-            // Build marshaller fields
-            createMarshallerFields( cw, propertyDescriptorsCopy );
+        // Build Marshaller#marshall method
+        createMarshallMethod( cw, className, host, type, serializationStrategy, propertyGroup, marshallers,
+                              trackingCapable );
 
-            // Build constructor
-            createConstructor( cw, className, propertyDescriptorsCopy );
+        // Build Marshaller#unmarshall method
+        createUnmarshallMethod( cw, className, host, type, serializationStrategy, propertyGroup, marshallers );
 
-            // Build Marshaller#marshall method
-            createMarshallMethod( cw, className, type, serializationStrategy, propertyDescriptorsCopy );
+        // Closing class visit
+        cw.visitEnd();
 
-            // Build Marshaller#unmarshall method
-            createUnmarshallMethod( cw, className, type, propertyDescriptorsCopy );
+        final byte[] bytecode = cw.toByteArray();
 
-            // Closing class visit
-            cw.visitEnd();
+        if ( debugCacheDirectory != null )
+        {
+            File file = new File( debugCacheDirectory, simpleClassName + ".class" );
+            FileOutputStream out = new FileOutputStream( file );
+            out.write( bytecode );
+            out.flush();
+            out.close();
+        }
+
+        if ( bytecodeCache != null )
+        {
+            bytecodeCache.writeBytecode( bytecode );
+        }
 
-            final byte[] bytecode = cw.toByteArray();
+        return host.defineClass( bytecode );
+    }
 
-            if ( debugCacheDirectory != null )
+    private Class<? extends Marshaller> findGeneratedClass( Class<?> type, String classSignature )
+    {
+        synchronized ( GENERATED_CLASS_CACHE )
+        {
+            Map<String, WeakReference<Class<? extends Marshaller>>> generatedClasses =
+                GENERATED_CLASS_CACHE.get( type );
+            if ( generatedClasses == null )
             {
-                File file = new File( debugCacheDirectory, className + ".class" );
-                FileOutputStream out = new FileOutputStream( file );
-                out.write( bytecode );
-                out.flush();
-                out.close();
+                return null;
             }
 
-            Class<? extends Marshaller> generatedClass = classloader.loadClass( bytecode );
-            Constructor<? extends Marshaller> constructor =
-                generatedClass.getConstructor( Class.class, Map.class, ClassDescriptorAwareSerializer.class,
-                                               ObjectInstantiatorFactory.class, List.class, MarshallerStrategy.class );
+            WeakReference<Class<? extends Marshaller>> reference = generatedClasses.get( classSignature );
+            return reference == null ? null : reference.get();
+        }
+    }
 
-            constructor.setAccessible( true );
-            return constructor.newInstance( type, marshallers, serializer, objectInstantiatorFactory,
-                                            propertyDescriptorsCopy, new InternalMarshallerStrategy() );
+    private Class<? extends Marshaller> putGeneratedClass( Class<?> type, String classSignature,
+                                                           Class<? extends Marshaller> generatedClass )
+    {
+        synchronized ( GENERATED_CLASS_CACHE )
+        {
+            Map<String, WeakReference<Class<? extends Marshaller>>> generatedClasses =
+                GENERATED_CLASS_CACHE.get( type );
+            if ( generatedClasses == null )
+            {
+                generatedClasses = new HashMap<String, WeakReference<Class<? extends Marshaller>>>();
+                GENERATED_CLASS_CACHE.put( type, generatedClasses );
+            }
+
+            // Another serializer might have generated the same class concurrently, first one wins
+            WeakReference<Class<? extends Marshaller>> reference = generatedClasses.get( classSignature );
+            Class<? extends Marshaller> cachedClass = reference == null ? null : reference.get();
+            if ( cachedClass != null )
+            {
+                return cachedClass;
+            }
+
+            generatedClasses.put( classSignature, new WeakReference<Class<? extends Marshaller>>( generatedClass ) );
+            return generatedClass;
         }
-        catch ( Exception e )
+    }
+
+    private String buildClassSignature( GeneratedClassHost host, SerializationStrategy serializationStrategy,
+                                        boolean trackingCapable, PropertyGroup propertyGroup,
+                                        Map<Class<?>, Marshaller> marshallers )
+    {
+        StringBuilder signature = new StringBuilder( serializationStrategy.name() );
+        signature.append( trackingCapable ? ";tracking" : ";untracked" );
+        signature.append( host.isHiddenClassHost() ? ";hidden" : ";classloader" );
+        appendPropertyGroupSignature( signature, host, propertyGroup, marshallers );
+        return signature.toString();
+    }
+
+    private void appendPropertyGroupSignature( StringBuilder signature, GeneratedClassHost host,
+                                               PropertyGroup propertyGroup, Map<Class<?>, Marshaller> marshallers )
+    {
+        // Everything the generated bytecode depends on, per serializer values are passed to the constructor
+        signature.append( '{' );
+        for ( PropertyDescriptor propertyDescriptor : propertyGroup.propertyDescriptors )
         {
-            throw new SerializerMarshallerGeneratorException(
-                                                              "Marshaller for type " + type + " could not be generated",
-                                                              e );
+            Member readMember = findDirectReadMember( host, propertyDescriptor );
+            Member writeMember = findDirectWriteMember( host, propertyDescriptor );
+
+            signature.append( propertyDescriptor.getPropertyName() ).append( ':' );
+            signature.append( propertyDescriptor.getType().getName() ).append( ':' );
+            signature.append( readMember != null ? readMember.toString() : "accessor" ).append( ':' );
+            signature.append( writeMember != null ? writeMember.toString() : "accessor" ).append( ':' );
+            signature.append( isInlinePrimitiveProperty( propertyDescriptor, marshallers ) );
+
+            PropertyGroup inlinedGroup = propertyGroup.inlinedGroups.get( propertyDescriptor );
+            if ( inlinedGroup != null )
+            {
+                appendPropertyGroupSignature( signature, host, inlinedGroup, marshallers );
+            }
+            signature.append( ';' );
+        }
+
+        // Order of nullable properties defines the null bitmap layout
+        signature.append( '[' );
+        for ( PropertyDescriptor propertyDescriptor : propertyGroup.nullableProperties )
+        {
+            signature.append( propertyDescriptor.getPropertyName() ).append( ';' );
+        }
+        signature.append( "]}" );
+    }
+
+    private PropertyGroup buildPropertyGroup( List<PropertyDescriptor> propertyDescriptors, String path,
+                                              int remainingInlineDepth, Map<Class<?>, Marshaller> marshallers,
+                                              ClassDescriptorAwareSerializer serializer,
+                                              ValueNullableEvaluator valueNullableEvaluator,
+                                              List<PropertyDescriptor> fieldPropertyDescriptors,
+                                              List<PropertyDescriptor> generatedPropertyDescriptors,
+                                              List<PropertyDescriptor> inlinedPropertyDescriptors )
+    {
+        ReferenceTrackingPolicy referenceTrackingPolicy = serializer.getReferenceTrackingPolicy();
+
+        // Copy properties and sort them by name
+        List<PropertyDescriptor> propertyDescriptorsCopy = new ArrayList<PropertyDescriptor>( propertyDescriptors );
+        Collections.sort( propertyDescriptorsCopy );
+
+        PropertyGroup propertyGroup = new PropertyGroup();
+        for ( PropertyDescriptor propertyDescriptor : propertyDescriptorsCopy )
+        {
+            PropertyDescriptor fieldPropertyDescriptor =
+                path == null ? propertyDescriptor : new InlinedPropertyDescriptor( propertyDescriptor, path );
+
+            propertyGroup.propertyDescriptors.add( fieldPropertyDescriptor );
+            fieldPropertyDescriptors.add( fieldPropertyDescriptor );
+
+            if ( propertyDescriptor.getType().isPrimitive() )
+            {
+                generatedPropertyDescriptors.add( fieldPropertyDescriptor );
+                continue;
+            }
+
+            // Collect reference properties that can be null, their null state is written as a leading bitmap
+            if ( valueNullableEvaluator.isValueNullable( propertyDescriptor ) )
+            {
+                propertyGroup.nullableProperties.add( fieldPropertyDescriptor );
+            }
+
+            // Marshallers must not write their own null markers anymore
+            if ( referenceTrackingPolicy.isPropertyTracked( propertyDescriptor ) )
+            {
+                generatedPropertyDescriptors.add( new ReferenceTrackedPropertyDescriptor( fieldPropertyDescriptor ) );
+            }
+            else
+            {
+                generatedPropertyDescriptors.add( new NonNullPropertyDescriptor( fieldPropertyDescriptor ) );
+            }
+
+            if ( remainingInlineDepth > 0 && isInlineNestedProperty( propertyDescriptor, marshallers, serializer ) )
+            {
+                List<PropertyDescriptor> nestedPropertyDescriptors =
+                    serializer.findClassDescriptor( propertyDescriptor.getType() ).getPropertyDescriptors();
+
+                inlinedPropertyDescriptors.add( fieldPropertyDescriptor );
+                propertyGroup.inlinedGroups.put( fieldPropertyDescriptor,
+                                                 buildPropertyGroup( nestedPropertyDescriptors,
+                                                                     fieldPropertyDescriptor.getPropertyName() + "$",
+                                                                     remainingInlineDepth - 1, marshallers,
+                                                                     serializer, valueNullableEvaluator,
+                                                                     fieldPropertyDescriptors,
+                                                                     generatedPropertyDescriptors,
+                                                                     inlinedPropertyDescriptors ) );
+            }
+        }
+        return propertyGroup;
+    }
+
+    static boolean isInlineNestedProperty( PropertyDescriptor propertyDescriptor,
+                                           Map<Class<?>, Marshaller> marshallers,
+                                           ClassDescriptorAwareSerializer serializer )
+    {
+        // Only final types have a known runtime type, everything else needs a class id and the marshaller lookup
+        Class<?> propertyType = propertyDescriptor.getType();
+        if ( propertyType.isArray() || propertyType.isEnum() || !Modifier.isFinal( propertyType.getModifiers() ) )
+        {
+            return false;
+        }
+
+        // Type has to be generated by this serializer as well, user defined marshallers always win
+        ClassDescriptor classDescriptor = serializer.findClassDescriptor( propertyType );
+        if ( classDescriptor == null || !( classDescriptor instanceof InternalClassDescriptor ) )
+        {
+            return false;
         }
+
+        if ( !isGeneratedMarshaller( classDescriptor.getMarshaller() )
+            || !isGeneratedMarshaller( propertyDescriptor.getMarshaller() )
+            || !isGeneratedMarshaller( marshallers.get( propertyType ) ) )
+        {
+            return false;
+        }
+
+        // Identity tracked values have to go through the nested marshaller to write their reference id
+        ReferenceTrackingPolicy referenceTrackingPolicy = serializer.getReferenceTrackingPolicy();
+        return !referenceTrackingPolicy.isTrackingCapable( propertyType )
+            && !referenceTrackingPolicy.isPropertyTracked( propertyDescriptor );
     }
 
-    private void createMarshallerFields( ClassWriter cw, List<PropertyDescriptor> propertyDescriptors )
+    private static boolean isGeneratedMarshaller( Marshaller marshaller )
+    {
+        // Not yet generated or lazily generated marshallers are generated ones as well
+        return marshaller == null || marshaller instanceof AbstractGeneratedMarshaller
+            || marshaller instanceof LazyGeneratedMarshaller;
+    }
+
+    private void createMarshallerFields( ClassWriter cw, List<PropertyDescriptor> propertyDescriptors,
+                                         List<PropertyDescriptor> inlinedPropertyDescriptors )
     {
         for ( int i = 0; i < propertyDescriptors.size(); i++ )
         {
@@ -125,7 +423,7 @@ public class BytecodeMarshallerGenerator
 
             // Write PropertyDescriptor field
             fv =
-                cw.visitField( ACC_FINAL & ACC_PRIVATE, toFinalFieldName( "descriptor", propertyDescriptor ),
+                cw.visitField( ACC_PRIVATE + ACC_FINAL, toFinalFieldName( "descriptor", propertyDescriptor ),
                                PROPERTYDESCRIPTOR_CLASS_DESCRIPTOR, null, null );
             fv.visitEnd();
 
@@ -134,26 +432,36 @@ public class BytecodeMarshallerGenerator
             {
                 // Write ComponentType PropertyDescriptor field
                 fv =
-                    cw.visitField( ACC_FINAL & ACC_PRIVATE, toFinalFieldName( "component", propertyDescriptor ),
+                    cw.visitField( ACC_PRIVATE + ACC_FINAL, toFinalFieldName( "component", propertyDescriptor ),
                                    CHEATINGPROPERTYDESCRIPTOR_CLASS_DESCRIPTOR, null, null );
                 fv.visitEnd();
             }
 
             // Write Marshaller field
             fv =
-                cw.visitField( ACC_FINAL & ACC_PRIVATE, toFinalFieldName( "marshaller", propertyDescriptor ),
+                cw.visitField( ACC_PRIVATE + ACC_FINAL, toFinalFieldName( "marshaller", propertyDescriptor ),
                                MARSHALLER_CLASS_DESCRIPTOR, null, null );
             fv.visitEnd();
 
             // Write PropertyAccessor field
             fv =
-                cw.visitField( ACC_FINAL & ACC_PRIVATE, toFinalFieldName( "accessor", propertyDescriptor ),
+                cw.visitField( ACC_PRIVATE + ACC_FINAL, toFinalFieldName( "accessor", propertyDescriptor ),
                                PROPERTYACCESSOR_CLASS_DESCRIPTOR, null, null );
             fv.visitEnd();
         }
+
+        for ( PropertyDescriptor propertyDescriptor : inlinedPropertyDescriptors )
+        {
+            // Write ObjectInstantiator field for inlined nested types
+            FieldVisitor fv =
+                cw.visitField( ACC_PRIVATE + ACC_FINAL, toFinalFieldName( "instantiator", propertyDescriptor ),
+                               OBJECT_INSTANTIATOR_CLASS_DESCRIPTOR, null, null );
+            fv.visitEnd();
+        }
     }
 
-    private void createConstructor( ClassWriter cw, String className, List<PropertyDescriptor> propertyDescriptors )
+    private void createConstructor( ClassWriter cw, String className, List<PropertyDescriptor> propertyDescriptors,
+                                    List<PropertyDescriptor> inlinedPropertyDescriptors )
     {
         MethodVisitor mv = cw.visitMethod( ACC_PUBLIC, "<init>", MARSHALLER_CONSTRUCTOR_SIGNATURE, null, null );
         mv.visitCode();
@@ -186,7 +494,7 @@ public class BytecodeMarshallerGenerator
 
             // Load property type
             mv.visitVarInsn( ALOAD, 5 );
-            mv.visitIntInsn( BIPUSH, i );
+            mv.visitIntInsn( i <= Byte.MAX_VALUE ? BIPUSH : SIPUSH, i );
             mv.visitMethodInsn( INVOKEINTERFACE, LIST_CLASS_INTERNAL_TYPE, "get", "(I)Ljava/lang/Object;" );
 
             // Store PropertyDescriptor
@@ -277,22 +585,42 @@ public class BytecodeMarshallerGenerator
                                PROPERTYACCESSOR_CLASS_DESCRIPTOR );
         }
 
+        // Fill fields with ObjectInstantiators of inlined nested types
+        for ( PropertyDescriptor propertyDescriptor : inlinedPropertyDescriptors )
+        {
+            mv.visitVarInsn( ALOAD, 0 );
+
+            // Load ObjectInstantiatorFactory and the property type
+            mv.visitVarInsn( ALOAD, 4 );
+            mv.visitVarInsn( ALOAD, 0 );
+            mv.visitFieldInsn( GETFIELD, className, toFinalFieldName( "descriptor", propertyDescriptor ),
+                               PROPERTYDESCRIPTOR_CLASS_DESCRIPTOR );
+            mv.visitMethodInsn( INVOKEINTERFACE, PROPERTYDESCRIPTOR_CLASS_INTERNAL_TYPE, "getType",
+                                PROPERTY_DESCRIPTOR_GET_TYPE_SIGNATURE );
+
+            // Save ObjectInstantiator to field
+            mv.visitMethodInsn( INVOKEINTERFACE, OBJECT_INSTANTIATOR_FACTORY_CLASS_INTERNAL_TYPE, "getInstantiatorOf",
+                                OBJECT_INSTANTIATOR_FACTORY_GET_INSTANTIATOR_OF_SIGNATURE );
+            mv.visitFieldInsn( PUTFIELD, className, toFinalFieldName( "instantiator", propertyDescriptor ),
+                               OBJECT_INSTANTIATOR_CLASS_DESCRIPTOR );
+        }
+
         mv.visitInsn( RETURN );
         mv.visitMaxs( -1, 12 );
         mv.visitEnd();
     }
 
-    private void createMarshallMethod( ClassWriter cw, String className, Class<?> type,
-                                       SerializationStrategy serializationStrategy,
-                                       List<PropertyDescriptor> propertyDescriptors )
+    private void createMarshallMethod( ClassWriter cw, String className, GeneratedClassHost host, Class<?> type,
+                                       SerializationStrategy serializationStrategy, PropertyGroup propertyGroup,
+                                       Map<Class<?>, Marshaller> marshallers, boolean trackingCapable )
     {
 
         MethodVisitor mv =
             cw.visitMethod( ACC_PUBLIC, "marshall", MARSHALLER_MARSHALL_SIGNATURE, null, MARSHALLER_EXCEPTIONS );
 
-        // If element type is not reference capable or SerializationStrategy is
-        // not SizeOptimized just prevent generation of code
-        if ( serializationStrategy == SerializationStrategy.SizeOptimized && ClassUtil.isReferenceCapable( type ) )
+        // If values of this type are never identity tracked (not reference capable, SpeedOptimized or not declared
+        // to track references) just prevent generation of code
+        if ( trackingCapable )
         {
             // Load this to method stack
             mv.visitVarInsn( ALOAD, 0 );
@@ -300,7 +628,7 @@ public class BytecodeMarshallerGenerator
             // Load value to method stack
             mv.visitVarInsn( ALOAD, 1 );
 
-            // Load type to method stack
+            // Load propertyDescriptor to method stack
             mv.visitVarInsn( ALOAD, 2 );
 
             // Load dataOutput to method stack
@@ -326,29 +654,92 @@ public class BytecodeMarshallerGenerator
             mv.visitLabel( notYetMarshalled );
         }
 
-        for ( PropertyDescriptor propertyDescriptor : propertyDescriptors )
+        // Write all properties of the value
+        int maxLocals =
+            visitPropertyGroupMarshall( mv, className, host, serializationStrategy, propertyGroup, marshallers, 1,
+                                        MARSHALL_NULL_BITMAP_LOCAL );
+
+        if ( trackingCapable )
         {
-            if ( propertyDescriptor.getType().isArray()
+            // Call super.afterMarshalled(value, propertyDescriptor, serializationContext);
+            mv.visitVarInsn( ALOAD, 0 );
+            mv.visitVarInsn( ALOAD, 1 );
+            mv.visitVarInsn( ALOAD, 2 );
+            mv.visitVarInsn( ALOAD, 4 );
+            mv.visitMethodInsn( INVOKEVIRTUAL, SUPER_CLASS_INTERNAL_TYPE, "afterMarshalled",
+                                MARSHALLER_AFTER_MARSHALLED_SIGNATURE );
+        }
+
+        // Add Return instruction
+        mv.visitInsn( RETURN );
+
+        // End visiting
+        mv.visitMaxs( 9, maxLocals );
+        mv.visitEnd();
+    }
+
+    private int visitPropertyGroupMarshall( MethodVisitor mv, String className, GeneratedClassHost host,
+                                            SerializationStrategy serializationStrategy, PropertyGroup propertyGroup,
+                                            Map<Class<?>, Marshaller> marshallers, int ownerLocal,
+                                            int firstBitmapLocal )
+    {
+        List<PropertyDescriptor> nullableProperties = propertyGroup.nullableProperties;
+
+        // Write null bitmap of all nullable properties
+        visitNullBitmapWrite( mv, className, host, ownerLocal, firstBitmapLocal, nullableProperties );
+
+        // Inlined nested values are stored right after the bitmap locals
+        int nestedLocal = firstBitmapLocal + getNullBitmapChunks( nullableProperties ) * 2;
+        int maxLocals = nestedLocal;
+
+        for ( PropertyDescriptor propertyDescriptor : propertyGroup.propertyDescriptors )
+        {
+            // Skip property if it is marked as null
+            Label propertyEnd = new Label();
+            boolean nullable =
+                visitNullBitmapTest( mv, firstBitmapLocal, nullableProperties, propertyDescriptor, propertyEnd );
+
+            PropertyGroup inlinedGroup = propertyGroup.inlinedGroups.get( propertyDescriptor );
+            if ( inlinedGroup != null )
+            {
+                // Read nested value and write its properties the same way its own marshaller would do
+                visitPropertyValueRead( mv, className, host, propertyDescriptor, ownerLocal );
+                if ( !nullable )
+                {
+                    visitNotNullCheck( mv, propertyDescriptor );
+                }
+                mv.visitVarInsn( ASTORE, nestedLocal );
+
+                maxLocals =
+                    Math.max( maxLocals, visitPropertyGroupMarshall( mv, className, host, serializationStrategy,
+                                                                     inlinedGroup, marshallers, nestedLocal,
+                                                                     nestedLocal + 1 ) );
+            }
+            else if ( propertyDescriptor.getType().isArray()
                 && !propertyDescriptor.getType().getComponentType().isPrimitive() )
             {
-                visitObjectArrayPropertyAccessorRead( mv, className, propertyDescriptor );
+                visitObjectArrayPropertyAccessorRead( mv, className, host, propertyDescriptor, ownerLocal,
+                                                      serializationStrategy, nullable );
+            }
+            else if ( isInlinePrimitiveProperty( propertyDescriptor, marshallers ) )
+            {
+                visitPrimitivePropertyAccessorRead( mv, className, host, propertyDescriptor, ownerLocal,
+                                                    serializationStrategy, nullable );
             }
             else
             {
-                visitValuePropertyAccessorRead( mv, className, propertyDescriptor );
+                visitValuePropertyAccessorRead( mv, className, host, propertyDescriptor, ownerLocal, nullable );
             }
-        }
 
-        // Add Return instruction
-        mv.visitInsn( RETURN );
+            mv.visitLabel( propertyEnd );
+        }
 
-        // End visiting
-        mv.visitMaxs( 9, 9 );
-        mv.visitEnd();
+        return maxLocals;
     }
 
-    private void visitValuePropertyAccessorRead( MethodVisitor mv, String className,
-                                                 PropertyDescriptor propertyDescriptor )
+    private void visitValuePropertyAccessorRead( MethodVisitor mv, String className, GeneratedClassHost host,
+                                                 PropertyDescriptor propertyDescriptor, int ownerLocal,
+                                                 boolean nullable )
     {
         Class<?> propertyType = propertyDescriptor.getType();
 
@@ -359,24 +750,19 @@ public class BytecodeMarshallerGenerator
         mv.visitFieldInsn( GETFIELD, className, toFinalFieldName( "marshaller", propertyDescriptor ),
                            MARSHALLER_CLASS_DESCRIPTOR );
 
-        // Load this to method stack
-        mv.visitVarInsn( ALOAD, 0 );
-
-        // Read PropertyAccessor from field
-        mv.visitFieldInsn( GETFIELD, className, toFinalFieldName( "accessor", propertyDescriptor ),
-                           PROPERTYACCESSOR_CLASS_DESCRIPTOR );
-
-        // Load value to method stack
-        mv.visitVarInsn( ALOAD, 1 );
-
         // Load value by type on stack
-        visitPropertyAccessorValueRead( propertyType, mv );
+        visitPropertyValueRead( mv, className, host, propertyDescriptor, ownerLocal );
 
-        // If type is primitive add some "autoboxing" magic
+        // If type is primitive add some "autoboxing" magic, otherwise fail on null values of not nullable properties
+        // as generated marshallers of nested types do not check them
         if ( propertyType.isPrimitive() )
         {
             visitWrapperAutoboxing( propertyType, mv );
         }
+        else if ( !nullable )
+        {
+            visitNotNullCheck( mv, propertyDescriptor );
+        }
 
         // Load type to method stack
         mv.visitVarInsn( ALOAD, 0 );
@@ -393,8 +779,9 @@ public class BytecodeMarshallerGenerator
         mv.visitMethodInsn( INVOKEINTERFACE, MARSHALLER_CLASS_INTERNAL_TYPE, "marshall", MARSHALLER_MARSHALL_SIGNATURE );
     }
 
-    private void visitObjectArrayPropertyAccessorRead( MethodVisitor mv, String className,
-                                                       PropertyDescriptor propertyDescriptor )
+    private void visitObjectArrayPropertyAccessorRead( MethodVisitor mv, String className, GeneratedClassHost host,
+                                                       PropertyDescriptor propertyDescriptor, int ownerLocal,
+                                                       SerializationStrategy serializationStrategy, boolean nullable )
     {
         Class<?> propertyType = propertyDescriptor.getType();
 
@@ -409,16 +796,16 @@ public class BytecodeMarshallerGenerator
 
         // Load property type
         mv.visitVarInsn( ALOAD, 8 );
-        mv.visitInsn( DUP );
         mv.visitMethodInsn( INVOKEINTERFACE, PROPERTYACCESSOR_CLASS_INTERNAL_TYPE, "getType",
                             OBJECT_GET_CLASS_SIGNATURE );
         mv.visitVarInsn( ASTORE, 5 );
 
-        // Load value to method stack
-        mv.visitVarInsn( ALOAD, 1 );
-
         // Save array to stack position 6
-        visitPropertyAccessorValueRead( propertyType, mv );
+        visitPropertyValueRead( mv, className, host, propertyDescriptor, ownerLocal );
+        if ( !nullable )
+        {
+            visitNotNullCheck( mv, propertyDescriptor );
+        }
         mv.visitTypeInsn( CHECKCAST, Type.getType( propertyType ).getInternalName() );
         mv.visitVarInsn( ASTORE, 6 );
 
@@ -426,7 +813,15 @@ public class BytecodeMarshallerGenerator
         mv.visitVarInsn( ALOAD, 3 );
         mv.visitVarInsn( ALOAD, 6 );
         mv.visitInsn( ARRAYLENGTH );
-        mv.visitMethodInsn( INVOKEINTERFACE, DATAOUTPUT_CLASS_INTERNAL_TYPE, "writeInt", "(I)V" );
+        if ( serializationStrategy == SerializationStrategy.Compact )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, VARINTUTIL_CLASS_INTERNAL_TYPE, "writeUnsignedVarInt",
+                                "(Ljava/io/DataOutput;I)V" );
+        }
+        else
+        {
+            mv.visitMethodInsn( INVOKEINTERFACE, DATAOUTPUT_CLASS_INTERNAL_TYPE, "writeInt", "(I)V" );
+        }
 
         // Loop over every element in array
         Label forLoopEnd = new Label();
@@ -486,24 +881,17 @@ public class BytecodeMarshallerGenerator
         mv.visitJumpInsn( IF_ICMPLT, forLoopStart );
     }
 
-    private void createUnmarshallMethod( ClassWriter cw, String className, Class<?> type,
-                                         List<PropertyDescriptor> propertyDescriptors )
+    private void createUnmarshallMethod( ClassWriter cw, String className, GeneratedClassHost host, Class<?> type,
+                                         SerializationStrategy serializationStrategy, PropertyGroup propertyGroup,
+                                         Map<Class<?>, Marshaller> marshallers )
     {
         MethodVisitor mv =
             cw.visitMethod( ACC_PUBLIC, "unmarshall", MARSHALLER_UNMARSHALL_SIGNATURE, null, MARSHALLER_EXCEPTIONS );
 
-        for ( PropertyDescriptor propertyDescriptor : propertyDescriptors )
-        {
-            if ( propertyDescriptor.getType().isArray()
-                && !propertyDescriptor.getType().getComponentType().isPrimitive() )
-            {
-                visitObjectArrayPropertyAccessorWrite( mv, className, propertyDescriptor );
-            }
-            else
-            {
-                visitValuePropertyAccessorWrite( mv, className, propertyDescriptor );
-            }
-        }
+        // Read all properties of the instance
+        int maxLocals =
+            visitPropertyGroupUnmarshall( mv, className, host, serializationStrategy, propertyGroup, marshallers, 1,
+                                          UNMARSHALL_NULL_BITMAP_LOCAL );
 
         // Load instance to method stack
         mv.visitVarInsn( ALOAD, 1 );
@@ -512,24 +900,88 @@ public class BytecodeMarshallerGenerator
         visitReturn( type, mv );
 
         // End visiting
-        mv.visitMaxs( 11, 11 );
+        mv.visitMaxs( 11, maxLocals );
         mv.visitEnd();
     }
 
-    private void visitValuePropertyAccessorWrite( MethodVisitor mv, String className,
-                                                  PropertyDescriptor propertyDescriptor )
+    private int visitPropertyGroupUnmarshall( MethodVisitor mv, String className, GeneratedClassHost host,
+                                              SerializationStrategy serializationStrategy,
+                                              PropertyGroup propertyGroup, Map<Class<?>, Marshaller> marshallers,
+                                              int ownerLocal, int firstBitmapLocal )
     {
-        Class<?> propertyType = propertyDescriptor.getType();
+        List<PropertyDescriptor> nullableProperties = propertyGroup.nullableProperties;
 
-        // Load this to method stack
-        mv.visitVarInsn( ALOAD, 0 );
+        // Read null bitmap of all nullable properties
+        visitNullBitmapRead( mv, firstBitmapLocal, nullableProperties );
 
-        // Read PropertyAccessor from field
-        mv.visitFieldInsn( GETFIELD, className, toFinalFieldName( "accessor", propertyDescriptor ),
-                           PROPERTYACCESSOR_CLASS_DESCRIPTOR );
+        // Inlined nested instances are stored right after the bitmap locals
+        int nestedLocal = firstBitmapLocal + getNullBitmapChunks( nullableProperties ) * 2;
+        int maxLocals = nestedLocal;
 
-        // Store PropertyAccessor for later use
-        mv.visitVarInsn( ASTORE, 5 );
+        for ( PropertyDescriptor propertyDescriptor : propertyGroup.propertyDescriptors )
+        {
+            Label propertyEnd = new Label();
+            Label propertyIsNull = new Label();
+            boolean nullable =
+                visitNullBitmapTest( mv, firstBitmapLocal, nullableProperties, propertyDescriptor, propertyIsNull );
+
+            PropertyGroup inlinedGroup = propertyGroup.inlinedGroups.get( propertyDescriptor );
+            if ( inlinedGroup != null )
+            {
+                // Create nested instance and read its properties the same way its own marshaller would do
+                mv.visitVarInsn( ALOAD, 0 );
+                mv.visitFieldInsn( GETFIELD, className, toFinalFieldName( "instantiator", propertyDescriptor ),
+                                   OBJECT_INSTANTIATOR_CLASS_DESCRIPTOR );
+                mv.visitMethodInsn( INVOKEINTERFACE, OBJECT_INSTANTIATOR_CLASS_INTERNAL_TYPE, "newInstance",
+                                    OBJECT_INSTANTIATOR_NEW_INSTANCE_SIGNATURE );
+                mv.visitVarInsn( ASTORE, nestedLocal );
+
+                maxLocals =
+                    Math.max( maxLocals, visitPropertyGroupUnmarshall( mv, className, host, serializationStrategy,
+                                                                       inlinedGroup, marshallers, nestedLocal,
+                                                                       nestedLocal + 1 ) );
+
+                // Set nested instance to the owner
+                visitPropertyValueWriteTarget( mv, className, host, propertyDescriptor, ownerLocal );
+                mv.visitVarInsn( ALOAD, nestedLocal );
+                visitPropertyValueWrite( mv, host, propertyDescriptor );
+            }
+            else if ( propertyDescriptor.getType().isArray()
+                && !propertyDescriptor.getType().getComponentType().isPrimitive() )
+            {
+                visitObjectArrayPropertyAccessorWrite( mv, className, host, propertyDescriptor, ownerLocal,
+                                                       serializationStrategy );
+            }
+            else if ( isInlinePrimitiveProperty( propertyDescriptor, marshallers ) )
+            {
+                visitPrimitivePropertyAccessorWrite( mv, className, host, propertyDescriptor, ownerLocal,
+                                                     serializationStrategy );
+            }
+            else
+            {
+                visitValuePropertyAccessorWrite( mv, className, host, propertyDescriptor, ownerLocal );
+            }
+
+            if ( nullable )
+            {
+                // Property is marked as null so set null to the instance
+                mv.visitJumpInsn( GOTO, propertyEnd );
+                mv.visitLabel( propertyIsNull );
+                visitPropertyValueWriteTarget( mv, className, host, propertyDescriptor, ownerLocal );
+                mv.visitInsn( ACONST_NULL );
+                visitPropertyValueWrite( mv, host, propertyDescriptor );
+            }
+
+            mv.visitLabel( propertyEnd );
+        }
+
+        return maxLocals;
+    }
+
+    private void visitValuePropertyAccessorWrite( MethodVisitor mv, String className, GeneratedClassHost host,
+                                                  PropertyDescriptor propertyDescriptor, int ownerLocal )
+    {
+        Class<?> propertyType = propertyDescriptor.getType();
 
         // Load this to method stack
         mv.visitVarInsn( ALOAD, 0 );
@@ -558,11 +1010,8 @@ public class BytecodeMarshallerGenerator
         // Save value
         mv.visitVarInsn( ASTORE, 6 );
 
-        // Load PropertyAccessor to method stack
-        mv.visitVarInsn( ALOAD, 5 );
-
-        // Load instance to method stack
-        mv.visitVarInsn( ALOAD, 1 );
+        // Load PropertyAccessor (if needed) and instance to method stack
+        visitPropertyValueWriteTarget( mv, className, host, propertyDescriptor, ownerLocal );
 
         // Load value to method stack
         mv.visitVarInsn( ALOAD, 6 );
@@ -573,19 +1022,28 @@ public class BytecodeMarshallerGenerator
             visitPrimitiveAutoboxing( propertyType, mv );
         }
 
-        // Call PropertyAccessor#writeX
-        visitPropertyAccessorValueWrite( propertyType, mv );
+        // Write value to the property
+        visitPropertyValueWrite( mv, host, propertyDescriptor );
     }
 
-    private void visitObjectArrayPropertyAccessorWrite( MethodVisitor mv, String className,
-                                                        PropertyDescriptor propertyDescriptor )
+    private void visitObjectArrayPropertyAccessorWrite( MethodVisitor mv, String className, GeneratedClassHost host,
+                                                        PropertyDescriptor propertyDescriptor, int ownerLocal,
+                                                        SerializationStrategy serializationStrategy )
     {
         Class<?> propertyType = propertyDescriptor.getType();
         Class<?> componentType = propertyType.getComponentType();
 
         // Read size
         mv.visitVarInsn( ALOAD, 3 );
-        mv.visitMethodInsn( INVOKEINTERFACE, DATAINPUT_CLASS_INTERNAL_TYPE, "readInt", "()I" );
+        if ( serializationStrategy == SerializationStrategy.Compact )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, VARINTUTIL_CLASS_INTERNAL_TYPE, "readUnsignedVarInt",
+                                "(Ljava/io/DataInput;)I" );
+        }
+        else
+        {
+            mv.visitMethodInsn( INVOKEINTERFACE, DATAINPUT_CLASS_INTERNAL_TYPE, "readInt", "()I" );
+        }
         mv.visitInsn( DUP );
         mv.visitVarInsn( ISTORE, 5 );
 
@@ -644,10 +1102,394 @@ public class BytecodeMarshallerGenerator
         mv.visitJumpInsn( IF_ICMPLT, forLoopStart );
 
         // Write array to object
-        mv.visitVarInsn( ALOAD, 9 );
-        mv.visitVarInsn( ALOAD, 1 );
+        visitPropertyValueWriteTarget( mv, className, host, propertyDescriptor, ownerLocal );
         mv.visitVarInsn( ALOAD, 6 );
-        visitPropertyAccessorValueWrite( propertyType.getComponentType(), mv );
+        visitPropertyValueWrite( mv, host, propertyDescriptor );
+    }
+
+    static boolean isInlinePrimitiveProperty( PropertyDescriptor propertyDescriptor,
+                                              Map<Class<?>, Marshaller> marshallers )
+    {
+        // Only inline types handled by the build-in marshallers, user defined ones always win
+        Class<?> propertyType = propertyDescriptor.getType();
+        Class<?> primitiveType = toPrimitiveType( propertyType );
+        if ( primitiveType == null )
+        {
+            return false;
+        }
+
+        // The build-in marshallers of wrapper types are registered as well, only other ones are user defined
+        Class<? extends Marshaller> buildInMarshallerType = getBuildInMarshallerType( primitiveType );
+        Marshaller registeredMarshaller = marshallers.get( propertyType );
+        if ( registeredMarshaller != null && registeredMarshaller.getClass() != buildInMarshallerType )
+        {
+            return false;
+        }
+
+        Marshaller marshaller = propertyDescriptor.getMarshaller();
+        return marshaller == null || marshaller.getClass() == buildInMarshallerType;
+    }
+
+    private static Class<? extends Marshaller> getBuildInMarshallerType( Class<?> primitiveType )
+    {
+        if ( primitiveType == boolean.class )
+        {
+            return BooleanMarshaller.class;
+        }
+        else if ( primitiveType == byte.class )
+        {
+            return ByteMarshaller.class;
+        }
+        else if ( primitiveType == char.class )
+        {
+            return CharacterMarshaller.class;
+        }
+        else if ( primitiveType == short.class )
+        {
+            return ShortMarshaller.class;
+        }
+        else if ( primitiveType == int.class )
+        {
+            return IntegerMarshaller.class;
+        }
+        else if ( primitiveType == long.class )
+        {
+            return LongMarshaller.class;
+        }
+        else if ( primitiveType == float.class )
+        {
+            return FloatMarshaller.class;
+        }
+        return DoubleMarshaller.class;
+    }
+
+    private void visitPrimitivePropertyAccessorRead( MethodVisitor mv, String className, GeneratedClassHost host,
+                                                     PropertyDescriptor propertyDescriptor, int ownerLocal,
+                                                     SerializationStrategy serializationStrategy, boolean nullable )
+    {
+        Class<?> propertyType = propertyDescriptor.getType();
+
+        if ( propertyType.isPrimitive() )
+        {
+            // Load DataOutput to method stack
+            mv.visitVarInsn( ALOAD, 3 );
+
+            // Read primitive value using the typed PropertyAccessor#readX or direct access
+            visitPropertyValueRead( mv, className, host, propertyDescriptor, ownerLocal );
+
+            // Write it directly to the DataOutput
+            visitDataOutputWrite( propertyType, serializationStrategy, mv );
+            return;
+        }
+
+        // Null values of nullable properties are already handled by the null bitmap
+        Class<?> primitiveType = toPrimitiveType( propertyType );
+
+        // Read wrapper value, unwrap and write it
+        mv.visitVarInsn( ALOAD, 3 );
+        visitPropertyValueRead( mv, className, host, propertyDescriptor, ownerLocal );
+        if ( !nullable )
+        {
+            visitNotNullCheck( mv, propertyDescriptor );
+        }
+        visitPrimitiveAutoboxing( primitiveType, mv );
+        visitDataOutputWrite( primitiveType, serializationStrategy, mv );
+    }
+
+    private void visitNotNullCheck( MethodVisitor mv, PropertyDescriptor propertyDescriptor )
+    {
+        // Call AbstractGeneratedMarshaller#checkNotNull( value, propertyName ), the value stays on the stack
+        mv.visitLdcInsn( propertyDescriptor.getPropertyName() );
+        mv.visitMethodInsn( INVOKESTATIC, SUPER_CLASS_INTERNAL_TYPE, "checkNotNull",
+                            "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;" );
+    }
+
+    private void visitPrimitivePropertyAccessorWrite( MethodVisitor mv, String className, GeneratedClassHost host,
+                                                      PropertyDescriptor propertyDescriptor, int ownerLocal,
+                                                      SerializationStrategy serializationStrategy )
+    {
+        Class<?> propertyType = propertyDescriptor.getType();
+
+        if ( propertyType.isPrimitive() )
+        {
+            // Load PropertyAccessor (if needed) and instance to method stack
+            visitPropertyValueWriteTarget( mv, className, host, propertyDescriptor, ownerLocal );
+
+            // Read primitive value directly from DataInput
+            mv.visitVarInsn( ALOAD, 3 );
+            visitDataInputRead( propertyType, serializationStrategy, mv );
+
+            // Call PropertyAccessor#writeX or write directly
+            visitPropertyValueWrite( mv, host, propertyDescriptor );
+            return;
+        }
+
+        // Null values are already handled by the null bitmap
+        Class<?> primitiveType = toPrimitiveType( propertyType );
+
+        // Load PropertyAccessor (if needed) and instance to method stack
+        visitPropertyValueWriteTarget( mv, className, host, propertyDescriptor, ownerLocal );
+
+        // Read primitive value and wrap it
+        mv.visitVarInsn( ALOAD, 3 );
+        visitDataInputRead( primitiveType, serializationStrategy, mv );
+        visitWrapperAutoboxing( primitiveType, mv );
+
+        // Call PropertyAccessor#writeObject or write directly
+        visitPropertyValueWrite( mv, host, propertyDescriptor );
+    }
+
+    private void visitNullBitmapWrite( MethodVisitor mv, String className, GeneratedClassHost host, int ownerLocal,
+                                       int firstBitmapLocal, List<PropertyDescriptor> nullableProperties )
+    {
+        for ( int chunk = 0; chunk < getNullBitmapChunks( nullableProperties ); chunk++ )
+        {
+            int bitmapLocal = firstBitmapLocal + chunk * 2;
+
+            // Initialize bitmap with no null values
+            mv.visitInsn( LCONST_0 );
+            mv.visitVarInsn( LSTORE, bitmapLocal );
+
+            int offset = chunk * NULL_BITMAP_CHUNK_SIZE;
+            int length = Math.min( NULL_BITMAP_CHUNK_SIZE, nullableProperties.size() - offset );
+            for ( int bit = 0; bit < length; bit++ )
+            {
+                PropertyDescriptor propertyDescriptor = nullableProperties.get( offset + bit );
+                Label notNull = new Label();
+
+                // Read value and test it for null
+                visitPropertyValueRead( mv, className, host, propertyDescriptor, ownerLocal );
+                mv.visitJumpInsn( IFNONNULL, notNull );
+
+                // Set the properties bit
+                mv.visitVarInsn( LLOAD, bitmapLocal );
+                mv.visitLdcInsn( Long.valueOf( 1L << bit ) );
+                mv.visitInsn( LOR );
+                mv.visitVarInsn( LSTORE, bitmapLocal );
+                mv.visitLabel( notNull );
+            }
+
+            // Write bitmap, in common case of no null values this is just one byte
+            mv.visitVarInsn( ALOAD, 3 );
+            mv.visitVarInsn( LLOAD, bitmapLocal );
+            mv.visitMethodInsn( INVOKESTATIC, VARINTUTIL_CLASS_INTERNAL_TYPE, "writeUnsignedVarLong",
+                                "(Ljava/io/DataOutput;J)V" );
+        }
+    }
+
+    private void visitNullBitmapRead( MethodVisitor mv, int firstBitmapLocal,
+                                      List<PropertyDescriptor> nullableProperties )
+    {
+        for ( int chunk = 0; chunk < getNullBitmapChunks( nullableProperties ); chunk++ )
+        {
+            mv.visitVarInsn( ALOAD, 3 );
+            mv.visitMethodInsn( INVOKESTATIC, VARINTUTIL_CLASS_INTERNAL_TYPE, "readUnsignedVarLong",
+                                "(Ljava/io/DataInput;)J" );
+            mv.visitVarInsn( LSTORE, firstBitmapLocal + chunk * 2 );
+        }
+    }
+
+    private boolean visitNullBitmapTest( MethodVisitor mv, int firstBitmapLocal,
+                                         List<PropertyDescriptor> nullableProperties,
+                                         PropertyDescriptor propertyDescriptor, Label isNull )
+    {
+        int index = nullableProperties.indexOf( propertyDescriptor );
+        if ( index == -1 )
+        {
+            return false;
+        }
+
+        // Jump to given label if properties bit is set
+        mv.visitVarInsn( LLOAD, firstBitmapLocal + ( index / NULL_BITMAP_CHUNK_SIZE ) * 2 );
+        mv.visitLdcInsn( Long.valueOf( 1L << ( index % NULL_BITMAP_CHUNK_SIZE ) ) );
+        mv.visitInsn( LAND );
+        mv.visitInsn( LCONST_0 );
+        mv.visitInsn( LCMP );
+        mv.visitJumpInsn( IFNE, isNull );
+        return true;
+    }
+
+    private int getNullBitmapChunks( List<PropertyDescriptor> nullableProperties )
+    {
+        return ( nullableProperties.size() + NULL_BITMAP_CHUNK_SIZE - 1 ) / NULL_BITMAP_CHUNK_SIZE;
+    }
+
+    private void visitDataOutputWrite( Class<?> type, SerializationStrategy serializationStrategy, MethodVisitor mv )
+    {
+        if ( serializationStrategy == SerializationStrategy.Compact && isVarIntType( type ) )
+        {
+            // Call VarIntUtil#writeVarX( dataOutput, value ) - stack layout is the same as for DataOutput#writeX
+            String typeDescriptor = Type.getDescriptor( type );
+            mv.visitMethodInsn( INVOKESTATIC, VARINTUTIL_CLASS_INTERNAL_TYPE, "writeVar" + toVarIntSuffix( type ),
+                                "(Ljava/io/DataOutput;" + typeDescriptor + ")V" );
+            return;
+        }
+
+        String methodName = null;
+        String methodSignature = null;
+
+        if ( type == boolean.class )
+        {
+            methodName = "writeBoolean";
+            methodSignature = "(Z)V";
+        }
+        else if ( type == byte.class )
+        {
+            methodName = "writeByte";
+            methodSignature = "(I)V";
+        }
+        else if ( type == char.class )
+        {
+            methodName = "writeChar";
+            methodSignature = "(I)V";
+        }
+        else if ( type == short.class )
+        {
+            methodName = "writeShort";
+            methodSignature = "(I)V";
+        }
+        else if ( type == int.class )
+        {
+            methodName = "writeInt";
+            methodSignature = "(I)V";
+        }
+        else if ( type == long.class )
+        {
+            methodName = "writeLong";
+            methodSignature = "(J)V";
+        }
+        else if ( type == float.class )
+        {
+            methodName = "writeFloat";
+            methodSignature = "(F)V";
+        }
+        else if ( type == double.class )
+        {
+            methodName = "writeDouble";
+            methodSignature = "(D)V";
+        }
+
+        mv.visitMethodInsn( INVOKEINTERFACE, DATAOUTPUT_CLASS_INTERNAL_TYPE, methodName, methodSignature );
+    }
+
+    private void visitDataInputRead( Class<?> type, SerializationStrategy serializationStrategy, MethodVisitor mv )
+    {
+        if ( serializationStrategy == SerializationStrategy.Compact && isVarIntType( type ) )
+        {
+            String typeDescriptor = Type.getDescriptor( type );
+            mv.visitMethodInsn( INVOKESTATIC, VARINTUTIL_CLASS_INTERNAL_TYPE, "readVar" + toVarIntSuffix( type ),
+                                "(Ljava/io/DataInput;)" + typeDescriptor );
+            return;
+        }
+
+        String methodName = null;
+        String methodSignature = null;
+
+        if ( type == boolean.class )
+        {
+            methodName = "readBoolean";
+            methodSignature = "()Z";
+        }
+        else if ( type == byte.class )
+        {
+            methodName = "readByte";
+            methodSignature = "()B";
+        }
+        else if ( type == char.class )
+        {
+            methodName = "readChar";
+            methodSignature = "()C";
+        }
+        else if ( type == short.class )
+        {
+            methodName = "readShort";
+            methodSignature = "()S";
+        }
+        else if ( type == int.class )
+        {
+            methodName = "readInt";
+            methodSignature = "()I";
+        }
+        else if ( type == long.class )
+        {
+            methodName = "readLong";
+            methodSignature = "()J";
+        }
+        else if ( type == float.class )
+        {
+            methodName = "readFloat";
+            methodSignature = "()F";
+        }
+        else if ( type == double.class )
+        {
+            methodName = "readDouble";
+            methodSignature = "()D";
+        }
+
+        mv.visitMethodInsn( INVOKEINTERFACE, DATAINPUT_CLASS_INTERNAL_TYPE, methodName, methodSignature );
+    }
+
+    private boolean isVarIntType( Class<?> type )
+    {
+        return type == char.class || type == short.class || type == int.class || type == long.class;
+    }
+
+    private String toVarIntSuffix( Class<?> type )
+    {
+        if ( type == char.class )
+        {
+            return "Char";
+        }
+        else if ( type == short.class )
+        {
+            return "Short";
+        }
+        else if ( type == int.class )
+        {
+            return "Int";
+        }
+        return "Long";
+    }
+
+    private static Class<?> toPrimitiveType( Class<?> type )
+    {
+        if ( type.isPrimitive() )
+        {
+            return type;
+        }
+        else if ( type == Boolean.class )
+        {
+            return boolean.class;
+        }
+        else if ( type == Byte.class )
+        {
+            return byte.class;
+        }
+        else if ( type == Character.class )
+        {
+            return char.class;
+        }
+        else if ( type == Short.class )
+        {
+            return short.class;
+        }
+        else if ( type == Integer.class )
+        {
+            return int.class;
+        }
+        else if ( type == Long.class )
+        {
+            return long.class;
+        }
+        else if ( type == Float.class )
+        {
+            return float.class;
+        }
+        else if ( type == Double.class )
+        {
+            return double.class;
+        }
+        return null;
     }
 
     private void visitReturn( Class<?> type, MethodVisitor mv )
@@ -694,6 +1536,157 @@ public class BytecodeMarshallerGenerator
         mv.visitInsn( returnOpcode );
     }
 
+    private void visitPropertyValueRead( MethodVisitor mv, String className, GeneratedClassHost host,
+                                         PropertyDescriptor propertyDescriptor, int ownerLocal )
+    {
+        Member member = findDirectReadMember( host, propertyDescriptor );
+        if ( member == null )
+        {
+            // Read value using the PropertyAccessor
+            mv.visitVarInsn( ALOAD, 0 );
+            mv.visitFieldInsn( GETFIELD, className, toFinalFieldName( "accessor", propertyDescriptor ),
+                               PROPERTYACCESSOR_CLASS_DESCRIPTOR );
+            mv.visitVarInsn( ALOAD, ownerLocal );
+            visitPropertyAccessorValueRead( propertyDescriptor.getType(), mv );
+            return;
+        }
+
+        // Read value directly from the instance
+        mv.visitVarInsn( ALOAD, ownerLocal );
+        mv.visitTypeInsn( CHECKCAST, Type.getInternalName( member.getDeclaringClass() ) );
+        if ( member instanceof Field )
+        {
+            Field field = (Field) member;
+            mv.visitFieldInsn( GETFIELD, Type.getInternalName( field.getDeclaringClass() ), field.getName(),
+                               Type.getDescriptor( field.getType() ) );
+        }
+        else
+        {
+            Method getter = (Method) member;
+            mv.visitMethodInsn( INVOKEVIRTUAL, Type.getInternalName( getter.getDeclaringClass() ), getter.getName(),
+                                Type.getMethodDescriptor( getter ) );
+        }
+    }
+
+    private void visitPropertyValueWriteTarget( MethodVisitor mv, String className, GeneratedClassHost host,
+                                                PropertyDescriptor propertyDescriptor, int ownerLocal )
+    {
+        Member member = findDirectWriteMember( host, propertyDescriptor );
+        if ( member == null )
+        {
+            // Load PropertyAccessor and instance to method stack
+            mv.visitVarInsn( ALOAD, 0 );
+            mv.visitFieldInsn( GETFIELD, className, toFinalFieldName( "accessor", propertyDescriptor ),
+                               PROPERTYACCESSOR_CLASS_DESCRIPTOR );
+            mv.visitVarInsn( ALOAD, ownerLocal );
+            return;
+        }
+
+        // Load instance to method stack
+        mv.visitVarInsn( ALOAD, ownerLocal );
+        mv.visitTypeInsn( CHECKCAST, Type.getInternalName( member.getDeclaringClass() ) );
+    }
+
+    private void visitPropertyValueWrite( MethodVisitor mv, GeneratedClassHost host,
+                                          PropertyDescriptor propertyDescriptor )
+    {
+        Class<?> propertyType = propertyDescriptor.getType();
+        Member member = findDirectWriteMember( host, propertyDescriptor );
+        if ( member == null )
+        {
+            // Call PropertyAccessor#writeX
+            visitPropertyAccessorValueWrite( propertyType, mv );
+            return;
+        }
+
+        // Values are passed as objects from the marshallers so they have to be casted
+        if ( !propertyType.isPrimitive() && propertyType != Object.class )
+        {
+            mv.visitTypeInsn( CHECKCAST, Type.getInternalName( propertyType ) );
+        }
+
+        // Write value directly to the instance
+        if ( member instanceof Field )
+        {
+            Field field = (Field) member;
+            mv.visitFieldInsn( PUTFIELD, Type.getInternalName( field.getDeclaringClass() ), field.getName(),
+                               Type.getDescriptor( field.getType() ) );
+        }
+        else
+        {
+            Method setter = (Method) member;
+            mv.visitMethodInsn( INVOKEVIRTUAL, Type.getInternalName( setter.getDeclaringClass() ), setter.getName(),
+                                Type.getMethodDescriptor( setter ) );
+
+            // Fluent setters return a value that is not used
+            Type returnType = Type.getReturnType( setter );
+            if ( returnType.getSize() > 0 )
+            {
+                mv.visitInsn( returnType.getSize() == 2 ? POP2 : POP );
+            }
+        }
+    }
+
+    private Member findDirectReadMember( GeneratedClassHost host, PropertyDescriptor propertyDescriptor )
+    {
+        PropertyAccessor propertyAccessor = propertyDescriptor.getPropertyAccessor();
+        if ( propertyAccessor instanceof FieldValuePropertyAccessor )
+        {
+            Field field = ( (FieldValuePropertyAccessor) propertyAccessor ).getField();
+            return isDirectAccessible( host, field, field.getType() ) ? field : null;
+        }
+
+        Method getter = null;
+        if ( propertyAccessor instanceof MethodValuePropertyAccessor )
+        {
+            getter = ( (MethodValuePropertyAccessor) propertyAccessor ).getGetterMethod();
+        }
+        else if ( propertyAccessor instanceof MethodArrayPropertyAccessor )
+        {
+            getter = ( (MethodArrayPropertyAccessor) propertyAccessor ).getGetterMethod();
+        }
+
+        return getter != null && isDirectAccessible( host, getter, getter.getReturnType() ) ? getter : null;
+    }
+
+    private Member findDirectWriteMember( GeneratedClassHost host, PropertyDescriptor propertyDescriptor )
+    {
+        PropertyAccessor propertyAccessor = propertyDescriptor.getPropertyAccessor();
+        if ( propertyAccessor instanceof FieldValuePropertyAccessor )
+        {
+            // Final fields can only be set by the PropertyAccessor
+            Field field = ( (FieldValuePropertyAccessor) propertyAccessor ).getField();
+            if ( Modifier.isFinal( field.getModifiers() ) )
+            {
+                return null;
+            }
+            return isDirectAccessible( host, field, field.getType() ) ? field : null;
+        }
+
+        Method setter = null;
+        if ( propertyAccessor instanceof MethodValuePropertyAccessor )
+        {
+            setter = ( (MethodValuePropertyAccessor) propertyAccessor ).getSetterMethod();
+        }
+        else if ( propertyAccessor instanceof MethodArrayPropertyAccessor )
+        {
+            setter = ( (MethodArrayPropertyAccessor) propertyAccessor ).getSetterMethod();
+        }
+
+        if ( setter == null || setter.getParameterTypes().length != 1 )
+        {
+            return null;
+        }
+        return isDirectAccessible( host, setter, setter.getParameterTypes()[0] ) ? setter : null;
+    }
+
+    private boolean isDirectAccessible( GeneratedClassHost host, Member member, Class<?> valueType )
+    {
+        // Which members can be accessed without the PropertyAccessor depends on where the generated marshaller is
+        // defined, the value type is referenced by casts so it has to be accessible as well
+        return host.isAccessible( member ) && host.isAccessible( valueType );
+    }
+
     private void visitPropertyAccessorValueRead( Class<?> type, MethodVisitor mv )
     {
         String methodName = null;
@@ -899,4 +1892,15 @@ public class BytecodeMarshallerGenerator
                             "(Ljava/lang/String;)V" );
         mv.visitVarInsn( ALOAD, stackPosition );
     }
+
+    private static class PropertyGroup
+    {
+
+        private final List<PropertyDescriptor> propertyDescriptors = new ArrayList<PropertyDescriptor>();
+
+        private final List<PropertyDescriptor> nullableProperties = new ArrayList<PropertyDescriptor>();
+
+        private final Map<PropertyDescriptor, PropertyGroup> inlinedGroups =
+            new HashMap<PropertyDescriptor, PropertyGroup>();
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Decides where a generated marshaller class is defined and which members it is able to access directly. On Java 15
+ * and later the class is defined as a hidden nestmate of the marshalled type using
+ * {@code Lookup#defineHiddenClass} so it shares package and private access with the type and is unloaded as soon as
+ * the owning serializer becomes unreachable. On older JVMs, or if no full privilege lookup of the type is available,
+ * the class is defined by the serializer's own {@link GeneratorClassLoader} and only public members are accessible.
+ * Sources have to stay Java 6 compatible so java.lang.invoke is only used reflectively.
+ */
+final class GeneratedClassHost
+{
+
+    private static final int LOOKUP_FULL_PRIVILEGE = 0x02 /* PRIVATE */| 0x10 /* MODULE */;
+
+    private static final Object LOOKUP;
+
+    private static final Method PRIVATE_LOOKUP_IN;
+
+    private static final Method LOOKUP_MODES;
+
+    private static final Method DEFINE_HIDDEN_CLASS;
+
+    private static final Method LOOKUP_CLASS;
+
+    private static final Method GET_NEST_HOST;
+
+    private static final Object HIDDEN_CLASS_OPTIONS;
+
+    static
+    {
+        Object lookup = null;
+        Method privateLookupIn = null;
+        Method lookupModes = null;
+        Method defineHiddenClass = null;
+        Method lookupClass = null;
+        Method getNestHost = null;
+        Object hiddenClassOptions = null;
+        try
+        {
+            Class<?> methodHandlesType = Class.forName( "java.lang.invoke.MethodHandles" );
+            Class<?> lookupType = Class.forName( "java.lang.invoke.MethodHandles$Lookup" );
+            Class<?> classOptionType = Class.forName( "java.lang.invoke.MethodHandles$Lookup$ClassOption" );
+
+            // Hidden classes are not defined strong so they can be unloaded independently from the host's loader
+            hiddenClassOptions = Array.newInstance( classOptionType, 1 );
+            Array.set( hiddenClassOptions, 0, classOptionType.getField( "NESTMATE" ).get( null ) );
+
+            privateLookupIn = methodHandlesType.getMethod( "privateLookupIn", Class.class, lookupType );
+            lookupModes = lookupType.getMethod( "lookupModes" );
+            defineHiddenClass =
+                lookupType.getMethod( "defineHiddenClass", byte[].class, boolean.class, hiddenClassOptions.getClass() );
+            lookupClass = lookupType.getMethod( "lookupClass" );
+            getNestHost = Class.class.getMethod( "getNestHost" );
+            lookup = methodHandlesType.getMethod( "lookup" ).invoke( null );
+        }
+        catch ( Exception e )
+        {
+            // Hidden classes are not available before Java 15
+            lookup = null;
+        }
+
+        LOOKUP = lookup;
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+        LOOKUP_MODES = lookupModes;
+        DEFINE_HIDDEN_CLASS = defineHiddenClass;
+        LOOKUP_CLASS = lookupClass;
+        GET_NEST_HOST = getNestHost;
+        HIDDEN_CLASS_OPTIONS = hiddenClassOptions;
+    }
+
+    private final GeneratorClassLoader classloader;
+
+    private final Class<?> hostType;
+
+    private final Object hostLookup;
+
+    private GeneratedClassHost( GeneratorClassLoader classloader, Class<?> hostType, Object hostLookup )
+    {
+        this.classloader = classloader;
+        this.hostType = hostType;
+        this.hostLookup = hostLookup;
+    }
+
+    /**
+     * Returns a host defining generated classes as hidden nestmates of the given type if possible, otherwise a host
+     * defining them by the given classloader.
+     */
+    static GeneratedClassHost of( Class<?> type, GeneratorClassLoader classloader )
+    {
+        Object hostLookup = findHostLookup( type );
+        if ( hostLookup == null )
+        {
+            return new GeneratedClassHost( classloader, null, null );
+        }
+        return new GeneratedClassHost( classloader, type, hostLookup );
+    }
+
+    static boolean isHiddenClassAvailable()
+    {
+        return LOOKUP != null;
+    }
+
+    boolean isHiddenClassHost()
+    {
+        return hostType != null;
+    }
+
+    /**
+     * Builds the internal name of a generated class, hidden classes have to be in the package of their host.
+     */
+    String toInternalClassName( String simpleClassName )
+    {
+        if ( hostType == null )
+        {
+            return simpleClassName;
+        }
+
+        String packageName = getPackageName( hostType );
+        return packageName.length() == 0 ? simpleClassName : packageName.replace( '.', '/' ) + "/" + simpleClassName;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    <T> Class<T> defineClass( byte[] bytecode )
+        throws Exception
+    {
+        if ( hostType == null )
+        {
+            return classloader.loadClass( bytecode );
+        }
+
+        Object hiddenClassLookup = DEFINE_HIDDEN_CLASS.invoke( hostLookup, bytecode, true, HIDDEN_CLASS_OPTIONS );
+        return (Class<T>) LOOKUP_CLASS.invoke( hiddenClassLookup );
+    }
+
+    /**
+     * Returns true if the generated class can access the given member without reflection. Public members of
+     * accessible classes are always accessible, package private and protected ones if the generated class is defined
+     * into the same runtime package and private ones if it is a nestmate of the declaring class.
+     */
+    boolean isAccessible( Member member )
+    {
+        int modifiers = member.getModifiers();
+        Class<?> declaringClass = member.getDeclaringClass();
+        if ( Modifier.isStatic( modifiers ) || declaringClass.isInterface() || !isAccessible( declaringClass ) )
+        {
+            return false;
+        }
+
+        if ( Modifier.isPublic( modifiers ) )
+        {
+            return true;
+        }
+        if ( Modifier.isPrivate( modifiers ) )
+        {
+            return isNestmate( declaringClass );
+        }
+        return isSameRuntimePackage( declaringClass );
+    }
+
+    /**
+     * Returns true if the given type resolves to the same class from the generated class and the generated class is
+     * allowed to reference it.
+     */
+    boolean isAccessible( Class<?> type )
+    {
+        while ( type.isArray() )
+        {
+            type = type.getComponentType();
+        }
+
+        if ( type.isPrimitive() )
+        {
+            return true;
+        }
+
+        if ( !isVisible( type ) )
+        {
+            return false;
+        }
+        return Modifier.isPublic( type.getModifiers() ) || isSameRuntimePackage( type );
+    }
+
+    private boolean isVisible( Class<?> type )
+    {
+        try
+        {
+            ClassLoader definingClassLoader = hostType == null ? classloader : hostType.getClassLoader();
+            return Class.forName( type.getName(), false, definingClassLoader ) == type;
+        }
+        catch ( ClassNotFoundException e )
+        {
+            return false;
+        }
+    }
+
+    private boolean isSameRuntimePackage( Class<?> type )
+    {
+        return hostType != null && hostType.getClassLoader() == type.getClassLoader()
+            && getPackageName( hostType ).equals( getPackageName( type ) );
+    }
+
+    private boolean isNestmate( Class<?> type )
+    {
+        if ( hostType == null )
+        {
+            return false;
+        }
+
+        try
+        {
+            return GET_NEST_HOST.invoke( hostType ) == GET_NEST_HOST.invoke( type );
+        }
+        catch ( Exception e )
+        {
+            return false;
+        }
+    }
+
+    private static Object findHostLookup( Class<?> type )
+    {
+        if ( LOOKUP == null || type.isArray() || type.isPrimitive() )
+        {
+            return null;
+        }
+
+        try
+        {
+            // The generated class extends AbstractGeneratedMarshaller so it has to be resolvable from the host
+            ClassLoader classLoader = type.getClassLoader();
+            String superClassName = AbstractGeneratedMarshaller.class.getName();
+            if ( classLoader == null
+                || Class.forName( superClassName, false, classLoader ) != AbstractGeneratedMarshaller.class )
+            {
+                return null;
+            }
+
+            // Hidden classes can only be defined by a lookup with full privilege access
+            Object hostLookup = PRIVATE_LOOKUP_IN.invoke( null, type, LOOKUP );
+            int lookupModes = ( (Integer) LOOKUP_MODES.invoke( hostLookup ) ).intValue();
+            return ( lookupModes & LOOKUP_FULL_PRIVILEGE ) == LOOKUP_FULL_PRIVILEGE ? hostLookup : null;
+        }
+        catch ( Exception e )
+        {
+            // Type is not accessible by a private lookup
+            return null;
+        }
+    }
+
+    private static String getPackageName( Class<?> type )
+    {
+        String name = type.getName();
+        int index = name.lastIndexOf( '.' );
+        return index == -1 ? "" : name.substring( 0, index );
+    }
+}
@@ -29,9 +29,11 @@ import org.apache.directmemory.lightning.Marshaller;
 import org.apache.directmemory.lightning.MarshallerContext;
 import org.apache.directmemory.lightning.MarshallerStrategy;
 import org.apache.directmemory.lightning.SerializationContext;
+import org.apache.directmemory.lightning.instantiator.ObjectInstantiator;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
 import org.apache.directmemory.lightning.internal.CheatPropertyDescriptor;
 import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.ArrayPropertyAccessor;
 import org.apache.directmemory.lightning.metadata.PropertyAccessor;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
@@ -64,9 +66,14 @@ public interface GeneratorConstants
 
     static String MARSHALLER_IS_ALREADY_MARSHALLED_SIGNATURE =
         Type.getMethodDescriptor( Type.BOOLEAN_TYPE,
-                                  new Type[] { Type.getType( Object.class ), Type.getType( Class.class ),
+                                  new Type[] { Type.getType( Object.class ), Type.getType( PropertyDescriptor.class ),
                                       Type.getType( DataOutput.class ), Type.getType( SerializationContext.class ) } );
 
+    static String MARSHALLER_AFTER_MARSHALLED_SIGNATURE =
+        Type.getMethodDescriptor( Type.VOID_TYPE,
+                                  new Type[] { Type.getType( Object.class ), Type.getType( PropertyDescriptor.class ),
+                                      Type.getType( SerializationContext.class ) } );
+
     static String MARSHALLER_CONSTRUCTOR_SIGNATURE =
         Type.getMethodDescriptor( Type.VOID_TYPE,
                                   new Type[] { Type.getType( Class.class ), Type.getType( Map.class ),
@@ -81,6 +88,9 @@ public interface GeneratorConstants
     static String PROPERTY_DESCRIPTOR_GET_MARSHALLER_SIGNATURE =
         Type.getMethodDescriptor( Type.getType( Marshaller.class ), new Type[0] );
 
+    static String PROPERTY_DESCRIPTOR_GET_TYPE_SIGNATURE =
+        Type.getMethodDescriptor( Type.getType( Class.class ), new Type[0] );
+
     static String PROPERTY_DESCRIPTOR_GET_PROPERTYACCESSOR_SIGNATURE =
         Type.getMethodDescriptor( Type.getType( PropertyAccessor.class ), new Type[0] );
 
@@ -99,6 +109,13 @@ public interface GeneratorConstants
         Type.getMethodDescriptor( Type.VOID_TYPE, new Type[] { Type.getType( String.class ),
             Type.getType( Class.class ), Type.getType( Marshaller.class ) } );
 
+    static String OBJECT_INSTANTIATOR_FACTORY_GET_INSTANTIATOR_OF_SIGNATURE =
+        Type.getMethodDescriptor( Type.getType( ObjectInstantiator.class ),
+                                  new Type[] { Type.getType( Class.class ) } );
+
+    static String OBJECT_INSTANTIATOR_NEW_INSTANCE_SIGNATURE =
+        Type.getMethodDescriptor( Type.getType( Object.class ), new Type[0] );
+
     static String SUPER_CLASS_INTERNAL_TYPE = Type.getType( AbstractGeneratedMarshaller.class ).getInternalName();
 
     static String MARSHALLER_CLASS_INTERNAL_TYPE = Type.getType( Marshaller.class ).getInternalName();
@@ -126,6 +143,8 @@ public interface GeneratorConstants
 
     static String DATAINPUT_CLASS_INTERNAL_TYPE = Type.getType( DataInput.class ).getInternalName();
 
+    static String VARINTUTIL_CLASS_INTERNAL_TYPE = Type.getType( VarIntUtil.class ).getInternalName();
+
     static String MARSHALLERSTRATEGY_CLASS_INTERNAL_TYPE = Type.getType( MarshallerStrategy.class ).getInternalName();
 
     static String MARSHALLER_CLASS_DESCRIPTOR = Type.getType( Marshaller.class ).getDescriptor();
@@ -134,6 +153,13 @@ public interface GeneratorConstants
 
     static String PROPERTYACCESSOR_CLASS_DESCRIPTOR = Type.getType( PropertyAccessor.class ).getDescriptor();
 
+    static String OBJECT_INSTANTIATOR_CLASS_INTERNAL_TYPE = Type.getType( ObjectInstantiator.class ).getInternalName();
+
+    static String OBJECT_INSTANTIATOR_CLASS_DESCRIPTOR = Type.getType( ObjectInstantiator.class ).getDescriptor();
+
+    static String OBJECT_INSTANTIATOR_FACTORY_CLASS_INTERNAL_TYPE =
+        Type.getType( ObjectInstantiatorFactory.class ).getInternalName();
+
     static String CHEATINGPROPERTYDESCRIPTOR_CLASS_DESCRIPTOR =
         Type.getType( CheatPropertyDescriptor.class ).getDescriptor();
 
@@ -308,4 +334,10 @@ public interface GeneratorConstants
     static String ARRAY_TYPE_DOUBLE = Type.getInternalName( double[].class );
 
     static String ARRAY_TYPE_OBJECT = Type.getInternalName( Object[].class );
+
+    static int NULL_BITMAP_CHUNK_SIZE = 64;
+
+    static int MARSHALL_NULL_BITMAP_LOCAL = 9;
+
+    static int UNMARSHALL_NULL_BITMAP_LOCAL = 11;
 }
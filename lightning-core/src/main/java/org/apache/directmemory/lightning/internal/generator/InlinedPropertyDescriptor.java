@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import java.lang.annotation.Annotation;
+
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.metadata.PropertyAccessor;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+
+/**
+ * PropertyDescriptor of a property of a nested type which is inlined into the generated marshaller of the enclosing
+ * type. The property name is prefixed by the path of enclosing properties to keep generated field names unique.
+ */
+class InlinedPropertyDescriptor
+    implements PropertyDescriptor
+{
+
+    private final PropertyDescriptor delegate;
+
+    private final String propertyName;
+
+    InlinedPropertyDescriptor( PropertyDescriptor delegate, String path )
+    {
+        this.delegate = delegate;
+        this.propertyName = path + delegate.getPropertyName();
+    }
+
+    @Override
+    public int compareTo( PropertyDescriptor o )
+    {
+        return delegate.compareTo( o );
+    }
+
+    @Override
+    public Annotation[] getAnnotations()
+    {
+        return delegate.getAnnotations();
+    }
+
+    @Override
+    public Class<?> getDefinedClass()
+    {
+        return delegate.getDefinedClass();
+    }
+
+    @Override
+    public Class<?> getDeclaringClass()
+    {
+        return delegate.getDeclaringClass();
+    }
+
+    @Override
+    public PropertyAccessor getPropertyAccessor()
+    {
+        return delegate.getPropertyAccessor();
+    }
+
+    @Override
+    public String getName()
+    {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getPropertyName()
+    {
+        return propertyName;
+    }
+
+    @Override
+    public Class<?> getType()
+    {
+        return delegate.getType();
+    }
+
+    @Override
+    public String getInternalSignature()
+    {
+        return delegate.getInternalSignature();
+    }
+
+    @Override
+    public Marshaller getMarshaller()
+    {
+        return delegate.getMarshaller();
+    }
+
+    @Override
+    public String toString()
+    {
+        return propertyName + " (" + delegate.toString() + ")";
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.SerializationContext;
+import org.apache.directmemory.lightning.exceptions.SerializerMarshallerGeneratorException;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+
+/**
+ * Trampoline registered in place of a generated marshaller if marshallers are generated lazily. The marshaller is
+ * generated on first use (or by the background pre-generation) and afterwards published through a volatile field so
+ * later calls only cost a volatile read and one delegation.
+ */
+public final class LazyGeneratedMarshaller
+    implements Marshaller
+{
+
+    private final Class<?> type;
+
+    private final Callable<Marshaller> generationTask;
+
+    private volatile Marshaller marshaller;
+
+    public LazyGeneratedMarshaller( Class<?> type, Callable<Marshaller> generationTask )
+    {
+        this.type = type;
+        this.generationTask = generationTask;
+    }
+
+    @Override
+    public boolean acceptType( Class<?> type )
+    {
+        // Same as the generated marshaller so lookups never trigger generation
+        return this.type.isAssignableFrom( type );
+    }
+
+    @Override
+    public void marshall( Object value, PropertyDescriptor propertyDescriptor, DataOutput dataOutput,
+                          SerializationContext serializationContext )
+        throws IOException
+    {
+        getMarshaller().marshall( value, propertyDescriptor, dataOutput, serializationContext );
+    }
+
+    @Override
+    public <V> V unmarshall( PropertyDescriptor propertyDescriptor, DataInput dataInput,
+                             SerializationContext serializationContext )
+        throws IOException
+    {
+        return getMarshaller().unmarshall( propertyDescriptor, dataInput, serializationContext );
+    }
+
+    public Class<?> getType()
+    {
+        return type;
+    }
+
+    public boolean isGenerated()
+    {
+        return marshaller != null;
+    }
+
+    /**
+     * Returns the generated marshaller and generates it if not yet done.
+     */
+    public Marshaller getMarshaller()
+    {
+        Marshaller marshaller = this.marshaller;
+        if ( marshaller == null )
+        {
+            marshaller = generateMarshaller();
+        }
+        return marshaller;
+    }
+
+    private synchronized Marshaller generateMarshaller()
+    {
+        if ( marshaller == null )
+        {
+            try
+            {
+                marshaller = generationTask.call();
+            }
+            catch ( RuntimeException e )
+            {
+                throw e;
+            }
+            catch ( Exception e )
+            {
+                throw new SerializerMarshallerGeneratorException( "Marshaller for type " + type
+                    + " could not be generated", e );
+            }
+        }
+        return marshaller;
+    }
+}
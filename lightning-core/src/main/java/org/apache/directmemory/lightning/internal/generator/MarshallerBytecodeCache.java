@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.directmemory.lightning.internal.util.Crc64Util;
+import org.apache.directmemory.lightning.internal.util.InternalUtil;
+import org.apache.directmemory.lightning.metadata.ClassDefinition;
+
+/**
+ * Persistent cache entry of the bytecode of one generated marshaller class. Entries are named by type and class
+ * signature and are only used if the class id (checksum of the class file), the property checksum, the full class
+ * signature checksum and the checksum of the bytecode itself are still matching, otherwise the marshaller is generated
+ * again and the entry is overwritten. The signature contains a checksum of the class files of the generator, so
+ * entries of other Lightning builds are never used. Entries are written to a temporary file first and renamed
+ * afterwards so concurrently starting JVMs sharing the directory never read partially written entries.<br>
+ * The checksums only detect stale and corrupted entries, not tampering. Cached bytecode is defined with the access
+ * rights of the marshalled class, so the directory has to be writable by trusted users only.
+ */
+final class MarshallerBytecodeCache
+{
+
+    private static final int MAGIC = 0x4C474D43;
+
+    // Has to be increased whenever the layout of entries changes, changes of the generator are detected by its checksum
+    private static final int FORMAT_VERSION = 1;
+
+    // Classes defining the generated bytecode for a given class signature
+    private static final Class<?>[] GENERATOR_CLASSES = { BytecodeMarshallerGenerator.class,
+        AbstractGeneratedMarshaller.class, GeneratorConstants.class };
+
+    // Null if the class files are not readable, entries are never read then
+    private static final String GENERATOR_CHECKSUM = buildGeneratorChecksum();
+
+    private final File file;
+
+    private final long classId;
+
+    private final byte[] classChecksum;
+
+    private final byte[] signatureChecksum;
+
+    private final String signatureId;
+
+    private final boolean readable;
+
+    MarshallerBytecodeCache( File directory, ClassDefinition classDefinition, String classSignature )
+    {
+        this( directory, classDefinition, classSignature, GENERATOR_CHECKSUM );
+    }
+
+    MarshallerBytecodeCache( File directory, ClassDefinition classDefinition, String classSignature,
+                             String generatorChecksum )
+    {
+        String typeName = classDefinition.getType().getName();
+        this.classId = classDefinition.getId();
+        this.classChecksum = classDefinition.getChecksum();
+        this.readable = generatorChecksum != null;
+        String signature = typeName + ";" + FORMAT_VERSION + ";" + generatorChecksum + ";" + classSignature;
+        this.signatureChecksum = InternalUtil.getChecksum( signature.getBytes( InternalUtil.CHARSET ), null );
+        this.signatureId = Crc64Util.toString( Crc64Util.checksum( signatureChecksum ) );
+        this.file = new File( directory, typeName + "-" + signatureId + ".marshaller" );
+    }
+
+    /**
+     * Returns a stable id of the class signature, used to name generated classes independently of the order of
+     * generation.
+     */
+    String getSignatureId()
+    {
+        return signatureId;
+    }
+
+    /**
+     * Returns the cached bytecode or null if there is no entry or the entry is stale or corrupted.
+     */
+    byte[] readBytecode()
+    {
+        if ( !readable || !file.isFile() )
+        {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream( new FileInputStream( file ) );
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != classId
+                || !Arrays.equals( classChecksum, readChecksum( in ) )
+                || !Arrays.equals( signatureChecksum, readChecksum( in ) ) )
+            {
+                return null;
+            }
+
+            long bytecodeChecksum = in.readLong();
+            byte[] bytecode = new byte[in.readInt()];
+            in.readFully( bytecode );
+            return Crc64Util.checksum( bytecode ) == bytecodeChecksum ? bytecode : null;
+        }
+        catch ( IOException e )
+        {
+            // Unreadable entries are treated as stale
+            return null;
+        }
+        catch ( RuntimeException e )
+        {
+            return null;
+        }
+        finally
+        {
+            close( in );
+        }
+    }
+
+    /**
+     * Stores the bytecode, failures are ignored since the marshaller is generated again on next startup.
+     */
+    void writeBytecode( byte[] bytecode )
+    {
+        File directory = file.getParentFile();
+        if ( !directory.isDirectory() && !directory.mkdirs() )
+        {
+            return;
+        }
+
+        DataOutputStream out = null;
+        File tempFile = null;
+        try
+        {
+            tempFile = File.createTempFile( file.getName(), ".tmp", directory );
+            out = new DataOutputStream( new FileOutputStream( tempFile ) );
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT_VERSION );
+            out.writeLong( classId );
+            writeChecksum( out, classChecksum );
+            writeChecksum( out, signatureChecksum );
+            out.writeLong( Crc64Util.checksum( bytecode ) );
+            out.writeInt( bytecode.length );
+            out.write( bytecode );
+            out.close();
+            out = null;
+
+            // Renaming fails on some platforms if the target exists
+            if ( !tempFile.renameTo( file ) && ( !file.delete() || !tempFile.renameTo( file ) ) )
+            {
+                tempFile.delete();
+            }
+        }
+        catch ( IOException e )
+        {
+            close( out );
+            if ( tempFile != null )
+            {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static String buildGeneratorChecksum()
+    {
+        ByteArrayOutputStream classFiles = new ByteArrayOutputStream();
+        for ( Class<?> generatorClass : GENERATOR_CLASSES )
+        {
+            String resourceName = generatorClass.getName().replace( '.', '/' ) + ".class";
+            InputStream in = generatorClass.getClassLoader().getResourceAsStream( resourceName );
+            if ( in == null )
+            {
+                return null;
+            }
+
+            try
+            {
+                byte[] buffer = new byte[4096];
+                int length;
+                while ( ( length = in.read( buffer ) ) != -1 )
+                {
+                    classFiles.write( buffer, 0, length );
+                }
+            }
+            catch ( IOException e )
+            {
+                return null;
+            }
+            finally
+            {
+                close( in );
+            }
+        }
+
+        return Crc64Util.toString( Crc64Util.checksum( classFiles.toByteArray() ) );
+    }
+
+    private byte[] readChecksum( DataInputStream in )
+        throws IOException
+    {
+        byte[] checksum = new byte[in.readUnsignedShort()];
+        in.readFully( checksum );
+        return checksum;
+    }
+
+    private void writeChecksum( DataOutputStream out, byte[] checksum )
+        throws IOException
+    {
+        out.writeShort( checksum.length );
+        out.write( checksum );
+    }
+
+    private static void close( Closeable closeable )
+    {
+        if ( closeable == null )
+        {
+            return;
+        }
+
+        try
+        {
+            closeable.close();
+        }
+        catch ( IOException e )
+        {
+            // Intentionally left blank
+        }
+    }
+}
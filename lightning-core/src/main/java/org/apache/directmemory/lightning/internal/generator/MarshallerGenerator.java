@@ -27,13 +27,22 @@ import org.apache.directmemory.lightning.SerializationStrategy;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
 import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+import org.apache.directmemory.lightning.metadata.ValueNullableEvaluator;
 
 public interface MarshallerGenerator
 {
 
+    /**
+     * Default number of nesting levels of final value types that are inlined into the generated marshaller of their
+     * owner.
+     */
+    int DEFAULT_MAX_INLINE_DEPTH = 2;
+
     Marshaller generateMarshaller( Class<?> type, List<PropertyDescriptor> propertyDescriptors,
                                    Map<Class<?>, Marshaller> marshallers, ClassDescriptorAwareSerializer serializer,
                                    SerializationStrategy serializationStrategy,
-                                   ObjectInstantiatorFactory objectInstantiatorFactory, File debugCacheDirectory );
+                                   ObjectInstantiatorFactory objectInstantiatorFactory,
+                                   ValueNullableEvaluator valueNullableEvaluator, int maxInlineDepth,
+                                   File debugCacheDirectory, File marshallerCacheDirectory );
 
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.exceptions.SerializerMarshallerGeneratorException;
+import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
+import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.logging.Logger;
+import org.apache.directmemory.lightning.metadata.ClassDescriptor;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+import org.apache.directmemory.lightning.metadata.ValueNullableEvaluator;
+
+/**
+ * Uses the marshallers generated at build time if the {@link PrecompiledMarshallerIndex} of the type's classloader
+ * lists one with a checksum matching the live class definition and the runtime generator would write the same byte
+ * layout for the type. All other types are passed to the runtime generator, if runtime generation is disabled (no
+ * runtime generator given) generating those fails.
+ */
+public class PrecompiledMarshallerGenerator
+    implements MarshallerGenerator
+{
+
+    private final MarshallerGenerator runtimeMarshallerGenerator;
+
+    private final Logger logger;
+
+    public PrecompiledMarshallerGenerator( MarshallerGenerator runtimeMarshallerGenerator, Logger logger )
+    {
+        this.runtimeMarshallerGenerator = runtimeMarshallerGenerator;
+        this.logger = logger;
+    }
+
+    @Override
+    public Marshaller generateMarshaller( Class<?> type, List<PropertyDescriptor> propertyDescriptors,
+                                          Map<Class<?>, Marshaller> marshallers,
+                                          ClassDescriptorAwareSerializer serializer,
+                                          SerializationStrategy serializationStrategy,
+                                          ObjectInstantiatorFactory objectInstantiatorFactory,
+                                          ValueNullableEvaluator valueNullableEvaluator, int maxInlineDepth,
+                                          File debugCacheDirectory, File marshallerCacheDirectory )
+    {
+        Marshaller marshaller =
+            loadPrecompiledMarshaller( type, propertyDescriptors, marshallers, serializer, objectInstantiatorFactory,
+                                       valueNullableEvaluator, maxInlineDepth );
+        if ( marshaller != null )
+        {
+            return marshaller;
+        }
+
+        if ( runtimeMarshallerGenerator == null )
+        {
+            throw new SerializerMarshallerGeneratorException( "No matching build-time generated marshaller for type "
+                + type.getName() + " found and runtime marshaller generation is disabled" );
+        }
+
+        return runtimeMarshallerGenerator.generateMarshaller( type, propertyDescriptors, marshallers, serializer,
+                                                              serializationStrategy, objectInstantiatorFactory,
+                                                              valueNullableEvaluator, maxInlineDepth,
+                                                              debugCacheDirectory, marshallerCacheDirectory );
+    }
+
+    private Marshaller loadPrecompiledMarshaller( Class<?> type, List<PropertyDescriptor> propertyDescriptors,
+                                                  Map<Class<?>, Marshaller> marshallers,
+                                                  ClassDescriptorAwareSerializer serializer,
+                                                  ObjectInstantiatorFactory objectInstantiatorFactory,
+                                                  ValueNullableEvaluator valueNullableEvaluator, int maxInlineDepth )
+    {
+        PrecompiledMarshallerIndex index = PrecompiledMarshallerIndex.of( type.getClassLoader() );
+        String marshallerClassName = index.getMarshallerClassName( type );
+        if ( marshallerClassName == null )
+        {
+            return null;
+        }
+
+        // The marshaller is only valid for the exact properties the type had at build time
+        ClassDescriptor classDescriptor = serializer.findClassDescriptor( type );
+        if ( classDescriptor == null || classDescriptor.getClassDefinition() == null
+            || !Arrays.equals( index.getChecksum( type ), classDescriptor.getClassDefinition().getChecksum() ) )
+        {
+            logger.warn( "Build-time generated marshaller " + marshallerClassName + " does not match type "
+                + type.getName() + ", it is ignored" );
+            return null;
+        }
+
+        // Nodes not using the build-time generated marshaller must still be able to read its output
+        if ( index.getLayoutVersion( type ) != PrecompiledMarshallerIndex.LAYOUT_VERSION
+            || !isPrecompiledLayout( propertyDescriptors, marshallers, serializer, valueNullableEvaluator,
+                                     maxInlineDepth ) )
+        {
+            logger.warn( "Build-time generated marshaller " + marshallerClassName
+                + " does not write the byte layout of the runtime generated marshaller of type " + type.getName()
+                + ", it is ignored" );
+            return null;
+        }
+
+        try
+        {
+            Class<?> marshallerClass = Class.forName( marshallerClassName, true, type.getClassLoader() );
+            Constructor<?> constructor =
+                marshallerClass.getConstructor( Class.class, Map.class, ClassDescriptorAwareSerializer.class,
+                                                ObjectInstantiatorFactory.class, List.class );
+
+            // Generated sources expect the properties sorted the same way as they were at build time
+            List<PropertyDescriptor> sortedPropertyDescriptors =
+                new ArrayList<PropertyDescriptor>( propertyDescriptors );
+            Collections.sort( sortedPropertyDescriptors );
+
+            return (Marshaller) constructor.newInstance( type, marshallers, serializer, objectInstantiatorFactory,
+                                                         sortedPropertyDescriptors );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            logger.warn( "Build-time generated marshaller " + marshallerClassName + " is listed but not available" );
+            return null;
+        }
+        catch ( Exception e )
+        {
+            throw new SerializerMarshallerGeneratorException( "Build-time generated marshaller " + marshallerClassName
+                + " could not be instantiated", e );
+        }
+    }
+
+    /**
+     * Returns true if the runtime generator would write the layout of build-time generated marshallers: all reference
+     * properties are nullable and written by their own marshaller, none is an object array or an inlined nested value.
+     */
+    private boolean isPrecompiledLayout( List<PropertyDescriptor> propertyDescriptors,
+                                         Map<Class<?>, Marshaller> marshallers,
+                                         ClassDescriptorAwareSerializer serializer,
+                                         ValueNullableEvaluator valueNullableEvaluator, int maxInlineDepth )
+    {
+        for ( PropertyDescriptor propertyDescriptor : propertyDescriptors )
+        {
+            Class<?> propertyType = propertyDescriptor.getType();
+            if ( propertyType.isPrimitive() )
+            {
+                continue;
+            }
+
+            if ( ( propertyType.isArray() && !propertyType.getComponentType().isPrimitive() )
+                || !valueNullableEvaluator.isValueNullable( propertyDescriptor ) )
+            {
+                return false;
+            }
+
+            if ( maxInlineDepth > 0
+                && BytecodeMarshallerGenerator.isInlineNestedProperty( propertyDescriptor, marshallers, serializer ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
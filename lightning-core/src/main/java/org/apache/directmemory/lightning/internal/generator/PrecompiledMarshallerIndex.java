@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.directmemory.lightning.exceptions.SerializerMarshallerGeneratorException;
+import org.apache.directmemory.lightning.internal.util.InternalUtil;
+import org.apache.directmemory.lightning.metadata.ClassDefinition;
+
+/**
+ * Index of marshallers generated at build time by the Lightning maven plugin. Every jar or classes directory may
+ * contain an {@link #INDEX_RESOURCE} in properties format, mapping the binary name of a marshalled type to the binary
+ * name of its generated marshaller, the {@link #LAYOUT_VERSION} it was generated for and the hex encoded
+ * {@link ClassDefinition#getChecksum()} of the type at build time. The index of a classloader is read once from all
+ * resources visible to it, the first entry of a type wins.
+ */
+public final class PrecompiledMarshallerIndex
+{
+
+    public static final String INDEX_RESOURCE = "META-INF/lightning/marshallers.index";
+
+    /**
+     * Version of the byte layout written by build-time generated marshallers, it has to be increased whenever the
+     * layout of runtime generated marshallers changes. Entries of other versions (entries without a version were
+     * written before the null bitmap was introduced) are ignored.
+     */
+    public static final int LAYOUT_VERSION = 2;
+
+    private static final Map<ClassLoader, PrecompiledMarshallerIndex> INDEX_CACHE =
+        new WeakHashMap<ClassLoader, PrecompiledMarshallerIndex>();
+
+    private static final PrecompiledMarshallerIndex EMPTY_INDEX = new PrecompiledMarshallerIndex();
+
+    private final ConcurrentMap<String, IndexEntry> entries = new ConcurrentHashMap<String, IndexEntry>();
+
+    public static PrecompiledMarshallerIndex of( ClassLoader classLoader )
+    {
+        // Types of the bootstrap classloader can never have build-time generated marshallers
+        if ( classLoader == null )
+        {
+            return EMPTY_INDEX;
+        }
+
+        synchronized ( INDEX_CACHE )
+        {
+            PrecompiledMarshallerIndex index = INDEX_CACHE.get( classLoader );
+            if ( index == null )
+            {
+                index = new PrecompiledMarshallerIndex();
+                index.load( classLoader );
+                INDEX_CACHE.put( classLoader, index );
+            }
+            return index;
+        }
+    }
+
+    public void put( Class<?> type, String marshallerClassName, byte[] checksum )
+    {
+        put( type.getName(), marshallerClassName, checksum );
+    }
+
+    public void put( String typeName, String marshallerClassName, byte[] checksum )
+    {
+        entries.put( typeName, new IndexEntry( marshallerClassName, LAYOUT_VERSION, checksum ) );
+    }
+
+    /**
+     * Returns the binary name of the build-time generated marshaller of the given type or null if there is none.
+     */
+    public String getMarshallerClassName( Class<?> type )
+    {
+        IndexEntry entry = entries.get( type.getName() );
+        return entry != null ? entry.marshallerClassName : null;
+    }
+
+    /**
+     * Returns the layout version the marshaller of the given type was generated for or -1 if there is none.
+     */
+    public int getLayoutVersion( Class<?> type )
+    {
+        IndexEntry entry = entries.get( type.getName() );
+        return entry != null ? entry.layoutVersion : -1;
+    }
+
+    /**
+     * Returns the checksum of the given type at the time its marshaller was generated or null if there is none.
+     */
+    public byte[] getChecksum( Class<?> type )
+    {
+        IndexEntry entry = entries.get( type.getName() );
+        return entry != null ? entry.checksum.clone() : null;
+    }
+
+    /**
+     * Writes the index to {@link #INDEX_RESOURCE} below the given output directory. Entries are written sorted by type
+     * to keep the resource stable between builds.
+     */
+    public void store( File outputDirectory )
+        throws IOException
+    {
+        File indexFile = new File( outputDirectory, INDEX_RESOURCE );
+        if ( !indexFile.getParentFile().exists() )
+        {
+            indexFile.getParentFile().mkdirs();
+        }
+
+        Writer writer = new OutputStreamWriter( new FileOutputStream( indexFile ), InternalUtil.CHARSET );
+        try
+        {
+            store( writer );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the index in the format of {@link #INDEX_RESOURCE} to the given writer, which is not closed.
+     */
+    public void store( Writer writer )
+        throws IOException
+    {
+        Map<String, IndexEntry> sortedEntries = new TreeMap<String, IndexEntry>( entries );
+        writer.write( "# Lightning build-time generated marshallers, type=marshaller:layoutVersion:checksum\n" );
+        for ( Entry<String, IndexEntry> entry : sortedEntries.entrySet() )
+        {
+            IndexEntry indexEntry = entry.getValue();
+            writer.write( entry.getKey() + "=" + indexEntry.marshallerClassName + ":" + indexEntry.layoutVersion
+                + ":" + toHexString( indexEntry.checksum ) + "\n" );
+        }
+        writer.flush();
+    }
+
+    public boolean isEmpty()
+    {
+        return entries.isEmpty();
+    }
+
+    private void load( ClassLoader classLoader )
+    {
+        try
+        {
+            Enumeration<URL> resources = classLoader.getResources( INDEX_RESOURCE );
+            while ( resources.hasMoreElements() )
+            {
+                URL resource = resources.nextElement();
+                Properties properties = new Properties();
+                InputStream stream = resource.openStream();
+                try
+                {
+                    properties.load( stream );
+                }
+                finally
+                {
+                    stream.close();
+                }
+
+                for ( String typeName : properties.stringPropertyNames() )
+                {
+                    String[] values = properties.getProperty( typeName ).split( ":" );
+                    if ( values.length < 2 || values.length > 3 )
+                    {
+                        throw new SerializerMarshallerGeneratorException( "Illegal entry for type " + typeName
+                            + " in marshaller index " + resource );
+                    }
+
+                    // Entries without layout version have the layout of version 1
+                    int layoutVersion = values.length == 3 ? parseLayoutVersion( values[1], typeName, resource ) : 1;
+                    byte[] checksum = fromHexString( values[values.length - 1] );
+                    entries.putIfAbsent( typeName, new IndexEntry( values[0], layoutVersion, checksum ) );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new SerializerMarshallerGeneratorException( "Marshaller index could not be read", e );
+        }
+    }
+
+    private static int parseLayoutVersion( String value, String typeName, URL resource )
+    {
+        try
+        {
+            return Integer.parseInt( value );
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new SerializerMarshallerGeneratorException( "Illegal layout version for type " + typeName
+                + " in marshaller index " + resource, e );
+        }
+    }
+
+    private static String toHexString( byte[] data )
+    {
+        StringBuilder sb = new StringBuilder( data.length * 2 );
+        for ( byte value : data )
+        {
+            sb.append( Character.forDigit( ( value >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( value & 0xF, 16 ) );
+        }
+        return sb.toString();
+    }
+
+    private static byte[] fromHexString( String value )
+    {
+        byte[] data = new byte[value.length() / 2];
+        for ( int i = 0; i < data.length; i++ )
+        {
+            data[i] = (byte) Integer.parseInt( value.substring( i * 2, i * 2 + 2 ), 16 );
+        }
+        return data;
+    }
+
+    private static class IndexEntry
+    {
+
+        private final String marshallerClassName;
+
+        private final int layoutVersion;
+
+        private final byte[] checksum;
+
+        private IndexEntry( String marshallerClassName, int layoutVersion, byte[] checksum )
+        {
+            this.marshallerClassName = marshallerClassName;
+            this.layoutVersion = layoutVersion;
+            this.checksum = checksum;
+        }
+    }
+}
@@ -18,8 +18,8 @@
  */
 package org.apache.directmemory.lightning.internal.instantiator;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiator;
 import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
@@ -39,7 +39,7 @@ public class ObjenesisBase
     protected final InstantiatorStrategy strategy;
 
     /** Strategy cache. Key = Class, Value = InstantiatorStrategy */
-    protected Map<String, ObjectInstantiator> cache;
+    protected ConcurrentMap<String, ObjectInstantiator> cache;
 
     /**
      * Constructor allowing to pick a strategy and using cache
@@ -64,7 +64,7 @@ public class ObjenesisBase
             throw new IllegalArgumentException( "A strategy can't be null" );
         }
         this.strategy = strategy;
-        this.cache = useCache ? new HashMap<String, ObjectInstantiator>() : null;
+        this.cache = useCache ? new ConcurrentHashMap<String, ObjectInstantiator>() : null;
     }
 
     @Override
@@ -90,7 +90,7 @@ public class ObjenesisBase
      * Will pick the best instantiator for the provided class. If you need to create a lot of instances from the same
      * class, it is way more efficient to create them from the same ObjectInstantiator than calling
      * {@link #newInstance(Class)}.<br>
-     * Explicitly made this NON-THREADSAFE for performance reasons.
+     * Thread safe since marshallers are generated concurrently, the first cached instantiator of a class wins.
      * 
      * @param clazz Class to instantiate
      * @return Instantiator dedicated to the class
@@ -106,7 +106,11 @@ public class ObjenesisBase
         if ( instantiator == null )
         {
             instantiator = strategy.newInstantiatorOf( clazz );
-            cache.put( clazz.getName(), instantiator );
+            ObjectInstantiator cachedInstantiator = cache.putIfAbsent( clazz.getName(), instantiator );
+            if ( cachedInstantiator != null )
+            {
+                instantiator = cachedInstantiator;
+            }
         }
         return instantiator;
     }
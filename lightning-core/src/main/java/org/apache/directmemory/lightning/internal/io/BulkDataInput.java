@@ -18,38 +18,33 @@
  */
 package org.apache.directmemory.lightning.internal.io;
 
+import java.io.DataInput;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
 
-public class BufferInputStream
-    extends InputStream
+/**
+ * {@link DataInput} extension for sources able to copy whole primitive arrays in one operation. The read values are
+ * identical to reading each element using the matching single value method.
+ */
+public interface BulkDataInput
+    extends DataInput
 {
 
-    private final ByteBuffer byteBuffer;
-
-    public BufferInputStream( ByteBuffer byteBuffer )
-    {
-        this.byteBuffer = byteBuffer;
-    }
-
-    @Override
-    public synchronized int read()
-        throws IOException
-    {
-        if ( !byteBuffer.hasRemaining() )
-        {
-            return -1;
-        }
-        return byteBuffer.get();
-    }
-
-    @Override
-    public synchronized int read( byte[] bytes, int off, int len )
-        throws IOException
-    {
-        len = Math.min( len, byteBuffer.remaining() );
-        byteBuffer.get( bytes, off, len );
-        return len;
-    }
+    void readShorts( short[] values, int offset, int length )
+        throws IOException;
+
+    void readChars( char[] values, int offset, int length )
+        throws IOException;
+
+    void readInts( int[] values, int offset, int length )
+        throws IOException;
+
+    void readLongs( long[] values, int offset, int length )
+        throws IOException;
+
+    void readFloats( float[] values, int offset, int length )
+        throws IOException;
+
+    void readDoubles( double[] values, int offset, int length )
+        throws IOException;
+
 }
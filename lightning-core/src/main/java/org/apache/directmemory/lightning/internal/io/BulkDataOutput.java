@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * {@link DataOutput} extension for sinks able to copy whole primitive arrays in one operation. The written bytes are
+ * identical to writing each element using the matching single value method.
+ */
+public interface BulkDataOutput
+    extends DataOutput
+{
+
+    void writeShorts( short[] values, int offset, int length )
+        throws IOException;
+
+    void writeChars( char[] values, int offset, int length )
+        throws IOException;
+
+    void writeInts( int[] values, int offset, int length )
+        throws IOException;
+
+    void writeLongs( long[] values, int offset, int length )
+        throws IOException;
+
+    void writeFloats( float[] values, int offset, int length )
+        throws IOException;
+
+    void writeDoubles( double[] values, int offset, int length )
+        throws IOException;
+
+}
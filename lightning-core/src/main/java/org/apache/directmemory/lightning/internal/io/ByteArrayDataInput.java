@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.lightning.internal.util.StringUtil;
+
+/**
+ * Non synchronized {@link DataInput} implementation reading directly from a slice of a byte array using an internal
+ * cursor. It reads the format written by {@link java.io.DataOutputStream} and {@link ByteArrayDataOutput} using the
+ * same byte order.
+ */
+public class ByteArrayDataInput
+    implements BulkDataInput
+{
+
+    private byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    private final boolean bigEndian;
+
+    public ByteArrayDataInput( byte[] buffer, int offset, int length )
+    {
+        this( buffer, offset, length, ByteOrder.BIG_ENDIAN );
+    }
+
+    public ByteArrayDataInput( byte[] buffer, int offset, int length, ByteOrder byteOrder )
+    {
+        this.bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+        reset( buffer, offset, length );
+    }
+
+    public void reset( byte[] buffer, int offset, int length )
+    {
+        if ( offset < 0 || length < 0 || offset + length > buffer.length )
+        {
+            throw new IndexOutOfBoundsException( "Illegal slice offset=" + offset + ", length=" + length
+                + " for array of size " + buffer.length );
+        }
+
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public int getPosition()
+    {
+        return position;
+    }
+
+    @Override
+    public void readFully( byte[] b )
+        throws IOException
+    {
+        readFully( b, 0, b.length );
+    }
+
+    @Override
+    public void readFully( byte[] b, int off, int len )
+        throws IOException
+    {
+        ensureAvailable( len );
+        System.arraycopy( buffer, position, b, off, len );
+        position += len;
+    }
+
+    @Override
+    public int skipBytes( int n )
+        throws IOException
+    {
+        int skip = Math.max( 0, Math.min( n, limit - position ) );
+        position += skip;
+        return skip;
+    }
+
+    @Override
+    public boolean readBoolean()
+        throws IOException
+    {
+        ensureAvailable( 1 );
+        return buffer[position++] != 0;
+    }
+
+    @Override
+    public byte readByte()
+        throws IOException
+    {
+        ensureAvailable( 1 );
+        return buffer[position++];
+    }
+
+    @Override
+    public int readUnsignedByte()
+        throws IOException
+    {
+        ensureAvailable( 1 );
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public short readShort()
+        throws IOException
+    {
+        ensureAvailable( 2 );
+        int value = ( ( buffer[position] & 0xFF ) << 8 ) | ( buffer[position + 1] & 0xFF );
+        position += 2;
+        return bigEndian ? (short) value : Short.reverseBytes( (short) value );
+    }
+
+    @Override
+    public int readUnsignedShort()
+        throws IOException
+    {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar()
+        throws IOException
+    {
+        return (char) readShort();
+    }
+
+    @Override
+    public int readInt()
+        throws IOException
+    {
+        ensureAvailable( 4 );
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        int value =
+            ( ( buffer[position] & 0xFF ) << 24 ) | ( ( buffer[position + 1] & 0xFF ) << 16 )
+                | ( ( buffer[position + 2] & 0xFF ) << 8 ) | ( buffer[position + 3] & 0xFF );
+        this.position = position + 4;
+        return bigEndian ? value : Integer.reverseBytes( value );
+    }
+
+    @Override
+    public long readLong()
+        throws IOException
+    {
+        ensureAvailable( 8 );
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        long value =
+            ( (long) buffer[position] << 56 ) | ( (long) ( buffer[position + 1] & 0xFF ) << 48 )
+                | ( (long) ( buffer[position + 2] & 0xFF ) << 40 ) | ( (long) ( buffer[position + 3] & 0xFF ) << 32 )
+                | ( (long) ( buffer[position + 4] & 0xFF ) << 24 ) | ( ( buffer[position + 5] & 0xFF ) << 16 )
+                | ( ( buffer[position + 6] & 0xFF ) << 8 ) | ( buffer[position + 7] & 0xFF );
+        this.position = position + 8;
+        return bigEndian ? value : Long.reverseBytes( value );
+    }
+
+    @Override
+    public float readFloat()
+        throws IOException
+    {
+        return Float.intBitsToFloat( readInt() );
+    }
+
+    @Override
+    public double readDouble()
+        throws IOException
+    {
+        return Double.longBitsToDouble( readLong() );
+    }
+
+    @Override
+    public String readLine()
+        throws IOException
+    {
+        if ( position >= limit )
+        {
+            return null;
+        }
+
+        StringBuilder line = new StringBuilder();
+        while ( position < limit )
+        {
+            int c = buffer[position++] & 0xFF;
+            if ( c == '\n' )
+            {
+                break;
+            }
+            if ( c == '\r' )
+            {
+                if ( position < limit && buffer[position] == '\n' )
+                {
+                    position++;
+                }
+                break;
+            }
+            line.append( (char) c );
+        }
+        return line.toString();
+    }
+
+    @Override
+    public String readUTF()
+        throws IOException
+    {
+        int utflen = readUnsignedShort();
+        ensureAvailable( utflen );
+        String value = StringUtil.readUTF( buffer, position, utflen );
+        position += utflen;
+        return value;
+    }
+
+    @Override
+    public void readShorts( short[] values, int offset, int length )
+        throws IOException
+    {
+        ensureAvailable( (long) length * 2 );
+        ByteBuffer source = ByteBuffer.wrap( buffer, position, length * 2 ).order( getByteOrder() );
+        source.asShortBuffer().get( values, offset, length );
+        position += length * 2;
+    }
+
+    @Override
+    public void readChars( char[] values, int offset, int length )
+        throws IOException
+    {
+        ensureAvailable( (long) length * 2 );
+        ByteBuffer source = ByteBuffer.wrap( buffer, position, length * 2 ).order( getByteOrder() );
+        source.asCharBuffer().get( values, offset, length );
+        position += length * 2;
+    }
+
+    @Override
+    public void readInts( int[] values, int offset, int length )
+        throws IOException
+    {
+        ensureAvailable( (long) length * 4 );
+        ByteBuffer source = ByteBuffer.wrap( buffer, position, length * 4 ).order( getByteOrder() );
+        source.asIntBuffer().get( values, offset, length );
+        position += length * 4;
+    }
+
+    @Override
+    public void readLongs( long[] values, int offset, int length )
+        throws IOException
+    {
+        ensureAvailable( (long) length * 8 );
+        ByteBuffer source = ByteBuffer.wrap( buffer, position, length * 8 ).order( getByteOrder() );
+        source.asLongBuffer().get( values, offset, length );
+        position += length * 8;
+    }
+
+    @Override
+    public void readFloats( float[] values, int offset, int length )
+        throws IOException
+    {
+        ensureAvailable( (long) length * 4 );
+        ByteBuffer source = ByteBuffer.wrap( buffer, position, length * 4 ).order( getByteOrder() );
+        source.asFloatBuffer().get( values, offset, length );
+        position += length * 4;
+    }
+
+    @Override
+    public void readDoubles( double[] values, int offset, int length )
+        throws IOException
+    {
+        ensureAvailable( (long) length * 8 );
+        ByteBuffer source = ByteBuffer.wrap( buffer, position, length * 8 ).order( getByteOrder() );
+        source.asDoubleBuffer().get( values, offset, length );
+        position += length * 8;
+    }
+
+    private ByteOrder getByteOrder()
+    {
+        return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    }
+
+    private void ensureAvailable( long length )
+        throws EOFException
+    {
+        if ( position + length > limit )
+        {
+            throw new EOFException( "Tried to read " + length + " bytes but only " + ( limit - position )
+                + " available" );
+        }
+    }
+}
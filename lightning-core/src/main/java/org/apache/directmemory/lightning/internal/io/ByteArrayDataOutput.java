@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.apache.directmemory.lightning.internal.util.StringUtil;
+
+/**
+ * Non synchronized {@link DataOutput} implementation writing directly into a byte array using an internal cursor. The
+ * produced bytes are identical to the ones written by {@link java.io.DataOutputStream} as long as the byte order is
+ * {@link ByteOrder#BIG_ENDIAN}, in little endian mode all multi-byte primitives are written in reversed byte order. If
+ * the instance is growable the underlying array is replaced by a bigger one as needed, otherwise an
+ * {@link IOException} is thrown if the target array is too small.
+ */
+public class ByteArrayDataOutput
+    implements BulkDataOutput
+{
+
+    // Some VMs reserve header words in an array, larger arrays fail with an OutOfMemoryError
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private final boolean growable;
+
+    private final boolean bigEndian;
+
+    public ByteArrayDataOutput( int initialCapacity )
+    {
+        this( new byte[initialCapacity], 0, true );
+    }
+
+    public ByteArrayDataOutput( int initialCapacity, ByteOrder byteOrder )
+    {
+        this( new byte[initialCapacity], 0, true, byteOrder );
+    }
+
+    public ByteArrayDataOutput( byte[] buffer, int offset, boolean growable )
+    {
+        this( buffer, offset, growable, ByteOrder.BIG_ENDIAN );
+    }
+
+    public ByteArrayDataOutput( byte[] buffer, int offset, boolean growable, ByteOrder byteOrder )
+    {
+        this.buffer = buffer;
+        this.position = offset;
+        this.growable = growable;
+        this.bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+    }
+
+    public void reset( byte[] buffer, int offset )
+    {
+        this.buffer = buffer;
+        this.position = offset;
+    }
+
+    public void reset()
+    {
+        this.position = 0;
+    }
+
+    public byte[] getBuffer()
+    {
+        return buffer;
+    }
+
+    public int getPosition()
+    {
+        return position;
+    }
+
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf( buffer, position );
+    }
+
+    @Override
+    public void write( int b )
+        throws IOException
+    {
+        ensureCapacity( 1 );
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write( byte[] b )
+        throws IOException
+    {
+        write( b, 0, b.length );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        ensureCapacity( len );
+        System.arraycopy( b, off, buffer, position, len );
+        position += len;
+    }
+
+    @Override
+    public void writeBoolean( boolean v )
+        throws IOException
+    {
+        ensureCapacity( 1 );
+        buffer[position++] = (byte) ( v ? 1 : 0 );
+    }
+
+    @Override
+    public void writeByte( int v )
+        throws IOException
+    {
+        ensureCapacity( 1 );
+        buffer[position++] = (byte) v;
+    }
+
+    @Override
+    public void writeShort( int v )
+        throws IOException
+    {
+        ensureCapacity( 2 );
+        if ( !bigEndian )
+        {
+            v = Short.reverseBytes( (short) v );
+        }
+        buffer[position++] = (byte) ( v >>> 8 );
+        buffer[position++] = (byte) v;
+    }
+
+    @Override
+    public void writeChar( int v )
+        throws IOException
+    {
+        writeShort( v );
+    }
+
+    @Override
+    public void writeInt( int v )
+        throws IOException
+    {
+        ensureCapacity( 4 );
+        if ( !bigEndian )
+        {
+            v = Integer.reverseBytes( v );
+        }
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        buffer[position] = (byte) ( v >>> 24 );
+        buffer[position + 1] = (byte) ( v >>> 16 );
+        buffer[position + 2] = (byte) ( v >>> 8 );
+        buffer[position + 3] = (byte) v;
+        this.position = position + 4;
+    }
+
+    @Override
+    public void writeLong( long v )
+        throws IOException
+    {
+        ensureCapacity( 8 );
+        if ( !bigEndian )
+        {
+            v = Long.reverseBytes( v );
+        }
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        buffer[position] = (byte) ( v >>> 56 );
+        buffer[position + 1] = (byte) ( v >>> 48 );
+        buffer[position + 2] = (byte) ( v >>> 40 );
+        buffer[position + 3] = (byte) ( v >>> 32 );
+        buffer[position + 4] = (byte) ( v >>> 24 );
+        buffer[position + 5] = (byte) ( v >>> 16 );
+        buffer[position + 6] = (byte) ( v >>> 8 );
+        buffer[position + 7] = (byte) v;
+        this.position = position + 8;
+    }
+
+    @Override
+    public void writeFloat( float v )
+        throws IOException
+    {
+        writeInt( Float.floatToIntBits( v ) );
+    }
+
+    @Override
+    public void writeDouble( double v )
+        throws IOException
+    {
+        writeLong( Double.doubleToLongBits( v ) );
+    }
+
+    @Override
+    public void writeBytes( String s )
+        throws IOException
+    {
+        int length = s.length();
+        ensureCapacity( length );
+        for ( int i = 0; i < length; i++ )
+        {
+            buffer[position++] = (byte) s.charAt( i );
+        }
+    }
+
+    @Override
+    public void writeChars( String s )
+        throws IOException
+    {
+        int length = s.length();
+        ensureCapacity( (long) length * 2 );
+        for ( int i = 0; i < length; i++ )
+        {
+            writeChar( s.charAt( i ) );
+        }
+    }
+
+    @Override
+    public void writeUTF( String s )
+        throws IOException
+    {
+        int utflen = StringUtil.getUTFLength( s );
+        if ( utflen > 65535 )
+        {
+            throw new UTFDataFormatException( "Encoded string too long: " + utflen + " bytes" );
+        }
+
+        writeShort( utflen );
+        ensureCapacity( utflen );
+        position = StringUtil.writeUTF( s, buffer, position );
+    }
+
+    @Override
+    public void writeShorts( short[] values, int offset, int length )
+        throws IOException
+    {
+        ensureCapacity( (long) length * 2 );
+        ByteBuffer target = ByteBuffer.wrap( buffer, position, length * 2 ).order( getByteOrder() );
+        target.asShortBuffer().put( values, offset, length );
+        position += length * 2;
+    }
+
+    @Override
+    public void writeChars( char[] values, int offset, int length )
+        throws IOException
+    {
+        ensureCapacity( (long) length * 2 );
+        ByteBuffer target = ByteBuffer.wrap( buffer, position, length * 2 ).order( getByteOrder() );
+        target.asCharBuffer().put( values, offset, length );
+        position += length * 2;
+    }
+
+    @Override
+    public void writeInts( int[] values, int offset, int length )
+        throws IOException
+    {
+        ensureCapacity( (long) length * 4 );
+        ByteBuffer target = ByteBuffer.wrap( buffer, position, length * 4 ).order( getByteOrder() );
+        target.asIntBuffer().put( values, offset, length );
+        position += length * 4;
+    }
+
+    @Override
+    public void writeLongs( long[] values, int offset, int length )
+        throws IOException
+    {
+        ensureCapacity( (long) length * 8 );
+        ByteBuffer target = ByteBuffer.wrap( buffer, position, length * 8 ).order( getByteOrder() );
+        target.asLongBuffer().put( values, offset, length );
+        position += length * 8;
+    }
+
+    @Override
+    public void writeFloats( float[] values, int offset, int length )
+        throws IOException
+    {
+        ensureCapacity( (long) length * 4 );
+        ByteBuffer target = ByteBuffer.wrap( buffer, position, length * 4 ).order( getByteOrder() );
+        target.asFloatBuffer().put( values, offset, length );
+        position += length * 4;
+    }
+
+    @Override
+    public void writeDoubles( double[] values, int offset, int length )
+        throws IOException
+    {
+        ensureCapacity( (long) length * 8 );
+        ByteBuffer target = ByteBuffer.wrap( buffer, position, length * 8 ).order( getByteOrder() );
+        target.asDoubleBuffer().put( values, offset, length );
+        position += length * 8;
+    }
+
+    private ByteOrder getByteOrder()
+    {
+        return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    }
+
+    private void ensureCapacity( long length )
+        throws IOException
+    {
+        // Byte lengths of bulk writes are computed as long to not overflow for huge arrays
+        long neededLength = position + length;
+        if ( neededLength <= buffer.length )
+        {
+            return;
+        }
+
+        if ( !growable )
+        {
+            throw new IOException( "Target array too small, needed " + neededLength + " bytes but only "
+                + buffer.length + " available" );
+        }
+
+        if ( neededLength > MAX_ARRAY_LENGTH )
+        {
+            throw new IOException( "Needed " + neededLength + " bytes exceed the maximum array length" );
+        }
+
+        long newLength = Math.min( Math.max( (long) buffer.length << 1, neededLength ), MAX_ARRAY_LENGTH );
+        buffer = Arrays.copyOf( buffer, (int) newLength );
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.lightning.internal.util.StringUtil;
+
+/**
+ * Non synchronized {@link DataInput} implementation reading from heap or direct {@link ByteBuffer}s. Multi-byte
+ * primitives are read as one word-sized absolute get in the configured byte order. The buffer's own byte order is
+ * restored by {@link #release()}.
+ */
+public class ByteBufferDataInput
+    implements BulkDataInput
+{
+
+    private final ByteOrder byteOrder;
+
+    private ByteBuffer buffer;
+
+    private ByteOrder previousByteOrder;
+
+    public ByteBufferDataInput( ByteOrder byteOrder )
+    {
+        this.byteOrder = byteOrder;
+    }
+
+    public ByteBufferDataInput reset( ByteBuffer buffer )
+    {
+        this.buffer = buffer;
+        this.previousByteOrder = buffer.order();
+        buffer.order( byteOrder );
+        return this;
+    }
+
+    public void release()
+    {
+        if ( buffer != null )
+        {
+            buffer.order( previousByteOrder );
+            buffer = null;
+            previousByteOrder = null;
+        }
+    }
+
+    @Override
+    public void readFully( byte[] b )
+        throws IOException
+    {
+        readFully( b, 0, b.length );
+    }
+
+    @Override
+    public void readFully( byte[] b, int off, int len )
+        throws IOException
+    {
+        ensureAvailable( len );
+        buffer.get( b, off, len );
+    }
+
+    @Override
+    public int skipBytes( int n )
+        throws IOException
+    {
+        int skip = Math.max( 0, Math.min( n, buffer.remaining() ) );
+        buffer.position( buffer.position() + skip );
+        return skip;
+    }
+
+    @Override
+    public boolean readBoolean()
+        throws IOException
+    {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte()
+        throws IOException
+    {
+        int position = ensureAvailable( 1 );
+        byte value = buffer.get( position );
+        buffer.position( position + 1 );
+        return value;
+    }
+
+    @Override
+    public int readUnsignedByte()
+        throws IOException
+    {
+        return readByte() & 0xFF;
+    }
+
+    @Override
+    public short readShort()
+        throws IOException
+    {
+        int position = ensureAvailable( 2 );
+        short value = buffer.getShort( position );
+        buffer.position( position + 2 );
+        return value;
+    }
+
+    @Override
+    public int readUnsignedShort()
+        throws IOException
+    {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar()
+        throws IOException
+    {
+        int position = ensureAvailable( 2 );
+        char value = buffer.getChar( position );
+        buffer.position( position + 2 );
+        return value;
+    }
+
+    @Override
+    public int readInt()
+        throws IOException
+    {
+        int position = ensureAvailable( 4 );
+        int value = buffer.getInt( position );
+        buffer.position( position + 4 );
+        return value;
+    }
+
+    @Override
+    public long readLong()
+        throws IOException
+    {
+        int position = ensureAvailable( 8 );
+        long value = buffer.getLong( position );
+        buffer.position( position + 8 );
+        return value;
+    }
+
+    @Override
+    public float readFloat()
+        throws IOException
+    {
+        return Float.intBitsToFloat( readInt() );
+    }
+
+    @Override
+    public double readDouble()
+        throws IOException
+    {
+        return Double.longBitsToDouble( readLong() );
+    }
+
+    @Override
+    public String readLine()
+        throws IOException
+    {
+        if ( !buffer.hasRemaining() )
+        {
+            return null;
+        }
+
+        StringBuilder line = new StringBuilder();
+        while ( buffer.hasRemaining() )
+        {
+            int c = buffer.get() & 0xFF;
+            if ( c == '\n' )
+            {
+                break;
+            }
+            if ( c == '\r' )
+            {
+                if ( buffer.hasRemaining() && buffer.get( buffer.position() ) == '\n' )
+                {
+                    buffer.get();
+                }
+                break;
+            }
+            line.append( (char) c );
+        }
+        return line.toString();
+    }
+
+    @Override
+    public String readUTF()
+        throws IOException
+    {
+        int utflen = readUnsignedShort();
+        int position = ensureAvailable( utflen );
+        String value;
+        if ( buffer.hasArray() )
+        {
+            value = StringUtil.readUTF( buffer.array(), buffer.arrayOffset() + position, utflen );
+        }
+        else
+        {
+            byte[] bytes = new byte[utflen];
+            buffer.get( bytes, 0, utflen );
+            value = StringUtil.readUTF( bytes, 0, utflen );
+        }
+        buffer.position( position + utflen );
+        return value;
+    }
+
+    @Override
+    public void readShorts( short[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureAvailable( (long) length * 2 );
+        buffer.asShortBuffer().get( values, offset, length );
+        buffer.position( position + length * 2 );
+    }
+
+    @Override
+    public void readChars( char[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureAvailable( (long) length * 2 );
+        buffer.asCharBuffer().get( values, offset, length );
+        buffer.position( position + length * 2 );
+    }
+
+    @Override
+    public void readInts( int[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureAvailable( (long) length * 4 );
+        buffer.asIntBuffer().get( values, offset, length );
+        buffer.position( position + length * 4 );
+    }
+
+    @Override
+    public void readLongs( long[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureAvailable( (long) length * 8 );
+        buffer.asLongBuffer().get( values, offset, length );
+        buffer.position( position + length * 8 );
+    }
+
+    @Override
+    public void readFloats( float[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureAvailable( (long) length * 4 );
+        buffer.asFloatBuffer().get( values, offset, length );
+        buffer.position( position + length * 4 );
+    }
+
+    @Override
+    public void readDoubles( double[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureAvailable( (long) length * 8 );
+        buffer.asDoubleBuffer().get( values, offset, length );
+        buffer.position( position + length * 8 );
+    }
+
+    private int ensureAvailable( long length )
+        throws EOFException
+    {
+        if ( buffer.remaining() < length )
+        {
+            throw new EOFException( "Tried to read " + length + " bytes but only " + buffer.remaining()
+                + " available" );
+        }
+        return buffer.position();
+    }
+}
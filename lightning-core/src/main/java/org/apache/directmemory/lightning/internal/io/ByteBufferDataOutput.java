@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.lightning.internal.util.StringUtil;
+
+/**
+ * Non synchronized {@link DataOutput} implementation writing to heap or direct {@link ByteBuffer}s. Multi-byte
+ * primitives are written as one word-sized absolute put in the configured byte order instead of being split up into
+ * single bytes. The buffer's own byte order is restored by {@link #release()}.
+ */
+public class ByteBufferDataOutput
+    implements BulkDataOutput
+{
+
+    private final ByteOrder byteOrder;
+
+    private ByteBuffer buffer;
+
+    private ByteOrder previousByteOrder;
+
+    public ByteBufferDataOutput( ByteOrder byteOrder )
+    {
+        this.byteOrder = byteOrder;
+    }
+
+    public ByteBufferDataOutput reset( ByteBuffer buffer )
+    {
+        this.buffer = buffer;
+        this.previousByteOrder = buffer.order();
+        buffer.order( byteOrder );
+        return this;
+    }
+
+    public int getPosition()
+    {
+        return buffer.position();
+    }
+
+    public void setPosition( int position )
+    {
+        buffer.position( position );
+    }
+
+    public void release()
+    {
+        if ( buffer != null )
+        {
+            buffer.order( previousByteOrder );
+            buffer = null;
+            previousByteOrder = null;
+        }
+    }
+
+    @Override
+    public void write( int b )
+        throws IOException
+    {
+        int position = ensureCapacity( 1 );
+        buffer.put( position, (byte) b );
+        buffer.position( position + 1 );
+    }
+
+    @Override
+    public void write( byte[] b )
+        throws IOException
+    {
+        write( b, 0, b.length );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        ensureCapacity( len );
+        buffer.put( b, off, len );
+    }
+
+    @Override
+    public void writeBoolean( boolean v )
+        throws IOException
+    {
+        write( v ? 1 : 0 );
+    }
+
+    @Override
+    public void writeByte( int v )
+        throws IOException
+    {
+        write( v );
+    }
+
+    @Override
+    public void writeShort( int v )
+        throws IOException
+    {
+        int position = ensureCapacity( 2 );
+        buffer.putShort( position, (short) v );
+        buffer.position( position + 2 );
+    }
+
+    @Override
+    public void writeChar( int v )
+        throws IOException
+    {
+        int position = ensureCapacity( 2 );
+        buffer.putChar( position, (char) v );
+        buffer.position( position + 2 );
+    }
+
+    @Override
+    public void writeInt( int v )
+        throws IOException
+    {
+        int position = ensureCapacity( 4 );
+        buffer.putInt( position, v );
+        buffer.position( position + 4 );
+    }
+
+    @Override
+    public void writeLong( long v )
+        throws IOException
+    {
+        int position = ensureCapacity( 8 );
+        buffer.putLong( position, v );
+        buffer.position( position + 8 );
+    }
+
+    @Override
+    public void writeFloat( float v )
+        throws IOException
+    {
+        writeInt( Float.floatToIntBits( v ) );
+    }
+
+    @Override
+    public void writeDouble( double v )
+        throws IOException
+    {
+        writeLong( Double.doubleToLongBits( v ) );
+    }
+
+    @Override
+    public void writeBytes( String s )
+        throws IOException
+    {
+        int length = s.length();
+        ensureCapacity( length );
+        for ( int i = 0; i < length; i++ )
+        {
+            buffer.put( (byte) s.charAt( i ) );
+        }
+    }
+
+    @Override
+    public void writeChars( String s )
+        throws IOException
+    {
+        int length = s.length();
+        ensureCapacity( (long) length * 2 );
+        for ( int i = 0; i < length; i++ )
+        {
+            buffer.putChar( s.charAt( i ) );
+        }
+    }
+
+    @Override
+    public void writeUTF( String s )
+        throws IOException
+    {
+        int utflen = StringUtil.getUTFLength( s );
+        if ( utflen > 65535 )
+        {
+            throw new UTFDataFormatException( "Encoded string too long: " + utflen + " bytes" );
+        }
+
+        writeShort( utflen );
+        int position = ensureCapacity( utflen );
+        if ( buffer.hasArray() )
+        {
+            StringUtil.writeUTF( s, buffer.array(), buffer.arrayOffset() + position );
+        }
+        else
+        {
+            byte[] bytes = new byte[utflen];
+            StringUtil.writeUTF( s, bytes, 0 );
+            buffer.put( bytes, 0, utflen );
+        }
+        buffer.position( position + utflen );
+    }
+
+    @Override
+    public void writeShorts( short[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureCapacity( (long) length * 2 );
+        buffer.asShortBuffer().put( values, offset, length );
+        buffer.position( position + length * 2 );
+    }
+
+    @Override
+    public void writeChars( char[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureCapacity( (long) length * 2 );
+        buffer.asCharBuffer().put( values, offset, length );
+        buffer.position( position + length * 2 );
+    }
+
+    @Override
+    public void writeInts( int[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureCapacity( (long) length * 4 );
+        buffer.asIntBuffer().put( values, offset, length );
+        buffer.position( position + length * 4 );
+    }
+
+    @Override
+    public void writeLongs( long[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureCapacity( (long) length * 8 );
+        buffer.asLongBuffer().put( values, offset, length );
+        buffer.position( position + length * 8 );
+    }
+
+    @Override
+    public void writeFloats( float[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureCapacity( (long) length * 4 );
+        buffer.asFloatBuffer().put( values, offset, length );
+        buffer.position( position + length * 4 );
+    }
+
+    @Override
+    public void writeDoubles( double[] values, int offset, int length )
+        throws IOException
+    {
+        int position = ensureCapacity( (long) length * 8 );
+        buffer.asDoubleBuffer().put( values, offset, length );
+        buffer.position( position + length * 8 );
+    }
+
+    private int ensureCapacity( long length )
+        throws IOException
+    {
+        if ( buffer.remaining() < length )
+        {
+            throw new IOException( "Target buffer too small, needed " + length + " bytes but only "
+                + buffer.remaining() + " available" );
+        }
+        return buffer.position();
+    }
+}
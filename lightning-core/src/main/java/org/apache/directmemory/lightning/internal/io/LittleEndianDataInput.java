@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.lightning.internal.util.StringUtil;
+
+/**
+ * {@link DataInput} adapter reading all multi-byte primitives from the wrapped input in
+ * {@link ByteOrder#LITTLE_ENDIAN} byte order. It reads the format written by {@link LittleEndianDataOutput} and by
+ * {@link ByteArrayDataOutput} in little endian mode.
+ */
+public class LittleEndianDataInput
+    implements DataInput
+{
+
+    private final DataInput dataInput;
+
+    public LittleEndianDataInput( DataInput dataInput )
+    {
+        this.dataInput = dataInput;
+    }
+
+    @Override
+    public void readFully( byte[] b )
+        throws IOException
+    {
+        dataInput.readFully( b );
+    }
+
+    @Override
+    public void readFully( byte[] b, int off, int len )
+        throws IOException
+    {
+        dataInput.readFully( b, off, len );
+    }
+
+    @Override
+    public int skipBytes( int n )
+        throws IOException
+    {
+        return dataInput.skipBytes( n );
+    }
+
+    @Override
+    public boolean readBoolean()
+        throws IOException
+    {
+        return dataInput.readBoolean();
+    }
+
+    @Override
+    public byte readByte()
+        throws IOException
+    {
+        return dataInput.readByte();
+    }
+
+    @Override
+    public int readUnsignedByte()
+        throws IOException
+    {
+        return dataInput.readUnsignedByte();
+    }
+
+    @Override
+    public short readShort()
+        throws IOException
+    {
+        return Short.reverseBytes( dataInput.readShort() );
+    }
+
+    @Override
+    public int readUnsignedShort()
+        throws IOException
+    {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar()
+        throws IOException
+    {
+        return Character.reverseBytes( dataInput.readChar() );
+    }
+
+    @Override
+    public int readInt()
+        throws IOException
+    {
+        return Integer.reverseBytes( dataInput.readInt() );
+    }
+
+    @Override
+    public long readLong()
+        throws IOException
+    {
+        return Long.reverseBytes( dataInput.readLong() );
+    }
+
+    @Override
+    public float readFloat()
+        throws IOException
+    {
+        return Float.intBitsToFloat( readInt() );
+    }
+
+    @Override
+    public double readDouble()
+        throws IOException
+    {
+        return Double.longBitsToDouble( readLong() );
+    }
+
+    @Override
+    public String readLine()
+        throws IOException
+    {
+        return dataInput.readLine();
+    }
+
+    @Override
+    public String readUTF()
+        throws IOException
+    {
+        int utflen = readUnsignedShort();
+        byte[] bytes = new byte[utflen];
+        dataInput.readFully( bytes, 0, utflen );
+        return StringUtil.readUTF( bytes, 0, utflen );
+    }
+}
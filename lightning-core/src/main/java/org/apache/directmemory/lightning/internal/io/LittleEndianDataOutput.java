@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.lightning.internal.util.StringUtil;
+
+/**
+ * {@link DataOutput} adapter writing all multi-byte primitives to the wrapped output in
+ * {@link ByteOrder#LITTLE_ENDIAN} byte order. The produced bytes are identical to the ones written by a
+ * {@link ByteArrayDataOutput} in little endian mode, so stream based serialization keeps the configured byte order.
+ */
+public class LittleEndianDataOutput
+    implements DataOutput
+{
+
+    private final DataOutput dataOutput;
+
+    public LittleEndianDataOutput( DataOutput dataOutput )
+    {
+        this.dataOutput = dataOutput;
+    }
+
+    @Override
+    public void write( int b )
+        throws IOException
+    {
+        dataOutput.write( b );
+    }
+
+    @Override
+    public void write( byte[] b )
+        throws IOException
+    {
+        dataOutput.write( b );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        dataOutput.write( b, off, len );
+    }
+
+    @Override
+    public void writeBoolean( boolean v )
+        throws IOException
+    {
+        dataOutput.writeBoolean( v );
+    }
+
+    @Override
+    public void writeByte( int v )
+        throws IOException
+    {
+        dataOutput.writeByte( v );
+    }
+
+    @Override
+    public void writeShort( int v )
+        throws IOException
+    {
+        dataOutput.writeShort( Short.reverseBytes( (short) v ) );
+    }
+
+    @Override
+    public void writeChar( int v )
+        throws IOException
+    {
+        writeShort( v );
+    }
+
+    @Override
+    public void writeInt( int v )
+        throws IOException
+    {
+        dataOutput.writeInt( Integer.reverseBytes( v ) );
+    }
+
+    @Override
+    public void writeLong( long v )
+        throws IOException
+    {
+        dataOutput.writeLong( Long.reverseBytes( v ) );
+    }
+
+    @Override
+    public void writeFloat( float v )
+        throws IOException
+    {
+        writeInt( Float.floatToIntBits( v ) );
+    }
+
+    @Override
+    public void writeDouble( double v )
+        throws IOException
+    {
+        writeLong( Double.doubleToLongBits( v ) );
+    }
+
+    @Override
+    public void writeBytes( String s )
+        throws IOException
+    {
+        dataOutput.writeBytes( s );
+    }
+
+    @Override
+    public void writeChars( String s )
+        throws IOException
+    {
+        for ( int i = 0; i < s.length(); i++ )
+        {
+            writeChar( s.charAt( i ) );
+        }
+    }
+
+    @Override
+    public void writeUTF( String s )
+        throws IOException
+    {
+        int utflen = StringUtil.getUTFLength( s );
+        if ( utflen > 65535 )
+        {
+            throw new UTFDataFormatException( "Encoded string too long: " + utflen + " bytes" );
+        }
+
+        byte[] bytes = new byte[utflen];
+        StringUtil.writeUTF( s, bytes, 0 );
+        writeShort( utflen );
+        dataOutput.write( bytes, 0, utflen );
+    }
+}
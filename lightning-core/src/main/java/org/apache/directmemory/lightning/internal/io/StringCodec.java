@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
+
+/**
+ * Non synchronized String encoder and decoder using reusable scratch buffers. Every String is written as an unsigned
+ * varint header of the encoded length shifted left by one, the lowest bit marks a Latin-1 encoded String. Strings
+ * only containing characters up to 0xFF are written one byte per character, all other Strings are written as standard
+ * UTF-8 (unpaired surrogates are kept as three byte sequences to not lose information). In contrast to
+ * {@link DataOutput#writeUTF(String)} there is no length limit.
+ */
+public class StringCodec
+{
+
+    private static final int LATIN1_FLAG = 1;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+
+    private char[] chars = new char[INITIAL_BUFFER_SIZE];
+
+    /**
+     * Returns the size of the scratch buffers in bytes, used by owners to decide if this codec should be retained.
+     */
+    public int getBufferSize()
+    {
+        return bytes.length + chars.length * 2;
+    }
+
+    public void writeString( String value, DataOutput dataOutput )
+        throws IOException
+    {
+        int length = value.length();
+        char[] chars = ensureChars( length );
+        value.getChars( 0, length, chars, 0 );
+
+        int index = 0;
+        while ( index < length && chars[index] <= 0xFF )
+        {
+            index++;
+        }
+
+        if ( index == length )
+        {
+            // Latin-1 fast path
+            byte[] bytes = ensureBytes( length );
+            for ( int i = 0; i < length; i++ )
+            {
+                bytes[i] = (byte) chars[i];
+            }
+
+            VarIntUtil.writeUnsignedVarInt( dataOutput, ( length << 1 ) | LATIN1_FLAG );
+            dataOutput.write( bytes, 0, length );
+            return;
+        }
+
+        int utflength = encodeUTF8( chars, length );
+        VarIntUtil.writeUnsignedVarInt( dataOutput, utflength << 1 );
+        dataOutput.write( bytes, 0, utflength );
+    }
+
+    @SuppressWarnings( "deprecation" )
+    public String readString( DataInput dataInput )
+        throws IOException
+    {
+        int header = VarIntUtil.readUnsignedVarInt( dataInput );
+        int length = header >>> 1;
+
+        byte[] bytes = ensureBytes( length );
+        dataInput.readFully( bytes, 0, length );
+
+        if ( ( header & LATIN1_FLAG ) != 0 )
+        {
+            // Deprecated but exactly the Latin-1 conversion, which is a plain copy on compact strings VMs
+            return new String( bytes, 0, 0, length );
+        }
+
+        int count = decodeUTF8( length );
+        return new String( chars, 0, count );
+    }
+
+    private int encodeUTF8( char[] chars, int length )
+    {
+        // Worst case is three bytes per char, surrogate pairs need four bytes for two chars
+        byte[] bytes = ensureBytes( length * 3 );
+        int position = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = chars[i];
+            if ( c < 0x80 )
+            {
+                bytes[position++] = (byte) c;
+            }
+            else if ( c < 0x800 )
+            {
+                bytes[position++] = (byte) ( 0xC0 | ( c >> 6 ) );
+                bytes[position++] = (byte) ( 0x80 | ( c & 0x3F ) );
+            }
+            else if ( Character.isHighSurrogate( c ) && i + 1 < length && Character.isLowSurrogate( chars[i + 1] ) )
+            {
+                int codePoint = Character.toCodePoint( c, chars[++i] );
+                bytes[position++] = (byte) ( 0xF0 | ( codePoint >> 18 ) );
+                bytes[position++] = (byte) ( 0x80 | ( ( codePoint >> 12 ) & 0x3F ) );
+                bytes[position++] = (byte) ( 0x80 | ( ( codePoint >> 6 ) & 0x3F ) );
+                bytes[position++] = (byte) ( 0x80 | ( codePoint & 0x3F ) );
+            }
+            else
+            {
+                bytes[position++] = (byte) ( 0xE0 | ( c >> 12 ) );
+                bytes[position++] = (byte) ( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+                bytes[position++] = (byte) ( 0x80 | ( c & 0x3F ) );
+            }
+        }
+        return position;
+    }
+
+    private int decodeUTF8( int utflength )
+        throws UTFDataFormatException
+    {
+        // Never more chars than bytes
+        char[] chars = ensureChars( utflength );
+        byte[] bytes = this.bytes;
+        int position = 0;
+        int count = 0;
+        while ( position < utflength )
+        {
+            int c = bytes[position++] & 0xFF;
+            if ( c < 0x80 )
+            {
+                chars[count++] = (char) c;
+            }
+            else if ( c >= 0xC0 && c < 0xE0 )
+            {
+                ensureContinuation( bytes, position, 1, utflength );
+                chars[count++] = (char) ( ( ( c & 0x1F ) << 6 ) | ( bytes[position++] & 0x3F ) );
+            }
+            else if ( c >= 0xE0 && c < 0xF0 )
+            {
+                ensureContinuation( bytes, position, 2, utflength );
+                chars[count++] =
+                    (char) ( ( ( c & 0x0F ) << 12 ) | ( ( bytes[position++] & 0x3F ) << 6 )
+                        | ( bytes[position++] & 0x3F ) );
+            }
+            else if ( c >= 0xF0 && c < 0xF8 )
+            {
+                ensureContinuation( bytes, position, 3, utflength );
+                int codePoint =
+                    ( ( c & 0x07 ) << 18 ) | ( ( bytes[position++] & 0x3F ) << 12 )
+                        | ( ( bytes[position++] & 0x3F ) << 6 ) | ( bytes[position++] & 0x3F );
+                if ( codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT )
+                {
+                    throw new UTFDataFormatException( "Malformed input around byte " + ( position - 4 ) );
+                }
+                count += Character.toChars( codePoint, chars, count );
+            }
+            else
+            {
+                throw new UTFDataFormatException( "Malformed input around byte " + ( position - 1 ) );
+            }
+        }
+        return count;
+    }
+
+    private void ensureContinuation( byte[] bytes, int position, int count, int utflength )
+        throws UTFDataFormatException
+    {
+        if ( position + count > utflength )
+        {
+            throw new UTFDataFormatException( "Malformed input: partial character at end" );
+        }
+
+        for ( int i = position; i < position + count; i++ )
+        {
+            if ( ( bytes[i] & 0xC0 ) != 0x80 )
+            {
+                throw new UTFDataFormatException( "Malformed input around byte " + i );
+            }
+        }
+    }
+
+    private byte[] ensureBytes( int length )
+    {
+        if ( bytes.length < length )
+        {
+            bytes = new byte[Math.max( length, bytes.length << 1 )];
+        }
+        return bytes;
+    }
+
+    private char[] ensureChars( int length )
+    {
+        if ( chars.length < length )
+        {
+            chars = new char[Math.max( length, chars.length << 1 )];
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per call table of already written or read Strings used for String deduplication. Strings are compared by equality,
+ * not identity, and referenced by the index of their first occurrence.
+ */
+public class StringTable
+{
+
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+    private final List<String> values = new ArrayList<String>();
+
+    /**
+     * Returns the index of an already known equal String or adds the given one and returns -1.
+     */
+    public int putIfAbsent( String value )
+    {
+        Integer index = indexes.get( value );
+        if ( index != null )
+        {
+            return index.intValue();
+        }
+
+        indexes.put( value, Integer.valueOf( indexes.size() ) );
+        return -1;
+    }
+
+    public void add( String value )
+    {
+        values.add( value );
+    }
+
+    public String get( int index )
+    {
+        return values.get( index );
+    }
+
+    public int size()
+    {
+        return indexes.size() + values.size();
+    }
+
+    public void clear()
+    {
+        if ( !indexes.isEmpty() )
+        {
+            indexes.clear();
+        }
+        if ( !values.isEmpty() )
+        {
+            values.clear();
+        }
+    }
+}
@@ -46,14 +46,14 @@ public class BigDecimalMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
 
         String representation = ( (BigDecimal) value ).toString();
         byte[] data = representation.getBytes( CHARSET );
-        dataOutput.writeInt( data.length );
+        writeLength( data.length, dataOutput, serializationContext );
         dataOutput.write( data );
     }
 
@@ -63,12 +63,12 @@ public class BigDecimalMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int length = dataInput.readInt();
+        int length = readLength( dataInput, serializationContext );
         byte[] data = new byte[length];
         dataInput.readFully( data );
 
@@ -43,13 +43,13 @@ public class BigIntegerMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
 
         byte[] data = ( (BigInteger) value ).toByteArray();
-        dataOutput.writeInt( data.length );
+        writeLength( data.length, dataOutput, serializationContext );
         dataOutput.write( data );
     }
 
@@ -59,12 +59,12 @@ public class BigIntegerMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int length = dataInput.readInt();
+        int length = readLength( dataInput, serializationContext );
         byte[] data = new byte[length];
         dataInput.readFully( data );
 
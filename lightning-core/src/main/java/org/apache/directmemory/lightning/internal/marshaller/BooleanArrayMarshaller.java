@@ -42,7 +42,7 @@ public class BooleanArrayMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
@@ -50,7 +50,7 @@ public class BooleanArrayMarshaller
         if ( boolean[].class == propertyDescriptor.getType() )
         {
             boolean[] array = (boolean[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
             for ( boolean arrayValue : array )
             {
@@ -60,7 +60,7 @@ public class BooleanArrayMarshaller
         else
         {
             Boolean[] array = (Boolean[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
             for ( boolean arrayValue : array )
             {
@@ -75,12 +75,12 @@ public class BooleanArrayMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
         if ( boolean[].class == propertyDescriptor.getType() )
         {
             boolean[] array = new boolean[size];
@@ -42,7 +42,7 @@ public class ByteArrayMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
@@ -50,7 +50,7 @@ public class ByteArrayMarshaller
         if ( byte[].class == propertyDescriptor.getType() )
         {
             byte[] array = (byte[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
             for ( byte arrayValue : array )
             {
@@ -60,7 +60,7 @@ public class ByteArrayMarshaller
         else
         {
             Byte[] array = (Byte[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
             for ( byte arrayValue : array )
             {
@@ -75,12 +75,12 @@ public class ByteArrayMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
         if ( byte[].class == propertyDescriptor.getType() )
         {
             byte[] array = new byte[size];
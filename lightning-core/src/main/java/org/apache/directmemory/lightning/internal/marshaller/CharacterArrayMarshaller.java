@@ -24,6 +24,8 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.PrimitiveArrayUtil;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class CharacterArrayMarshaller
@@ -42,7 +44,7 @@ public class CharacterArrayMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
@@ -50,21 +52,37 @@ public class CharacterArrayMarshaller
         if ( char[].class == propertyDescriptor.getType() )
         {
             char[] array = (char[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
-            for ( char arrayValue : array )
+            if ( isCompact( serializationContext ) )
+            {
+                for ( char arrayValue : array )
+                {
+                    VarIntUtil.writeVarChar( dataOutput, arrayValue );
+                }
+            }
+            else
             {
-                dataOutput.writeChar( arrayValue );
+                PrimitiveArrayUtil.writeChars( dataOutput, array );
             }
         }
         else
         {
             Character[] array = (Character[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
+
+            boolean compact = isCompact( serializationContext );
 
             for ( char arrayValue : array )
             {
-                dataOutput.writeChar( arrayValue );
+                if ( compact )
+                {
+                    VarIntUtil.writeVarChar( dataOutput, arrayValue );
+                }
+                else
+                {
+                    dataOutput.writeChar( arrayValue );
+                }
             }
         }
     }
@@ -75,18 +93,26 @@ public class CharacterArrayMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
+        boolean compact = isCompact( serializationContext );
         if ( char[].class == propertyDescriptor.getType() )
         {
             char[] array = new char[size];
-            for ( int i = 0; i < size; i++ )
+            if ( compact )
+            {
+                for ( int i = 0; i < size; i++ )
+                {
+                    array[i] = VarIntUtil.readVarChar( dataInput );
+                }
+            }
+            else
             {
-                array[i] = dataInput.readChar();
+                PrimitiveArrayUtil.readChars( dataInput, array );
             }
 
             return (V) array;
@@ -96,7 +122,7 @@ public class CharacterArrayMarshaller
             Character[] array = new Character[size];
             for ( int i = 0; i < size; i++ )
             {
-                array[i] = dataInput.readChar();
+                array[i] = compact ? VarIntUtil.readVarChar( dataInput ) : dataInput.readChar();
             }
 
             return (V) array;
@@ -24,6 +24,7 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class CharacterMarshaller
@@ -44,13 +45,20 @@ public class CharacterMarshaller
 
         if ( Character.class == propertyDescriptor.getType() )
         {
-            if ( !writePossibleNull( value, dataOutput ) )
+            if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
             {
                 return;
             }
         }
 
-        dataOutput.writeChar( (Character) value );
+        if ( isCompact( serializationContext ) )
+        {
+            VarIntUtil.writeVarChar( dataOutput, (Character) value );
+        }
+        else
+        {
+            dataOutput.writeChar( (Character) value );
+        }
     }
 
     @Override
@@ -61,12 +69,16 @@ public class CharacterMarshaller
     {
         if ( Character.class == propertyDescriptor.getType() )
         {
-            if ( isNull( dataInput ) )
+            if ( isNull( propertyDescriptor, dataInput ) )
             {
                 return null;
             }
         }
 
+        if ( isCompact( serializationContext ) )
+        {
+            return (V) Character.valueOf( VarIntUtil.readVarChar( dataInput ) );
+        }
         return (V) Character.valueOf( dataInput.readChar() );
     }
 }
@@ -24,6 +24,7 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.PrimitiveArrayUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class DoubleArrayMarshaller
@@ -42,7 +43,7 @@ public class DoubleArrayMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
@@ -50,17 +51,13 @@ public class DoubleArrayMarshaller
         if ( double[].class == propertyDescriptor.getType() )
         {
             double[] array = (double[]) value;
-            dataOutput.writeInt( array.length );
-
-            for ( double arrayValue : array )
-            {
-                dataOutput.writeDouble( arrayValue );
-            }
+            writeLength( array.length, dataOutput, serializationContext );
+            PrimitiveArrayUtil.writeDoubles( dataOutput, array );
         }
         else
         {
             Double[] array = (Double[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
             for ( double arrayValue : array )
             {
@@ -75,19 +72,16 @@ public class DoubleArrayMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
         if ( double[].class == propertyDescriptor.getType() )
         {
             double[] array = new double[size];
-            for ( int i = 0; i < size; i++ )
-            {
-                array[i] = dataInput.readDouble();
-            }
+            PrimitiveArrayUtil.readDoubles( dataInput, array );
 
             return (V) array;
         }
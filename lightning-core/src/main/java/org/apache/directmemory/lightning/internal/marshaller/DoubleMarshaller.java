@@ -44,7 +44,7 @@ public class DoubleMarshaller
 
         if ( Double.class == propertyDescriptor.getType() )
         {
-            if ( !writePossibleNull( value, dataOutput ) )
+            if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
             {
                 return;
             }
@@ -61,7 +61,7 @@ public class DoubleMarshaller
     {
         if ( Double.class == propertyDescriptor.getType() )
         {
-            if ( isNull( dataInput ) )
+            if ( isNull( propertyDescriptor, dataInput ) )
             {
                 return null;
             }
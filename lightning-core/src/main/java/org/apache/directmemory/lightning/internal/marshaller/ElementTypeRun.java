@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.marshaller;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.SerializationContext;
+import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
+import org.apache.directmemory.lightning.internal.CheatPropertyDescriptor;
+import org.apache.directmemory.lightning.internal.util.ClassUtil;
+import org.apache.directmemory.lightning.metadata.ClassDefinition;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+
+/**
+ * Writes and reads elements of collections and maps using a run-length encoding of their types. The
+ * {@link ClassDefinition} is only written if the type differs from the previous element, otherwise a single marker byte
+ * is written. Marshaller and PropertyDescriptor are cached for the current run.
+ */
+final class ElementTypeRun
+{
+
+    // Same value as AbstractMarshaller#writePossibleNull uses for null
+    private static final byte NULL = 1;
+
+    private static final byte NEW_TYPE = 0;
+
+    private static final byte SAME_TYPE = 2;
+
+    private final String propertyName;
+
+    private final Class<?> boundType;
+
+    private final Marshaller boundMarshaller;
+
+    private Class<?> type;
+
+    private Marshaller marshaller;
+
+    private PropertyDescriptor propertyDescriptor;
+
+    /**
+     * Creates a run for untyped elements where the marshaller is resolved by every elements type.
+     */
+    ElementTypeRun( String propertyName )
+    {
+        this( propertyName, null, null );
+    }
+
+    /**
+     * Creates a run for elements of a bound (generic) type which always use the given marshaller.
+     */
+    ElementTypeRun( String propertyName, Class<?> boundType, Marshaller boundMarshaller )
+    {
+        this.propertyName = propertyName;
+        this.boundType = boundType;
+        this.boundMarshaller = boundMarshaller;
+    }
+
+    void marshall( Object element, DataOutput dataOutput, SerializationContext serializationContext )
+        throws IOException
+    {
+        if ( element == null )
+        {
+            dataOutput.writeByte( NULL );
+            return;
+        }
+
+        Class<?> elementType = boundType != null ? boundType : element.getClass();
+        if ( elementType == type )
+        {
+            dataOutput.writeByte( SAME_TYPE );
+        }
+        else
+        {
+            ClassDefinition classDefinition =
+                serializationContext.getClassDefinitionContainer().getClassDefinitionByType( elementType );
+
+            if ( classDefinition == null )
+            {
+                throw new SerializerExecutionException( "No ClassDefinition found for type " + elementType );
+            }
+
+            startRun( elementType, serializationContext );
+            dataOutput.writeByte( NEW_TYPE );
+            ClassUtil.writeClassDefinition( classDefinition, dataOutput, serializationContext );
+        }
+
+        marshaller.marshall( element, propertyDescriptor, dataOutput, serializationContext );
+    }
+
+    Object unmarshall( DataInput dataInput, SerializationContext serializationContext )
+        throws IOException
+    {
+        byte marker = dataInput.readByte();
+        if ( marker == NULL )
+        {
+            return null;
+        }
+
+        if ( marker == NEW_TYPE )
+        {
+            ClassDefinition classDefinition = ClassUtil.readClassDefinition( dataInput, serializationContext );
+            startRun( classDefinition.getType(), serializationContext );
+        }
+        else if ( marker != SAME_TYPE || type == null )
+        {
+            throw new SerializerExecutionException( "Illegal element marker " + marker + " for property "
+                + propertyName );
+        }
+
+        return marshaller.unmarshall( propertyDescriptor, dataInput, serializationContext );
+    }
+
+    private void startRun( Class<?> type, SerializationContext serializationContext )
+    {
+        this.type = type;
+        this.marshaller = boundMarshaller != null ? boundMarshaller : serializationContext.findMarshaller( type );
+        this.propertyDescriptor = new CheatPropertyDescriptor( propertyName, type, marshaller );
+    }
+}
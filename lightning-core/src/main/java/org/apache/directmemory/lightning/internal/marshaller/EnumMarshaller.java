@@ -42,13 +42,14 @@ public class EnumMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
 
-        dataOutput.writeLong( serializationContext.getClassDefinitionContainer().getClassDefinitionByType( propertyDescriptor.getType() ).getId() );
-        dataOutput.writeInt( ( (Enum<?>) value ).ordinal() );
+        writeClassDefinition( serializationContext.getClassDefinitionContainer().getClassDefinitionByType( propertyDescriptor.getType() ),
+                              dataOutput, serializationContext );
+        writeLength( ( (Enum<?>) value ).ordinal(), dataOutput, serializationContext );
     }
 
     @Override
@@ -57,15 +58,14 @@ public class EnumMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        long typeId = dataInput.readLong();
-        Class<?> propertyType = serializationContext.getClassDefinitionContainer().getTypeById( typeId );
+        Class<?> propertyType = readClassDefinition( dataInput, serializationContext ).getType();
 
-        int ordinal = dataInput.readInt();
+        int ordinal = readLength( dataInput, serializationContext );
         Enum<?>[] values = ( (Class<Enum<?>>) propertyType ).getEnumConstants();
         for ( Enum<?> value : values )
         {
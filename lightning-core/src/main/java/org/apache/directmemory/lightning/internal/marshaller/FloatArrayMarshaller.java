@@ -24,6 +24,7 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.PrimitiveArrayUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class FloatArrayMarshaller
@@ -42,7 +43,7 @@ public class FloatArrayMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
@@ -50,17 +51,13 @@ public class FloatArrayMarshaller
         if ( float[].class == propertyDescriptor.getType() )
         {
             float[] array = (float[]) value;
-            dataOutput.writeInt( array.length );
-
-            for ( float arrayValue : array )
-            {
-                dataOutput.writeFloat( arrayValue );
-            }
+            writeLength( array.length, dataOutput, serializationContext );
+            PrimitiveArrayUtil.writeFloats( dataOutput, array );
         }
         else
         {
             Float[] array = (Float[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
             for ( float arrayValue : array )
             {
@@ -75,19 +72,16 @@ public class FloatArrayMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
         if ( float[].class == propertyDescriptor.getType() )
         {
             float[] array = new float[size];
-            for ( int i = 0; i < size; i++ )
-            {
-                array[i] = dataInput.readFloat();
-            }
+            PrimitiveArrayUtil.readFloats( dataInput, array );
 
             return (V) array;
         }
@@ -24,6 +24,8 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.PrimitiveArrayUtil;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class IntegerArrayMarshaller
@@ -42,7 +44,7 @@ public class IntegerArrayMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
@@ -50,21 +52,37 @@ public class IntegerArrayMarshaller
         if ( int[].class == propertyDescriptor.getType() )
         {
             int[] array = (int[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
-            for ( int arrayValue : array )
+            if ( isCompact( serializationContext ) )
+            {
+                for ( int arrayValue : array )
+                {
+                    VarIntUtil.writeVarInt( dataOutput, arrayValue );
+                }
+            }
+            else
             {
-                dataOutput.writeInt( arrayValue );
+                PrimitiveArrayUtil.writeInts( dataOutput, array );
             }
         }
         else
         {
             Integer[] array = (Integer[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
+
+            boolean compact = isCompact( serializationContext );
 
             for ( int arrayValue : array )
             {
-                dataOutput.writeInt( arrayValue );
+                if ( compact )
+                {
+                    VarIntUtil.writeVarInt( dataOutput, arrayValue );
+                }
+                else
+                {
+                    dataOutput.writeInt( arrayValue );
+                }
             }
         }
     }
@@ -75,18 +93,26 @@ public class IntegerArrayMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
+        boolean compact = isCompact( serializationContext );
         if ( int[].class == propertyDescriptor.getType() )
         {
             int[] array = new int[size];
-            for ( int i = 0; i < size; i++ )
+            if ( compact )
+            {
+                for ( int i = 0; i < size; i++ )
+                {
+                    array[i] = VarIntUtil.readVarInt( dataInput );
+                }
+            }
+            else
             {
-                array[i] = dataInput.readInt();
+                PrimitiveArrayUtil.readInts( dataInput, array );
             }
 
             return (V) array;
@@ -96,7 +122,7 @@ public class IntegerArrayMarshaller
             Integer[] array = new Integer[size];
             for ( int i = 0; i < size; i++ )
             {
-                array[i] = dataInput.readInt();
+                array[i] = compact ? VarIntUtil.readVarInt( dataInput ) : dataInput.readInt();
             }
 
             return (V) array;
@@ -24,6 +24,7 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class IntegerMarshaller
@@ -44,13 +45,20 @@ public class IntegerMarshaller
 
         if ( Integer.class == propertyDescriptor.getType() )
         {
-            if ( !writePossibleNull( value, dataOutput ) )
+            if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
             {
                 return;
             }
         }
 
-        dataOutput.writeInt( (Integer) value );
+        if ( isCompact( serializationContext ) )
+        {
+            VarIntUtil.writeVarInt( dataOutput, (Integer) value );
+        }
+        else
+        {
+            dataOutput.writeInt( (Integer) value );
+        }
     }
 
     @Override
@@ -61,12 +69,16 @@ public class IntegerMarshaller
     {
         if ( Integer.class == propertyDescriptor.getType() )
         {
-            if ( isNull( dataInput ) )
+            if ( isNull( propertyDescriptor, dataInput ) )
             {
                 return null;
             }
         }
 
+        if ( isCompact( serializationContext ) )
+        {
+            return (V) Integer.valueOf( VarIntUtil.readVarInt( dataInput ) );
+        }
         return (V) Integer.valueOf( dataInput.readInt() );
     }
 }
@@ -31,9 +31,7 @@ import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.TypeBindableMarshaller;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
 import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
-import org.apache.directmemory.lightning.internal.CheatPropertyDescriptor;
 import org.apache.directmemory.lightning.internal.util.TypeUtil;
-import org.apache.directmemory.lightning.metadata.ClassDefinition;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class ListMarshaller
@@ -67,46 +65,15 @@ public class ListMarshaller
         throws IOException
     {
 
-        if ( writePossibleNull( value, dataOutput ) )
+        if ( writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             List<?> list = (List<?>) value;
-            dataOutput.writeInt( list.size() );
-
-            Marshaller marshaller = null;
-            ClassDefinition classDefinition = null;
-            PropertyDescriptor pd = null;
-            if ( listType != null )
-            {
-                ensureMarshallerInitialized( serializationContext );
-                marshaller = listTypeMarshaller;
-                Class<?> baseType = TypeUtil.getBaseType( listType );
-                classDefinition =
-                    serializationContext.getClassDefinitionContainer().getClassDefinitionByType( baseType );
-                pd = new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "List", baseType, marshaller );
-            }
+            writeLength( list.size(), dataOutput, serializationContext );
 
+            ElementTypeRun elementTypeRun = newElementTypeRun( propertyDescriptor, serializationContext );
             for ( Object entry : list )
             {
-                if ( writePossibleNull( entry, dataOutput ) )
-                {
-                    if ( listType == null )
-                    {
-                        marshaller = serializationContext.findMarshaller( entry.getClass() );
-                        classDefinition =
-                            serializationContext.getClassDefinitionContainer().getClassDefinitionByType( entry.getClass() );
-                        pd =
-                            new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "List",
-                                                         entry.getClass(), marshaller );
-                    }
-
-                    if ( classDefinition == null )
-                    {
-                        throw new SerializerExecutionException( "No ClassDefinition found for type " + entry.getClass() );
-                    }
-
-                    dataOutput.writeLong( classDefinition.getId() );
-                    marshaller.marshall( entry, pd, dataOutput, serializationContext );
-                }
+                elementTypeRun.marshall( entry, dataOutput, serializationContext );
             }
         }
     }
@@ -117,43 +84,19 @@ public class ListMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
         List list = new ArrayList( size );
         if ( size > 0 )
         {
+            ElementTypeRun elementTypeRun = newElementTypeRun( propertyDescriptor, serializationContext );
             for ( int i = 0; i < size; i++ )
             {
-                if ( isNull( dataInput ) )
-                {
-                    list.add( null );
-                }
-                else
-                {
-                    long classId = dataInput.readLong();
-                    ClassDefinition classDefinition =
-                        serializationContext.getClassDefinitionContainer().getClassDefinitionById( classId );
-
-                    Marshaller marshaller;
-                    if ( listType != null )
-                    {
-                        ensureMarshallerInitialized( serializationContext );
-                        marshaller = listTypeMarshaller;
-                    }
-                    else
-                    {
-                        marshaller = serializationContext.findMarshaller( classDefinition.getType() );
-                    }
-
-                    PropertyDescriptor pd =
-                        new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "List",
-                                                     classDefinition.getType(), marshaller );
-                    list.add( marshaller.unmarshall( pd, dataInput, serializationContext ) );
-                }
+                list.add( elementTypeRun.unmarshall( dataInput, serializationContext ) );
             }
         }
 
@@ -178,6 +121,19 @@ public class ListMarshaller
         return new ListMarshaller( listType );
     }
 
+    private ElementTypeRun newElementTypeRun( PropertyDescriptor propertyDescriptor,
+                                              SerializationContext serializationContext )
+    {
+        String propertyName = propertyDescriptor.getPropertyName() + "List";
+        if ( listType == null )
+        {
+            return new ElementTypeRun( propertyName );
+        }
+
+        ensureMarshallerInitialized( serializationContext );
+        return new ElementTypeRun( propertyName, TypeUtil.getBaseType( listType ), listTypeMarshaller );
+    }
+
     private void ensureMarshallerInitialized( SerializationContext serializationContext )
     {
         if ( listTypeMarshaller != null )
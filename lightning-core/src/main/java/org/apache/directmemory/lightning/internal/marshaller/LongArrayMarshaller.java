@@ -24,6 +24,8 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.PrimitiveArrayUtil;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class LongArrayMarshaller
@@ -42,7 +44,7 @@ public class LongArrayMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
@@ -50,21 +52,37 @@ public class LongArrayMarshaller
         if ( long[].class == propertyDescriptor.getType() )
         {
             long[] array = (long[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
-            for ( long arrayValue : array )
+            if ( isCompact( serializationContext ) )
+            {
+                for ( long arrayValue : array )
+                {
+                    VarIntUtil.writeVarLong( dataOutput, arrayValue );
+                }
+            }
+            else
             {
-                dataOutput.writeLong( arrayValue );
+                PrimitiveArrayUtil.writeLongs( dataOutput, array );
             }
         }
         else
         {
             Long[] array = (Long[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
+
+            boolean compact = isCompact( serializationContext );
 
             for ( long arrayValue : array )
             {
-                dataOutput.writeLong( arrayValue );
+                if ( compact )
+                {
+                    VarIntUtil.writeVarLong( dataOutput, arrayValue );
+                }
+                else
+                {
+                    dataOutput.writeLong( arrayValue );
+                }
             }
         }
     }
@@ -75,18 +93,26 @@ public class LongArrayMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
+        boolean compact = isCompact( serializationContext );
         if ( long[].class == propertyDescriptor.getType() )
         {
             long[] array = new long[size];
-            for ( int i = 0; i < size; i++ )
+            if ( compact )
+            {
+                for ( int i = 0; i < size; i++ )
+                {
+                    array[i] = VarIntUtil.readVarLong( dataInput );
+                }
+            }
+            else
             {
-                array[i] = dataInput.readLong();
+                PrimitiveArrayUtil.readLongs( dataInput, array );
             }
 
             return (V) array;
@@ -96,7 +122,7 @@ public class LongArrayMarshaller
             Long[] array = new Long[size];
             for ( int i = 0; i < size; i++ )
             {
-                array[i] = dataInput.readLong();
+                array[i] = compact ? VarIntUtil.readVarLong( dataInput ) : dataInput.readLong();
             }
 
             return (V) array;
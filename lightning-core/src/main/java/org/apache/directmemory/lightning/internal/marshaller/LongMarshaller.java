@@ -24,6 +24,7 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class LongMarshaller
@@ -44,13 +45,20 @@ public class LongMarshaller
 
         if ( Long.class == propertyDescriptor.getType() )
         {
-            if ( !writePossibleNull( value, dataOutput ) )
+            if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
             {
                 return;
             }
         }
 
-        dataOutput.writeLong( (Long) value );
+        if ( isCompact( serializationContext ) )
+        {
+            VarIntUtil.writeVarLong( dataOutput, (Long) value );
+        }
+        else
+        {
+            dataOutput.writeLong( (Long) value );
+        }
     }
 
     @Override
@@ -61,12 +69,16 @@ public class LongMarshaller
     {
         if ( Long.class == propertyDescriptor.getType() )
         {
-            if ( isNull( dataInput ) )
+            if ( isNull( propertyDescriptor, dataInput ) )
             {
                 return null;
             }
         }
 
+        if ( isCompact( serializationContext ) )
+        {
+            return (V) Long.valueOf( VarIntUtil.readVarLong( dataInput ) );
+        }
         return (V) Long.valueOf( dataInput.readLong() );
     }
 }
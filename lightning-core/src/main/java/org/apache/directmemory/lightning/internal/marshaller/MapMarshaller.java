@@ -32,9 +32,7 @@ import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.TypeBindableMarshaller;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
 import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
-import org.apache.directmemory.lightning.internal.CheatPropertyDescriptor;
 import org.apache.directmemory.lightning.internal.util.TypeUtil;
-import org.apache.directmemory.lightning.metadata.ClassDefinition;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class MapMarshaller
@@ -73,73 +71,17 @@ public class MapMarshaller
         throws IOException
     {
 
-        if ( writePossibleNull( value, dataOutput ) )
+        if ( writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             Map<?, ?> map = (Map<?, ?>) value;
-            dataOutput.writeInt( map.size() );
-
-            Marshaller keyMarshaller = null;
-            ClassDefinition keyClassDefinition = null;
-            PropertyDescriptor keyPd = null;
-            Marshaller valueMarshaller = null;
-            ClassDefinition valueClassDefinition = null;
-            PropertyDescriptor valuePd = null;
-            if ( mapKeyType != null )
-            {
-                ensureMarshallersInitialized( serializationContext );
-                keyMarshaller = mapKeyTypeMarshaller;
-                Class<?> baseType = TypeUtil.getBaseType( mapKeyType );
-                keyClassDefinition =
-                    serializationContext.getClassDefinitionContainer().getClassDefinitionByType( baseType );
-                keyPd =
-                    new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Key", baseType, keyMarshaller );
-
-                valueMarshaller = mapValueTypeMarshaller;
-                baseType = TypeUtil.getBaseType( mapValueType );
-                valueClassDefinition =
-                    serializationContext.getClassDefinitionContainer().getClassDefinitionByType( baseType );
-                valuePd =
-                    new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Value", baseType,
-                                                 valueMarshaller );
-            }
+            writeLength( map.size(), dataOutput, serializationContext );
 
+            ElementTypeRun keyTypeRun = newKeyTypeRun( propertyDescriptor, serializationContext );
+            ElementTypeRun valueTypeRun = newValueTypeRun( propertyDescriptor, serializationContext );
             for ( Entry<?, ?> entry : map.entrySet() )
             {
-                if ( mapKeyType == null )
-                {
-                    keyMarshaller =
-                        entry.getKey() != null ? serializationContext.findMarshaller( entry.getKey().getClass() )
-                                        : null;
-                    keyClassDefinition =
-                        serializationContext.getClassDefinitionContainer().getClassDefinitionByType( entry.getKey().getClass() );
-                    keyPd =
-                        new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Key",
-                                                     entry.getKey().getClass(), keyMarshaller );
-
-                    if ( entry.getValue() != null )
-                    {
-                        valueMarshaller =
-                            entry.getValue() != null ? serializationContext.findMarshaller( entry.getValue().getClass() )
-                                            : null;
-                        valueClassDefinition =
-                            serializationContext.getClassDefinitionContainer().getClassDefinitionByType( entry.getValue().getClass() );
-                        valuePd =
-                            new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Value",
-                                                         entry.getValue().getClass(), valueMarshaller );
-                    }
-                }
-
-                if ( writePossibleNull( entry.getKey(), dataOutput ) )
-                {
-                    dataOutput.writeLong( keyClassDefinition.getId() );
-                    keyMarshaller.marshall( entry.getKey(), keyPd, dataOutput, serializationContext );
-                }
-
-                if ( writePossibleNull( entry.getValue(), dataOutput ) )
-                {
-                    dataOutput.writeLong( valueClassDefinition.getId() );
-                    valueMarshaller.marshall( entry.getValue(), valuePd, dataOutput, serializationContext );
-                }
+                keyTypeRun.marshall( entry.getKey(), dataOutput, serializationContext );
+                valueTypeRun.marshall( entry.getValue(), dataOutput, serializationContext );
             }
         }
     }
@@ -150,65 +92,21 @@ public class MapMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
         Map map = new LinkedHashMap( size );
         if ( size > 0 )
         {
+            ElementTypeRun keyTypeRun = newKeyTypeRun( propertyDescriptor, serializationContext );
+            ElementTypeRun valueTypeRun = newValueTypeRun( propertyDescriptor, serializationContext );
             for ( int i = 0; i < size; i++ )
             {
-                Object key = null;
-                if ( !isNull( dataInput ) )
-                {
-                    long keyClassId = dataInput.readLong();
-                    ClassDefinition keyClassDefinition =
-                        serializationContext.getClassDefinitionContainer().getClassDefinitionById( keyClassId );
-
-                    Marshaller keyMarshaller;
-                    if ( mapKeyType != null )
-                    {
-                        ensureMarshallersInitialized( serializationContext );
-                        keyMarshaller = mapKeyTypeMarshaller;
-                    }
-                    else
-                    {
-                        keyMarshaller = serializationContext.findMarshaller( keyClassDefinition.getType() );
-                    }
-
-                    PropertyDescriptor pd =
-                        new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Key",
-                                                     keyClassDefinition.getType(), keyMarshaller );
-                    key = keyMarshaller.unmarshall( pd, dataInput, serializationContext );
-                }
-
-                Object value = null;
-                if ( !isNull( dataInput ) )
-                {
-                    long valueClassId = dataInput.readLong();
-                    ClassDefinition valueClassDefinition =
-                        serializationContext.getClassDefinitionContainer().getClassDefinitionById( valueClassId );
-
-                    Marshaller valueMarshaller;
-                    if ( mapKeyType != null )
-                    {
-                        ensureMarshallersInitialized( serializationContext );
-                        valueMarshaller = mapValueTypeMarshaller;
-                    }
-                    else
-                    {
-                        valueMarshaller = serializationContext.findMarshaller( valueClassDefinition.getType() );
-                    }
-
-                    PropertyDescriptor pd =
-                        new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Value",
-                                                     valueClassDefinition.getType(), valueMarshaller );
-                    value = valueMarshaller.unmarshall( pd, dataInput, serializationContext );
-                }
-
+                Object key = keyTypeRun.unmarshall( dataInput, serializationContext );
+                Object value = valueTypeRun.unmarshall( dataInput, serializationContext );
                 map.put( key, value );
             }
         }
@@ -235,6 +133,32 @@ public class MapMarshaller
         return new MapMarshaller( mapKeyType, mapValueType );
     }
 
+    private ElementTypeRun newKeyTypeRun( PropertyDescriptor propertyDescriptor,
+                                         SerializationContext serializationContext )
+    {
+        String propertyName = propertyDescriptor.getPropertyName() + "Key";
+        if ( mapKeyType == null )
+        {
+            return new ElementTypeRun( propertyName );
+        }
+
+        ensureMarshallersInitialized( serializationContext );
+        return new ElementTypeRun( propertyName, TypeUtil.getBaseType( mapKeyType ), mapKeyTypeMarshaller );
+    }
+
+    private ElementTypeRun newValueTypeRun( PropertyDescriptor propertyDescriptor,
+                                           SerializationContext serializationContext )
+    {
+        String propertyName = propertyDescriptor.getPropertyName() + "Value";
+        if ( mapValueType == null )
+        {
+            return new ElementTypeRun( propertyName );
+        }
+
+        ensureMarshallersInitialized( serializationContext );
+        return new ElementTypeRun( propertyName, TypeUtil.getBaseType( mapValueType ), mapValueTypeMarshaller );
+    }
+
     private void ensureMarshallersInitialized( SerializationContext serializationContext )
     {
         if ( mapKeyTypeMarshaller != null && mapValueTypeMarshaller != null )
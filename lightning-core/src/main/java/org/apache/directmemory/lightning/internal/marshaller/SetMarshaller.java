@@ -31,9 +31,7 @@ import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.TypeBindableMarshaller;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
 import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
-import org.apache.directmemory.lightning.internal.CheatPropertyDescriptor;
 import org.apache.directmemory.lightning.internal.util.TypeUtil;
-import org.apache.directmemory.lightning.metadata.ClassDefinition;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class SetMarshaller
@@ -67,41 +65,15 @@ public class SetMarshaller
         throws IOException
     {
 
-        if ( writePossibleNull( value, dataOutput ) )
+        if ( writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             Set<?> set = (Set<?>) value;
-            dataOutput.writeInt( set.size() );
-
-            Marshaller marshaller = null;
-            ClassDefinition classDefinition = null;
-            PropertyDescriptor pd = null;
-            if ( setType != null )
-            {
-                ensureMarshallerInitialized( serializationContext );
-                marshaller = setTypeMarshaller;
-                Class<?> baseType = TypeUtil.getBaseType( setType );
-                classDefinition =
-                    serializationContext.getClassDefinitionContainer().getClassDefinitionByType( baseType );
-                pd = new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Set", baseType, marshaller );
-            }
+            writeLength( set.size(), dataOutput, serializationContext );
 
+            ElementTypeRun elementTypeRun = newElementTypeRun( propertyDescriptor, serializationContext );
             for ( Object entry : set )
             {
-                if ( writePossibleNull( entry, dataOutput ) )
-                {
-                    if ( setType == null )
-                    {
-                        marshaller = serializationContext.findMarshaller( entry.getClass() );
-                        classDefinition =
-                            serializationContext.getClassDefinitionContainer().getClassDefinitionByType( entry.getClass() );
-                        pd =
-                            new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Set",
-                                                         entry.getClass(), marshaller );
-                    }
-
-                    dataOutput.writeLong( classDefinition.getId() );
-                    marshaller.marshall( entry, pd, dataOutput, serializationContext );
-                }
+                elementTypeRun.marshall( entry, dataOutput, serializationContext );
             }
         }
     }
@@ -112,43 +84,19 @@ public class SetMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
         Set set = new HashSet( size );
         if ( size > 0 )
         {
+            ElementTypeRun elementTypeRun = newElementTypeRun( propertyDescriptor, serializationContext );
             for ( int i = 0; i < size; i++ )
             {
-                if ( isNull( dataInput ) )
-                {
-                    set.add( null );
-                }
-                else
-                {
-                    long classId = dataInput.readLong();
-                    ClassDefinition classDefinition =
-                        serializationContext.getClassDefinitionContainer().getClassDefinitionById( classId );
-
-                    Marshaller marshaller;
-                    if ( setType != null )
-                    {
-                        ensureMarshallerInitialized( serializationContext );
-                        marshaller = setTypeMarshaller;
-                    }
-                    else
-                    {
-                        marshaller = serializationContext.findMarshaller( classDefinition.getType() );
-                    }
-
-                    PropertyDescriptor pd =
-                        new CheatPropertyDescriptor( propertyDescriptor.getPropertyName() + "Set",
-                                                     classDefinition.getType(), marshaller );
-                    set.add( marshaller.unmarshall( pd, dataInput, serializationContext ) );
-                }
+                set.add( elementTypeRun.unmarshall( dataInput, serializationContext ) );
             }
         }
 
@@ -173,6 +121,19 @@ public class SetMarshaller
         return new SetMarshaller( setType );
     }
 
+    private ElementTypeRun newElementTypeRun( PropertyDescriptor propertyDescriptor,
+                                              SerializationContext serializationContext )
+    {
+        String propertyName = propertyDescriptor.getPropertyName() + "Set";
+        if ( setType == null )
+        {
+            return new ElementTypeRun( propertyName );
+        }
+
+        ensureMarshallerInitialized( serializationContext );
+        return new ElementTypeRun( propertyName, TypeUtil.getBaseType( setType ), setTypeMarshaller );
+    }
+
     private void ensureMarshallerInitialized( SerializationContext serializationContext )
     {
         if ( setTypeMarshaller != null )
@@ -24,6 +24,8 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.PrimitiveArrayUtil;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class ShortArrayMarshaller
@@ -42,7 +44,7 @@ public class ShortArrayMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
@@ -50,21 +52,37 @@ public class ShortArrayMarshaller
         if ( short[].class == propertyDescriptor.getType() )
         {
             short[] array = (short[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
 
-            for ( short arrayValue : array )
+            if ( isCompact( serializationContext ) )
+            {
+                for ( short arrayValue : array )
+                {
+                    VarIntUtil.writeVarShort( dataOutput, arrayValue );
+                }
+            }
+            else
             {
-                dataOutput.writeShort( arrayValue );
+                PrimitiveArrayUtil.writeShorts( dataOutput, array );
             }
         }
         else
         {
             Short[] array = (Short[]) value;
-            dataOutput.writeInt( array.length );
+            writeLength( array.length, dataOutput, serializationContext );
+
+            boolean compact = isCompact( serializationContext );
 
             for ( short arrayValue : array )
             {
-                dataOutput.writeShort( arrayValue );
+                if ( compact )
+                {
+                    VarIntUtil.writeVarShort( dataOutput, arrayValue );
+                }
+                else
+                {
+                    dataOutput.writeShort( arrayValue );
+                }
             }
         }
     }
@@ -75,18 +93,26 @@ public class ShortArrayMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        int size = dataInput.readInt();
+        int size = readLength( dataInput, serializationContext );
+        boolean compact = isCompact( serializationContext );
         if ( short[].class == propertyDescriptor.getType() )
         {
             short[] array = new short[size];
-            for ( int i = 0; i < size; i++ )
+            if ( compact )
+            {
+                for ( int i = 0; i < size; i++ )
+                {
+                    array[i] = VarIntUtil.readVarShort( dataInput );
+                }
+            }
+            else
             {
-                array[i] = dataInput.readShort();
+                PrimitiveArrayUtil.readShorts( dataInput, array );
             }
 
             return (V) array;
@@ -96,7 +122,7 @@ public class ShortArrayMarshaller
             Short[] array = new Short[size];
             for ( int i = 0; i < size; i++ )
             {
-                array[i] = dataInput.readShort();
+                array[i] = compact ? VarIntUtil.readVarShort( dataInput ) : dataInput.readShort();
             }
 
             return (V) array;
@@ -24,6 +24,7 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class ShortMarshaller
@@ -44,13 +45,20 @@ public class ShortMarshaller
 
         if ( Short.class == propertyDescriptor.getType() )
         {
-            if ( !writePossibleNull( value, dataOutput ) )
+            if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
             {
                 return;
             }
         }
 
-        dataOutput.writeShort( (Short) value );
+        if ( isCompact( serializationContext ) )
+        {
+            VarIntUtil.writeVarShort( dataOutput, (Short) value );
+        }
+        else
+        {
+            dataOutput.writeShort( (Short) value );
+        }
     }
 
     @Override
@@ -61,12 +69,16 @@ public class ShortMarshaller
     {
         if ( Short.class == propertyDescriptor.getType() )
         {
-            if ( isNull( dataInput ) )
+            if ( isNull( propertyDescriptor, dataInput ) )
             {
                 return null;
             }
         }
 
+        if ( isCompact( serializationContext ) )
+        {
+            return (V) Short.valueOf( VarIntUtil.readVarShort( dataInput ) );
+        }
         return (V) Short.valueOf( dataInput.readShort() );
     }
 }
@@ -24,6 +24,10 @@ import java.io.IOException;
 
 import org.apache.directmemory.lightning.SerializationContext;
 import org.apache.directmemory.lightning.base.AbstractMarshaller;
+import org.apache.directmemory.lightning.internal.InternalSerializationContext;
+import org.apache.directmemory.lightning.internal.io.StringCodec;
+import org.apache.directmemory.lightning.internal.io.StringTable;
+import org.apache.directmemory.lightning.internal.util.VarIntUtil;
 import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
 
 public class StringMarshaller
@@ -42,12 +46,26 @@ public class StringMarshaller
         throws IOException
     {
 
-        if ( !writePossibleNull( value, dataOutput ) )
+        if ( !writePossibleNull( value, propertyDescriptor, dataOutput ) )
         {
             return;
         }
 
-        dataOutput.writeUTF( (String) value );
+        String string = (String) value;
+        StringTable stringTable = getStringTable( serializationContext );
+        if ( stringTable != null )
+        {
+            // Back-references are written as index + 1, zero marks an inline String
+            int index = stringTable.putIfAbsent( string );
+            if ( index != -1 )
+            {
+                VarIntUtil.writeUnsignedVarInt( dataOutput, index + 1 );
+                return;
+            }
+            VarIntUtil.writeUnsignedVarInt( dataOutput, 0 );
+        }
+
+        getStringCodec( serializationContext ).writeString( string, dataOutput );
     }
 
     @Override
@@ -56,11 +74,45 @@ public class StringMarshaller
                              SerializationContext serializationContext )
         throws IOException
     {
-        if ( isNull( dataInput ) )
+        if ( isNull( propertyDescriptor, dataInput ) )
         {
             return null;
         }
 
-        return (V) dataInput.readUTF();
+        StringTable stringTable = getStringTable( serializationContext );
+        if ( stringTable != null )
+        {
+            int reference = VarIntUtil.readUnsignedVarInt( dataInput );
+            if ( reference > 0 )
+            {
+                return (V) stringTable.get( reference - 1 );
+            }
+
+            String value = getStringCodec( serializationContext ).readString( dataInput );
+            stringTable.add( value );
+            return (V) value;
+        }
+
+        return (V) getStringCodec( serializationContext ).readString( dataInput );
+    }
+
+    private StringCodec getStringCodec( SerializationContext serializationContext )
+    {
+        if ( serializationContext instanceof InternalSerializationContext )
+        {
+            return ( (InternalSerializationContext) serializationContext ).getStringCodec();
+        }
+
+        // Foreign contexts do not provide reusable scratch buffers
+        return new StringCodec();
+    }
+
+    private StringTable getStringTable( SerializationContext serializationContext )
+    {
+        if ( serializationContext instanceof InternalSerializationContext )
+        {
+            return ( (InternalSerializationContext) serializationContext ).getStringTable();
+        }
+        return null;
     }
 }
@@ -19,6 +19,8 @@
 package org.apache.directmemory.lightning.internal.util;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,7 +43,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.directmemory.lightning.SerializationContext;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
 import org.apache.directmemory.lightning.metadata.ClassDefinition;
+import org.apache.directmemory.lightning.metadata.ClassDefinitionContainer;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
@@ -74,6 +80,18 @@ public final class ClassUtil
     {
     }
 
+    public static boolean isBuildInClassDefinition( ClassDefinition classDefinition )
+    {
+        for ( ClassDefinition buildInClassDefinition : CLASS_DESCRIPTORS )
+        {
+            if ( buildInClassDefinition.getType() == classDefinition.getType() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static boolean isReferenceCapable( Class<?> type )
     {
         return !type.isPrimitive() && Boolean.class != type && Byte.class != type && Short.class != type
@@ -145,6 +163,37 @@ public final class ClassUtil
         throw new ClassNotFoundException( "Class " + canonicalName + " not found on classpath" );
     }
 
+    public static void writeClassDefinition( ClassDefinition classDefinition, DataOutput dataOutput,
+                                             SerializationContext serializationContext )
+        throws IOException
+    {
+        if ( serializationContext.getSerializationStrategy() == SerializationStrategy.Compact )
+        {
+            // Dense indexes are negotiated by exchanging the ClassDefinitionContainer and fit into one or two bytes
+            int index = serializationContext.getClassDefinitionContainer().getIndexByType( classDefinition.getType() );
+            if ( index == -1 )
+            {
+                throw new SerializerExecutionException( "No ClassDefinition found for type " + classDefinition.getType() );
+            }
+            VarIntUtil.writeUnsignedVarInt( dataOutput, index );
+        }
+        else
+        {
+            dataOutput.writeLong( classDefinition.getId() );
+        }
+    }
+
+    public static ClassDefinition readClassDefinition( DataInput dataInput, SerializationContext serializationContext )
+        throws IOException
+    {
+        ClassDefinitionContainer classDefinitionContainer = serializationContext.getClassDefinitionContainer();
+        if ( serializationContext.getSerializationStrategy() == SerializationStrategy.Compact )
+        {
+            return classDefinitionContainer.getClassDefinitionByIndex( VarIntUtil.readUnsignedVarInt( dataInput ) );
+        }
+        return classDefinitionContainer.getClassDefinitionById( dataInput.readLong() );
+    }
+
     public static long calculateSerialVersionUID( Class<?> clazz )
     {
         Long serialVersionUID = SERIAL_VERSION_UID_CACHE.get( clazz );
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing (linear probing) map from object identity to int values. Keys are compared by reference and hashed
+ * using {@link System#identityHashCode(Object)}, values are stored unboxed. Clearing keeps the allocated tables so an
+ * instance can be reused for multiple calls.
+ */
+public class IdentityIntMap
+{
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private Object[] keys;
+
+    private int[] values;
+
+    private int size;
+
+    private int resizeThreshold;
+
+    public IdentityIntMap()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    public IdentityIntMap( int initialCapacity )
+    {
+        int capacity = DEFAULT_CAPACITY;
+        while ( capacity < initialCapacity )
+        {
+            capacity <<= 1;
+        }
+        allocate( capacity );
+    }
+
+    /**
+     * Returns the value mapped to the given key or -1 if the key is unknown.
+     */
+    public int get( Object key )
+    {
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        int index = hash( key ) & mask;
+        Object candidate;
+        while ( ( candidate = keys[index] ) != null )
+        {
+            if ( candidate == key )
+            {
+                return values[index];
+            }
+            index = ( index + 1 ) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Maps the given key to the given value and returns the previous value or -1 if the key was unknown.
+     */
+    public int put( Object key, int value )
+    {
+        if ( key == null )
+        {
+            throw new NullPointerException( "key must not be null" );
+        }
+
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        int index = hash( key ) & mask;
+        Object candidate;
+        while ( ( candidate = keys[index] ) != null )
+        {
+            if ( candidate == key )
+            {
+                int oldValue = values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            index = ( index + 1 ) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if ( ++size > resizeThreshold )
+        {
+            rehash();
+        }
+        return -1;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        if ( size > 0 )
+        {
+            Arrays.fill( keys, null );
+            size = 0;
+        }
+    }
+
+    private void rehash()
+    {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate( oldKeys.length << 1 );
+
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            Object key = oldKeys[i];
+            if ( key != null )
+            {
+                int index = hash( key ) & mask;
+                while ( keys[index] != null )
+                {
+                    index = ( index + 1 ) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate( int capacity )
+    {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        resizeThreshold = capacity >> 1;
+    }
+
+    private static int hash( Object key )
+    {
+        // identityHashCode values tend to cluster in the lower bits, spread them before masking
+        int hash = System.identityHashCode( key );
+        hash ^= ( hash >>> 16 );
+        hash *= 0x85ebca6b;
+        return hash ^ ( hash >>> 13 );
+    }
+}
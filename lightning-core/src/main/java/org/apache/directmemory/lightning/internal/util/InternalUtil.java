@@ -38,6 +38,8 @@ public final class InternalUtil
 
     public static final boolean UNSAFE_AVAILABLE;
 
+    public static final boolean VARHANDLE_AVAILABLE;
+
     static
     {
         boolean unsafeAvailable = false;
@@ -52,6 +54,19 @@ public final class InternalUtil
         }
 
         UNSAFE_AVAILABLE = unsafeAvailable;
+
+        boolean varHandleAvailable = false;
+        try
+        {
+            Class.forName( "java.lang.invoke.VarHandle" );
+            varHandleAvailable = true;
+        }
+        catch ( Exception e )
+        {
+            // Intentionally left blank
+        }
+
+        VARHANDLE_AVAILABLE = varHandleAvailable;
     }
 
     private InternalUtil()
@@ -94,6 +109,11 @@ public final class InternalUtil
         return UNSAFE_AVAILABLE;
     }
 
+    public static boolean isVarHandleAvailable()
+    {
+        return VARHANDLE_AVAILABLE;
+    }
+
     @SuppressWarnings( "unchecked" )
     public static ObjectInstantiator buildSunUnsafeInstantiator( Class<?> type )
     {
@@ -128,4 +148,22 @@ public final class InternalUtil
             return null;
         }
     }
+
+    @SuppressWarnings( "unchecked" )
+    public static PropertyAccessorFactory buildMethodHandlePropertyAccessor( Logger logger )
+    {
+        try
+        {
+            Class<? extends PropertyAccessorFactory> clazz =
+                (Class<? extends PropertyAccessorFactory>) ClassUtil.loadClass( "org.apache.directmemory.lightning.internal.beans.MethodHandlePropertyAccessorFactory" );
+
+            Constructor<? extends PropertyAccessorFactory> constructor = clazz.getDeclaredConstructor( Logger.class );
+            constructor.setAccessible( true );
+            return constructor.newInstance( logger );
+        }
+        catch ( Exception e )
+        {
+            return null;
+        }
+    }
 }
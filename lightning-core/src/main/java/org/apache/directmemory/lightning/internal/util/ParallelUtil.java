@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent tasks of building a serializer concurrently. Results are always returned in the order of the tasks
+ * so merging them stays deterministic independently of the number of threads. The pool only lives for a single call
+ * since serializers are built rarely.
+ */
+public final class ParallelUtil
+{
+
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger( 0 );
+
+    private ParallelUtil()
+    {
+    }
+
+    public static <T> List<T> invokeAll( List<? extends Callable<T>> tasks, int parallelism )
+    {
+        int threads = Math.min( parallelism, tasks.size() );
+        List<T> results = new ArrayList<T>( tasks.size() );
+
+        // Not worth to start threads, run tasks in the calling thread
+        if ( threads <= 1 )
+        {
+            for ( Callable<T> task : tasks )
+            {
+                results.add( call( task ) );
+            }
+            return results;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool( threads, new BuilderThreadFactory() );
+        try
+        {
+            List<Future<T>> futures = new ArrayList<Future<T>>( tasks.size() );
+            for ( Callable<T> task : tasks )
+            {
+                futures.add( executorService.submit( task ) );
+            }
+
+            for ( Future<T> future : futures )
+            {
+                results.add( getResult( future ) );
+            }
+            return results;
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static <T> T call( Callable<T> task )
+    {
+        try
+        {
+            return task.call();
+        }
+        catch ( RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( Exception e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private static <T> T getResult( Future<T> future )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while building serializer", e );
+        }
+        catch ( ExecutionException e )
+        {
+            // Rethrow the original exception as if the task was executed by the calling thread
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new RuntimeException( cause );
+        }
+    }
+
+    private static class BuilderThreadFactory
+        implements ThreadFactory
+    {
+
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, "lightning-builder-" + THREAD_ID.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.lightning.internal.io.BulkDataInput;
+import org.apache.directmemory.lightning.internal.io.BulkDataOutput;
+import org.apache.directmemory.lightning.internal.io.LittleEndianDataInput;
+import org.apache.directmemory.lightning.internal.io.LittleEndianDataOutput;
+
+/**
+ * Writes and reads whole primitive arrays. {@link BulkDataOutput} and {@link BulkDataInput} implementations copy the
+ * array in one operation, any other {@link DataOutput} or {@link DataInput} (e.g. streams) is fed with chunks encoded
+ * in its byte order instead of one call per element. Both ways produce the same bytes as writing each element on its
+ * own.
+ */
+public final class PrimitiveArrayUtil
+{
+
+    // Below this count a chunk allocation costs more than per element calls
+    private static final int BULK_THRESHOLD = 16;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private PrimitiveArrayUtil()
+    {
+    }
+
+    public static void writeShorts( DataOutput dataOutput, short[] values )
+        throws IOException
+    {
+        if ( dataOutput instanceof BulkDataOutput )
+        {
+            ( (BulkDataOutput) dataOutput ).writeShorts( values, 0, values.length );
+        }
+        else
+        {
+            writeChunked( dataOutput, ElementType.SHORT, values, values.length );
+        }
+    }
+
+    public static void readShorts( DataInput dataInput, short[] values )
+        throws IOException
+    {
+        if ( dataInput instanceof BulkDataInput )
+        {
+            ( (BulkDataInput) dataInput ).readShorts( values, 0, values.length );
+        }
+        else
+        {
+            readChunked( dataInput, ElementType.SHORT, values, values.length );
+        }
+    }
+
+    public static void writeChars( DataOutput dataOutput, char[] values )
+        throws IOException
+    {
+        if ( dataOutput instanceof BulkDataOutput )
+        {
+            ( (BulkDataOutput) dataOutput ).writeChars( values, 0, values.length );
+        }
+        else
+        {
+            writeChunked( dataOutput, ElementType.CHAR, values, values.length );
+        }
+    }
+
+    public static void readChars( DataInput dataInput, char[] values )
+        throws IOException
+    {
+        if ( dataInput instanceof BulkDataInput )
+        {
+            ( (BulkDataInput) dataInput ).readChars( values, 0, values.length );
+        }
+        else
+        {
+            readChunked( dataInput, ElementType.CHAR, values, values.length );
+        }
+    }
+
+    public static void writeInts( DataOutput dataOutput, int[] values )
+        throws IOException
+    {
+        if ( dataOutput instanceof BulkDataOutput )
+        {
+            ( (BulkDataOutput) dataOutput ).writeInts( values, 0, values.length );
+        }
+        else
+        {
+            writeChunked( dataOutput, ElementType.INT, values, values.length );
+        }
+    }
+
+    public static void readInts( DataInput dataInput, int[] values )
+        throws IOException
+    {
+        if ( dataInput instanceof BulkDataInput )
+        {
+            ( (BulkDataInput) dataInput ).readInts( values, 0, values.length );
+        }
+        else
+        {
+            readChunked( dataInput, ElementType.INT, values, values.length );
+        }
+    }
+
+    public static void writeLongs( DataOutput dataOutput, long[] values )
+        throws IOException
+    {
+        if ( dataOutput instanceof BulkDataOutput )
+        {
+            ( (BulkDataOutput) dataOutput ).writeLongs( values, 0, values.length );
+        }
+        else
+        {
+            writeChunked( dataOutput, ElementType.LONG, values, values.length );
+        }
+    }
+
+    public static void readLongs( DataInput dataInput, long[] values )
+        throws IOException
+    {
+        if ( dataInput instanceof BulkDataInput )
+        {
+            ( (BulkDataInput) dataInput ).readLongs( values, 0, values.length );
+        }
+        else
+        {
+            readChunked( dataInput, ElementType.LONG, values, values.length );
+        }
+    }
+
+    public static void writeFloats( DataOutput dataOutput, float[] values )
+        throws IOException
+    {
+        if ( dataOutput instanceof BulkDataOutput )
+        {
+            ( (BulkDataOutput) dataOutput ).writeFloats( values, 0, values.length );
+        }
+        else
+        {
+            writeChunked( dataOutput, ElementType.FLOAT, values, values.length );
+        }
+    }
+
+    public static void readFloats( DataInput dataInput, float[] values )
+        throws IOException
+    {
+        if ( dataInput instanceof BulkDataInput )
+        {
+            ( (BulkDataInput) dataInput ).readFloats( values, 0, values.length );
+        }
+        else
+        {
+            readChunked( dataInput, ElementType.FLOAT, values, values.length );
+        }
+    }
+
+    public static void writeDoubles( DataOutput dataOutput, double[] values )
+        throws IOException
+    {
+        if ( dataOutput instanceof BulkDataOutput )
+        {
+            ( (BulkDataOutput) dataOutput ).writeDoubles( values, 0, values.length );
+        }
+        else
+        {
+            writeChunked( dataOutput, ElementType.DOUBLE, values, values.length );
+        }
+    }
+
+    public static void readDoubles( DataInput dataInput, double[] values )
+        throws IOException
+    {
+        if ( dataInput instanceof BulkDataInput )
+        {
+            ( (BulkDataInput) dataInput ).readDoubles( values, 0, values.length );
+        }
+        else
+        {
+            readChunked( dataInput, ElementType.DOUBLE, values, values.length );
+        }
+    }
+
+    private static void writeChunked( DataOutput dataOutput, ElementType elementType, Object values, int length )
+        throws IOException
+    {
+        if ( length < BULK_THRESHOLD )
+        {
+            for ( int i = 0; i < length; i++ )
+            {
+                elementType.write( dataOutput, values, i );
+            }
+            return;
+        }
+
+        // Raw chunk bytes pass the little endian adapter unchanged, so they are encoded in its byte order already
+        boolean littleEndian = dataOutput instanceof LittleEndianDataOutput;
+        ByteBuffer chunk = allocateChunk( elementType, length, littleEndian );
+        int chunkLength = chunk.capacity() / elementType.size;
+        for ( int offset = 0; offset < length; offset += chunkLength )
+        {
+            int count = Math.min( chunkLength, length - offset );
+            chunk.clear();
+            elementType.put( chunk, values, offset, count );
+            dataOutput.write( chunk.array(), 0, count * elementType.size );
+        }
+    }
+
+    private static void readChunked( DataInput dataInput, ElementType elementType, Object values, int length )
+        throws IOException
+    {
+        if ( length < BULK_THRESHOLD )
+        {
+            for ( int i = 0; i < length; i++ )
+            {
+                elementType.read( dataInput, values, i );
+            }
+            return;
+        }
+
+        boolean littleEndian = dataInput instanceof LittleEndianDataInput;
+        ByteBuffer chunk = allocateChunk( elementType, length, littleEndian );
+        int chunkLength = chunk.capacity() / elementType.size;
+        for ( int offset = 0; offset < length; offset += chunkLength )
+        {
+            int count = Math.min( chunkLength, length - offset );
+            dataInput.readFully( chunk.array(), 0, count * elementType.size );
+            chunk.clear();
+            elementType.get( chunk, values, offset, count );
+        }
+    }
+
+    private static ByteBuffer allocateChunk( ElementType elementType, int length, boolean littleEndian )
+    {
+        // Heap buffers default to big endian as used by DataOutputStream and DataInputStream. The byte length is
+        // computed as long, it overflows int for arrays of 2^28 and more longs or doubles
+        ByteBuffer chunk = ByteBuffer.allocate( (int) Math.min( (long) length * elementType.size, CHUNK_SIZE ) );
+        return littleEndian ? chunk.order( ByteOrder.LITTLE_ENDIAN ) : chunk;
+    }
+
+    /**
+     * Element type specific access to an array passed as Object, this keeps a single chunking implementation for
+     * all primitive array types.
+     */
+    private enum ElementType
+    {
+        SHORT( 2 )
+        {
+            @Override
+            void write( DataOutput dataOutput, Object values, int index )
+                throws IOException
+            {
+                dataOutput.writeShort( ( (short[]) values )[index] );
+            }
+
+            @Override
+            void read( DataInput dataInput, Object values, int index )
+                throws IOException
+            {
+                ( (short[]) values )[index] = dataInput.readShort();
+            }
+
+            @Override
+            void put( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asShortBuffer().put( (short[]) values, offset, length );
+            }
+
+            @Override
+            void get( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asShortBuffer().get( (short[]) values, offset, length );
+            }
+        },
+
+        CHAR( 2 )
+        {
+            @Override
+            void write( DataOutput dataOutput, Object values, int index )
+                throws IOException
+            {
+                dataOutput.writeChar( ( (char[]) values )[index] );
+            }
+
+            @Override
+            void read( DataInput dataInput, Object values, int index )
+                throws IOException
+            {
+                ( (char[]) values )[index] = dataInput.readChar();
+            }
+
+            @Override
+            void put( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asCharBuffer().put( (char[]) values, offset, length );
+            }
+
+            @Override
+            void get( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asCharBuffer().get( (char[]) values, offset, length );
+            }
+        },
+
+        INT( 4 )
+        {
+            @Override
+            void write( DataOutput dataOutput, Object values, int index )
+                throws IOException
+            {
+                dataOutput.writeInt( ( (int[]) values )[index] );
+            }
+
+            @Override
+            void read( DataInput dataInput, Object values, int index )
+                throws IOException
+            {
+                ( (int[]) values )[index] = dataInput.readInt();
+            }
+
+            @Override
+            void put( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asIntBuffer().put( (int[]) values, offset, length );
+            }
+
+            @Override
+            void get( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asIntBuffer().get( (int[]) values, offset, length );
+            }
+        },
+
+        LONG( 8 )
+        {
+            @Override
+            void write( DataOutput dataOutput, Object values, int index )
+                throws IOException
+            {
+                dataOutput.writeLong( ( (long[]) values )[index] );
+            }
+
+            @Override
+            void read( DataInput dataInput, Object values, int index )
+                throws IOException
+            {
+                ( (long[]) values )[index] = dataInput.readLong();
+            }
+
+            @Override
+            void put( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asLongBuffer().put( (long[]) values, offset, length );
+            }
+
+            @Override
+            void get( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asLongBuffer().get( (long[]) values, offset, length );
+            }
+        },
+
+        FLOAT( 4 )
+        {
+            @Override
+            void write( DataOutput dataOutput, Object values, int index )
+                throws IOException
+            {
+                dataOutput.writeFloat( ( (float[]) values )[index] );
+            }
+
+            @Override
+            void read( DataInput dataInput, Object values, int index )
+                throws IOException
+            {
+                ( (float[]) values )[index] = dataInput.readFloat();
+            }
+
+            @Override
+            void put( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asFloatBuffer().put( (float[]) values, offset, length );
+            }
+
+            @Override
+            void get( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asFloatBuffer().get( (float[]) values, offset, length );
+            }
+        },
+
+        DOUBLE( 8 )
+        {
+            @Override
+            void write( DataOutput dataOutput, Object values, int index )
+                throws IOException
+            {
+                dataOutput.writeDouble( ( (double[]) values )[index] );
+            }
+
+            @Override
+            void read( DataInput dataInput, Object values, int index )
+                throws IOException
+            {
+                ( (double[]) values )[index] = dataInput.readDouble();
+            }
+
+            @Override
+            void put( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asDoubleBuffer().put( (double[]) values, offset, length );
+            }
+
+            @Override
+            void get( ByteBuffer chunk, Object values, int offset, int length )
+            {
+                chunk.asDoubleBuffer().get( (double[]) values, offset, length );
+            }
+        };
+
+        private final int size;
+
+        private ElementType( int size )
+        {
+            this.size = size;
+        }
+
+        abstract void write( DataOutput dataOutput, Object values, int index )
+            throws IOException;
+
+        abstract void read( DataInput dataInput, Object values, int index )
+            throws IOException;
+
+        abstract void put( ByteBuffer chunk, Object values, int offset, int length );
+
+        abstract void get( ByteBuffer chunk, Object values, int offset, int length );
+    }
+}
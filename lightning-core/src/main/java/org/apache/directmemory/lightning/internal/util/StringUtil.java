@@ -18,6 +18,8 @@
  */
 package org.apache.directmemory.lightning.internal.util;
 
+import java.io.UTFDataFormatException;
+
 public final class StringUtil
 {
 
@@ -92,4 +94,127 @@ public final class StringUtil
         return -1;
     }
 
+    /**
+     * Calculates the length of the given string in modified UTF-8 encoding as used by
+     * {@link java.io.DataOutput#writeUTF(String)}.
+     */
+    public static int getUTFLength( String value )
+    {
+        int length = value.length();
+        int utflen = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+            if ( c >= 0x0001 && c <= 0x007F )
+            {
+                utflen++;
+            }
+            else if ( c > 0x07FF )
+            {
+                utflen += 3;
+            }
+            else
+            {
+                utflen += 2;
+            }
+        }
+        return utflen;
+    }
+
+    /**
+     * Encodes the given string in modified UTF-8 into the target array starting at offset. The target must have at
+     * least {@link #getUTFLength(String)} bytes remaining.
+     * 
+     * @return the new offset after the last written byte
+     */
+    public static int writeUTF( String value, byte[] target, int offset )
+    {
+        int length = value.length();
+        int position = offset;
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+            if ( c >= 0x0001 && c <= 0x007F )
+            {
+                target[position++] = (byte) c;
+            }
+            else if ( c > 0x07FF )
+            {
+                target[position++] = (byte) ( 0xE0 | ( ( c >> 12 ) & 0x0F ) );
+                target[position++] = (byte) ( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+                target[position++] = (byte) ( 0x80 | ( c & 0x3F ) );
+            }
+            else
+            {
+                target[position++] = (byte) ( 0xC0 | ( ( c >> 6 ) & 0x1F ) );
+                target[position++] = (byte) ( 0x80 | ( c & 0x3F ) );
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Decodes utflen bytes of modified UTF-8 from the source array starting at offset.
+     */
+    public static String readUTF( byte[] source, int offset, int utflen )
+        throws UTFDataFormatException
+    {
+        char[] chars = new char[utflen];
+        int charCount = 0;
+        int position = offset;
+        int limit = offset + utflen;
+        while ( position < limit )
+        {
+            int c = source[position] & 0xFF;
+            switch ( c >> 4 )
+            {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                case 4:
+                case 5:
+                case 6:
+                case 7:
+                    position++;
+                    chars[charCount++] = (char) c;
+                    break;
+
+                case 12:
+                case 13:
+                    if ( position + 2 > limit )
+                    {
+                        throw new UTFDataFormatException( "Malformed input: partial character at end" );
+                    }
+                    int c2 = source[position + 1];
+                    if ( ( c2 & 0xC0 ) != 0x80 )
+                    {
+                        throw new UTFDataFormatException( "Malformed input around byte " + position );
+                    }
+                    chars[charCount++] = (char) ( ( ( c & 0x1F ) << 6 ) | ( c2 & 0x3F ) );
+                    position += 2;
+                    break;
+
+                case 14:
+                    if ( position + 3 > limit )
+                    {
+                        throw new UTFDataFormatException( "Malformed input: partial character at end" );
+                    }
+                    c2 = source[position + 1];
+                    int c3 = source[position + 2];
+                    if ( ( c2 & 0xC0 ) != 0x80 || ( c3 & 0xC0 ) != 0x80 )
+                    {
+                        throw new UTFDataFormatException( "Malformed input around byte " + position );
+                    }
+                    chars[charCount++] = (char) ( ( ( c & 0x0F ) << 12 ) | ( ( c2 & 0x3F ) << 6 ) | ( c3 & 0x3F ) );
+                    position += 3;
+                    break;
+
+                default:
+                    throw new UTFDataFormatException( "Malformed input around byte " + position );
+            }
+        }
+        return new String( chars, 0, charCount );
+    }
+
 }
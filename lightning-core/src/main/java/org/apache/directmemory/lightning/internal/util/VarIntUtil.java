@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * LEB128 style variable length encoding of integral values. Signed values are zigzag encoded before writing so that
+ * small negative numbers also take only a few bytes.
+ */
+public final class VarIntUtil
+{
+
+    private VarIntUtil()
+    {
+    }
+
+    public static void writeUnsignedVarInt( DataOutput dataOutput, int value )
+        throws IOException
+    {
+        while ( ( value & ~0x7F ) != 0 )
+        {
+            dataOutput.writeByte( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        dataOutput.writeByte( value );
+    }
+
+    public static int readUnsignedVarInt( DataInput dataInput )
+        throws IOException
+    {
+        int value = 0;
+        for ( int shift = 0; shift < 32; shift += 7 )
+        {
+            byte b = dataInput.readByte();
+            value |= ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+            {
+                return value;
+            }
+        }
+        throw new IOException( "Malformed varint, more than 5 bytes" );
+    }
+
+    public static void writeVarInt( DataOutput dataOutput, int value )
+        throws IOException
+    {
+        writeUnsignedVarInt( dataOutput, ( value << 1 ) ^ ( value >> 31 ) );
+    }
+
+    public static int readVarInt( DataInput dataInput )
+        throws IOException
+    {
+        int value = readUnsignedVarInt( dataInput );
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    public static void writeUnsignedVarLong( DataOutput dataOutput, long value )
+        throws IOException
+    {
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            dataOutput.writeByte( ( (int) value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        dataOutput.writeByte( (int) value );
+    }
+
+    public static long readUnsignedVarLong( DataInput dataInput )
+        throws IOException
+    {
+        long value = 0;
+        for ( int shift = 0; shift < 64; shift += 7 )
+        {
+            byte b = dataInput.readByte();
+            value |= (long) ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+            {
+                return value;
+            }
+        }
+        throw new IOException( "Malformed varlong, more than 10 bytes" );
+    }
+
+    public static void writeVarLong( DataOutput dataOutput, long value )
+        throws IOException
+    {
+        writeUnsignedVarLong( dataOutput, ( value << 1 ) ^ ( value >> 63 ) );
+    }
+
+    public static long readVarLong( DataInput dataInput )
+        throws IOException
+    {
+        long value = readUnsignedVarLong( dataInput );
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    public static void writeVarShort( DataOutput dataOutput, short value )
+        throws IOException
+    {
+        writeVarInt( dataOutput, value );
+    }
+
+    public static short readVarShort( DataInput dataInput )
+        throws IOException
+    {
+        return (short) readVarInt( dataInput );
+    }
+
+    public static void writeVarChar( DataOutput dataOutput, char value )
+        throws IOException
+    {
+        writeUnsignedVarInt( dataOutput, value );
+    }
+
+    public static char readVarChar( DataInput dataInput )
+        throws IOException
+    {
+        return (char) readUnsignedVarInt( dataInput );
+    }
+}
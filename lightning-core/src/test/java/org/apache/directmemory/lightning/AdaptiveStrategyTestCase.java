@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class AdaptiveStrategyTestCase
+{
+
+    @Test
+    public void testSharedGraphsStayTracked()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer();
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            Parent result = roundTrip( serializer, buildParent( true ) );
+            assertEquals( 42, result.first.value );
+            assertSame( result.first, result.second );
+        }
+    }
+
+    @Test
+    public void testTreesSwitchToValueOnly()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer();
+
+        // Tracked until enough calls without shared references were seen
+        byte[] tracked = serializer.serialize( buildParent( false ) );
+        for ( int i = 1; i < 16; i++ )
+        {
+            roundTrip( serializer, buildParent( false ) );
+        }
+
+        // Every second call is sampled (and therefore tracked) using a sampling rate of 0.5
+        assertEquals( tracked.length, serializer.serialize( buildParent( false ) ).length );
+        byte[] valueOnly = serializer.serialize( buildParent( false ) );
+        assertTrue( "tracked: " + tracked.length + ", value-only: " + valueOnly.length,
+                    valueOnly.length < tracked.length );
+
+        Parent result = serializer.deserialize( valueOnly, 0, valueOnly.length );
+        assertEquals( 42, result.first.value );
+        assertEquals( 42, result.second.value );
+    }
+
+    @Test
+    public void testSampledSharingSwitchesBack()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer();
+        for ( int i = 0; i < 16; i++ )
+        {
+            roundTrip( serializer, buildParent( false ) );
+        }
+
+        // Sampled call, then a value-only call which loses identity
+        roundTrip( serializer, buildParent( false ) );
+        Parent result = roundTrip( serializer, buildParent( true ) );
+        assertNotSame( result.first, result.second );
+
+        // The next sample sees sharing and switches back to tracking for all calls
+        roundTrip( serializer, buildParent( true ) );
+        for ( int i = 0; i < 10; i++ )
+        {
+            result = roundTrip( serializer, buildParent( true ) );
+            assertSame( result.first, result.second );
+        }
+    }
+
+    @Test
+    public void testCycleAfterTreesSwitchesBack()
+        throws Exception
+    {
+        // Array and buffer outputs are rewound, streams are buffered
+        for ( int output = 0; output < 3; output++ )
+        {
+            Serializer serializer = buildNodeSerializer();
+            for ( int i = 0; i < 21; i++ )
+            {
+                Node result = roundTrip( serializer, buildTree() );
+                assertEquals( 3, result.first.value );
+            }
+
+            // The next call is value-only, it runs into the cycle and is redone with tracking
+            Node cycle = new Node();
+            cycle.value = 7;
+            cycle.first = cycle;
+
+            Node result = roundTrip( serializer, cycle, output );
+            assertSame( result, result.first );
+            assertEquals( 7, result.value );
+
+            // The root class is tracked again, so sharing is kept as well
+            for ( int i = 0; i < 10; i++ )
+            {
+                Node shared = new Node();
+                Node value = new Node();
+                value.first = shared;
+                value.second = shared;
+
+                result = roundTrip( serializer, value, output );
+                assertSame( result.first, result.second );
+            }
+        }
+    }
+
+    @Test
+    public void testValueOnlyCallsWithoutCycleStayValueOnly()
+        throws Exception
+    {
+        Serializer serializer = buildNodeSerializer();
+        for ( int i = 0; i < 16; i++ )
+        {
+            roundTrip( serializer, buildTree() );
+        }
+
+        // Sampled call followed by a value-only call, a deep chain is no cycle
+        byte[] tracked = serializer.serialize( buildTree() );
+        byte[] valueOnly = serializer.serialize( buildTree() );
+        assertTrue( "tracked: " + tracked.length + ", value-only: " + valueOnly.length,
+                    valueOnly.length < tracked.length );
+
+        Node chain = new Node();
+        Node last = chain;
+        for ( int i = 0; i < 100; i++ )
+        {
+            last.first = new Node();
+            last.first.value = i;
+            last = last.first;
+        }
+
+        roundTrip( serializer, chain );
+        Node result = roundTrip( serializer, chain );
+        for ( int i = 0; i < 100; i++ )
+        {
+            result = result.first;
+            assertEquals( i, result.value );
+        }
+
+        // Still value-only for every second call
+        roundTrip( serializer, buildTree() );
+        valueOnly = serializer.serialize( buildTree() );
+        assertTrue( "tracked: " + tracked.length + ", value-only: " + valueOnly.length,
+                    valueOnly.length < tracked.length );
+    }
+
+    @Test
+    public void testLittleEndianStreamsInValueOnlyMode()
+        throws Exception
+    {
+        Serializer serializer = buildNodeSerializer( ByteOrder.LITTLE_ENDIAN );
+        for ( int i = 0; i < 40; i++ )
+        {
+            Node value = buildTree();
+            value.value = 0x01020304 + i;
+
+            Node result = roundTrip( serializer, value, 1 );
+            assertEquals( 0x01020304 + i, result.value );
+            assertEquals( 3, result.first.value );
+            assertEquals( 4, result.second.value );
+        }
+    }
+
+    private <V> V roundTrip( Serializer serializer, V value )
+    {
+        byte[] bytes = serializer.serialize( value );
+        return serializer.deserialize( bytes, 0, bytes.length );
+    }
+
+    private Node roundTrip( Serializer serializer, Node value, int output )
+    {
+        if ( output == 1 )
+        {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            serializer.serialize( value, outputStream );
+            return serializer.deserialize( new ByteArrayInputStream( outputStream.toByteArray() ) );
+        }
+        if ( output == 2 )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( 256 );
+            serializer.serialize( value, buffer );
+            buffer.flip();
+            return serializer.deserialize( buffer );
+        }
+        return roundTrip( serializer, value );
+    }
+
+    private Node buildTree()
+    {
+        Node node = new Node();
+        node.first = new Node();
+        node.first.value = 3;
+        node.second = new Node();
+        node.second.value = 4;
+        return node;
+    }
+
+    private Parent buildParent( boolean shared )
+    {
+        Child child = new Child();
+        child.value = 42;
+
+        Parent parent = new Parent();
+        parent.first = child;
+        if ( shared )
+        {
+            parent.second = child;
+        }
+        else
+        {
+            parent.second = new Child();
+            parent.second.value = 42;
+        }
+        return parent;
+    }
+
+    private Serializer buildSerializer()
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( SerializationStrategy.Adaptive ).adaptiveSamplingRate( 0.5d ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Parent.class ).attributes();
+                serialize( Child.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private Serializer buildNodeSerializer()
+    {
+        return buildNodeSerializer( ByteOrder.BIG_ENDIAN );
+    }
+
+    private Serializer buildNodeSerializer( ByteOrder byteOrder )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( SerializationStrategy.Adaptive ).adaptiveSamplingRate( 0.5d ).byteOrder( byteOrder ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Node.class ).attributes();
+            }
+        } ).build();
+    }
+
+    public static class Node
+    {
+
+        @Attribute
+        private int value;
+
+        @Attribute
+        private Node first;
+
+        @Attribute
+        private Node second;
+    }
+
+    public static class Parent
+    {
+
+        @Attribute
+        private Child first;
+
+        @Attribute
+        private Child second;
+    }
+
+    public static class Child
+    {
+
+        @Attribute
+        private int value;
+    }
+}
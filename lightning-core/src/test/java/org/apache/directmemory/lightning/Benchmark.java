@@ -184,6 +184,115 @@ public class Benchmark
         }
     }
 
+    @Test
+    public void benchmarkLightningByteArraySerialization()
+        throws Exception
+    {
+        Serializer serializer =
+            Lightning.newBuilder().serializerDefinitions( new BenchmarkSerializerDefinition() ).build();
+
+        byte[] target = new byte[1024];
+        long size = 0;
+        for ( int i = 0; i < WARMUP_ROUNDS; i++ )
+        {
+            Foo foo = buildRandomFoo();
+            size = serializer.serialize( foo, target, 0 );
+            assertNotNull( target );
+        }
+
+        try
+        {
+            Thread.sleep( 5000 );
+        }
+        catch ( Exception e )
+        {
+        }
+
+        long time = 0;
+        for ( int i = 0; i < BENCHMARK_ROUNDS; i++ )
+        {
+            Foo foo = buildRandomFoo();
+
+            long startTime = System.nanoTime();
+            serializer.serialize( foo, target, 0 );
+
+            time += System.nanoTime() - startTime;
+            assertNotNull( target );
+        }
+
+        double avg = time / (double) BENCHMARK_ROUNDS;
+        System.out.println( "Lightning byte[] Serialization Avg: " + String.format( "%5.2f", avg ) + " ns, runs: "
+            + BENCHMARK_ROUNDS + ", size: " + size + " bytes" );
+
+        System.runFinalization();
+        System.gc();
+
+        try
+        {
+            Thread.sleep( 5000 );
+        }
+        catch ( Exception e )
+        {
+        }
+    }
+
+    @Test
+    public void benchmarkLightningByteArrayDeserialization()
+        throws Exception
+    {
+        Serializer serializer =
+            Lightning.newBuilder().serializerDefinitions( new BenchmarkSerializerDefinition() ).build();
+
+        byte[] target = new byte[1024];
+        long size = 0;
+        for ( int i = 0; i < WARMUP_ROUNDS; i++ )
+        {
+            Foo foo = buildRandomFoo();
+            int length = serializer.serialize( foo, target, 0 );
+            size = length;
+
+            Object value = serializer.deserialize( target, 0, length );
+            assertNotNull( value );
+            assertEquals( foo, value );
+        }
+
+        try
+        {
+            Thread.sleep( 5000 );
+        }
+        catch ( Exception e )
+        {
+        }
+
+        long time = 0;
+        for ( int i = 0; i < BENCHMARK_ROUNDS; i++ )
+        {
+            Foo foo = buildRandomFoo();
+            int length = serializer.serialize( foo, target, 0 );
+
+            long startTime = System.nanoTime();
+            Object value = serializer.deserialize( target, 0, length );
+            time += System.nanoTime() - startTime;
+            assertNotNull( value );
+            assertEquals( foo, value );
+        }
+
+        double avg = time / (double) BENCHMARK_ROUNDS;
+        System.out.println( "Lightning byte[] Deserialization Avg: " + String.format( "%5.2f", avg ) + " ns, runs: "
+            + BENCHMARK_ROUNDS + ", size: " + size + " bytes" );
+
+        System.runFinalization();
+        System.gc();
+
+        try
+        {
+            Thread.sleep( 5000 );
+        }
+        catch ( Exception e )
+        {
+        }
+    }
+
     @Test
     public void benchmarkJavaSerialization()
         throws Exception
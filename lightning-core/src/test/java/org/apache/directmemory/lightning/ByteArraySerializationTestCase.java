@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class ByteArraySerializationTestCase
+{
+
+    @Test
+    public void testSerializeIntoArray()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer();
+        Foo value = buildFoo();
+
+        byte[] target = new byte[1024];
+        int length = serializer.serialize( value, target, 10 );
+
+        Foo result = serializer.deserialize( target, 10, length );
+        assertEquals( value, result );
+    }
+
+    @Test
+    public void testSerializeToGrowableArray()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer();
+        Foo value = buildFoo();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        serializer.serialize( value, baos );
+
+        byte[] bytes = serializer.serialize( value );
+
+        // Cursor and stream path must produce the same wire format
+        assertArrayEquals( baos.toByteArray(), bytes );
+
+        Foo result = serializer.deserialize( bytes, 0, bytes.length );
+        assertEquals( value, result );
+    }
+
+    @Test( expected = SerializerExecutionException.class )
+    public void testTargetArrayTooSmall()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer();
+        serializer.serialize( buildFoo(), new byte[8], 0 );
+    }
+
+    @Test( expected = SerializerExecutionException.class )
+    public void testSourceSliceTooShort()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer();
+        byte[] bytes = serializer.serialize( buildFoo() );
+        serializer.deserialize( bytes, 0, bytes.length - 1 );
+    }
+
+    private Serializer buildSerializer()
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Foo.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private Foo buildFoo()
+    {
+        Foo foo = new Foo();
+        foo.name = "Lightning ä€";
+        foo.id = 4711;
+        foo.timestamp = Long.MIN_VALUE + 1;
+        foo.ratio = Math.PI;
+        foo.value = Integer.valueOf( -12 );
+        return foo;
+    }
+
+    public static class Foo
+    {
+
+        @Attribute
+        private String name;
+
+        @Attribute
+        private int id;
+
+        @Attribute
+        private long timestamp;
+
+        @Attribute
+        private double ratio;
+
+        @Attribute
+        private Integer value;
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public void setName( String name )
+        {
+            this.name = name;
+        }
+
+        public int getId()
+        {
+            return id;
+        }
+
+        public void setId( int id )
+        {
+            this.id = id;
+        }
+
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        public void setTimestamp( long timestamp )
+        {
+            this.timestamp = timestamp;
+        }
+
+        public double getRatio()
+        {
+            return ratio;
+        }
+
+        public void setRatio( double ratio )
+        {
+            this.ratio = ratio;
+        }
+
+        public Integer getValue()
+        {
+            return value;
+        }
+
+        public void setValue( Integer value )
+        {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return id;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( !( obj instanceof Foo ) )
+                return false;
+            Foo other = (Foo) obj;
+            return name.equals( other.name ) && id == other.id && timestamp == other.timestamp
+                && ratio == other.ratio && value.equals( other.value );
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Foo [name=" + name + ", id=" + id + ", timestamp=" + timestamp + ", ratio=" + ratio + ", value="
+                + value + "]";
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.lightning.ByteArraySerializationTestCase.Foo;
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.junit.Test;
+
+public class ByteBufferSerializationTestCase
+{
+
+    @Test
+    public void testHeapBuffer()
+        throws Exception
+    {
+        testBuffer( ByteBuffer.allocate( 1024 ), ByteOrder.BIG_ENDIAN );
+    }
+
+    @Test
+    public void testDirectBuffer()
+        throws Exception
+    {
+        testBuffer( ByteBuffer.allocateDirect( 1024 ), ByteOrder.BIG_ENDIAN );
+    }
+
+    @Test
+    public void testHeapBufferLittleEndian()
+        throws Exception
+    {
+        testBuffer( ByteBuffer.allocate( 1024 ), ByteOrder.LITTLE_ENDIAN );
+    }
+
+    @Test
+    public void testDirectBufferLittleEndian()
+        throws Exception
+    {
+        testBuffer( ByteBuffer.allocateDirect( 1024 ), ByteOrder.LITTLE_ENDIAN );
+    }
+
+    @Test
+    public void testBigEndianBufferMatchesStream()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer( ByteOrder.BIG_ENDIAN );
+        Foo value = buildFoo();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        serializer.serialize( value, baos );
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect( 1024 );
+        serializer.serialize( value, buffer );
+        buffer.flip();
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get( bytes );
+        assertArrayEquals( baos.toByteArray(), bytes );
+    }
+
+    @Test
+    public void testLittleEndianByteArray()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer( ByteOrder.LITTLE_ENDIAN );
+        Foo value = buildFoo();
+
+        byte[] bytes = serializer.serialize( value );
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect( 1024 );
+        serializer.serialize( value, buffer );
+        buffer.flip();
+
+        byte[] bufferBytes = new byte[buffer.remaining()];
+        buffer.get( bufferBytes );
+        assertArrayEquals( bytes, bufferBytes );
+
+        Foo result = serializer.deserialize( bytes, 0, bytes.length );
+        assertEquals( value, result );
+    }
+
+    @Test
+    public void testLittleEndianStreamMatchesByteArray()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer( ByteOrder.LITTLE_ENDIAN );
+        Foo value = buildFoo();
+
+        byte[] bytes = serializer.serialize( value );
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        serializer.serialize( value, baos );
+        assertArrayEquals( bytes, baos.toByteArray() );
+
+        // One serializer writes one format, whatever method is used
+        Foo result = serializer.deserialize( new ByteArrayInputStream( bytes ) );
+        assertEquals( value, result );
+
+        ByteBuffer buffer = ByteBuffer.wrap( baos.toByteArray() );
+        result = serializer.deserialize( buffer );
+        assertEquals( value, result );
+    }
+
+    private void testBuffer( ByteBuffer buffer, ByteOrder byteOrder )
+    {
+        Serializer serializer = buildSerializer( byteOrder );
+        Foo value = buildFoo();
+
+        ByteOrder bufferOrder = buffer.order();
+        buffer.position( 7 );
+        serializer.serialize( value, buffer );
+        assertSame( bufferOrder, buffer.order() );
+
+        int limit = buffer.position();
+        buffer.position( 7 );
+        buffer.limit( limit );
+
+        Foo result = serializer.deserialize( buffer );
+        assertEquals( value, result );
+        assertEquals( limit, buffer.position() );
+        assertSame( bufferOrder, buffer.order() );
+    }
+
+    private Serializer buildSerializer( ByteOrder byteOrder )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).byteOrder( byteOrder ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Foo.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private Foo buildFoo()
+    {
+        Foo foo = new Foo();
+        foo.setName( "Lightning ä€" );
+        foo.setId( 4711 );
+        foo.setTimestamp( Long.MIN_VALUE + 1 );
+        foo.setRatio( Math.E );
+        foo.setValue( Integer.valueOf( 65537 ) );
+        return foo;
+    }
+}
@@ -18,6 +18,9 @@
  */
 package org.apache.directmemory.lightning;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -31,6 +34,7 @@ import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
 import org.apache.directmemory.lightning.exceptions.ClassDefinitionInconsistentException;
 import org.apache.directmemory.lightning.internal.util.DebugLogger;
 import org.apache.directmemory.lightning.metadata.Attribute;
+import org.apache.directmemory.lightning.metadata.ClassDefinition;
 import org.apache.directmemory.lightning.metadata.ClassDefinitionContainer;
 import org.junit.Test;
 
@@ -147,6 +151,38 @@ public class ClassDefinitionContainerTestCase
         remoteSerializer.setClassDefinitionContainer( remoteContainer );
     }
 
+    @Test
+    public void testDenseIndexesSurviveTransport()
+        throws Exception
+    {
+        Serializer serializer =
+            Lightning.newBuilder().logger( new DebugLogger() ).serializerDefinitions( new SerializerDefinition() ).build();
+
+        ClassDefinitionContainer container = serializer.getClassDefinitionContainer();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( baos );
+
+        out.writeObject( container );
+        byte[] data = baos.toByteArray();
+
+        ByteArrayInputStream bais = new ByteArrayInputStream( data );
+        ObjectInputStream in = new ObjectInputStream( bais );
+
+        ClassDefinitionContainer remoteContainer = (ClassDefinitionContainer) in.readObject();
+
+        for ( ClassDefinition classDefinition : container.getClassDefinitions() )
+        {
+            int index = container.getIndexByType( classDefinition.getType() );
+            assertTrue( index >= 0 && index < container.getClassDefinitions().size() );
+            assertEquals( classDefinition.getType(), container.getClassDefinitionByIndex( index ).getType() );
+            assertEquals( index, remoteContainer.getIndexByType( classDefinition.getType() ) );
+            assertEquals( classDefinition.getId(), remoteContainer.getClassDefinitionByIndex( index ).getId() );
+        }
+
+        assertEquals( -1, container.getIndexByType( ClassDefinitionContainerTestCase.class ) );
+    }
+
     public static class SerializerDefinition
         extends AbstractSerializerDefinition
     {
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class CompactSerializationTestCase
+{
+
+    @Test
+    public void testRoundTrip()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer( SerializationStrategy.Compact );
+        Foo value = buildFoo();
+
+        byte[] bytes = serializer.serialize( value );
+        Foo result = serializer.deserialize( bytes, 0, bytes.length );
+
+        assertEquals( value.id, result.id );
+        assertEquals( value.timestamp, result.timestamp );
+        assertEquals( value.small, result.small );
+        assertEquals( value.character, result.character );
+        assertEquals( value.boxed, result.boxed );
+        assertNull( result.missing );
+        assertEquals( value.bar, result.bar );
+        assertEquals( value.values, result.values );
+        assertArrayEquals( value.ints, result.ints );
+        assertArrayEquals( value.longs, result.longs );
+        assertArrayEquals( value.names, result.names );
+        assertEquals( value.left.id, result.left.id );
+        assertEquals( value.untyped, result.untyped );
+    }
+
+    @Test
+    public void testIdentityIsPreserved()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer( SerializationStrategy.Compact );
+        Foo value = buildFoo();
+
+        byte[] bytes = serializer.serialize( value );
+        Foo result = serializer.deserialize( bytes, 0, bytes.length );
+
+        assertSame( result.left, result.right );
+    }
+
+    @Test
+    public void testCompactIsSmaller()
+        throws Exception
+    {
+        Foo value = buildFoo();
+
+        byte[] compact = buildSerializer( SerializationStrategy.Compact ).serialize( value );
+        byte[] size = buildSerializer( SerializationStrategy.SizeOptimized ).serialize( value );
+
+        assertTrue( "compact: " + compact.length + ", size: " + size.length, compact.length < size.length * 0.7 );
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( serializationStrategy ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Foo.class ).attributes();
+                serialize( Child.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private Foo buildFoo()
+    {
+        Child child = new Child();
+        child.id = -3;
+
+        Foo foo = new Foo();
+        foo.id = 4711;
+        foo.timestamp = -1L;
+        foo.small = Short.MIN_VALUE;
+        foo.character = 'L';
+        foo.boxed = Integer.valueOf( 42 );
+        foo.bar = Bar.Second;
+        foo.values = new ArrayList<Integer>( Arrays.asList( 1, -1, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE ) );
+        foo.ints = new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+        foo.longs = new long[] { 0L, -64L, 64L, Long.MAX_VALUE, Long.MIN_VALUE };
+        foo.names = new String[] { "a", null, "b" };
+        foo.untyped = new ArrayList<Object>( Arrays.asList( "Foo", 20, null, child.id, Bar.First ) );
+        foo.left = child;
+        foo.right = child;
+        return foo;
+    }
+
+    public static enum Bar
+    {
+        First, Second
+    }
+
+    public static class Foo
+    {
+
+        @Attribute
+        private int id;
+
+        @Attribute
+        private long timestamp;
+
+        @Attribute
+        private short small;
+
+        @Attribute
+        private char character;
+
+        @Attribute
+        private Integer boxed;
+
+        @Attribute
+        private Long missing;
+
+        @Attribute
+        private Bar bar;
+
+        @Attribute
+        private List<Integer> values;
+
+        @SuppressWarnings( "rawtypes" )
+        @Attribute
+        private List untyped;
+
+        @Attribute
+        private int[] ints;
+
+        @Attribute
+        private long[] longs;
+
+        @Attribute
+        private String[] names;
+
+        @Attribute
+        private Child left;
+
+        @Attribute
+        private Child right;
+    }
+
+    public static class Child
+    {
+
+        @Attribute
+        private int id;
+    }
+}
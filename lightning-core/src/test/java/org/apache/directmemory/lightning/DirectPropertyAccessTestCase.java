@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class DirectPropertyAccessTestCase
+{
+
+    @Test
+    public void testPublicPropertiesRoundTrip()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy );
+            PublicFoo value = buildPublicFoo();
+
+            byte[] bytes = serializer.serialize( value );
+            PublicFoo result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( value.id, result.id );
+            assertEquals( value.boxed, result.boxed );
+            assertEquals( value.name, result.name );
+            assertArrayEquals( value.names, result.names );
+            assertArrayEquals( value.values, result.values );
+            assertEquals( value.getCount(), result.getCount() );
+            assertEquals( value.getHidden(), result.getHidden() );
+            assertEquals( value.child.id, result.child.id );
+        }
+    }
+
+    @Test
+    public void testPublicPropertiesNullValuesRoundTrip()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy );
+            PublicFoo value = new PublicFoo();
+            value.id = 4711;
+
+            byte[] bytes = serializer.serialize( value );
+            PublicFoo result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( value.id, result.id );
+            assertNull( result.boxed );
+            assertNull( result.name );
+            assertNull( result.names );
+            assertNull( result.child );
+        }
+    }
+
+    @Test
+    public void testNonPublicTypeRoundTrip()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy );
+            HiddenFoo value = new HiddenFoo();
+            value.id = 42;
+            value.name = "hidden";
+
+            byte[] bytes = serializer.serialize( value );
+            HiddenFoo result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( value.id, result.id );
+            assertEquals( value.name, result.name );
+        }
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( serializationStrategy ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( PublicFoo.class ).attributes();
+                serialize( PublicChild.class ).attributes();
+                serialize( HiddenFoo.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private PublicFoo buildPublicFoo()
+    {
+        PublicChild child = new PublicChild();
+        child.id = 42;
+
+        PublicFoo foo = new PublicFoo();
+        foo.id = 4711;
+        foo.boxed = Integer.valueOf( -1 );
+        foo.name = "Lightning";
+        foo.names = new String[] { "a", null, "b" };
+        foo.values = new long[] { 1L, Long.MAX_VALUE, -1L };
+        foo.setCount( 123 );
+        foo.hidden = 7;
+        foo.child = child;
+        return foo;
+    }
+
+    public static class PublicFoo
+    {
+
+        @Attribute
+        public int id;
+
+        @Attribute
+        public Integer boxed;
+
+        @Attribute
+        public String name;
+
+        @Attribute
+        public String[] names;
+
+        @Attribute
+        public long[] values;
+
+        @Attribute
+        public PublicChild child;
+
+        @Attribute
+        private int hidden;
+
+        private int count;
+
+        @Attribute
+        public int getCount()
+        {
+            return count;
+        }
+
+        public void setCount( int count )
+        {
+            this.count = count;
+        }
+
+        public int getHidden()
+        {
+            return hidden;
+        }
+    }
+
+    public static final class PublicChild
+    {
+
+        @Attribute
+        public long id;
+    }
+
+    static class HiddenFoo
+    {
+
+        @Attribute
+        public int id;
+
+        @Attribute
+        public String name;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.base.DefaultValueNullableEvaluator;
+import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+import org.apache.directmemory.lightning.metadata.ValueNullableEvaluator;
+import org.junit.Test;
+
+public class InlinedNestedValueTestCase
+{
+
+    @Test
+    public void testInlinedValuesRoundTrip()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, 2 );
+            Trade value = buildTrade();
+
+            byte[] bytes = serializer.serialize( value );
+            Trade result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( value.id, result.id );
+            assertEquals( value.price.amount, result.price.amount );
+            assertEquals( value.price.currency.code, result.price.currency.code );
+            assertEquals( value.price.currency.digits, result.price.currency.digits );
+            assertNull( result.fee );
+            assertEquals( value.settlement.amount, result.settlement.amount );
+            assertNull( result.settlement.currency );
+        }
+    }
+
+    @Test
+    public void testInliningDoesNotChangeSerializedFormat()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Trade value = buildTrade();
+
+            byte[] inlined = buildSerializer( serializationStrategy, 2 ).serialize( value );
+            byte[] partiallyInlined = buildSerializer( serializationStrategy, 1 ).serialize( value );
+            byte[] notInlined = buildSerializer( serializationStrategy, 0 ).serialize( value );
+
+            assertArrayEquals( notInlined, inlined );
+            assertArrayEquals( notInlined, partiallyInlined );
+
+            // Both sides have to be able to read each others data
+            Trade result = buildSerializer( serializationStrategy, 0 ).deserialize( inlined, 0, inlined.length );
+            assertEquals( value.price.currency.code, result.price.currency.code );
+            result = buildSerializer( serializationStrategy, 2 ).deserialize( notInlined, 0, notInlined.length );
+            assertEquals( value.price.currency.code, result.price.currency.code );
+        }
+    }
+
+    @Test
+    public void testNullValueOfNonNullableInlinedProperty()
+        throws Exception
+    {
+        ValueNullableEvaluator valueNullableEvaluator = new ValueNullableEvaluator()
+        {
+
+            @Override
+            public boolean isValueNullable( PropertyDescriptor propertyDescriptor )
+            {
+                return false;
+            }
+        };
+
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, 2, valueNullableEvaluator );
+            Trade value = buildTrade();
+            value.fee = value.settlement;
+            value.settlement.currency = value.price.currency;
+
+            byte[] bytes = serializer.serialize( value );
+            Trade result = serializer.deserialize( bytes, 0, bytes.length );
+            assertEquals( value.fee.amount, result.fee.amount );
+            assertEquals( value.price.currency.code, result.price.currency.code );
+
+            value.fee = null;
+            try
+            {
+                serializer.serialize( value );
+                fail( "Null value of not nullable property was written using " + serializationStrategy );
+            }
+            catch ( SerializerExecutionException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().toLowerCase().contains( "fee" ) );
+            }
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testNegativeInlineDepth()
+        throws Exception
+    {
+        buildSerializer( SerializationStrategy.SpeedOptimized, -1 );
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy, int maxInlineDepth )
+    {
+        return buildSerializer( serializationStrategy, maxInlineDepth, new DefaultValueNullableEvaluator() );
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy, int maxInlineDepth,
+                                        ValueNullableEvaluator valueNullableEvaluator )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( serializationStrategy ).maxInlineDepth( maxInlineDepth ).setValueNullableEvaluator( valueNullableEvaluator ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Trade.class ).attributes();
+                serialize( Money.class ).attributes();
+                serialize( Currency.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private Trade buildTrade()
+    {
+        Currency currency = new Currency();
+        currency.code = "EUR";
+        currency.digits = 2;
+
+        Money price = new Money();
+        price.amount = 123456L;
+        price.currency = currency;
+
+        Money settlement = new Money();
+        settlement.amount = -42L;
+
+        Trade trade = new Trade();
+        trade.id = 4711;
+        trade.price = price;
+        trade.settlement = settlement;
+        return trade;
+    }
+
+    public static class Trade
+    {
+
+        @Attribute
+        private int id;
+
+        @Attribute
+        private Money price;
+
+        @Attribute
+        private Money fee;
+
+        @Attribute
+        private Money settlement;
+    }
+
+    public static final class Money
+    {
+
+        @Attribute
+        private long amount;
+
+        @Attribute
+        private Currency currency;
+    }
+
+    public static final class Currency
+    {
+
+        @Attribute
+        private String code;
+
+        @Attribute
+        private int digits;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.generator.AbstractGeneratedMarshaller;
+import org.apache.directmemory.lightning.internal.generator.LazyGeneratedMarshaller;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class LazyMarshallerGenerationTestCase
+{
+
+    @Test
+    public void testMarshallersGeneratedOnFirstUse()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer( true, false );
+
+        LazyGeneratedMarshaller root = findMarshaller( serializer, Root.class );
+        LazyGeneratedMarshaller child = findMarshaller( serializer, Child.class );
+        LazyGeneratedMarshaller unused = findMarshaller( serializer, Unused.class );
+        assertFalse( root.isGenerated() );
+        assertFalse( child.isGenerated() );
+        assertFalse( unused.isGenerated() );
+
+        Root value = buildRoot();
+        byte[] bytes = serializer.serialize( value );
+        Root result = serializer.deserialize( bytes, 0, bytes.length );
+
+        assertEquals( value.id, result.id );
+        assertEquals( value.child.name, result.child.name );
+        assertTrue( root.isGenerated() );
+        assertTrue( child.isGenerated() );
+        assertFalse( unused.isGenerated() );
+        assertTrue( root.getMarshaller() instanceof AbstractGeneratedMarshaller );
+    }
+
+    @Test
+    public void testLazyAndEagerOutputEqual()
+        throws Exception
+    {
+        Root value = buildRoot();
+        byte[] eagerBytes = buildSerializer( false, false ).serialize( value );
+        byte[] lazyBytes = buildSerializer( true, false ).serialize( value );
+
+        assertArrayEquals( eagerBytes, lazyBytes );
+    }
+
+    @Test
+    public void testBackgroundGeneration()
+        throws Exception
+    {
+        Serializer serializer = buildSerializer( true, true );
+
+        LazyGeneratedMarshaller root = findMarshaller( serializer, Root.class );
+        LazyGeneratedMarshaller child = findMarshaller( serializer, Child.class );
+        LazyGeneratedMarshaller unused = findMarshaller( serializer, Unused.class );
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while ( !( root.isGenerated() && child.isGenerated() && unused.isGenerated() )
+            && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+
+        assertTrue( root.isGenerated() );
+        assertTrue( child.isGenerated() );
+        assertTrue( unused.isGenerated() );
+    }
+
+    private LazyGeneratedMarshaller findMarshaller( Serializer serializer, Class<?> type )
+    {
+        ClassDescriptorAwareSerializer awareSerializer = (ClassDescriptorAwareSerializer) serializer;
+        return (LazyGeneratedMarshaller) awareSerializer.findClassDescriptor( type ).getMarshaller();
+    }
+
+    private Root buildRoot()
+    {
+        Root root = new Root();
+        root.id = 4711;
+        root.child = new Child();
+        root.child.name = "Lightning";
+        return root;
+    }
+
+    private Serializer buildSerializer( boolean lazy, boolean background )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).lazyMarshallerGeneration( lazy ).backgroundMarshallerGeneration( background ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Root.class ).attributes();
+                serialize( Child.class ).attributes();
+                serialize( Unused.class ).attributes();
+            }
+        } ).build();
+    }
+
+    public static class Root
+    {
+
+        @Attribute
+        public int id;
+
+        @Attribute
+        public Child child;
+    }
+
+    public static class Child
+    {
+
+        @Attribute
+        public String name;
+    }
+
+    public static class Unused
+    {
+
+        @Attribute
+        public long value;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.base.DefaultValueNullableEvaluator;
+import org.apache.directmemory.lightning.exceptions.SerializerExecutionException;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+import org.apache.directmemory.lightning.metadata.ValueNullableEvaluator;
+import org.junit.Test;
+
+public class NullBitmapTestCase
+{
+
+    @Test
+    public void testNullValuesRoundTrip()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, new DefaultValueNullableEvaluator() );
+            Foo value = new Foo();
+            value.id = 4711;
+
+            byte[] bytes = serializer.serialize( value );
+            Foo result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( value.id, result.id );
+            assertNull( result.boxed );
+            assertNull( result.name );
+            assertNull( result.child );
+            assertNull( result.names );
+        }
+    }
+
+    @Test
+    public void testNonNullValuesRoundTrip()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, new DefaultValueNullableEvaluator() );
+            Foo value = buildFoo();
+
+            byte[] bytes = serializer.serialize( value );
+            Foo result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( value.id, result.id );
+            assertEquals( value.boxed, result.boxed );
+            assertEquals( value.name, result.name );
+            assertEquals( value.child.id, result.child.id );
+            assertArrayEquals( value.names, result.names );
+        }
+    }
+
+    @Test
+    public void testNonNullablePropertiesWriteNoNullInformation()
+        throws Exception
+    {
+        Foo value = buildFoo();
+
+        byte[] nullable =
+            buildSerializer( SerializationStrategy.SpeedOptimized, new DefaultValueNullableEvaluator() ).serialize( value );
+        byte[] nonNullable =
+            buildSerializer( SerializationStrategy.SpeedOptimized, new ValueNullableEvaluator()
+            {
+
+                @Override
+                public boolean isValueNullable( PropertyDescriptor propertyDescriptor )
+                {
+                    return false;
+                }
+            } ).serialize( value );
+
+        // All four nullable properties share a single bitmap byte
+        assertEquals( nonNullable.length + 1, nullable.length );
+    }
+
+    @Test
+    public void testNullValueOfNonNullableWrapperProperty()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, new ValueNullableEvaluator()
+            {
+
+                @Override
+                public boolean isValueNullable( PropertyDescriptor propertyDescriptor )
+                {
+                    return false;
+                }
+            } );
+
+            Foo value = buildFoo();
+            value.boxed = null;
+            try
+            {
+                serializer.serialize( value );
+                fail( "Null value of not nullable property was written using " + serializationStrategy );
+            }
+            catch ( SerializerExecutionException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().toLowerCase().contains( "boxed" ) );
+            }
+        }
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy,
+                                        ValueNullableEvaluator valueNullableEvaluator )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( serializationStrategy ).setValueNullableEvaluator( valueNullableEvaluator ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Foo.class ).attributes();
+                serialize( Child.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private Foo buildFoo()
+    {
+        Child child = new Child();
+        child.id = 42;
+
+        Foo foo = new Foo();
+        foo.id = 4711;
+        foo.boxed = Integer.valueOf( -1 );
+        foo.name = "Lightning";
+        foo.child = child;
+        foo.names = new String[] { "a", null, "b" };
+        return foo;
+    }
+
+    public static class Foo
+    {
+
+        @Attribute
+        private int id;
+
+        @Attribute
+        private Integer boxed;
+
+        @Attribute
+        private String name;
+
+        @Attribute
+        private Child child;
+
+        @Attribute
+        private String[] names;
+    }
+
+    public static class Child
+    {
+
+        @Attribute
+        private int id;
+    }
+}
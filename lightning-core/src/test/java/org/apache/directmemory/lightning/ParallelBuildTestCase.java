@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.apache.directmemory.lightning.metadata.ClassDefinition;
+import org.junit.Test;
+
+public class ParallelBuildTestCase
+{
+
+    private static final Class<?>[] TYPES = { Root.class, First.class, Second.class, Third.class, Fourth.class };
+
+    @Test
+    public void testParallelBuildIsDeterministic()
+        throws Exception
+    {
+        Serializer sequential = buildSerializer( 1 );
+        Serializer parallel = buildSerializer( 8 );
+
+        for ( Class<?> type : TYPES )
+        {
+            ClassDefinition sequentialDefinition = findClassDefinition( sequential, type );
+            ClassDefinition parallelDefinition = findClassDefinition( parallel, type );
+
+            assertEquals( sequentialDefinition.getId(), parallelDefinition.getId() );
+            assertArrayEquals( sequentialDefinition.getChecksum(), parallelDefinition.getChecksum() );
+            assertNotNull( ( (ClassDescriptorAwareSerializer) parallel ).findClassDescriptor( type ).getMarshaller() );
+        }
+
+        Root value = buildRoot();
+        byte[] sequentialBytes = sequential.serialize( value );
+        byte[] parallelBytes = parallel.serialize( value );
+        assertArrayEquals( sequentialBytes, parallelBytes );
+
+        Root result = sequential.deserialize( parallelBytes, 0, parallelBytes.length );
+        assertEquals( value.first.value, result.first.value );
+        assertEquals( value.second.value, result.second.value );
+        assertEquals( value.third.value, result.third.value );
+        assertEquals( value.fourth.value, result.fourth.value );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testIllegalBuildParallelism()
+        throws Exception
+    {
+        buildSerializer( 0 );
+    }
+
+    private ClassDefinition findClassDefinition( Serializer serializer, Class<?> type )
+    {
+        ClassDescriptorAwareSerializer awareSerializer = (ClassDescriptorAwareSerializer) serializer;
+        return awareSerializer.findClassDescriptor( type ).getClassDefinition();
+    }
+
+    private Root buildRoot()
+    {
+        Root root = new Root();
+        root.first = new First();
+        root.first.value = 4711;
+        root.second = new Second();
+        root.second.value = "Lightning";
+        root.third = new Third();
+        root.third.value = Long.MAX_VALUE;
+        root.fourth = new Fourth();
+        root.fourth.value = 1.5d;
+        return root;
+    }
+
+    private Serializer buildSerializer( int buildParallelism )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).buildParallelism( buildParallelism ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                for ( Class<?> type : TYPES )
+                {
+                    serialize( type ).attributes();
+                }
+            }
+        } ).build();
+    }
+
+    public static class Root
+    {
+
+        @Attribute
+        public First first;
+
+        @Attribute
+        public Second second;
+
+        @Attribute
+        public Third third;
+
+        @Attribute
+        public Fourth fourth;
+    }
+
+    public static class First
+    {
+
+        @Attribute
+        public int value;
+    }
+
+    public static class Second
+    {
+
+        @Attribute
+        public String value;
+    }
+
+    public static class Third
+    {
+
+        @Attribute
+        public long value;
+    }
+
+    public static class Fourth
+    {
+
+        @Attribute
+        public double value;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.configuration.SerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class ReferenceTrackingTestCase
+{
+
+    @Test
+    public void testTrackedTypeKeepsSharedInstances()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, new AbstractSerializerDefinition()
+            {
+
+                @Override
+                protected void configure()
+                {
+                    serialize( Node.class ).trackReferences().attributes();
+                    serialize( Leaf.class ).attributes();
+                }
+            } );
+
+            Leaf leaf = new Leaf();
+            leaf.value = 42;
+
+            Node shared = new Node();
+            shared.leaf = leaf;
+
+            Node value = new Node();
+            value.first = shared;
+            value.second = shared;
+            value.leaf = leaf;
+
+            byte[] bytes = serializer.serialize( value );
+            Node result = serializer.deserialize( bytes, 0, bytes.length );
+
+            // Node is tracked, so the shared instance is restored only once
+            assertSame( result.first, result.second );
+
+            // Leaf is not tracked and therefore written twice
+            assertEquals( 42, result.leaf.value );
+            assertEquals( 42, result.first.leaf.value );
+            assertNotSame( result.leaf, result.first.leaf );
+        }
+    }
+
+    @Test
+    public void testTrackedTypeRestoresSelfCycle()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, new AbstractSerializerDefinition()
+            {
+
+                @Override
+                protected void configure()
+                {
+                    serialize( Node.class ).trackReferences().attributes();
+                    serialize( Leaf.class ).attributes();
+                }
+            } );
+
+            Node value = new Node();
+            value.first = value;
+
+            byte[] bytes = serializer.serialize( value );
+            Node result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertSame( result, result.first );
+            assertNull( result.second );
+        }
+    }
+
+    @Test
+    public void testTrackedTypeRestoresTwoNodeCycle()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, new AbstractSerializerDefinition()
+            {
+
+                @Override
+                protected void configure()
+                {
+                    serialize( Node.class ).trackReferences().attributes();
+                    serialize( Leaf.class ).attributes();
+                }
+            } );
+
+            Leaf leaf = new Leaf();
+            leaf.value = 13;
+
+            Node other = new Node();
+            other.leaf = leaf;
+
+            Node value = new Node();
+            value.first = other;
+            value.second = other;
+            other.first = value;
+
+            byte[] bytes = serializer.serialize( value );
+            Node result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertNotSame( result, result.first );
+            assertSame( result.first, result.second );
+            assertSame( result, result.first.first );
+            assertEquals( 13, result.first.leaf.value );
+        }
+    }
+
+    @Test
+    public void testTrackedAttributeKeepsSharedInstances()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, new AbstractSerializerDefinition()
+            {
+
+                @Override
+                protected void configure()
+                {
+                    serialize( Holder.class ).attributes( attribute( "first" ).trackReferences(),
+                                                          attribute( "second" ).trackReferences(),
+                                                          attribute( "untracked" ) );
+                    serialize( Leaf.class ).attributes();
+                }
+            } );
+
+            Leaf leaf = new Leaf();
+            leaf.value = 7;
+
+            Holder value = new Holder();
+            value.first = leaf;
+            value.second = leaf;
+            value.untracked = leaf;
+
+            byte[] bytes = serializer.serialize( value );
+            Holder result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( 7, result.first.value );
+            assertSame( result.first, result.second );
+            assertEquals( 7, result.untracked.value );
+            assertNotSame( result.first, result.untracked );
+        }
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy,
+                                        SerializerDefinition serializerDefinition )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( serializationStrategy ).serializerDefinitions( serializerDefinition ).build();
+    }
+
+    public static class Node
+    {
+
+        @Attribute
+        private Node first;
+
+        @Attribute
+        private Node second;
+
+        @Attribute
+        private Leaf leaf;
+    }
+
+    public static class Leaf
+    {
+
+        @Attribute
+        private int value;
+    }
+
+    public static class Holder
+    {
+
+        private Leaf first;
+
+        private Leaf second;
+
+        private Leaf untracked;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class StringDeduplicationTestCase
+{
+
+    @Test
+    public void testRoundTrip()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy, true );
+            Trade value = buildTrade();
+
+            byte[] bytes = serializer.serialize( value );
+            Trade result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( value.tenant, result.tenant );
+            assertEquals( value.currencies, result.currencies );
+            assertEquals( value.amounts, result.amounts );
+
+            // Pooled contexts must not remember Strings of former calls
+            assertArrayEquals( bytes, serializer.serialize( value ) );
+        }
+    }
+
+    @Test
+    public void testDeduplicationIsSmaller()
+        throws Exception
+    {
+        Trade value = buildTrade();
+
+        byte[] deduplicated = buildSerializer( SerializationStrategy.SpeedOptimized, true ).serialize( value );
+        byte[] plain = buildSerializer( SerializationStrategy.SpeedOptimized, false ).serialize( value );
+
+        assertTrue( "deduplicated: " + deduplicated.length + ", plain: " + plain.length,
+                    deduplicated.length < plain.length / 2 );
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy, boolean deduplicateStrings )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( serializationStrategy ).deduplicateStrings( deduplicateStrings ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Trade.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private Trade buildTrade()
+    {
+        Trade trade = new Trade();
+        trade.tenant = "some-tenant-name";
+        trade.currencies = new ArrayList<String>();
+        trade.amounts = new LinkedHashMap<String, Integer>();
+        for ( int i = 0; i < 50; i++ )
+        {
+            // Equal but not identical Strings
+            String currency = new String( i % 2 == 0 ? "EUR" : "some-tenant-name" );
+            trade.currencies.add( currency );
+            trade.amounts.put( "position-" + ( i % 5 ), i );
+        }
+        return trade;
+    }
+
+    public static class Trade
+    {
+
+        @Attribute
+        private String tenant;
+
+        @Attribute
+        private List<String> currencies;
+
+        @Attribute
+        private Map<String, Integer> amounts;
+    }
+}
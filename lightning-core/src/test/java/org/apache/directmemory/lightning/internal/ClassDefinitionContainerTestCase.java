@@ -18,12 +18,22 @@
  */
 package org.apache.directmemory.lightning.internal;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.directmemory.lightning.internal.InternalClassDefinition;
 import org.apache.directmemory.lightning.internal.InternalClassDefinitionContainer;
+import org.apache.directmemory.lightning.internal.util.ClassUtil;
 import org.apache.directmemory.lightning.logging.LoggerAdapter;
 import org.apache.directmemory.lightning.metadata.ClassDefinition;
 import org.apache.directmemory.lightning.metadata.ClassDefinitionContainer;
@@ -56,4 +66,73 @@ public class ClassDefinitionContainerTestCase
             Class<?> clazz = null;
         }
     }
+
+    @Test
+    public void testRuntimeTypesDoNotRetainClassLoaders()
+        throws Exception
+    {
+        Set<ClassDefinition> classDefinitions =
+            new HashSet<ClassDefinition>( Arrays.asList( ClassUtil.CLASS_DESCRIPTORS ) );
+        ClassDefinitionContainer classDefinitionContainer = new InternalClassDefinitionContainer( classDefinitions );
+        int listIndex = classDefinitionContainer.getIndexByType( List.class );
+
+        // JDK subtypes are cached, they live in the same classloader as the registered type
+        assertEquals( listIndex, classDefinitionContainer.getIndexByType( ArrayList.class ) );
+
+        ForeignClassLoader classLoader = new ForeignClassLoader();
+        Class<?> foreignList = classLoader.defineForeignClass( ForeignList.class );
+        assertEquals( listIndex, classDefinitionContainer.getIndexByType( foreignList ) );
+        assertEquals( listIndex, classDefinitionContainer.getIndexByType( foreignList ) );
+
+        WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>( classLoader );
+        classLoader = null;
+        foreignList = null;
+        for ( int i = 0; i < 10 && reference.get() != null; i++ )
+        {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        assertNull( reference.get() );
+        assertEquals( listIndex, classDefinitionContainer.getIndexByType( List.class ) );
+    }
+
+    public static class ForeignList
+        extends ArrayList<Object>
+    {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static class ForeignClassLoader
+        extends ClassLoader
+    {
+
+        private ForeignClassLoader()
+        {
+            super( ForeignClassLoader.class.getClassLoader() );
+        }
+
+        private Class<?> defineForeignClass( Class<?> type )
+            throws Exception
+        {
+            String resource = type.getName().replace( '.', '/' ) + ".class";
+            InputStream stream = type.getClassLoader().getResourceAsStream( resource );
+            try
+            {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                byte[] buffer = new byte[1024];
+                int length;
+                while ( ( length = stream.read( buffer ) ) != -1 )
+                {
+                    baos.write( buffer, 0, length );
+                }
+                byte[] bytecode = baos.toByteArray();
+                return defineClass( type.getName(), bytecode, 0, bytecode.length );
+            }
+            finally
+            {
+                stream.close();
+            }
+        }
+    }
 }
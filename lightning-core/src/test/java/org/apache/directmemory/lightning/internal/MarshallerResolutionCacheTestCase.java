@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.internal.marshaller.IntegerMarshaller;
+import org.apache.directmemory.lightning.internal.marshaller.ListMarshaller;
+import org.junit.Test;
+
+public class MarshallerResolutionCacheTestCase
+{
+
+    @Test
+    public void testClassResolutionIsCached()
+        throws Exception
+    {
+        MarshallerResolutionCache cache =
+            new MarshallerResolutionCache( new InternalMarshallerStrategy(), new InternalMarshallerContext() );
+
+        Marshaller marshaller = cache.findMarshaller( Integer.class );
+        assertTrue( marshaller instanceof IntegerMarshaller );
+        assertSame( marshaller, cache.findMarshaller( Integer.class ) );
+    }
+
+    @Test
+    public void testParameterizedTypeResolutionIsCached()
+        throws Exception
+    {
+        MarshallerResolutionCache cache =
+            new MarshallerResolutionCache( new InternalMarshallerStrategy(), new InternalMarshallerContext() );
+
+        Type stringList = Holder.class.getDeclaredField( "strings" ).getGenericType();
+        Type integerList = Holder.class.getDeclaredField( "integers" ).getGenericType();
+
+        Marshaller marshaller = cache.findMarshaller( stringList );
+        assertTrue( marshaller instanceof ListMarshaller );
+        assertSame( marshaller, cache.findMarshaller( stringList ) );
+
+        // Differently bound types must not share a marshaller
+        assertNotSame( marshaller, cache.findMarshaller( integerList ) );
+        assertNotSame( marshaller, cache.findMarshaller( List.class ) );
+    }
+
+    @Test
+    public void testUnresolvableTypeIsNotCached()
+        throws Exception
+    {
+        MarshallerResolutionCache cache =
+            new MarshallerResolutionCache( new InternalMarshallerStrategy(), new InternalMarshallerContext() );
+
+        assertNull( cache.findMarshaller( Thread.class ) );
+        assertNull( cache.findMarshaller( Thread.class ) );
+    }
+
+    @SuppressWarnings( "unused" )
+    private static class Holder
+    {
+
+        private List<String> strings;
+
+        private List<Integer> integers;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.apache.directmemory.lightning.Lightning;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.Serializer;
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class SerializationContextPoolTestCase
+{
+
+    @Test
+    public void testPooledContextIsResetBetweenCalls()
+        throws Exception
+    {
+        Serializer serializer =
+            Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( SerializationStrategy.SizeOptimized ).serializerDefinitions( new AbstractSerializerDefinition()
+            {
+
+                @Override
+                protected void configure()
+                {
+                    serialize( Parent.class ).attributes();
+                    serialize( Child.class ).attributes();
+                }
+            } ).build();
+
+        Child child = new Child();
+        child.setValue( 42 );
+
+        Parent value = new Parent();
+        value.setFirst( child );
+        value.setSecond( child );
+
+        byte[] first = serialize( serializer, value );
+        byte[] second = serialize( serializer, value );
+
+        // A reused context must not remember references of the former call
+        assertArrayEquals( first, second );
+
+        Parent result = serializer.deserialize( new ByteArrayInputStream( second ) );
+        assertEquals( 42, result.getFirst().getValue() );
+        assertSame( result.getFirst(), result.getSecond() );
+    }
+
+    private byte[] serialize( Serializer serializer, Object value )
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        serializer.serialize( value, baos );
+        return baos.toByteArray();
+    }
+
+    public static class Parent
+    {
+
+        @Attribute
+        private Child first;
+
+        @Attribute
+        private Child second;
+
+        public Child getFirst()
+        {
+            return first;
+        }
+
+        public void setFirst( Child first )
+        {
+            this.first = first;
+        }
+
+        public Child getSecond()
+        {
+            return second;
+        }
+
+        public void setSecond( Child second )
+        {
+            this.second = second;
+        }
+    }
+
+    public static class Child
+    {
+
+        @Attribute
+        private int value;
+
+        public int getValue()
+        {
+            return value;
+        }
+
+        public void setValue( int value )
+        {
+            this.value = value;
+        }
+    }
+}
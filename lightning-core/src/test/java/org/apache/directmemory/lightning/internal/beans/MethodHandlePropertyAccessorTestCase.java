@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.beans;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Field;
+
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.internal.util.InternalUtil;
+import org.apache.directmemory.lightning.metadata.ArrayPropertyAccessor;
+import org.apache.directmemory.lightning.metadata.ValuePropertyAccessor;
+import org.junit.Test;
+
+public class MethodHandlePropertyAccessorTestCase
+{
+
+    // VarHandles are only available on Java 9 and later
+    private final PropertyAccessorFactory factory = InternalUtil.buildMethodHandlePropertyAccessor( new DebugLogger() );
+
+    @Test
+    public void testPrimitiveFields()
+        throws Exception
+    {
+        if ( factory == null )
+        {
+            return;
+        }
+
+        Values test = new Values();
+        test.booleanValue = true;
+        test.byteValue = 1;
+        test.charValue = 'c';
+        test.shortValue = 2;
+        test.intValue = 3;
+        test.longValue = 4L;
+        test.floatValue = 5.f;
+        test.doubleValue = 6.;
+
+        Values result = new Values();
+        accessor( "booleanValue" ).writeBoolean( result, accessor( "booleanValue" ).readBoolean( test ) );
+        accessor( "byteValue" ).writeByte( result, accessor( "byteValue" ).readByte( test ) );
+        accessor( "charValue" ).writeChar( result, accessor( "charValue" ).readChar( test ) );
+        accessor( "shortValue" ).writeShort( result, accessor( "shortValue" ).readShort( test ) );
+        accessor( "intValue" ).writeInt( result, accessor( "intValue" ).readInt( test ) );
+        accessor( "longValue" ).writeLong( result, accessor( "longValue" ).readLong( test ) );
+        accessor( "floatValue" ).writeFloat( result, accessor( "floatValue" ).readFloat( test ) );
+        accessor( "doubleValue" ).writeDouble( result, accessor( "doubleValue" ).readDouble( test ) );
+
+        assertEquals( test.booleanValue, result.booleanValue );
+        assertEquals( test.byteValue, result.byteValue );
+        assertEquals( test.charValue, result.charValue );
+        assertEquals( test.shortValue, result.shortValue );
+        assertEquals( test.intValue, result.intValue );
+        assertEquals( test.longValue, result.longValue );
+        assertEquals( test.floatValue, result.floatValue, 0.f );
+        assertEquals( test.doubleValue, result.doubleValue, 0. );
+
+        // Boxed access to primitive fields
+        accessor( "intValue" ).writeObject( result, Integer.valueOf( 42 ) );
+        assertEquals( Integer.valueOf( 42 ), accessor( "intValue" ).readObject( result ) );
+    }
+
+    @Test
+    public void testObjectField()
+        throws Exception
+    {
+        if ( factory == null )
+        {
+            return;
+        }
+
+        Values test = new Values();
+        test.stringValue = "Hello";
+
+        Values result = new Values();
+        ValuePropertyAccessor propertyAccessor = accessor( "stringValue" );
+        propertyAccessor.writeObject( result, propertyAccessor.readObject( test ) );
+
+        assertEquals( test.stringValue, result.stringValue );
+    }
+
+    @Test
+    public void testIntArray()
+        throws Exception
+    {
+        if ( factory == null )
+        {
+            return;
+        }
+
+        Field field = Values.class.getDeclaredField( "intArray" );
+        ArrayPropertyAccessor propertyAccessor = (ArrayPropertyAccessor) factory.fieldAccess( field, Values.class );
+
+        Values test = new Values();
+        test.intArray = new int[] { 1, 2, 3, Integer.MAX_VALUE };
+
+        Values result = new Values();
+        propertyAccessor.writeObject( result, new int[test.intArray.length] );
+        int[] array = propertyAccessor.readObject( result );
+        for ( int i = 0; i < test.intArray.length; i++ )
+        {
+            propertyAccessor.writeInt( array, i, propertyAccessor.readInt( test.intArray, i ) );
+        }
+
+        assertArrayEquals( test.intArray, result.intArray );
+    }
+
+    @Test
+    public void testObjectArray()
+        throws Exception
+    {
+        if ( factory == null )
+        {
+            return;
+        }
+
+        Field field = Values.class.getDeclaredField( "stringArray" );
+        ArrayPropertyAccessor propertyAccessor = (ArrayPropertyAccessor) factory.fieldAccess( field, Values.class );
+
+        Values test = new Values();
+        test.stringArray = new String[] { "a", null, "b" };
+
+        Values result = new Values();
+        result.stringArray = new String[test.stringArray.length];
+        for ( int i = 0; i < test.stringArray.length; i++ )
+        {
+            Object value = propertyAccessor.readObject( test.stringArray, i );
+            propertyAccessor.writeObject( result.stringArray, i, value );
+        }
+
+        assertArrayEquals( test.stringArray, result.stringArray );
+    }
+
+    @Test
+    public void testFinalFieldIsNotSupported()
+        throws Exception
+    {
+        if ( factory == null )
+        {
+            return;
+        }
+
+        Field field = Values.class.getDeclaredField( "finalValue" );
+        assertNull( factory.fieldAccess( field, Values.class ) );
+    }
+
+    private ValuePropertyAccessor accessor( String fieldName )
+        throws Exception
+    {
+        Field field = Values.class.getDeclaredField( fieldName );
+        ValuePropertyAccessor propertyAccessor = (ValuePropertyAccessor) factory.fieldAccess( field, Values.class );
+        assertNotNull( propertyAccessor );
+        return propertyAccessor;
+    }
+
+    private static class Values
+    {
+
+        private boolean booleanValue;
+
+        private byte byteValue;
+
+        private char charValue;
+
+        private short shortValue;
+
+        private int intValue;
+
+        private long longValue;
+
+        private float floatValue;
+
+        private double doubleValue;
+
+        private String stringValue;
+
+        private int[] intArray;
+
+        private String[] stringArray;
+
+        private final int finalValue = 1;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.beans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Method;
+
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.PropertyAccessor;
+import org.apache.directmemory.lightning.metadata.ValuePropertyAccessor;
+import org.junit.Test;
+
+public class PropertyAccessorStrategyTestCase
+{
+
+    @Test
+    public void testMethodAccessWithClassGeneration()
+        throws Exception
+    {
+        PropertyAccessorStrategy strategy = new PropertyAccessorStrategy( new DebugLogger(), true );
+        PropertyAccessor propertyAccessor = strategy.byMethod( getValueMethod(), Bean.class );
+
+        assertFalse( ReflectionPropertyAccessorFactory.class == propertyAccessor.getClass().getEnclosingClass() );
+        assertAccessible( propertyAccessor );
+    }
+
+    @Test
+    public void testMethodAccessWithoutClassGeneration()
+        throws Exception
+    {
+        // ReflectASM and VarHandle accessors define classes, only reflection is left for methods
+        PropertyAccessorStrategy strategy = new PropertyAccessorStrategy( new DebugLogger(), false );
+        PropertyAccessor propertyAccessor = strategy.byMethod( getValueMethod(), Bean.class );
+
+        assertEquals( ReflectionPropertyAccessorFactory.class, propertyAccessor.getClass().getEnclosingClass() );
+        assertAccessible( propertyAccessor );
+    }
+
+    private Method getValueMethod()
+        throws Exception
+    {
+        return Bean.class.getMethod( "getValue" );
+    }
+
+    private void assertAccessible( PropertyAccessor propertyAccessor )
+    {
+        Bean bean = new Bean();
+        ( (ValuePropertyAccessor) propertyAccessor ).writeInt( bean, 42 );
+        assertEquals( 42, bean.getValue() );
+    }
+
+    public static class Bean
+    {
+
+        private int value;
+
+        public int getValue()
+        {
+            return value;
+        }
+
+        public void setValue( int value )
+        {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.apache.directmemory.lightning.Lightning;
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.Serializer;
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class GeneratedClassCacheTestCase
+{
+
+    @Test
+    public void testGeneratedClassSharedBetweenSerializers()
+        throws Exception
+    {
+        Serializer first = buildSerializer( SerializationStrategy.SpeedOptimized, false );
+        Serializer second = buildSerializer( SerializationStrategy.SpeedOptimized, false );
+
+        Marshaller firstMarshaller = findMarshaller( first );
+        Marshaller secondMarshaller = findMarshaller( second );
+
+        assertNotSame( firstMarshaller, secondMarshaller );
+        assertSame( firstMarshaller.getClass(), secondMarshaller.getClass() );
+
+        Foo value = new Foo();
+        value.id = 4711;
+        value.name = "Lightning";
+
+        byte[] bytes = first.serialize( value );
+        Foo result = second.deserialize( bytes, 0, bytes.length );
+
+        assertEquals( value.id, result.id );
+        assertEquals( value.name, result.name );
+    }
+
+    @Test
+    public void testGeneratedClassNotSharedForDifferentSignatures()
+        throws Exception
+    {
+        Marshaller speedOptimized = findMarshaller( buildSerializer( SerializationStrategy.SpeedOptimized, false ) );
+        Marshaller compact = findMarshaller( buildSerializer( SerializationStrategy.Compact, false ) );
+        Marshaller idOnly = findMarshaller( buildSerializer( SerializationStrategy.SpeedOptimized, true ) );
+
+        assertNotSame( speedOptimized.getClass(), compact.getClass() );
+        assertNotSame( speedOptimized.getClass(), idOnly.getClass() );
+    }
+
+    private Marshaller findMarshaller( Serializer serializer )
+    {
+        ClassDescriptorAwareSerializer awareSerializer = (ClassDescriptorAwareSerializer) serializer;
+        return awareSerializer.findClassDescriptor( Foo.class ).getMarshaller();
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy, final boolean idOnly )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).serializationStrategy( serializationStrategy ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                if ( idOnly )
+                {
+                    serialize( Foo.class ).attributes( attribute( "id" ) );
+                }
+                else
+                {
+                    serialize( Foo.class ).attributes();
+                }
+            }
+        } ).build();
+    }
+
+    public static class Foo
+    {
+
+        @Attribute
+        private int id;
+
+        @Attribute
+        private String name;
+    }
+}
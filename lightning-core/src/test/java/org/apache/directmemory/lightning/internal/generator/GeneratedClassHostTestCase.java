@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.directmemory.lightning.Lightning;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.Serializer;
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+public class GeneratedClassHostTestCase
+{
+
+    @Test
+    public void testHiddenClassHost()
+        throws Exception
+    {
+        GeneratorClassLoader classloader = CreateClassLoader.createClassLoader( getClass().getClassLoader() );
+        GeneratedClassHost host = GeneratedClassHost.of( PrivateFoo.class, classloader );
+        if ( !GeneratedClassHost.isHiddenClassAvailable() )
+        {
+            assertFalse( host.isHiddenClassHost() );
+            return;
+        }
+
+        assertTrue( host.isHiddenClassHost() );
+        assertEquals( "org/apache/directmemory/lightning/internal/generator/FooMarshaller",
+                      host.toInternalClassName( "FooMarshaller" ) );
+        assertTrue( host.isAccessible( PrivateFoo.class ) );
+        assertTrue( host.isAccessible( PrivateFoo.class.getDeclaredField( "id" ) ) );
+        assertTrue( host.isAccessible( PackageFoo.class.getDeclaredField( "name" ) ) );
+        assertFalse( host.isAccessible( String.class.getDeclaredField( "hash" ) ) );
+    }
+
+    @Test
+    public void testClassLoaderHost()
+        throws Exception
+    {
+        GeneratorClassLoader classloader = CreateClassLoader.createClassLoader( getClass().getClassLoader() );
+        GeneratedClassHost host = GeneratedClassHost.of( String[].class, classloader );
+
+        assertFalse( host.isHiddenClassHost() );
+        assertEquals( "FooMarshaller", host.toInternalClassName( "FooMarshaller" ) );
+        assertTrue( host.isAccessible( String.class ) );
+        assertFalse( host.isAccessible( PrivateFoo.class ) );
+        assertFalse( host.isAccessible( PrivateFoo.class.getDeclaredField( "id" ) ) );
+    }
+
+    @Test
+    public void testPrivatePropertiesRoundTrip()
+        throws Exception
+    {
+        for ( SerializationStrategy serializationStrategy : SerializationStrategy.values() )
+        {
+            Serializer serializer = buildSerializer( serializationStrategy );
+            PrivateFoo value = new PrivateFoo();
+            value.id = 4711;
+            value.name = "Lightning";
+            value.values = new long[] { 1L, -1L };
+            value.child = new PackageFoo();
+            value.child.name = "child";
+
+            byte[] bytes = serializer.serialize( value );
+            PrivateFoo result = serializer.deserialize( bytes, 0, bytes.length );
+
+            assertEquals( value.id, result.id );
+            assertEquals( value.name, result.name );
+            assertEquals( value.values[1], result.values[1] );
+            assertEquals( value.child.name, result.child.name );
+        }
+    }
+
+    private Serializer buildSerializer( SerializationStrategy serializationStrategy )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializationStrategy( serializationStrategy ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( PrivateFoo.class ).attributes();
+                serialize( PackageFoo.class ).attributes();
+            }
+        } ).build();
+    }
+
+    private static class PrivateFoo
+    {
+
+        @Attribute
+        private int id;
+
+        @Attribute
+        private String name;
+
+        @Attribute
+        private long[] values;
+
+        @Attribute
+        private PackageFoo child;
+    }
+
+    static class PackageFoo
+    {
+
+        @Attribute
+        String name;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.apache.directmemory.lightning.Lightning;
+import org.apache.directmemory.lightning.Serializer;
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.apache.directmemory.lightning.metadata.ClassDefinition;
+import org.junit.Test;
+
+public class MarshallerBytecodeCacheTestCase
+{
+
+    private static final byte[] BYTECODE = { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 1, 2, 3 };
+
+    @Test
+    public void testWriteAndReadBytecode()
+        throws Exception
+    {
+        File directory = createDirectory();
+        ClassDefinition classDefinition = findClassDefinition( buildSerializer() );
+
+        MarshallerBytecodeCache bytecodeCache = new MarshallerBytecodeCache( directory, classDefinition, "signature" );
+        assertNull( bytecodeCache.readBytecode() );
+
+        bytecodeCache.writeBytecode( BYTECODE );
+        assertArrayEquals( BYTECODE, bytecodeCache.readBytecode() );
+        assertArrayEquals( BYTECODE,
+                           new MarshallerBytecodeCache( directory, classDefinition, "signature" ).readBytecode() );
+    }
+
+    @Test
+    public void testStaleSignatureNotRead()
+        throws Exception
+    {
+        File directory = createDirectory();
+        ClassDefinition classDefinition = findClassDefinition( buildSerializer() );
+
+        new MarshallerBytecodeCache( directory, classDefinition, "signature" ).writeBytecode( BYTECODE );
+        assertNull( new MarshallerBytecodeCache( directory, classDefinition, "changed" ).readBytecode() );
+    }
+
+    @Test
+    public void testEntryOfOtherGeneratorNotRead()
+        throws Exception
+    {
+        File directory = createDirectory();
+        ClassDefinition classDefinition = findClassDefinition( buildSerializer() );
+
+        MarshallerBytecodeCache bytecodeCache =
+            new MarshallerBytecodeCache( directory, classDefinition, "signature", "build1" );
+        bytecodeCache.writeBytecode( BYTECODE );
+        assertArrayEquals( BYTECODE, bytecodeCache.readBytecode() );
+        assertNull( new MarshallerBytecodeCache( directory, classDefinition, "signature", "build2" ).readBytecode() );
+        assertNull( new MarshallerBytecodeCache( directory, classDefinition, "signature" ).readBytecode() );
+
+        // Without a checksum of the generator entries are never read
+        new MarshallerBytecodeCache( directory, classDefinition, "signature", null ).writeBytecode( BYTECODE );
+        assertNull( new MarshallerBytecodeCache( directory, classDefinition, "signature", null ).readBytecode() );
+    }
+
+    @Test
+    public void testCorruptedEntryNotRead()
+        throws Exception
+    {
+        File directory = createDirectory();
+        ClassDefinition classDefinition = findClassDefinition( buildSerializer() );
+
+        MarshallerBytecodeCache bytecodeCache = new MarshallerBytecodeCache( directory, classDefinition, "signature" );
+        bytecodeCache.writeBytecode( BYTECODE );
+
+        File[] files = directory.listFiles();
+        assertEquals( 1, files.length );
+
+        // Flip the last byte of the bytecode
+        RandomAccessFile file = new RandomAccessFile( files[0], "rw" );
+        file.seek( file.length() - 1 );
+        file.write( 4 );
+        file.close();
+        assertNull( bytecodeCache.readBytecode() );
+
+        // Truncated entry
+        new FileOutputStream( files[0] ).close();
+        assertNull( bytecodeCache.readBytecode() );
+    }
+
+    @Test
+    public void testSerializerUsesCacheDirectory()
+        throws Exception
+    {
+        File directory = createDirectory();
+        Serializer serializer =
+            Lightning.newBuilder().logger( new DebugLogger() ).marshallerCacheDirectory( directory ).serializerDefinitions( new AbstractSerializerDefinition()
+            {
+
+                @Override
+                protected void configure()
+                {
+                    serialize( CachedFoo.class ).attributes();
+                }
+            } ).build();
+
+        File[] files = directory.listFiles();
+        assertEquals( 1, files.length );
+        assertEquals( 0, files[0].getName().indexOf( CachedFoo.class.getName() ) );
+
+        CachedFoo value = new CachedFoo();
+        value.id = 4711;
+
+        byte[] bytes = serializer.serialize( value );
+        CachedFoo result = serializer.deserialize( bytes, 0, bytes.length );
+
+        assertEquals( value.id, result.id );
+    }
+
+    private File createDirectory()
+        throws IOException
+    {
+        File directory = File.createTempFile( "lightning", "cache" );
+        directory.delete();
+        directory.mkdirs();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    private ClassDefinition findClassDefinition( Serializer serializer )
+    {
+        ClassDescriptorAwareSerializer awareSerializer = (ClassDescriptorAwareSerializer) serializer;
+        return awareSerializer.findClassDescriptor( Foo.class ).getClassDefinition();
+    }
+
+    private Serializer buildSerializer()
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( Foo.class ).attributes();
+            }
+        } ).build();
+    }
+
+    public static class Foo
+    {
+
+        @Attribute
+        private int id;
+
+        @Attribute
+        private String name;
+    }
+
+    public static class CachedFoo
+    {
+
+        @Attribute
+        private long id;
+    }
+}
@@ -0,0 +1,479 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.generator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directmemory.lightning.Lightning;
+import org.apache.directmemory.lightning.Marshaller;
+import org.apache.directmemory.lightning.SerializationContext;
+import org.apache.directmemory.lightning.SerializationStrategy;
+import org.apache.directmemory.lightning.Serializer;
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.exceptions.SerializerMarshallerGeneratorException;
+import org.apache.directmemory.lightning.instantiator.ObjectInstantiatorFactory;
+import org.apache.directmemory.lightning.internal.ClassDescriptorAwareSerializer;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.apache.directmemory.lightning.metadata.PropertyDescriptor;
+import org.apache.directmemory.lightning.metadata.ValuePropertyAccessor;
+import org.junit.Test;
+
+public class PrecompiledMarshallerTestCase
+{
+
+    private static final byte[] STALE_CHECKSUM = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19 };
+
+    @Test
+    public void testPrecompiledMarshallerUsed()
+        throws Exception
+    {
+        registerPrecompiledFoo();
+        Serializer serializer = buildSerializer( PrecompiledFoo.class, false );
+        assertTrue( findMarshaller( serializer, PrecompiledFoo.class ) instanceof PrecompiledFooMarshaller );
+
+        PrecompiledFoo value = new PrecompiledFoo();
+        value.id = 4711;
+        value.name = "Lightning";
+
+        byte[] bytes = serializer.serialize( value );
+        PrecompiledFoo result = serializer.deserialize( bytes, 0, bytes.length );
+
+        assertEquals( value.id, result.id );
+        assertEquals( value.name, result.name );
+    }
+
+    @Test
+    public void testPrecompiledLayoutMatchesRuntimeGeneratedLayout()
+        throws Exception
+    {
+        // Runtime generated marshallers are bound before the build-time generated one is registered
+        SerializationStrategy[] serializationStrategies = SerializationStrategy.values();
+        Serializer[] runtimeSerializers = new Serializer[serializationStrategies.length];
+        for ( int i = 0; i < serializationStrategies.length; i++ )
+        {
+            runtimeSerializers[i] = buildSerializer( CrossCheckFoo.class, true, serializationStrategies[i] );
+            Marshaller marshaller = findMarshaller( runtimeSerializers[i], CrossCheckFoo.class );
+            assertFalse( marshaller instanceof PrecompiledFooMarshaller );
+        }
+
+        registerPrecompiled( CrossCheckFoo.class );
+        for ( int i = 0; i < serializationStrategies.length; i++ )
+        {
+            Serializer runtimeSerializer = runtimeSerializers[i];
+            Serializer precompiledSerializer =
+                buildSerializer( CrossCheckFoo.class, false, serializationStrategies[i] );
+            Marshaller marshaller = findMarshaller( precompiledSerializer, CrossCheckFoo.class );
+            assertTrue( marshaller instanceof PrecompiledFooMarshaller );
+
+            for ( String name : new String[] { "Lightning", null } )
+            {
+                CrossCheckFoo value = new CrossCheckFoo();
+                value.id = 4711;
+                value.name = name;
+
+                byte[] runtimeBytes = runtimeSerializer.serialize( value );
+                byte[] precompiledBytes = precompiledSerializer.serialize( value );
+                assertArrayEquals( runtimeBytes, precompiledBytes );
+
+                CrossCheckFoo result = precompiledSerializer.deserialize( runtimeBytes, 0, runtimeBytes.length );
+                assertEquals( 4711, result.id );
+                assertEquals( name, result.name );
+
+                result = runtimeSerializer.deserialize( precompiledBytes, 0, precompiledBytes.length );
+                assertEquals( 4711, result.id );
+                assertEquals( name, result.name );
+            }
+        }
+    }
+
+    @Test
+    public void testInlinedLayoutIgnored()
+        throws Exception
+    {
+        // The runtime generator would inline the final nested value, the build-time generated marshaller does not
+        registerPrecompiled( InlinedFoo.class );
+        Serializer serializer = Lightning.newBuilder().logger( new DebugLogger() ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( InlinedFoo.class ).attributes();
+                serialize( FinalBar.class ).attributes();
+            }
+        } ).build();
+
+        assertFalse( findMarshaller( serializer, InlinedFoo.class ) instanceof PrecompiledFooMarshaller );
+    }
+
+    @Test
+    public void testInlinedLayoutUsedWithoutRuntimeGeneration()
+        throws Exception
+    {
+        // Nothing is inlined without runtime generation, so the build-time generated marshallers are used
+        registerPrecompiled( InlinedFoo.class );
+        registerPrecompiled( FinalBar.class, FinalBarMarshaller.class );
+        Serializer serializer = Lightning.newBuilder().logger( new DebugLogger() ).runtimeMarshallerGeneration( false ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( InlinedFoo.class ).attributes();
+                serialize( FinalBar.class ).attributes();
+            }
+        } ).build();
+
+        assertTrue( findMarshaller( serializer, InlinedFoo.class ) instanceof PrecompiledFooMarshaller );
+        assertTrue( findMarshaller( serializer, FinalBar.class ) instanceof FinalBarMarshaller );
+
+        InlinedFoo value = new InlinedFoo();
+        value.id = 4711;
+        value.name = new FinalBar();
+        value.name.value = 42;
+
+        byte[] bytes = serializer.serialize( value );
+        InlinedFoo result = serializer.deserialize( bytes, 0, bytes.length );
+
+        assertEquals( 4711, result.id );
+        assertEquals( 42, result.name.value );
+    }
+
+    @Test
+    public void testLayoutVersionLoaded()
+        throws Exception
+    {
+        // Entries written before the layout version was added have layout version 1
+        String marshallerClassName = PrecompiledFooMarshaller.class.getName();
+        PrecompiledMarshallerIndex index =
+            loadIndex( PrecompiledFoo.class.getName() + "=" + marshallerClassName + ":cafe\n" + StaleFoo.class.getName()
+                + "=" + marshallerClassName + ":" + PrecompiledMarshallerIndex.LAYOUT_VERSION + ":cafe\n" );
+
+        assertEquals( 1, index.getLayoutVersion( PrecompiledFoo.class ) );
+        assertEquals( PrecompiledMarshallerIndex.LAYOUT_VERSION, index.getLayoutVersion( StaleFoo.class ) );
+        assertArrayEquals( new byte[] { (byte) 0xCA, (byte) 0xFE }, index.getChecksum( PrecompiledFoo.class ) );
+        assertEquals( -1, index.getLayoutVersion( CrossCheckFoo.class ) );
+    }
+
+    @Test
+    public void testStaleMarshallerIgnored()
+        throws Exception
+    {
+        registerStaleFoo();
+        Serializer serializer = buildSerializer( StaleFoo.class, true );
+
+        Marshaller marshaller = findMarshaller( serializer, StaleFoo.class );
+        assertTrue( marshaller instanceof AbstractGeneratedMarshaller );
+        assertFalse( marshaller instanceof PrecompiledFooMarshaller );
+    }
+
+    @Test( expected = SerializerMarshallerGeneratorException.class )
+    public void testRuntimeGenerationDisabled()
+        throws Exception
+    {
+        registerStaleFoo();
+        buildSerializer( StaleFoo.class, false );
+    }
+
+    @Test
+    public void testStoreAndLoadIndex()
+        throws Exception
+    {
+        byte[] checksum = { (byte) 0xCA, (byte) 0xFE, 0, 1, (byte) 0xFF };
+        PrecompiledMarshallerIndex index = new PrecompiledMarshallerIndex();
+        index.put( PrecompiledFoo.class, PrecompiledFooMarshaller.class.getName(), checksum );
+
+        File directory = File.createTempFile( "lightning", "index" );
+        directory.delete();
+        directory.mkdirs();
+        directory.deleteOnExit();
+        index.store( directory );
+        new File( directory, PrecompiledMarshallerIndex.INDEX_RESOURCE ).deleteOnExit();
+
+        ClassLoader classLoader = new URLClassLoader( new URL[] { directory.toURI().toURL() }, null );
+        PrecompiledMarshallerIndex loadedIndex = PrecompiledMarshallerIndex.of( classLoader );
+
+        assertEquals( PrecompiledFooMarshaller.class.getName(),
+                      loadedIndex.getMarshallerClassName( PrecompiledFoo.class ) );
+        assertArrayEquals( checksum, loadedIndex.getChecksum( PrecompiledFoo.class ) );
+        assertNull( loadedIndex.getMarshallerClassName( StaleFoo.class ) );
+    }
+
+    private void registerPrecompiledFoo()
+    {
+        registerPrecompiled( PrecompiledFoo.class );
+    }
+
+    private void registerPrecompiled( Class<?> type )
+    {
+        registerPrecompiled( type, PrecompiledFooMarshaller.class );
+    }
+
+    private void registerPrecompiled( Class<?> type, Class<? extends Marshaller> marshallerType )
+    {
+        // The index entry is written by the maven plugin at build time, the checksum is taken from the live class
+        ClassDescriptorAwareSerializer serializer = (ClassDescriptorAwareSerializer) buildSerializer( type, true );
+        byte[] checksum = serializer.findClassDescriptor( type ).getClassDefinition().getChecksum();
+
+        PrecompiledMarshallerIndex index = PrecompiledMarshallerIndex.of( type.getClassLoader() );
+        index.put( type, marshallerType.getName(), checksum );
+    }
+
+    private PrecompiledMarshallerIndex loadIndex( String content )
+        throws IOException
+    {
+        File directory = File.createTempFile( "lightning", "index" );
+        directory.delete();
+        File indexFile = new File( directory, PrecompiledMarshallerIndex.INDEX_RESOURCE );
+        indexFile.getParentFile().mkdirs();
+
+        Writer writer = new OutputStreamWriter( new FileOutputStream( indexFile ), "UTF-8" );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        ClassLoader classLoader = new URLClassLoader( new URL[] { directory.toURI().toURL() }, null );
+        return PrecompiledMarshallerIndex.of( classLoader );
+    }
+
+    private void registerStaleFoo()
+    {
+        PrecompiledMarshallerIndex index = PrecompiledMarshallerIndex.of( StaleFoo.class.getClassLoader() );
+        index.put( StaleFoo.class, PrecompiledFooMarshaller.class.getName(), STALE_CHECKSUM );
+    }
+
+    private Marshaller findMarshaller( Serializer serializer, Class<?> type )
+    {
+        ClassDescriptorAwareSerializer awareSerializer = (ClassDescriptorAwareSerializer) serializer;
+        return awareSerializer.findClassDescriptor( type ).getMarshaller();
+    }
+
+    private Serializer buildSerializer( Class<?> type, boolean runtimeMarshallerGeneration )
+    {
+        return buildSerializer( type, runtimeMarshallerGeneration, SerializationStrategy.SpeedOptimized );
+    }
+
+    private Serializer buildSerializer( final Class<?> type, boolean runtimeMarshallerGeneration,
+                                        SerializationStrategy serializationStrategy )
+    {
+        return Lightning.newBuilder().logger( new DebugLogger() ).serializationStrategy( serializationStrategy ).runtimeMarshallerGeneration( runtimeMarshallerGeneration ).serializerDefinitions( new AbstractSerializerDefinition()
+        {
+
+            @Override
+            protected void configure()
+            {
+                serialize( type ).attributes();
+            }
+        } ).build();
+    }
+
+    public static class PrecompiledFoo
+    {
+
+        @Attribute
+        public int id;
+
+        @Attribute
+        public String name;
+    }
+
+    public static class CrossCheckFoo
+        extends PrecompiledFoo
+    {
+    }
+
+    public static class InlinedFoo
+    {
+
+        @Attribute
+        public int id;
+
+        @Attribute
+        public FinalBar name;
+    }
+
+    public static final class FinalBar
+    {
+
+        @Attribute
+        public int value;
+    }
+
+    public static class StaleFoo
+    {
+
+        @Attribute
+        public long value;
+    }
+
+    /**
+     * Equivalent of the source generated for {@link PrecompiledFoo} by the maven plugin.
+     */
+    public static final class PrecompiledFooMarshaller
+        extends AbstractGeneratedMarshaller
+    {
+
+        private final PropertyDescriptor idDescriptor;
+
+        private final PropertyDescriptor nameDescriptor;
+
+        private final Marshaller idMarshaller;
+
+        private final Marshaller nameMarshaller;
+
+        private final ValuePropertyAccessor idAccessor;
+
+        private final ValuePropertyAccessor nameAccessor;
+
+        public PrecompiledFooMarshaller( Class<?> marshalledType, Map<Class<?>, Marshaller> marshallers,
+                                         ClassDescriptorAwareSerializer serializer,
+                                         ObjectInstantiatorFactory objectInstantiatorFactory,
+                                         List<PropertyDescriptor> propertyDescriptors )
+        {
+            super( marshalledType, marshallers, serializer, objectInstantiatorFactory );
+            idDescriptor = toMarshalledPropertyDescriptor( propertyDescriptors.get( 0 ) );
+            nameDescriptor = toMarshalledPropertyDescriptor( propertyDescriptors.get( 1 ) );
+            idMarshaller = findMarshaller( propertyDescriptors.get( 0 ) );
+            nameMarshaller = findMarshaller( propertyDescriptors.get( 1 ) );
+            idAccessor = (ValuePropertyAccessor) getPropertyAccessor( "id" );
+            nameAccessor = (ValuePropertyAccessor) getPropertyAccessor( "name" );
+        }
+
+        @Override
+        public void marshall( Object value, PropertyDescriptor propertyDescriptor, DataOutput dataOutput,
+                              SerializationContext serializationContext )
+            throws IOException
+        {
+            if ( isAlreadyMarshalled( value, propertyDescriptor, dataOutput, serializationContext ) )
+            {
+                return;
+            }
+
+            Object nameValue = nameAccessor.readObject( value );
+            long nullBitmap0 = 0L;
+            if ( nameValue == null )
+            {
+                nullBitmap0 |= 0x1L;
+            }
+            writeNullBitmap( nullBitmap0, dataOutput );
+
+            idMarshaller.marshall( Integer.valueOf( idAccessor.readInt( value ) ), idDescriptor, dataOutput,
+                                   serializationContext );
+            if ( nameValue != null )
+            {
+                nameMarshaller.marshall( nameValue, nameDescriptor, dataOutput, serializationContext );
+            }
+
+            afterMarshalled( value, propertyDescriptor, serializationContext );
+        }
+
+        @Override
+        protected <V> V unmarshall( V instance, PropertyDescriptor propertyDescriptor, DataInput dataInput,
+                                    SerializationContext serializationContext )
+            throws IOException
+        {
+            long nullBitmap0 = readNullBitmap( dataInput );
+
+            Integer idValue = idMarshaller.unmarshall( idDescriptor, dataInput, serializationContext );
+            idAccessor.writeInt( instance, idValue.intValue() );
+
+            Object nameValue = null;
+            if ( ( nullBitmap0 & 0x1L ) == 0L )
+            {
+                nameValue = nameMarshaller.unmarshall( nameDescriptor, dataInput, serializationContext );
+            }
+            nameAccessor.writeObject( instance, nameValue );
+            return instance;
+        }
+    }
+
+    /**
+     * Equivalent of the source generated for {@link FinalBar} by the maven plugin, without reference properties no
+     * null bitmap is written.
+     */
+    public static final class FinalBarMarshaller
+        extends AbstractGeneratedMarshaller
+    {
+
+        private final PropertyDescriptor valueDescriptor;
+
+        private final Marshaller valueMarshaller;
+
+        private final ValuePropertyAccessor valueAccessor;
+
+        public FinalBarMarshaller( Class<?> marshalledType, Map<Class<?>, Marshaller> marshallers,
+                                   ClassDescriptorAwareSerializer serializer,
+                                   ObjectInstantiatorFactory objectInstantiatorFactory,
+                                   List<PropertyDescriptor> propertyDescriptors )
+        {
+            super( marshalledType, marshallers, serializer, objectInstantiatorFactory );
+            valueDescriptor = toMarshalledPropertyDescriptor( propertyDescriptors.get( 0 ) );
+            valueMarshaller = findMarshaller( propertyDescriptors.get( 0 ) );
+            valueAccessor = (ValuePropertyAccessor) getPropertyAccessor( "value" );
+        }
+
+        @Override
+        public void marshall( Object value, PropertyDescriptor propertyDescriptor, DataOutput dataOutput,
+                              SerializationContext serializationContext )
+            throws IOException
+        {
+            if ( isAlreadyMarshalled( value, propertyDescriptor, dataOutput, serializationContext ) )
+            {
+                return;
+            }
+
+            valueMarshaller.marshall( Integer.valueOf( valueAccessor.readInt( value ) ), valueDescriptor, dataOutput,
+                                      serializationContext );
+
+            afterMarshalled( value, propertyDescriptor, serializationContext );
+        }
+
+        @Override
+        protected <V> V unmarshall( V instance, PropertyDescriptor propertyDescriptor, DataInput dataInput,
+                                    SerializationContext serializationContext )
+            throws IOException
+        {
+            Integer valueValue = valueMarshaller.unmarshall( valueDescriptor, dataInput, serializationContext );
+            valueAccessor.writeInt( instance, valueValue.intValue() );
+            return instance;
+        }
+    }
+}
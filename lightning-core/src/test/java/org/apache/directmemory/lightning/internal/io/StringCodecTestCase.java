@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.junit.Test;
+
+public class StringCodecTestCase
+{
+
+    private static final String[] VALUES = { "", "someIdentifier", "Grüße, ça va?", "10 €",
+        "日本語", "smile 😀", "lone \ud800 surrogate", "reversed \udc00\ud800" };
+
+    @Test
+    public void testRoundTrip()
+        throws Exception
+    {
+        StringCodec codec = new StringCodec();
+        ByteArrayDataOutput dataOutput = new ByteArrayDataOutput( 16 );
+        for ( String value : VALUES )
+        {
+            codec.writeString( value, dataOutput );
+        }
+
+        byte[] bytes = dataOutput.toByteArray();
+        ByteArrayDataInput dataInput = new ByteArrayDataInput( bytes, 0, bytes.length );
+        for ( String value : VALUES )
+        {
+            assertEquals( value, codec.readString( dataInput ) );
+        }
+    }
+
+    @Test
+    public void testLatin1IsOneBytePerChar()
+        throws Exception
+    {
+        StringCodec codec = new StringCodec();
+        ByteArrayDataOutput dataOutput = new ByteArrayDataOutput( 16 );
+        codec.writeString( "Grüße", dataOutput );
+
+        // One byte header plus one byte per char
+        assertEquals( 6, dataOutput.getPosition() );
+    }
+
+    @Test
+    public void testStandardUTF8ForOtherStrings()
+        throws Exception
+    {
+        String value = "10 € 😀";
+
+        StringCodec codec = new StringCodec();
+        ByteArrayDataOutput dataOutput = new ByteArrayDataOutput( 16 );
+        codec.writeString( value, dataOutput );
+
+        byte[] expected = value.getBytes( "UTF-8" );
+        byte[] bytes = dataOutput.toByteArray();
+        assertEquals( expected.length << 1, bytes[0] );
+        assertEquals( value, new String( bytes, 1, bytes.length - 1, "UTF-8" ) );
+    }
+
+    @Test
+    public void testLongStringsThroughStreams()
+        throws Exception
+    {
+        StringBuilder builder = new StringBuilder();
+        for ( int i = 0; i < 100000; i++ )
+        {
+            builder.append( (char) ( 'a' + i % 26 ) );
+            if ( i % 1000 == 0 )
+            {
+                builder.append( '€' );
+            }
+        }
+        String latin1 = builder.toString().replace( '€', 'ä' );
+        String utf8 = builder.toString();
+
+        StringCodec codec = new StringCodec();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dataOutput = new DataOutputStream( baos );
+        codec.writeString( latin1, dataOutput );
+        codec.writeString( utf8, dataOutput );
+
+        DataInputStream dataInput = new DataInputStream( new ByteArrayInputStream( baos.toByteArray() ) );
+        assertEquals( latin1, codec.readString( dataInput ) );
+        assertEquals( utf8, codec.readString( dataInput ) );
+    }
+}
@@ -155,6 +155,61 @@ public class ListMarshallerTestCase
         assertEquals( value, result );
     }
 
+    @Test
+    @SuppressWarnings( { "rawtypes", "unchecked" } )
+    public void testNoGenericTypeListTypeRuns()
+        throws Exception
+    {
+        Serializer serializer =
+            Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializerDefinitions( new AbstractSerializerDefinition()
+            {
+
+                @Override
+                protected void configure()
+                {
+                    serialize( NoGenericTypeList.class ).attributes();
+                }
+            } ).build();
+
+        List list = new ArrayList();
+        list.add( "Foo" );
+        list.add( "Bar" );
+        list.add( 1 );
+        list.add( 2 );
+        list.add( null );
+        list.add( 3 );
+        list.add( "Rhabarbar" );
+
+        NoGenericTypeList value = new NoGenericTypeList();
+        value.setList( list );
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        serializer.serialize( value, baos );
+        Object result = serializer.deserialize( new ByteArrayInputStream( baos.toByteArray() ) );
+        assertEquals( value, result );
+
+        // Homogeneous elements only write their class id once
+        List single = new ArrayList();
+        single.add( 0 );
+        value.setList( single );
+        baos = new ByteArrayOutputStream();
+        serializer.serialize( value, baos );
+        int singleLength = baos.size();
+
+        List homogeneous = new ArrayList();
+        for ( int i = 0; i < 100; i++ )
+        {
+            homogeneous.add( i );
+        }
+        value.setList( homogeneous );
+        baos = new ByteArrayOutputStream();
+        serializer.serialize( value, baos );
+
+        // Per element: run marker, null marker and int value
+        assertEquals( singleLength + 99 * 6, baos.size() );
+        assertEquals( value, serializer.deserialize( new ByteArrayInputStream( baos.toByteArray() ) ) );
+    }
+
     @SuppressWarnings( "rawtypes" )
     public static class NoGenericTypeList
     {
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.marshaller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.directmemory.lightning.Lightning;
+import org.apache.directmemory.lightning.Serializer;
+import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.util.DebugLogger;
+import org.apache.directmemory.lightning.metadata.Attribute;
+import org.junit.Test;
+
+/**
+ * Generated marshallers write primitive properties directly to the DataOutput, without autoboxing. Serializing a bean
+ * with only primitive properties into a byte array should therefore not allocate at all.
+ */
+public class PrimitiveAllocationTestCase
+{
+
+    private static final int ROUNDS = 10000;
+
+    @Test
+    public void testPrimitiveSerializationIsAllocationFree()
+        throws Exception
+    {
+        Serializer serializer =
+            Lightning.newBuilder().logger( new DebugLogger() ).debugCacheDirectory( new File( "target" ) ).serializerDefinitions( new AbstractSerializerDefinition()
+            {
+
+                @Override
+                protected void configure()
+                {
+                    serialize( PrimitiveHolder.class ).attributes();
+                }
+            } ).build();
+
+        PrimitiveHolder value = new PrimitiveHolder();
+        value.booleanValue = true;
+        value.byteValue = Byte.MIN_VALUE;
+        value.charValue = '€';
+        value.shortValue = Short.MAX_VALUE;
+        value.intValue = Integer.MIN_VALUE;
+        value.longValue = Long.MAX_VALUE;
+        value.floatValue = Float.MAX_VALUE;
+        value.doubleValue = Double.MIN_VALUE;
+
+        byte[] target = new byte[128];
+        int length = serializer.serialize( value, target, 0 );
+        assertEquals( value, serializer.deserialize( target, 0, length ) );
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if ( !( threadMXBean instanceof com.sun.management.ThreadMXBean ) )
+        {
+            return;
+        }
+
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if ( !allocationMXBean.isThreadAllocatedMemorySupported() )
+        {
+            return;
+        }
+        allocationMXBean.setThreadAllocatedMemoryEnabled( true );
+
+        // Warm up
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            serializer.serialize( value, target, 0 );
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long start = allocationMXBean.getThreadAllocatedBytes( threadId );
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            serializer.serialize( value, target, 0 );
+        }
+        long allocated = allocationMXBean.getThreadAllocatedBytes( threadId ) - start;
+
+        assertTrue( "Allocated " + allocated + " bytes in " + ROUNDS + " rounds", allocated < ROUNDS );
+    }
+
+    public static class PrimitiveHolder
+    {
+
+        @Attribute
+        private boolean booleanValue;
+
+        @Attribute
+        private byte byteValue;
+
+        @Attribute
+        private char charValue;
+
+        @Attribute
+        private short shortValue;
+
+        @Attribute
+        private int intValue;
+
+        @Attribute
+        private long longValue;
+
+        @Attribute
+        private float floatValue;
+
+        @Attribute
+        private double doubleValue;
+
+        @Override
+        public int hashCode()
+        {
+            return intValue;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( !( obj instanceof PrimitiveHolder ) )
+                return false;
+            PrimitiveHolder other = (PrimitiveHolder) obj;
+            return booleanValue == other.booleanValue && byteValue == other.byteValue
+                && charValue == other.charValue && shortValue == other.shortValue && intValue == other.intValue
+                && longValue == other.longValue && floatValue == other.floatValue
+                && doubleValue == other.doubleValue;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IdentityIntMapTestCase
+{
+
+    @Test
+    public void testPutAndGet()
+        throws Exception
+    {
+        IdentityIntMap map = new IdentityIntMap();
+        Object[] keys = new Object[1000];
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            keys[i] = new Object();
+            assertEquals( -1, map.put( keys[i], i ) );
+        }
+
+        assertEquals( keys.length, map.size() );
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            assertEquals( i, map.get( keys[i] ) );
+        }
+        assertEquals( -1, map.get( new Object() ) );
+    }
+
+    @Test
+    public void testIdentitySemantics()
+        throws Exception
+    {
+        IdentityIntMap map = new IdentityIntMap();
+        String first = new String( "value" );
+        String second = new String( "value" );
+
+        map.put( first, 1 );
+        assertEquals( -1, map.get( second ) );
+        assertEquals( 1, map.put( first, 2 ) );
+        assertEquals( 2, map.get( first ) );
+        assertEquals( 1, map.size() );
+    }
+
+    @Test
+    public void testClearAndReuse()
+        throws Exception
+    {
+        IdentityIntMap map = new IdentityIntMap();
+        Object key = new Object();
+        map.put( key, 5 );
+        map.clear();
+
+        assertTrue( map.isEmpty() );
+        assertEquals( -1, map.get( key ) );
+
+        map.put( key, 7 );
+        assertEquals( 7, map.get( key ) );
+    }
+}
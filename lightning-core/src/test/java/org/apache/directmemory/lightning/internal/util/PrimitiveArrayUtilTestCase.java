@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.util;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.apache.directmemory.lightning.internal.io.ByteArrayDataInput;
+import org.apache.directmemory.lightning.internal.io.ByteArrayDataOutput;
+import org.apache.directmemory.lightning.internal.io.ByteBufferDataInput;
+import org.apache.directmemory.lightning.internal.io.ByteBufferDataOutput;
+import org.apache.directmemory.lightning.internal.io.LittleEndianDataInput;
+import org.apache.directmemory.lightning.internal.io.LittleEndianDataOutput;
+import org.junit.Test;
+
+public class PrimitiveArrayUtilTestCase
+{
+
+    private static final int LENGTH = 5000;
+
+    @Test
+    public void testBulkAndStreamBytesMatchPerElementWrites()
+        throws Exception
+    {
+        long[] values = buildLongs();
+
+        // Reference format written element by element
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream( expected );
+        for ( long value : values )
+        {
+            dataOutputStream.writeLong( value );
+        }
+
+        ByteArrayDataOutput bulk = new ByteArrayDataOutput( 16 );
+        PrimitiveArrayUtil.writeLongs( bulk, values );
+        assertArrayEquals( expected.toByteArray(), bulk.toByteArray() );
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        PrimitiveArrayUtil.writeLongs( new DataOutputStream( stream ), values );
+        assertArrayEquals( expected.toByteArray(), stream.toByteArray() );
+    }
+
+    @Test
+    public void testLittleEndianStreamBytesMatchLittleEndianBulkWrites()
+        throws Exception
+    {
+        long[] longs = buildLongs();
+        double[] doubles = buildDoubles();
+        short[] shorts = buildShorts();
+
+        ByteArrayDataOutput bulk = new ByteArrayDataOutput( 16, ByteOrder.LITTLE_ENDIAN );
+        PrimitiveArrayUtil.writeLongs( bulk, longs );
+        PrimitiveArrayUtil.writeDoubles( bulk, doubles );
+        PrimitiveArrayUtil.writeShorts( bulk, shorts );
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        LittleEndianDataOutput dataOutput = new LittleEndianDataOutput( new DataOutputStream( stream ) );
+        PrimitiveArrayUtil.writeLongs( dataOutput, longs );
+        PrimitiveArrayUtil.writeDoubles( dataOutput, doubles );
+        PrimitiveArrayUtil.writeShorts( dataOutput, shorts );
+        assertArrayEquals( bulk.toByteArray(), stream.toByteArray() );
+
+        LittleEndianDataInput dataInput =
+            new LittleEndianDataInput( new DataInputStream( new ByteArrayInputStream( stream.toByteArray() ) ) );
+        long[] longsResult = new long[longs.length];
+        double[] doublesResult = new double[doubles.length];
+        short[] shortsResult = new short[shorts.length];
+        PrimitiveArrayUtil.readLongs( dataInput, longsResult );
+        PrimitiveArrayUtil.readDoubles( dataInput, doublesResult );
+        PrimitiveArrayUtil.readShorts( dataInput, shortsResult );
+
+        assertArrayEquals( longs, longsResult );
+        assertArrayEquals( doubles, doublesResult, 0.0d );
+        assertArrayEquals( shorts, shortsResult );
+    }
+
+    @Test
+    public void testAllElementTypesStreamBytesMatchPerElementWrites()
+        throws Exception
+    {
+        Random random = new Random( -4 );
+        char[] chars = new char[LENGTH];
+        int[] ints = new int[LENGTH];
+        float[] floats = new float[LENGTH];
+        for ( int i = 0; i < LENGTH; i++ )
+        {
+            chars[i] = (char) random.nextInt();
+            ints[i] = random.nextInt();
+            floats[i] = random.nextFloat();
+        }
+        short[] shorts = buildShorts();
+        long[] longs = buildLongs();
+        double[] doubles = buildDoubles();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream( expected );
+        for ( int i = 0; i < LENGTH; i++ )
+        {
+            dataOutputStream.writeShort( shorts[i] );
+        }
+        for ( int i = 0; i < LENGTH; i++ )
+        {
+            dataOutputStream.writeChar( chars[i] );
+        }
+        for ( int i = 0; i < LENGTH; i++ )
+        {
+            dataOutputStream.writeInt( ints[i] );
+        }
+        for ( int i = 0; i < LENGTH; i++ )
+        {
+            dataOutputStream.writeLong( longs[i] );
+        }
+        for ( int i = 0; i < LENGTH; i++ )
+        {
+            dataOutputStream.writeFloat( floats[i] );
+        }
+        for ( int i = 0; i < LENGTH; i++ )
+        {
+            dataOutputStream.writeDouble( doubles[i] );
+        }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream dataOutput = new DataOutputStream( stream );
+        PrimitiveArrayUtil.writeShorts( dataOutput, shorts );
+        PrimitiveArrayUtil.writeChars( dataOutput, chars );
+        PrimitiveArrayUtil.writeInts( dataOutput, ints );
+        PrimitiveArrayUtil.writeLongs( dataOutput, longs );
+        PrimitiveArrayUtil.writeFloats( dataOutput, floats );
+        PrimitiveArrayUtil.writeDoubles( dataOutput, doubles );
+        assertArrayEquals( expected.toByteArray(), stream.toByteArray() );
+
+        DataInputStream dataInput = new DataInputStream( new ByteArrayInputStream( stream.toByteArray() ) );
+        short[] shortsResult = new short[LENGTH];
+        char[] charsResult = new char[LENGTH];
+        int[] intsResult = new int[LENGTH];
+        long[] longsResult = new long[LENGTH];
+        float[] floatsResult = new float[LENGTH];
+        double[] doublesResult = new double[LENGTH];
+        PrimitiveArrayUtil.readShorts( dataInput, shortsResult );
+        PrimitiveArrayUtil.readChars( dataInput, charsResult );
+        PrimitiveArrayUtil.readInts( dataInput, intsResult );
+        PrimitiveArrayUtil.readLongs( dataInput, longsResult );
+        PrimitiveArrayUtil.readFloats( dataInput, floatsResult );
+        PrimitiveArrayUtil.readDoubles( dataInput, doublesResult );
+
+        assertArrayEquals( shorts, shortsResult );
+        assertArrayEquals( chars, charsResult );
+        assertArrayEquals( ints, intsResult );
+        assertArrayEquals( longs, longsResult );
+        assertArrayEquals( floats, floatsResult, 0.0f );
+        assertArrayEquals( doubles, doublesResult, 0.0 );
+    }
+
+    @Test( expected = IOException.class )
+    public void testHugeBulkWriteDoesNotOverflow()
+        throws Exception
+    {
+        // 2^28 longs are 2^31 bytes, an int byte length would wrap around to a negative value
+        ByteArrayDataOutput dataOutput = new ByteArrayDataOutput( new byte[16], 0, false );
+        dataOutput.writeLongs( new long[1], 0, 1 << 28 );
+    }
+
+    @Test( expected = EOFException.class )
+    public void testHugeBulkReadDoesNotOverflow()
+        throws Exception
+    {
+        ByteArrayDataInput dataInput = new ByteArrayDataInput( new byte[16], 0, 16 );
+        dataInput.readDoubles( new double[1], 0, 1 << 28 );
+    }
+
+    @Test
+    public void testStreamRoundTrip()
+        throws Exception
+    {
+        double[] doubles = buildDoubles();
+        short[] shorts = buildShorts();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dataOutput = new DataOutputStream( baos );
+        PrimitiveArrayUtil.writeDoubles( dataOutput, doubles );
+        PrimitiveArrayUtil.writeShorts( dataOutput, shorts );
+
+        DataInputStream dataInput = new DataInputStream( new ByteArrayInputStream( baos.toByteArray() ) );
+        double[] doublesResult = new double[doubles.length];
+        short[] shortsResult = new short[shorts.length];
+        PrimitiveArrayUtil.readDoubles( dataInput, doublesResult );
+        PrimitiveArrayUtil.readShorts( dataInput, shortsResult );
+
+        assertArrayEquals( doubles, doublesResult, 0.0 );
+        assertArrayEquals( shorts, shortsResult );
+    }
+
+    @Test
+    public void testLittleEndianByteArrayRoundTrip()
+        throws Exception
+    {
+        long[] values = buildLongs();
+
+        ByteArrayDataOutput dataOutput = new ByteArrayDataOutput( 16, ByteOrder.LITTLE_ENDIAN );
+        dataOutput.writeByte( 1 );
+        PrimitiveArrayUtil.writeLongs( dataOutput, values );
+        byte[] bytes = dataOutput.toByteArray();
+
+        // Must match single writes in the same byte order
+        ByteArrayDataOutput expected = new ByteArrayDataOutput( 16, ByteOrder.LITTLE_ENDIAN );
+        expected.writeByte( 1 );
+        for ( long value : values )
+        {
+            expected.writeLong( value );
+        }
+        assertArrayEquals( expected.toByteArray(), bytes );
+
+        ByteArrayDataInput dataInput = new ByteArrayDataInput( bytes, 0, bytes.length, ByteOrder.LITTLE_ENDIAN );
+        dataInput.readByte();
+        long[] result = new long[values.length];
+        PrimitiveArrayUtil.readLongs( dataInput, result );
+        assertArrayEquals( values, result );
+    }
+
+    @Test
+    public void testDirectByteBufferRoundTrip()
+        throws Exception
+    {
+        double[] values = buildDoubles();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect( values.length * 8 + 1 );
+        ByteBufferDataOutput dataOutput = new ByteBufferDataOutput( ByteOrder.nativeOrder() ).reset( buffer );
+        dataOutput.writeByte( 1 );
+        PrimitiveArrayUtil.writeDoubles( dataOutput, values );
+        dataOutput.release();
+        buffer.flip();
+
+        ByteBufferDataInput dataInput = new ByteBufferDataInput( ByteOrder.nativeOrder() ).reset( buffer );
+        dataInput.readByte();
+        double[] result = new double[values.length];
+        PrimitiveArrayUtil.readDoubles( dataInput, result );
+        dataInput.release();
+
+        assertArrayEquals( values, result, 0.0 );
+    }
+
+    private long[] buildLongs()
+    {
+        Random random = new Random( -1 );
+        long[] values = new long[LENGTH];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[i] = random.nextLong();
+        }
+        return values;
+    }
+
+    private double[] buildDoubles()
+    {
+        Random random = new Random( -2 );
+        double[] values = new double[LENGTH];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[i] = random.nextGaussian();
+        }
+        return values;
+    }
+
+    private short[] buildShorts()
+    {
+        Random random = new Random( -3 );
+        short[] values = new short[LENGTH];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[i] = (short) random.nextInt();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.directmemory.lightning.internal.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.directmemory.lightning.internal.io.ByteArrayDataInput;
+import org.apache.directmemory.lightning.internal.io.ByteArrayDataOutput;
+import org.junit.Test;
+
+public class VarIntUtilTestCase
+{
+
+    @Test
+    public void testVarIntRoundTrip()
+        throws Exception
+    {
+        int[] values = { 0, 1, -1, 63, -64, 64, 127, 128, 16383, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+        ByteArrayDataOutput out = new ByteArrayDataOutput( 16 );
+        for ( int value : values )
+        {
+            VarIntUtil.writeVarInt( out, value );
+        }
+
+        ByteArrayDataInput in = new ByteArrayDataInput( out.getBuffer(), 0, out.getPosition() );
+        for ( int value : values )
+        {
+            assertEquals( value, VarIntUtil.readVarInt( in ) );
+        }
+    }
+
+    @Test
+    public void testVarLongRoundTrip()
+        throws Exception
+    {
+        long[] values = { 0L, 1L, -1L, 1L << 35, -( 1L << 35 ), Long.MAX_VALUE, Long.MIN_VALUE };
+
+        ByteArrayDataOutput out = new ByteArrayDataOutput( 16 );
+        for ( long value : values )
+        {
+            VarIntUtil.writeVarLong( out, value );
+        }
+
+        ByteArrayDataInput in = new ByteArrayDataInput( out.getBuffer(), 0, out.getPosition() );
+        for ( long value : values )
+        {
+            assertEquals( value, VarIntUtil.readVarLong( in ) );
+        }
+    }
+
+    @Test
+    public void testEncodedLength()
+        throws Exception
+    {
+        assertEquals( 1, encodedVarIntLength( 0 ) );
+        assertEquals( 1, encodedVarIntLength( -64 ) );
+        assertEquals( 2, encodedVarIntLength( 64 ) );
+        assertEquals( 5, encodedVarIntLength( Integer.MIN_VALUE ) );
+
+        ByteArrayDataOutput out = new ByteArrayDataOutput( 16 );
+        VarIntUtil.writeUnsignedVarLong( out, -1L );
+        assertEquals( 10, out.getPosition() );
+    }
+
+    private int encodedVarIntLength( int value )
+        throws Exception
+    {
+        ByteArrayDataOutput out = new ByteArrayDataOutput( 16 );
+        VarIntUtil.writeVarInt( out, value );
+        return out.getPosition();
+    }
+}
@@ -34,6 +34,7 @@ import javax.tools.SimpleJavaFileObject;
 import org.apache.directmemory.lightning.SerializationStrategy;
 import org.apache.directmemory.lightning.Serializer;
 import org.apache.directmemory.lightning.base.AbstractSerializerDefinition;
+import org.apache.directmemory.lightning.internal.generator.PrecompiledMarshallerIndex;
 import org.apache.directmemory.lightning.configuration.SerializerDefinition;
 import org.apache.directmemory.lightning.logging.LogLevel;
 import org.apache.directmemory.lightning.logging.Logger;
@@ -110,7 +111,8 @@ public class LightningGeneratorMojo
 
         SerializationStrategy serializationStrategy =
             "size".equalsIgnoreCase( strategy ) ? SerializationStrategy.SizeOptimized
-                            : SerializationStrategy.SpeedOptimized;
+                            : "compact".equalsIgnoreCase( strategy ) ? SerializationStrategy.Compact
+                                            : SerializationStrategy.SpeedOptimized;
 
         MavenLoggerAdapter logger = new MavenLoggerAdapter( LightningGeneratorMojo.class.getCanonicalName() );
         getLog().info( "Searching in path " + targetBuildDirectory.getAbsolutePath() );
@@ -137,6 +139,7 @@ public class LightningGeneratorMojo
             new URLClassLoader( urlClasspathElements.toArray( new URL[urlClasspathElements.size()] ),
                                 getClass().getClassLoader() );
 
+        PrecompiledMarshallerIndex marshallerIndex = new PrecompiledMarshallerIndex();
         for ( File file : files )
         {
             try
@@ -159,7 +162,7 @@ public class LightningGeneratorMojo
 
                     SerializerDefinitionAnalyser analyser = new SerializerDefinitionAnalyser( logger );
                     analyser.analyse( definition );
-                    analyser.build( generatedSourceDirectory, serializationStrategy, encoding );
+                    analyser.build( generatedSourceDirectory, serializationStrategy, encoding, marshallerIndex );
                 }
             }
             catch ( Exception e )
@@ -168,6 +171,16 @@ public class LightningGeneratorMojo
             }
         }
 
+        // The index is written next to the compiled marshallers so it is packaged together with them
+        try
+        {
+            marshallerIndex.store( targetBuildDirectory );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not write Lightning marshaller index", e );
+        }
+
         super.execute();
 
         // session.getCurrentProject().addCompileSourceRoot(generatedSourceDirectory.getAbsolutePath());
@@ -40,6 +40,7 @@ import org.apache.directmemory.lightning.internal.InternalClassDescriptor;
 import org.apache.directmemory.lightning.internal.InternalDefinitionBuildingContext;
 import org.apache.directmemory.lightning.internal.InternalMarshallerStrategy;
 import org.apache.directmemory.lightning.internal.beans.InternalPropertyDescriptorFactory;
+import org.apache.directmemory.lightning.internal.generator.PrecompiledMarshallerIndex;
 import org.apache.directmemory.lightning.internal.util.ClassUtil;
 import org.apache.directmemory.lightning.internal.util.TypeUtil;
 import org.apache.directmemory.lightning.logging.Logger;
@@ -80,7 +81,8 @@ public class SerializerDefinitionAnalyser
         serializerDefinition.acceptVisitor( definitionVisitor );
     }
 
-    public List<File> build( File outputFolder, SerializationStrategy serializationStrategy, String encoding )
+    public List<File> build( File outputFolder, SerializationStrategy serializationStrategy, String encoding,
+                             PrecompiledMarshallerIndex marshallerIndex )
     {
         Charset charset = Charset.forName( encoding );
 
@@ -98,12 +100,24 @@ public class SerializerDefinitionAnalyser
                 try
                 {
                     SourceMarshallerGenerator generator = new SourceMarshallerGenerator( charset, logger );
+                    if ( !generator.isSupported( classDescriptor.getPropertyDescriptors() ) )
+                    {
+                        logger.info( "Marshaller of " + classDescriptor.getType().getName()
+                            + " is left to runtime generation, it has object array properties" );
+                        continue;
+                    }
+
                     File sourceFile =
                         generator.generateMarshaller( classDescriptor.getType(),
                                                       classDescriptor.getPropertyDescriptors(), serializationStrategy,
                                                       outputFolder );
 
                     files.add( sourceFile );
+
+                    // Lets the runtime find the marshaller and verify it still matches the class
+                    Class<?> type = classDescriptor.getType();
+                    byte[] checksum = classDescriptor.getClassDefinition().getChecksum();
+                    marshallerIndex.put( type, generator.toMarshallerClassName( type ), checksum );
                 }
                 catch ( IOException e )
                 {
@@ -212,6 +226,18 @@ public class SerializerDefinitionAnalyser
             classDescriptor.push( propertyDescriptor );
         }
 
+        @Override
+        public void visitReferenceTrackedType( Class<?> type )
+        {
+            // Reference tracking is resolved by the runtime serializer, generated sources are not affected
+        }
+
+        @Override
+        public void visitReferenceTrackedAttribute( PropertyDescriptor propertyDescriptor )
+        {
+            // Reference tracking is resolved by the runtime serializer, generated sources are not affected
+        }
+
         @Override
         public void visitFinalizeSerializerDefinition( SerializerDefinition serializerDefinition )
         {
@@ -39,6 +39,9 @@ import org.apache.velocity.app.VelocityEngine;
 public class SourceMarshallerGenerator
 {
 
+    // Has to match the chunk size of the null bitmap written by runtime generated marshallers
+    private static final int NULL_BITMAP_CHUNK_SIZE = 64;
+
     private final VelocityEngine engine;
 
     private final Template marshallerTemplate;
@@ -71,8 +74,24 @@ public class SourceMarshallerGenerator
         List<PropertyDescriptor> propertyDescriptorsCopy = new ArrayList<PropertyDescriptor>( propertyDescriptors );
         Collections.sort( propertyDescriptorsCopy );
 
-        String packageName = type.getPackage() != null ? type.getPackage().getName() : "lightning";
-        String className = type.getName().replace( packageName + ".", "" ) + "LightningGeneratedMarshaller";
+        // All reference properties are nullable, the bitmap uses the same order as the runtime generated marshaller
+        List<PropertyDescriptor> nullableProperties = new ArrayList<PropertyDescriptor>();
+        for ( PropertyDescriptor propertyDescriptor : propertyDescriptorsCopy )
+        {
+            if ( !propertyDescriptor.getType().isPrimitive() )
+            {
+                nullableProperties.add( propertyDescriptor );
+            }
+        }
+
+        List<Integer> nullBitmapChunks = new ArrayList<Integer>();
+        for ( int chunk = 0; chunk * NULL_BITMAP_CHUNK_SIZE < nullableProperties.size(); chunk++ )
+        {
+            nullBitmapChunks.add( chunk );
+        }
+
+        String packageName = toPackageName( type );
+        String className = toSimpleClassName( type, packageName );
 
         File packageFolder = new File( outputFolder, packageName.replace( ".", "/" ) );
         if ( !packageFolder.exists() )
@@ -89,10 +108,12 @@ public class SourceMarshallerGenerator
 
         VelocityContext context = new VelocityContext();
 
-        context.put( "support", new Support() );
+        context.put( "support", new Support( nullableProperties ) );
         context.put( "packageName", packageName );
         context.put( "className", className );
         context.put( "properties", propertyDescriptorsCopy );
+        context.put( "nullableProperties", nullableProperties );
+        context.put( "nullBitmapChunks", nullBitmapChunks );
         context.put( "strategy", serializationStrategy.name() );
 
         marshallerTemplate.merge( context, writer );
@@ -103,9 +124,69 @@ public class SourceMarshallerGenerator
         return outputFile;
     }
 
+    /**
+     * Returns true if the generated source writes the same byte layout as the runtime generated marshaller would do.
+     * Object arrays are written element by element by the runtime generated marshaller, types having such properties
+     * are left to the runtime generator.
+     */
+    public boolean isSupported( List<PropertyDescriptor> propertyDescriptors )
+    {
+        for ( PropertyDescriptor propertyDescriptor : propertyDescriptors )
+        {
+            Class<?> type = propertyDescriptor.getType();
+            if ( type.isArray() && !type.getComponentType().isPrimitive() )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the binary name of the marshaller generated for the given type.
+     */
+    public String toMarshallerClassName( Class<?> type )
+    {
+        String packageName = toPackageName( type );
+        return packageName + "." + toSimpleClassName( type, packageName );
+    }
+
+    private String toPackageName( Class<?> type )
+    {
+        return type.getPackage() != null ? type.getPackage().getName() : "lightning";
+    }
+
+    private String toSimpleClassName( Class<?> type, String packageName )
+    {
+        return type.getName().replace( packageName + ".", "" ) + "LightningGeneratedMarshaller";
+    }
+
     public static class Support
     {
 
+        private final List<PropertyDescriptor> nullableProperties;
+
+        public Support( List<PropertyDescriptor> nullableProperties )
+        {
+            this.nullableProperties = nullableProperties;
+        }
+
+        public boolean isNullable( PropertyDescriptor propertyDescriptor )
+        {
+            return nullableProperties.contains( propertyDescriptor );
+        }
+
+        public int toNullBitmapChunk( PropertyDescriptor propertyDescriptor )
+        {
+            return nullableProperties.indexOf( propertyDescriptor ) / NULL_BITMAP_CHUNK_SIZE;
+        }
+
+        public String toNullBitmapBit( PropertyDescriptor propertyDescriptor )
+        {
+            int bit = nullableProperties.indexOf( propertyDescriptor ) % NULL_BITMAP_CHUNK_SIZE;
+            return "0x" + Long.toHexString( 1L << bit ) + "L";
+        }
+
         public String toFinalFieldName( String prefix, PropertyDescriptor propertyDescriptor )
         {
             return new StringBuilder( prefix.toUpperCase() ).append( "_" ).append( propertyDescriptor.getPropertyName().toUpperCase() ).append( "_LIGHTNING" ).toString();